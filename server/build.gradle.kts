@@ -10,6 +10,7 @@ plugins {
     `maven-publish`
     application
     id("com.github.johnrengelman.shadow") version "6.0.0"
+    id("me.champeau.jmh") version "0.6.6"
 }
 
 val group = "io.github.mopemope"
@@ -99,6 +100,13 @@ dependencies {
     implementation("com.github.oshi:oshi-core:3.13.5")
 }
 
+jmh {
+    jmhVersion.set("1.34")
+    warmupIterations.set(2)
+    iterations.set(5)
+    fork.set(1)
+}
+
 application {
     mainClassName = "meghanada.Main"
 }
@@ -0,0 +1,95 @@
+package meghanada.completion.matcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.FieldDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MatcherBenchmark {
+
+  private static final int CORPUS_SIZE = 200_000;
+  private static final String[] WORDS = {
+    "get", "set", "is", "to", "add", "remove", "create", "find", "load", "save", "string",
+    "name", "value", "index", "list", "map", "buffer", "stream", "reader", "writer", "file",
+    "path", "class", "type", "method", "field", "cache", "handler", "factory", "builder",
+    "context", "config", "node", "tree", "parser", "token", "char", "code", "point", "channel"
+  };
+
+  @Param({"ge", "getNa", "gN", "sOpC", "str"})
+  public String query;
+
+  private List<CandidateUnit> corpus;
+  private CompletionMatcher prefix;
+  private CompletionMatcher contains;
+  private CompletionMatcher camelCase;
+  private CompletionMatcher fuzzy;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(42);
+    this.corpus = new ArrayList<>(CORPUS_SIZE);
+    for (int i = 0; i < CORPUS_SIZE; i++) {
+      final StringBuilder sb = new StringBuilder(32);
+      final int humps = 1 + random.nextInt(4);
+      for (int j = 0; j < humps; j++) {
+        final String word = WORDS[random.nextInt(WORDS.length)];
+        if (j == 0) {
+          sb.append(word);
+        } else {
+          sb.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+      }
+      if (random.nextInt(8) == 0) {
+        sb.append(random.nextInt(10));
+      }
+      this.corpus.add(new FieldDescriptor("bench.Corpus", sb.toString(), "public", "int"));
+    }
+    this.prefix = new PrefixMatcher(this.query, true);
+    this.contains = new ContainsMatcher(this.query, true);
+    this.camelCase = new CamelCaseMatcher(this.query);
+    this.fuzzy = new FuzzyMatcher(this.query);
+  }
+
+  private int count(final CompletionMatcher matcher) {
+    int matched = 0;
+    for (final CandidateUnit c : this.corpus) {
+      if (matcher.match(c)) {
+        matched++;
+      }
+    }
+    return matched;
+  }
+
+  @Benchmark
+  public int prefix() {
+    return this.count(this.prefix);
+  }
+
+  @Benchmark
+  public int contains() {
+    return this.count(this.contains);
+  }
+
+  @Benchmark
+  public int camelCase() {
+    return this.count(this.camelCase);
+  }
+
+  @Benchmark
+  public int fuzzy() {
+    return this.count(this.fuzzy);
+  }
+}
@@ -0,0 +1,172 @@
+package meghanada.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import meghanada.analyze.ClassScope;
+import meghanada.analyze.ExpressionScope;
+import meghanada.analyze.MethodCall;
+import meghanada.analyze.MethodScope;
+import meghanada.analyze.Position;
+import meghanada.analyze.Range;
+import meghanada.analyze.Source;
+import meghanada.analyze.Variable;
+import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.ClassIndex;
+import meghanada.reflect.FieldDescriptor;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.MethodDescriptor;
+import meghanada.reflect.MethodParameter;
+import org.nustaq.serialization.FSTConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SerializerBenchmark {
+
+  private static final String[] TYPES = {
+    "java.lang.String", "int", "long", "boolean", "java.util.List<E>", "java.util.Map<K, V>",
+    "java.io.File", "java.lang.Object", "java.util.Optional<T>", "byte[]"
+  };
+
+  @Param({"members", "classIndex", "checksum", "source"})
+  public String kind;
+
+  private Object value;
+  private FSTConfiguration fst;
+  private byte[] fstBytes;
+  private byte[] codecBytes;
+
+  private static List<MemberDescriptor> createMembers(final Random random, final int size) {
+    final List<MemberDescriptor> members = new ArrayList<>(size);
+    final String declaringClass = "bench.pkg.BenchClass";
+    for (int i = 0; i < size; i++) {
+      final String returnType = TYPES[random.nextInt(TYPES.length)];
+      if (i % 4 == 0) {
+        members.add(new FieldDescriptor(declaringClass, "field" + i, "private", returnType));
+        continue;
+      }
+      final int n = random.nextInt(4);
+      final List<MethodParameter> parameters = new ArrayList<>(n);
+      for (int j = 0; j < n; j++) {
+        parameters.add(new MethodParameter(TYPES[random.nextInt(TYPES.length)], "arg" + j, false));
+      }
+      final MethodDescriptor md =
+          new MethodDescriptor(
+              declaringClass,
+              "method" + i,
+              "public",
+              parameters,
+              new String[] {"java.io.IOException"},
+              returnType,
+              false,
+              CandidateUnit.MemberType.METHOD);
+      md.typeParameters = new HashSet<>(Collections.singletonList("T"));
+      members.add(md);
+    }
+    return members;
+  }
+
+  private static ClassIndex createClassIndex() {
+    final ClassIndex index =
+        new ClassIndex(
+            "bench.pkg.BenchClass",
+            new ArrayList<>(Arrays.asList("K", "V")),
+            new ArrayList<>(Arrays.asList("java.util.AbstractMap<K, V>", "java.io.Serializable")));
+    index.filePath = "/home/user/.m2/repository/bench/bench/1.0/bench-1.0.jar";
+    return index;
+  }
+
+  private static Source createSource(final Random random, final int methods) {
+    final Source source = new Source("/home/user/project/src/main/java/bench/pkg/BenchClass.java");
+    source.setPackageName("bench.pkg");
+    source.importClasses.addAll(Arrays.asList(TYPES).subList(4, 7));
+    final Range range = new Range(new Position(1, 1), new Position(methods * 10, 1));
+    final ClassScope cs = new ClassScope("bench.pkg.BenchClass", range, 0, range);
+    for (int i = 0; i < methods; i++) {
+      final Range mr = new Range(new Position(i * 10 + 2, 3), new Position(i * 10 + 9, 3));
+      final MethodScope ms = new MethodScope(cs.name, "method" + i, mr, i * 100, mr, false);
+      ms.returnType = TYPES[random.nextInt(TYPES.length)];
+      ms.parent = cs;
+      cs.scopes.add(ms);
+      for (int j = 0; j < 4; j++) {
+        final int line = i * 10 + 3 + j;
+        final Range er = new Range(new Position(line, 5), new Position(line, 40));
+        final ExpressionScope expr = new ExpressionScope(i * 100 + j * 10, er);
+        final Variable v = new Variable("var" + j, i * 100 + j * 10, er);
+        v.fqcn = TYPES[random.nextInt(TYPES.length)];
+        v.isDef = true;
+        boolean b = expr.variables.add(v);
+        final MethodCall mc = new MethodCall("call" + j, i * 100 + j * 10 + 4, er, er);
+        mc.declaringClass = TYPES[random.nextInt(TYPES.length)];
+        mc.returnType = v.fqcn;
+        expr.methodCalls.add(mc);
+        expr.expressionReturn = mc;
+        expr.parent = ms;
+        ms.expressions.add(expr);
+      }
+    }
+    source.classScopes.add(cs);
+    return source;
+  }
+
+  private static Map<String, String> createChecksumMap(final Random random, final int size) {
+    final Map<String, String> map = new ConcurrentHashMap<>(size);
+    for (int i = 0; i < size; i++) {
+      final String path = "/home/user/project/src/main/java/bench/pkg" + (i % 32) + "/File" + i;
+      map.put(path + ".java", Long.toHexString(random.nextLong()) + "0123456789abcdef");
+    }
+    return map;
+  }
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(42);
+    final Map<String, Object> values = new HashMap<>(4);
+    values.put("members", createMembers(random, 200));
+    values.put("classIndex", createClassIndex());
+    values.put("checksum", createChecksumMap(random, 2000));
+    values.put("source", createSource(random, 50));
+    this.value = values.get(this.kind);
+    this.fst = Serializer.getFST();
+    this.fstBytes = this.fst.asByteArray(this.value);
+    this.codecBytes = BinaryCodec.encode(this.value);
+    System.out.printf(
+        "%n%s size fst:%d codec:%d%n", this.kind, this.fstBytes.length, this.codecBytes.length);
+  }
+
+  @Benchmark
+  public byte[] fstEncode() {
+    return this.fst.asByteArray(this.value);
+  }
+
+  @Benchmark
+  public Object fstDecode() {
+    return this.fst.asObject(this.fstBytes);
+  }
+
+  @Benchmark
+  public byte[] codecEncode() {
+    return BinaryCodec.encode(this.value);
+  }
+
+  @Benchmark
+  public Object codecDecode() throws Exception {
+    return BinaryCodec.decode(this.codecBytes);
+  }
+}
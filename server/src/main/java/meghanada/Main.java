@@ -13,6 +13,8 @@ import java.util.Objects;
 import meghanada.config.Config;
 import meghanada.server.Server;
 import meghanada.server.emacs.EmacsServer;
+import meghanada.store.IndexBundle;
+import meghanada.store.ProjectDatabase;
 import meghanada.telemetry.TelemetryUtils;
 import meghanada.utils.ClassPathUtils;
 import meghanada.utils.FileUtils;
@@ -146,6 +148,11 @@ public class Main {
       fmt = cmd.getOptionValue("output", fmt);
     }
     log.debug("set port:{}, projectRoot:{}, output:{}", port, projectRoot, fmt);
+
+    if (cmd.hasOption("export-index") || cmd.hasOption("import-index")) {
+      runIndexBundle(cmd, projectRoot);
+      return;
+    }
     final int portInt = Integer.parseInt(port);
 
     log.info("Meghanada-Server Version:{}", version);
@@ -153,6 +160,25 @@ public class Main {
     server.startServer();
   }
 
+  private static void runIndexBundle(final CommandLine cmd, final String projectRoot)
+      throws IOException {
+    Config.setProjectRoot(new File(projectRoot).getCanonicalPath());
+    final ProjectDatabase database = ProjectDatabase.getInstance();
+    try {
+      if (cmd.hasOption("export-index")) {
+        final File bundle = new File(cmd.getOptionValue("export-index"));
+        final int size = IndexBundle.exportBundle(bundle);
+        System.out.println("exported " + size + " class indexes to " + bundle);
+      } else {
+        final File bundle = new File(cmd.getOptionValue("import-index"));
+        final int size = IndexBundle.importBundle(bundle);
+        System.out.println("imported " + size + " class indexes from " + bundle);
+      }
+    } finally {
+      database.shutdown();
+    }
+  }
+
   private static void setupTelemetry() throws IOException {
     // global
     boolean exporter = TelemetryUtils.setupExporter();
@@ -232,6 +258,12 @@ public class Main {
     final Option logFilename =
         new Option("l", "log", true, "log file location. default: /tmp/meghanada_server.log");
     options.addOption(logFilename);
+    final Option exportIndex =
+        new Option(null, "export-index", true, "export the project index to a bundle and exit");
+    options.addOption(exportIndex);
+    final Option importIndex =
+        new Option(null, "import-index", true, "import a project index bundle and exit");
+    options.addOption(importIndex);
     return options;
   }
 
@@ -206,7 +206,7 @@ public class MethodScope extends BlockScope {
         CandidateUnit.MemberType.METHOD);
   }
 
-  private String[] getExceptions() {
+  String[] getExceptions() {
     return this.exceptions.toArray(STRINGS);
   }
 }
@@ -10,6 +10,7 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
 import com.google.common.hash.Funnels;
 import com.sun.source.tree.LineMap;
 import java.io.BufferedReader;
@@ -28,6 +29,7 @@ import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +48,8 @@ import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.ClassIndex;
 import meghanada.reflect.MemberDescriptor;
 import meghanada.reflect.asm.CachedASMReflector;
+import meghanada.store.CallGraph;
+import meghanada.store.ReferenceIndex;
 import meghanada.store.Storable;
 import meghanada.telemetry.TelemetryUtils;
 import meghanada.utils.ClassNameUtils;
@@ -69,6 +73,13 @@ public class Source implements Serializable, Storable, SearchIndexable {
   public static final String LINK_SOURCE = "source";
   private static final long serialVersionUID = -4115484075118150793L;
   private static final Logger log = LogManager.getLogger(Source.class);
+  // rough retained sizes, the bloom filter dominates an empty source
+  private static final long BASE_SIZE = 16 * 1024;
+  private static final long SYMBOL_SIZE = 256;
+  private static final long WORD_SIZE = 96;
+  private static final long NAME_SIZE = 80;
+  static final Funnel<CharSequence> METHOD_CALLS_FUNNEL =
+      Funnels.stringFunnel(StandardCharsets.UTF_8);
 
   public final Set<String> importClasses = new HashSet<>(16);
   public final Map<String, String> staticImportClass = new HashMap<>(8);
@@ -94,8 +105,12 @@ public class Source implements Serializable, Storable, SearchIndexable {
 
   public Source(String filePath) {
     this.filePath = filePath;
-    this.methodCallsBF =
-        BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), 10000, 0.01);
+    this.methodCallsBF = BloomFilter.create(METHOD_CALLS_FUNNEL, 10000, 0.01);
+  }
+
+  Source(String filePath, BloomFilter<String> methodCallsBF) {
+    this.filePath = filePath;
+    this.methodCallsBF = methodCallsBF;
   }
 
   public Source(String filePath, LineMap lineMap) {
@@ -517,6 +532,7 @@ public class Source implements Serializable, Storable, SearchIndexable {
 
     log.debug("unknown class size:{} classes:{}", this.unknown.size(), this.unknown);
     Map<String, String> importedClassMap = this.getImportedClassMap();
+    Map<String, String> searchWords = new LinkedHashMap<>(this.unknown.size());
     for (String clazzName : this.unknown) {
       String searchWord = ClassNameUtils.removeTypeAndArray(clazzName);
       int i = searchWord.indexOf('.');
@@ -531,10 +547,16 @@ public class Source implements Serializable, Storable, SearchIndexable {
       if (importedClassMap.containsKey(searchWord)) {
         continue;
       }
+      searchWords.put(clazzName, searchWord);
+    }
 
-      log.debug("search unknown class : '{}' ...", searchWord);
-      Collection<? extends CandidateUnit> findUnits = reflector.searchClasses(searchWord, true);
-      log.debug("find candidate units : {}", findUnits);
+    // resolve all names at once
+    Map<String, List<ClassIndex>> found = reflector.searchClasses(searchWords.values(), true);
+    for (Map.Entry<String, String> entry : searchWords.entrySet()) {
+      String clazzName = entry.getKey();
+      Collection<? extends CandidateUnit> findUnits =
+          found.getOrDefault(entry.getValue(), Collections.emptyList());
+      log.debug("find candidate units : {} {}", entry.getValue(), findUnits);
 
       if (findUnits.size() == 0) {
         continue;
@@ -566,15 +588,15 @@ public class Source implements Serializable, Storable, SearchIndexable {
     return ask;
   }
 
-  public void invalidateCache() {
-    this.invalidateCache(this.classScopes);
+  public void refreshCache() {
+    this.refreshCache(this.classScopes);
   }
 
-  private void invalidateCache(List<ClassScope> classScopes) {
+  private void refreshCache(List<ClassScope> classScopes) {
     GlobalCache globalCache = GlobalCache.getInstance();
     for (ClassScope classScope : classScopes) {
-      globalCache.invalidateMemberDescriptors(classScope.getFQCN());
-      this.invalidateCache(classScope.classScopes);
+      globalCache.refreshMemberDescriptors(classScope.getFQCN());
+      this.refreshCache(classScope.classScopes);
     }
   }
 
@@ -763,6 +785,8 @@ public class Source implements Serializable, Storable, SearchIndexable {
       entity.setProperty("packageName", this.packageName);
     }
     entity.setProperty("fqcn", this.getFQCN());
+    ReferenceIndex.update(txn, entity, this);
+    CallGraph.update(txn, entity, this);
   }
 
   private static Set<ClassScope> getAllClassScopes(ClassScope classScope) {
@@ -839,10 +863,34 @@ public class Source implements Serializable, Storable, SearchIndexable {
     }
   }
 
+  BloomFilter<String> getMethodCallsBF() {
+    return this.methodCallsBF;
+  }
+
   public boolean mightContainMethodCall(String methodCall) {
     return this.methodCallsBF.mightContain(methodCall);
   }
 
+  public long estimateSize() {
+    long symbols = 0;
+    for (ClassScope c : this.classScopes) {
+      symbols += c.getVariables().size();
+      symbols += c.getFieldAccesses().size();
+      symbols += c.getMethodCalls().size();
+    }
+    long words = 0;
+    for (List<IndexableWord> list : this.indexWords.values()) {
+      words += list.size();
+    }
+    final long names =
+        this.importClasses.size()
+            + this.staticImportClass.size()
+            + this.usingClasses.size()
+            + this.unused.size()
+            + this.unknown.size();
+    return BASE_SIZE + symbols * SYMBOL_SIZE + words * WORD_SIZE + names * NAME_SIZE;
+  }
+
   public Collection<AccessSymbol> getAccessSymbols() {
     List<AccessSymbol> result = new ArrayList<>(8);
     for (ClassScope c : this.classScopes) {
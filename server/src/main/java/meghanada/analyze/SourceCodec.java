@@ -0,0 +1,449 @@
+package meghanada.analyze;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.hash.BloomFilter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.store.BinaryInput;
+import meghanada.store.BinaryOutput;
+
+/**
+ * Writes the analyzed scope tree of a {@link Source} for the binary store codec. Parents are not
+ * written, they are restored from the tree, and expression symbols are written as indexes into
+ * their own scope. Only the finished tree is kept, the current scope stacks are analysis state.
+ */
+public final class SourceCodec {
+
+  private static final int KIND_BLOCK = 1;
+  private static final int KIND_METHOD = 2;
+  private static final int KIND_TYPE = 3;
+  private static final int KIND_CLASS = 4;
+
+  private static final int SYMBOL_NONE = 0;
+  private static final int SYMBOL_VARIABLE = 1;
+  private static final int SYMBOL_FIELD_ACCESS = 2;
+  private static final int SYMBOL_METHOD_CALL = 3;
+
+  private SourceCodec() {}
+
+  public static void write(final BinaryOutput out, final Source source) {
+    out.writeString(source.filePath);
+    final ByteArrayOutputStream bf = new ByteArrayOutputStream(16 * 1024);
+    try {
+      source.getMethodCallsBF().writeTo(bf);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    out.writeBytes(bf.toByteArray());
+    out.writeString(source.getPackageName());
+    out.writeVarlong(source.getClassStartLine());
+    out.writeVarlong(source.getPackageStartLine());
+    out.writeBoolean(source.hasCompileError);
+    out.writeStrings(source.importClasses);
+    out.writeStringMap(source.staticImportClass);
+    out.writeStrings(source.usingClasses);
+    out.writeStrings(source.unused);
+    out.writeStrings(source.unknown);
+    out.writeVarint(source.annotationMap.size());
+    for (final Map.Entry<Long, Annotation> entry : source.annotationMap.entrySet()) {
+      out.writeVarlong(entry.getKey());
+      final Annotation annotation = entry.getValue();
+      out.writeString(annotation.name);
+      out.writeVarint(annotation.pos);
+      writeRange(out, annotation.range);
+    }
+    out.writeVarint(source.classScopes.size());
+    for (final ClassScope cs : source.classScopes) {
+      writeBlock(out, cs);
+    }
+  }
+
+  public static Source read(final BinaryInput in) throws IOException {
+    final String filePath = in.readString();
+    if (isNull(filePath)) {
+      throw new IOException("broken source");
+    }
+    final BloomFilter<String> bf;
+    try (ByteArrayInputStream bin = new ByteArrayInputStream(in.readBytes())) {
+      bf = BloomFilter.readFrom(bin, Source.METHOD_CALLS_FUNNEL);
+    }
+    final Source source = new Source(filePath, bf);
+    source.setPackageName(in.readString());
+    source.setClassStartLine(in.readVarlong());
+    source.setPackageStartLine(in.readVarlong());
+    source.hasCompileError = in.readBoolean();
+    addAll(source.importClasses, in.readStrings());
+    final Map<String, String> staticImportClass = in.readStringMap();
+    if (nonNull(staticImportClass)) {
+      source.staticImportClass.putAll(staticImportClass);
+    }
+    addAll(source.usingClasses, in.readStrings());
+    addAll(source.unused, in.readStrings());
+    addAll(source.unknown, in.readStrings());
+    final int annotations = in.readVarint();
+    for (int i = 0; i < annotations; i++) {
+      final long line = in.readVarlong();
+      final String name = in.readString();
+      final int pos = in.readVarint();
+      source.annotationMap.put(line, new Annotation(name, pos, readRange(in)));
+    }
+    final int classes = in.readVarint();
+    for (int i = 0; i < classes; i++) {
+      source.classScopes.add((ClassScope) readBlock(in));
+    }
+    return source;
+  }
+
+  private static void addAll(final Collection<String> to, @Nullable final List<String> from) {
+    if (nonNull(from)) {
+      boolean b = to.addAll(from);
+    }
+  }
+
+  private static void writeRange(final BinaryOutput out, @Nullable final Range range) {
+    out.writeBoolean(nonNull(range));
+    if (nonNull(range)) {
+      out.writeVarlong(range.begin.line);
+      out.writeVarlong(range.begin.column);
+      out.writeVarlong(range.end.line);
+      out.writeVarlong(range.end.column);
+    }
+  }
+
+  @Nullable
+  private static Range readRange(final BinaryInput in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    final Position begin = new Position(in.readVarlong(), in.readVarlong());
+    final Position end = new Position(in.readVarlong(), in.readVarlong());
+    return new Range(begin, end);
+  }
+
+  private static int kindOf(final BlockScope bs) {
+    if (bs instanceof ClassScope) {
+      return KIND_CLASS;
+    }
+    if (bs instanceof TypeScope) {
+      return KIND_TYPE;
+    }
+    if (bs instanceof MethodScope) {
+      return KIND_METHOD;
+    }
+    return KIND_BLOCK;
+  }
+
+  private static void writeBlock(final BinaryOutput out, final BlockScope bs) {
+    final int kind = kindOf(bs);
+    out.writeVarint(kind);
+    out.writeVarint(bs.pos);
+    writeRange(out, bs.range);
+    if (kind != KIND_BLOCK) {
+      final MethodScope ms = (MethodScope) bs;
+      out.writeString(ms.name);
+      writeRange(out, ms.nameRange);
+      if (kind == KIND_METHOD) {
+        out.writeString(ms.declaringClass);
+        out.writeBoolean(ms.isConstructor());
+      }
+    }
+    writeSymbols(out, bs, new ArrayList<>(bs.variables));
+    if (kind != KIND_BLOCK) {
+      final MethodScope ms = (MethodScope) bs;
+      out.writeStrings(ms.parameters);
+      out.writeBoolean(ms.vararg);
+      out.writeString(ms.modifier);
+      out.writeString(ms.returnType);
+      out.writeStrings(Arrays.asList(ms.getExceptions()));
+    }
+    if (kind == KIND_TYPE || kind == KIND_CLASS) {
+      final TypeScope ts = (TypeScope) bs;
+      out.writeBoolean(ts.isInterface);
+      out.writeBoolean(ts.isEnum);
+      out.writeVarint(ts.members.size());
+      for (final MemberDescriptor md : ts.members) {
+        out.writeMember(md);
+      }
+    }
+    if (kind == KIND_CLASS) {
+      final ClassScope cs = (ClassScope) bs;
+      out.writeVarint(cs.classScopes.size());
+      for (final ClassScope child : cs.classScopes) {
+        writeBlock(out, child);
+      }
+    }
+    out.writeVarint(bs.scopes.size());
+    for (final BlockScope child : bs.scopes) {
+      writeBlock(out, child);
+    }
+    out.writeVarint(bs.expressions.size());
+    for (final ExpressionScope expr : bs.expressions) {
+      writeExpression(out, expr);
+    }
+  }
+
+  private static BlockScope readBlock(final BinaryInput in) throws IOException {
+    final int kind = in.readVarint();
+    final int pos = in.readVarint();
+    final Range range = readRange(in);
+    final BlockScope bs;
+    if (kind == KIND_BLOCK) {
+      bs = new BlockScope(pos, range);
+    } else {
+      final String name = in.readString();
+      final Range nameRange = readRange(in);
+      if (kind == KIND_METHOD) {
+        final String declaringClass = in.readString();
+        final boolean isConstructor = in.readBoolean();
+        bs = new MethodScope(declaringClass, name, nameRange, pos, range, isConstructor);
+      } else if (kind == KIND_TYPE) {
+        bs = new TypeScope(name, nameRange, pos, range);
+      } else if (kind == KIND_CLASS) {
+        bs = new ClassScope(name, nameRange, pos, range);
+      } else {
+        throw new IOException("unknown scope kind " + kind);
+      }
+    }
+    readSymbols(in, bs, new ArrayList<>(16));
+    if (kind != KIND_BLOCK) {
+      final MethodScope ms = (MethodScope) bs;
+      addAll(ms.parameters, in.readStrings());
+      ms.vararg = in.readBoolean();
+      ms.modifier = in.readString();
+      ms.returnType = in.readString();
+      final List<String> exceptions = in.readStrings();
+      if (nonNull(exceptions)) {
+        exceptions.forEach(ms::addException);
+      }
+    }
+    if (kind == KIND_TYPE || kind == KIND_CLASS) {
+      final TypeScope ts = (TypeScope) bs;
+      ts.isInterface = in.readBoolean();
+      ts.isEnum = in.readBoolean();
+      final int size = in.readVarint();
+      for (int i = 0; i < size; i++) {
+        ts.members.add(in.readMember());
+      }
+    }
+    if (kind == KIND_CLASS) {
+      final ClassScope cs = (ClassScope) bs;
+      final int size = in.readVarint();
+      for (int i = 0; i < size; i++) {
+        cs.classScopes.add((ClassScope) readBlock(in));
+      }
+    }
+    final int scopes = in.readVarint();
+    for (int i = 0; i < scopes; i++) {
+      final BlockScope child = readBlock(in);
+      child.parent = bs;
+      bs.scopes.add(child);
+    }
+    final int expressions = in.readVarint();
+    for (int i = 0; i < expressions; i++) {
+      final ExpressionScope expr = readExpression(in);
+      expr.parent = bs;
+      bs.expressions.add(expr);
+    }
+    return bs;
+  }
+
+  private static void writeExpression(final BinaryOutput out, final ExpressionScope expr) {
+    out.writeVarint(expr.pos);
+    writeRange(out, expr.range);
+    final List<Variable> variables = new ArrayList<>(expr.variables);
+    writeSymbols(out, expr, variables);
+    out.writeBoolean(expr.isField);
+    out.writeString(expr.modifier);
+    out.writeString(expr.declaringClass);
+    out.writeBoolean(expr.isAssign);
+    writeSymbolRef(out, expr, variables, expr.expressionReturn);
+    writeSymbolRef(out, expr, variables, expr.assignSymbol);
+  }
+
+  private static ExpressionScope readExpression(final BinaryInput in) throws IOException {
+    final int pos = in.readVarint();
+    final ExpressionScope expr = new ExpressionScope(pos, readRange(in));
+    final List<Variable> variables = new ArrayList<>(4);
+    readSymbols(in, expr, variables);
+    expr.isField = in.readBoolean();
+    expr.modifier = in.readString();
+    expr.declaringClass = in.readString();
+    expr.isAssign = in.readBoolean();
+    final Symbol expressionReturn = readSymbolRef(in, expr, variables);
+    if (expressionReturn instanceof AccessSymbol) {
+      expr.expressionReturn = (AccessSymbol) expressionReturn;
+    }
+    expr.assignSymbol = readSymbolRef(in, expr, variables);
+    return expr;
+  }
+
+  /** Writes the scope's own symbols, variables in the given order. */
+  private static void writeSymbols(
+      final BinaryOutput out, final Scope scope, final List<Variable> variables) {
+    out.writeVarint(variables.size());
+    for (final Variable v : variables) {
+      out.writeString(v.name);
+      out.writeVarint(v.pos);
+      writeRange(out, v.range);
+      out.writeString(v.fqcn);
+      out.writeBoolean(v.isDef);
+      out.writeBoolean(v.isParameter);
+      out.writeBoolean(v.isField);
+      out.writeVarint(v.argumentIndex + 1);
+      out.writeString(v.modifier);
+      out.writeString(v.declaringClass);
+    }
+    out.writeVarint(scope.fieldAccesses.size());
+    for (final FieldAccess fa : scope.fieldAccesses) {
+      out.writeString(fa.name);
+      out.writeVarint(fa.pos);
+      writeRange(out, fa.range);
+      writeAccessSymbol(out, fa);
+      out.writeBoolean(fa.isEnum);
+    }
+    out.writeVarint(scope.methodCalls.size());
+    for (final MethodCall mc : scope.methodCalls) {
+      out.writeString(mc.name);
+      out.writeVarint(mc.pos);
+      writeRange(out, mc.range);
+      writeRange(out, mc.nameRange);
+      writeAccessSymbol(out, mc);
+      out.writeBoolean(mc.constructor);
+      out.writeStrings(mc.arguments);
+    }
+  }
+
+  /** Adds to the scope's fields directly, its add methods would apply the analysis rules again. */
+  private static void readSymbols(
+      final BinaryInput in, final Scope scope, final List<Variable> variables) throws IOException {
+    final int size = in.readVarint();
+    for (int i = 0; i < size; i++) {
+      final String name = in.readString();
+      final int pos = in.readVarint();
+      final Variable v = new Variable(name, pos, readRange(in));
+      v.fqcn = in.readString();
+      v.isDef = in.readBoolean();
+      v.isParameter = in.readBoolean();
+      v.isField = in.readBoolean();
+      v.argumentIndex = in.readVarint() - 1;
+      v.modifier = in.readString();
+      v.declaringClass = in.readString();
+      variables.add(v);
+      boolean b = scope.variables.add(v);
+    }
+    final int fieldAccesses = in.readVarint();
+    for (int i = 0; i < fieldAccesses; i++) {
+      final String name = in.readString();
+      final int pos = in.readVarint();
+      final FieldAccess fa = new FieldAccess(name, pos, readRange(in));
+      readAccessSymbol(in, fa);
+      fa.isEnum = in.readBoolean();
+      scope.fieldAccesses.add(fa);
+    }
+    final int methodCalls = in.readVarint();
+    for (int i = 0; i < methodCalls; i++) {
+      final String name = in.readString();
+      final int pos = in.readVarint();
+      final Range range = readRange(in);
+      final MethodCall call = new MethodCall(name, pos, readRange(in), range);
+      readAccessSymbol(in, call);
+      call.constructor = in.readBoolean();
+      final List<String> arguments = in.readStrings();
+      if (nonNull(arguments)) {
+        call.arguments = arguments;
+      }
+      scope.methodCalls.add(call);
+    }
+  }
+
+  private static void writeAccessSymbol(final BinaryOutput out, final AccessSymbol as) {
+    out.writeString(as.declaringClass);
+    out.writeString(as.scope);
+    out.writeString(as.returnType);
+    out.writeVarint(as.argumentIndex + 1);
+  }
+
+  private static void readAccessSymbol(final BinaryInput in, final AccessSymbol as)
+      throws IOException {
+    as.declaringClass = in.readString();
+    as.scope = in.readString();
+    as.returnType = in.readString();
+    as.argumentIndex = in.readVarint() - 1;
+  }
+
+  private static void writeSymbolRef(
+      final BinaryOutput out,
+      final Scope scope,
+      final List<Variable> variables,
+      @Nullable final Symbol symbol) {
+    if (symbol instanceof Variable) {
+      final int i = indexOf(variables, symbol);
+      if (i >= 0) {
+        out.writeVarint(SYMBOL_VARIABLE);
+        out.writeVarint(i);
+        return;
+      }
+    } else if (symbol instanceof FieldAccess) {
+      final int i = indexOf(scope.fieldAccesses, symbol);
+      if (i >= 0) {
+        out.writeVarint(SYMBOL_FIELD_ACCESS);
+        out.writeVarint(i);
+        return;
+      }
+    } else if (symbol instanceof MethodCall) {
+      final int i = indexOf(scope.methodCalls, symbol);
+      if (i >= 0) {
+        out.writeVarint(SYMBOL_METHOD_CALL);
+        out.writeVarint(i);
+        return;
+      }
+    }
+    // symbols of other scopes are resolved again by the completion
+    out.writeVarint(SYMBOL_NONE);
+  }
+
+  @Nullable
+  private static Symbol readSymbolRef(
+      final BinaryInput in, final Scope scope, final List<Variable> variables)
+      throws IOException {
+    final int kind = in.readVarint();
+    if (kind == SYMBOL_NONE) {
+      return null;
+    }
+    final int i = in.readVarint();
+    final List<? extends Symbol> list;
+    if (kind == SYMBOL_VARIABLE) {
+      list = variables;
+    } else if (kind == SYMBOL_FIELD_ACCESS) {
+      list = scope.fieldAccesses;
+    } else if (kind == SYMBOL_METHOD_CALL) {
+      list = scope.methodCalls;
+    } else {
+      throw new IOException("unknown symbol kind " + kind);
+    }
+    if (i < 0 || i >= list.size()) {
+      throw new IOException("bad symbol reference " + i);
+    }
+    return list.get(i);
+  }
+
+  private static int indexOf(final List<?> list, final Object o) {
+    for (int i = 0; i < list.size(); i++) {
+      if (list.get(i) == o) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -15,9 +15,7 @@ import meghanada.analyze.Source;
 import meghanada.cache.GlobalCache;
 import meghanada.config.Config;
 import meghanada.project.Project;
-import meghanada.session.SessionEventBus;
 import meghanada.store.ProjectDatabaseHelper;
-import meghanada.system.Executor;
 import meghanada.telemetry.ErrorReporter;
 import meghanada.telemetry.TelemetryUtils;
 import meghanada.utils.FileUtils;
@@ -88,7 +86,7 @@ public class SourceCacheSubscriber {
     }
 
     if (!isDiagnostics) {
-      source.invalidateCache();
+      source.refreshCache();
     }
 
     globalCache.replaceSource(source);
@@ -100,8 +98,6 @@ public class SourceCacheSubscriber {
       // error
       checksumMap.remove(path);
     }
-    SessionEventBus.IdleCacheEvent event = new SessionEventBus.IdleCacheEvent(source.importClasses);
-    Executor.getInstance().getEventBus().post(event);
   }
 
   public void complete() throws IOException {
@@ -148,6 +144,10 @@ public class SourceCacheSubscriber {
           TelemetryUtils.startScopedSpan("SourceCacheSubscriber.complete")) {
         this.complete();
       }
+      if (analyzedMap.size() == 1) {
+        // the file being edited, not a whole project build
+        analyzedMap.values().forEach(GlobalCache.getInstance()::prefetchMemberDescriptors);
+      }
       span.setStatusOK();
     } catch (Exception ex) {
       log.catching(ex);
@@ -0,0 +1,30 @@
+package meghanada.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CacheSnapshot implements Serializable {
+
+  private static final long serialVersionUID = -3391540226315733918L;
+
+  // hottest first
+  private final List<String> memberKeys;
+  // path to checksum, in the order they are restored
+  private final Map<String, String> sources;
+
+  CacheSnapshot(final List<String> memberKeys, final Map<String, String> sources) {
+    this.memberKeys = new ArrayList<>(memberKeys);
+    this.sources = new LinkedHashMap<>(sources);
+  }
+
+  List<String> getMemberKeys() {
+    return this.memberKeys;
+  }
+
+  Map<String, String> getSources() {
+    return this.sources;
+  }
+}
@@ -1,5 +1,6 @@
 package meghanada.cache;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
 import com.google.common.cache.CacheBuilder;
@@ -7,35 +8,49 @@ import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import meghanada.analyze.Source;
 import meghanada.config.Config;
 import meghanada.project.Project;
 import meghanada.reflect.MemberDescriptor;
 import meghanada.store.ProjectDatabaseHelper;
+import meghanada.system.Executor;
 import meghanada.telemetry.TelemetryUtils;
+import meghanada.utils.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public class GlobalCache {
 
-  private static final int MEMBER_CACHE_MAX = 4096;
-
   private static final Logger log = LogManager.getLogger(GlobalCache.class);
+  private static final int SNAPSHOT_MEMBERS = 2048;
+  // keys counted between snapshots, each snapshot trims the counts back to SNAPSHOT_MEMBERS
+  private static final int MAX_MEMBER_HITS = SNAPSHOT_MEMBERS * 4;
+  private static final long SNAPSHOT_INTERVAL = TimeUnit.MINUTES.toMillis(10);
 
   private static GlobalCache globalCache;
-  private final Map<File, LoadingCache<File, Source>> sourceCaches;
+  private final Map<File, SourceCache> sourceCaches;
   private final Map<File, JavaSourceLoader> sourceLoaders;
   private final Map<File, Map<String, String>> sourceMapCaches;
 
   private LoadingCache<String, List<MemberDescriptor>> memberCache;
   private MemberCacheLoader memberCacheLoader;
+  private OffHeapMemberStore offHeapMemberStore;
+  private MemberPrefetcher memberPrefetcher;
+  private final Map<String, LongAdder> memberHits = new ConcurrentHashMap<>(1024);
+  private volatile long snapshotSaved;
 
   private Supplier<Project> projectSupplier;
 
@@ -72,14 +87,20 @@ public class GlobalCache {
     if (nonNull(this.memberCache)) {
       return;
     }
-    this.memberCacheLoader = new MemberCacheLoader();
+    final Config config = Config.load();
+    this.offHeapMemberStore = new OffHeapMemberStore(config.getMemberCacheOffHeapSize());
+    this.memberCacheLoader = new MemberCacheLoader(this.offHeapMemberStore);
     this.memberCache =
         CacheBuilder.newBuilder()
-            .maximumSize(MEMBER_CACHE_MAX)
+            .maximumSize(config.getMemberCacheSize())
             .recordStats()
             .expireAfterAccess(30, TimeUnit.MINUTES)
             .removalListener(memberCacheLoader)
             .build(memberCacheLoader);
+    this.memberPrefetcher = new MemberPrefetcher(this);
+    this.memberPrefetcher.start();
+    // the first periodic snapshot must not overwrite the one being restored
+    this.snapshotSaved = System.currentTimeMillis();
   }
 
   @SuppressWarnings("try")
@@ -91,6 +112,7 @@ public class GlobalCache {
       TelemetryUtils.ScopedSpan.addAnnotation(
           TelemetryUtils.annotationBuilder().put("fqcn", fqcn).build("args"));
 
+      this.recordMemberHit(fqcn);
       return this.memberCache.get(fqcn);
     } finally {
       TelemetryUtils.recordMemberCacheRate(getMemberDescriptorsRateStats());
@@ -106,6 +128,8 @@ public class GlobalCache {
       TelemetryUtils.ScopedSpan.addAnnotation(
           TelemetryUtils.annotationBuilder().put("fqcn", fqcn).build("args"));
 
+      // reload from the database or the class file, not from the compressed tier
+      this.offHeapMemberStore.remove(fqcn);
       List<MemberDescriptor> descriptors = this.memberCacheLoader.load(fqcn);
       this.memberCache.put(fqcn, descriptors);
     } finally {
@@ -132,11 +156,166 @@ public class GlobalCache {
     };
   }
 
+  public List<TierStats> getMemberCacheTierStats() {
+    final CacheStats cacheStats = this.memberCache.stats();
+    final TierStats hot =
+        new TierStats(
+            "heap",
+            cacheStats.hitCount(),
+            cacheStats.missCount(),
+            this.memberCache.size(),
+            -1,
+            cacheStats.evictionCount());
+    return Arrays.asList(
+        hot, this.offHeapMemberStore.getStats(), this.memberCacheLoader.getColdStats());
+  }
+
+  private void recordMemberHit(final String fqcn) {
+    final LongAdder hits = this.memberHits.get(fqcn);
+    if (nonNull(hits)) {
+      hits.increment();
+    } else if (this.memberHits.size() < MAX_MEMBER_HITS) {
+      this.memberHits.computeIfAbsent(fqcn, k -> new LongAdder()).increment();
+    }
+  }
+
+  private CacheSnapshot createSnapshot() {
+    final Map<String, List<MemberDescriptor>> cached = this.memberCache.asMap();
+    // forget keys that left the cache
+    this.memberHits.keySet().retainAll(cached.keySet());
+    final Map<String, Long> hits = new HashMap<>(this.memberHits.size());
+    this.memberHits.forEach((k, v) -> hits.put(k, v.sum()));
+    final List<String> memberKeys =
+        hits.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(SNAPSHOT_MEMBERS)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+    // keep the ranked keys only and halve their counts, so keys that cooled down age out
+    this.memberHits.keySet().retainAll(new HashSet<>(memberKeys));
+    for (final String key : memberKeys) {
+      this.memberHits.computeIfPresent(
+          key,
+          (k, v) -> {
+            final LongAdder decayed = new LongAdder();
+            decayed.add(v.sum() / 2);
+            return decayed;
+          });
+    }
+
+    final Map<String, String> sources = new LinkedHashMap<>(64);
+    for (final File file : this.getSourceCache().getWorkingFiles()) {
+      try {
+        if (file.exists()) {
+          sources.put(file.getCanonicalPath(), FileUtils.getChecksum(file));
+        }
+      } catch (IOException e) {
+        log.warn(e.getMessage());
+      }
+    }
+    return new CacheSnapshot(memberKeys, sources);
+  }
+
+  @SuppressWarnings("try")
+  public void saveSnapshot() {
+    if (isNull(this.memberCache) || isNull(this.projectSupplier)) {
+      return;
+    }
+    try (TelemetryUtils.ScopedSpan scope =
+        TelemetryUtils.startScopedSpan("GlobalCache.saveSnapshot")) {
+      final CacheSnapshot snapshot = this.createSnapshot();
+      final String root = this.projectSupplier.get().getProjectRootPath();
+      if (ProjectDatabaseHelper.saveCacheSnapshot(root, snapshot)) {
+        this.snapshotSaved = System.currentTimeMillis();
+        log.debug(
+            "saved cache snapshot members:{} sources:{}",
+            snapshot.getMemberKeys().size(),
+            snapshot.getSources().size());
+      }
+    }
+  }
+
+  public void saveSnapshotIfStale() {
+    if (System.currentTimeMillis() - this.snapshotSaved > SNAPSHOT_INTERVAL) {
+      this.saveSnapshot();
+    }
+  }
+
+  public void restoreSnapshot() {
+    if (isNull(this.memberCache)) {
+      return;
+    }
+    final Project project = this.projectSupplier.get();
+    final Optional<CacheSnapshot> snapshot =
+        ProjectDatabaseHelper.getCacheSnapshot(project.getProjectRootPath());
+    if (!snapshot.isPresent()) {
+      return;
+    }
+    final CacheSnapshot cs = snapshot.get();
+    // the hottest members first, then the files being edited
+    this.memberPrefetcher.prefetch(cs.getMemberKeys(), cs.getMemberKeys().size());
+    Executor.getInstance()
+        .execute(
+            () -> {
+              int restored = 0;
+              for (final Map.Entry<String, String> entry : cs.getSources().entrySet()) {
+                final File file = new File(entry.getKey());
+                try {
+                  // a changed file is parsed on demand
+                  if (file.exists() && entry.getValue().equals(FileUtils.getChecksum(file))) {
+                    final SourceCache sourceCache = this.getSourceCache();
+                    sourceCache.put(file, sourceCache.get(file));
+                    restored++;
+                  }
+                } catch (Exception e) {
+                  log.warn("failed to restore {} {}", file, e.getMessage());
+                }
+              }
+              log.info(
+                  "restored cache snapshot members:{} sources:{}",
+                  cs.getMemberKeys().size(),
+                  restored);
+            });
+  }
+
+  /** Loads into the cache for the prefetcher, it is not a request and records no hits or stats. */
+  void prefetchMembers(final String fqcn) throws IOException {
+    final Map<String, List<MemberDescriptor>> cached = this.memberCache.asMap();
+    if (!cached.containsKey(fqcn)) {
+      final List<MemberDescriptor> members = this.memberCacheLoader.load(fqcn);
+      cached.putIfAbsent(fqcn, members);
+    }
+  }
+
+  public boolean containsMemberDescriptors(final String fqcn) {
+    // no stats, it is not a request
+    return this.memberCache.asMap().containsKey(fqcn);
+  }
+
+  public void prefetchMemberDescriptors(final Source source) {
+    if (nonNull(this.memberPrefetcher)) {
+      this.memberPrefetcher.prefetch(source);
+    }
+  }
+
+  public void refreshMemberDescriptors(final String fqcn) {
+    if (isNull(this.memberCache.getIfPresent(fqcn))) {
+      // nothing to serve meanwhile, drop the stale copies and load on demand
+      this.offHeapMemberStore.remove(fqcn);
+      boolean b = ProjectDatabaseHelper.deleteMemberDescriptors(fqcn);
+      return;
+    }
+    // readers keep the current members until the reload finishes
+    this.memberCache.refresh(fqcn);
+  }
+
   public void invalidateMemberDescriptors(final String fqcn) {
     this.memberCache.invalidate(fqcn);
+    // not cached on heap, the removal listener is not called
+    this.offHeapMemberStore.remove(fqcn);
   }
 
-  private LoadingCache<File, Source> getSourceCache() {
+  private SourceCache getSourceCache() {
     Project project = this.projectSupplier.get();
     final File projectRoot = project.getProjectRoot();
     if (this.sourceCaches.containsKey(projectRoot)) {
@@ -144,16 +323,11 @@ public class GlobalCache {
     } else {
       final JavaSourceLoader javaSourceLoader = new JavaSourceLoader(this.projectSupplier);
 
-      int size = Config.load().getSourceCacheSize();
-      final LoadingCache<File, Source> loadingCache =
-          CacheBuilder.newBuilder()
-              .maximumSize(size)
-              .expireAfterAccess(30, TimeUnit.MINUTES)
-              .removalListener(javaSourceLoader)
-              .build(javaSourceLoader);
-      this.sourceCaches.put(projectRoot, loadingCache);
+      final long budget = Config.load().getSourceCacheBudget();
+      final SourceCache sourceCache = new SourceCache(javaSourceLoader, budget);
+      this.sourceCaches.put(projectRoot, sourceCache);
       this.sourceLoaders.put(projectRoot, javaSourceLoader);
-      return loadingCache;
+      return sourceCache;
     }
   }
 
@@ -166,7 +340,7 @@ public class GlobalCache {
       TelemetryUtils.ScopedSpan.addAnnotation(
           TelemetryUtils.annotationBuilder().put("file", file.getPath()).build("args"));
 
-      final LoadingCache<File, Source> sourceCache = this.getSourceCache();
+      final SourceCache sourceCache = this.getSourceCache();
       return sourceCache.get(file);
     }
   }
@@ -180,7 +354,7 @@ public class GlobalCache {
       TelemetryUtils.ScopedSpan.addAnnotation(
           TelemetryUtils.annotationBuilder().put("file", file.getPath()).build("args"));
 
-      final LoadingCache<File, Source> sourceCache = this.getSourceCache();
+      final SourceCache sourceCache = this.getSourceCache();
       Project project = this.projectSupplier.get();
       final File projectRoot = project.getProjectRoot();
       JavaSourceLoader loader = sourceLoaders.get(projectRoot);
@@ -189,15 +363,19 @@ public class GlobalCache {
   }
 
   public void replaceSource(final Source source) {
-    final LoadingCache<File, Source> sourceCache = this.getSourceCache();
+    final SourceCache sourceCache = this.getSourceCache();
     sourceCache.put(source.getFile(), source);
   }
 
   public void invalidateSource(final File file) {
-    final LoadingCache<File, Source> sourceCache = this.getSourceCache();
+    final SourceCache sourceCache = this.getSourceCache();
     sourceCache.invalidate(file);
   }
 
+  public List<TierStats> getSourceCacheStats() {
+    return this.getSourceCache().getStats();
+  }
+
   private Map<String, String> getSourceMapCache() {
     Project project = this.projectSupplier.get();
     final File projectRoot = project.getProjectRoot();
@@ -244,7 +422,19 @@ public class GlobalCache {
   public void shutdown() throws InterruptedException {
 
     if (nonNull(this.memberCache)) {
-      this.memberCache.asMap().forEach((k, v) -> this.memberCache.put(k, v));
+      for (final TierStats stats : this.getMemberCacheTierStats()) {
+        log.info("member cache {}", stats);
+      }
+      log.info(
+          "member prefetch loaded:{} skipped:{}",
+          this.memberPrefetcher.getLoadedCount(),
+          this.memberPrefetcher.getSkippedCount());
+      this.offHeapMemberStore.clear();
+    }
+    for (final SourceCache sourceCache : this.sourceCaches.values()) {
+      for (final TierStats stats : sourceCache.getStats()) {
+        log.info("source cache {}", stats);
+      }
     }
   }
 }
@@ -1,9 +1,6 @@
 package meghanada.cache;
 
 import com.google.common.cache.CacheLoader;
-import com.google.common.cache.RemovalCause;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
@@ -19,7 +16,7 @@ import meghanada.utils.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-class JavaSourceLoader extends CacheLoader<File, Source> implements RemovalListener<File, Source> {
+class JavaSourceLoader extends CacheLoader<File, Source> {
 
   private static final Logger log = LogManager.getLogger(JavaSourceLoader.class);
 
@@ -79,13 +76,9 @@ class JavaSourceLoader extends CacheLoader<File, Source> implements RemovalListe
     return compileResult.getSources().get(file.getCanonicalFile());
   }
 
-  @Override
-  public void onRemoval(final RemovalNotification<File, Source> notification) {
-    final RemovalCause cause = notification.getCause();
-
+  void invalidated(final Source source) {
     final Config config = Config.load();
-    if (config.useSourceCache() && cause.equals(RemovalCause.EXPLICIT)) {
-      final Source source = notification.getValue();
+    if (config.useSourceCache()) {
       try {
         deleteSource(source);
       } catch (Exception e) {
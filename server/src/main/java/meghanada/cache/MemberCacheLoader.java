@@ -9,12 +9,15 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import meghanada.config.Config;
 import meghanada.reflect.CandidateUnit;
@@ -24,6 +27,7 @@ import meghanada.reflect.asm.ASMReflector;
 import meghanada.reflect.asm.CachedASMReflector;
 import meghanada.reflect.asm.InheritanceInfo;
 import meghanada.store.ProjectDatabaseHelper;
+import meghanada.system.Executor;
 import meghanada.telemetry.TelemetryUtils;
 import meghanada.utils.ClassName;
 import meghanada.utils.ClassNameUtils;
@@ -35,7 +39,13 @@ class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>>
 
   private static final Logger log = LogManager.getLogger(MemberCacheLoader.class);
 
-  MemberCacheLoader() {}
+  private final OffHeapMemberStore offHeapStore;
+  private final AtomicLong coldHits = new AtomicLong();
+  private final AtomicLong coldMisses = new AtomicLong();
+
+  MemberCacheLoader(final OffHeapMemberStore offHeapStore) {
+    this.offHeapStore = offHeapStore;
+  }
 
   @SuppressWarnings("try")
   private static Optional<List<MemberDescriptor>> getCachedMemberDescriptors(String fqcn) {
@@ -110,6 +120,11 @@ class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>>
       final ClassName cn = new ClassName(className);
       final String fqcn = cn.getName();
 
+      final Optional<List<MemberDescriptor>> offHeap = this.offHeapStore.get(className);
+      if (offHeap.isPresent()) {
+        return offHeap.get();
+      }
+
       final String projectRoot = Config.getProjectRoot();
       File classFile = MemberCacheLoader.getClassFile(fqcn);
       if (isNull(classFile)) {
@@ -135,8 +150,10 @@ class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>>
       Optional<List<MemberDescriptor>> cachedResult =
           MemberCacheLoader.getCachedMemberDescriptors(fqcn);
       if (cachedResult.isPresent()) {
+        this.coldHits.incrementAndGet();
         return cachedResult.get();
       }
+      this.coldMisses.incrementAndGet();
 
       final List<MemberDescriptor> members = loadFromReflector(fqcn);
       storeMembers(fqcn, members);
@@ -144,6 +161,21 @@ class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>>
     }
   }
 
+  @Override
+  public ListenableFuture<List<MemberDescriptor>> reload(
+      final String className, final List<MemberDescriptor> oldValue) {
+    final ListenableFutureTask<List<MemberDescriptor>> task =
+        ListenableFutureTask.create(
+            () -> {
+              // the stored copies are outdated after a compile
+              this.offHeapStore.remove(className);
+              boolean b = ProjectDatabaseHelper.deleteMemberDescriptors(className);
+              return this.load(className);
+            });
+    Executor.getInstance().execute(task);
+    return task;
+  }
+
   @SuppressWarnings("try")
   private static List<MemberDescriptor> loadFromReflector(String fqcn) {
 
@@ -176,9 +208,20 @@ class MemberCacheLoader extends CacheLoader<String, List<MemberDescriptor>>
   @Override
   public void onRemoval(final RemovalNotification<String, List<MemberDescriptor>> notification) {
     final RemovalCause cause = notification.getCause();
+    final String key = notification.getKey();
     if (cause.equals(RemovalCause.EXPLICIT)) {
-      final String key = notification.getKey();
+      this.offHeapStore.remove(key);
       boolean b = ProjectDatabaseHelper.deleteMemberDescriptors(key);
+    } else if (cause.equals(RemovalCause.SIZE) || cause.equals(RemovalCause.EXPIRED)) {
+      // demote to the compressed tier
+      final List<MemberDescriptor> value = notification.getValue();
+      if (nonNull(key) && nonNull(value)) {
+        this.offHeapStore.demote(key, value);
+      }
     }
   }
+
+  TierStats getColdStats() {
+    return new TierStats("database", this.coldHits.get(), this.coldMisses.get(), -1, -1, 0);
+  }
 }
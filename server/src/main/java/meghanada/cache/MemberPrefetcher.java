@@ -0,0 +1,195 @@
+package meghanada.cache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import meghanada.analyze.AccessSymbol;
+import meghanada.analyze.ClassScope;
+import meghanada.analyze.Source;
+import meghanada.analyze.Variable;
+import meghanada.reflect.ClassIndex;
+import meghanada.reflect.asm.CachedASMReflector;
+import meghanada.telemetry.ErrorReporter;
+import meghanada.utils.ClassName;
+import meghanada.utils.ClassNameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+class MemberPrefetcher implements Runnable {
+
+  private static final Logger log = LogManager.getLogger(MemberPrefetcher.class);
+  private static final int MAX_PREFETCH = 64;
+  // the class being edited is what "this." completes
+  private static final double SELF_SCORE = 1000;
+  private static final double FIELD_SCORE = 8;
+  private static final double LOCAL_SCORE = 4;
+  private static final double ACCESS_SCORE = 2;
+  private static final double USE_SCORE = 1;
+  private static final double IMPORT_SCORE = 1;
+  private static final double SUPER_RATIO = 0.5;
+
+  private final GlobalCache globalCache;
+  private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>(256);
+  private final Map<String, Task> pending = new ConcurrentHashMap<>(256);
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicLong loaded = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+
+  MemberPrefetcher(final GlobalCache globalCache) {
+    this.globalCache = globalCache;
+  }
+
+  void start() {
+    final Thread thread = new Thread(this, "member-prefetcher");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+  }
+
+  private static String toKey(final String type) {
+    return new ClassName(ClassNameUtils.removeTypeAndArray(type)).getName();
+  }
+
+  private static void add(final Map<String, Double> scores, final String type, final double s) {
+    if (isNull(type) || type.isEmpty() || ClassNameUtils.isPrimitive(type)) {
+      return;
+    }
+    scores.merge(toKey(type), s, Double::sum);
+  }
+
+  private static void addClassScopes(
+      final Map<String, Double> scores, final List<ClassScope> classScopes) {
+    for (final ClassScope cs : classScopes) {
+      add(scores, cs.getFQCN(), SELF_SCORE);
+      addClassScopes(scores, cs.classScopes);
+    }
+  }
+
+  static Map<String, Double> rank(final Source source) {
+    final Map<String, Double> scores = new HashMap<>(64);
+    addClassScopes(scores, source.getClassScopes());
+    for (final Variable v : source.getVariables()) {
+      if (v.isDef) {
+        add(scores, v.fqcn, v.isField ? FIELD_SCORE : LOCAL_SCORE);
+      } else {
+        add(scores, v.fqcn, USE_SCORE);
+      }
+    }
+    for (final AccessSymbol as : source.getAccessSymbols()) {
+      add(scores, as.declaringClass, ACCESS_SCORE);
+      // chained calls complete on the return type
+      add(scores, as.returnType, USE_SCORE);
+    }
+    for (final String name : source.importClasses) {
+      add(scores, name, IMPORT_SCORE);
+    }
+
+    // inherited members come from the super classes
+    final CachedASMReflector reflector = CachedASMReflector.getInstance();
+    final Map<String, Double> supers = new HashMap<>(scores.size());
+    for (final Map.Entry<String, Double> entry : scores.entrySet()) {
+      final ClassIndex index = reflector.getGlobalClassIndex().get(entry.getKey());
+      if (nonNull(index) && nonNull(index.supers)) {
+        for (final String sup : index.supers) {
+          add(supers, sup, entry.getValue() * SUPER_RATIO);
+        }
+      }
+    }
+    supers.forEach((k, v) -> scores.merge(k, v, Double::sum));
+    return scores;
+  }
+
+  void prefetch(final Source source) {
+    final Map<String, Double> scores = rank(source);
+    final List<String> names = new ArrayList<>(scores.keySet());
+    names.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+    this.prefetch(names, MAX_PREFETCH);
+  }
+
+  @SuppressWarnings("ReferenceEquality")
+  void prefetch(final List<String> names, final int limit) {
+    final Map<String, ClassIndex> index = CachedASMReflector.getInstance().getGlobalClassIndex();
+    // the latest request goes first
+    final long gen = this.generation.incrementAndGet();
+    int count = 0;
+    for (int i = 0; i < names.size() && count < limit; i++) {
+      final String name = names.get(i);
+      if (!index.containsKey(name) && !index.containsKey(ClassNameUtils.replaceInnerMark(name))) {
+        continue;
+      }
+      if (this.globalCache.containsMemberDescriptors(name)) {
+        continue;
+      }
+      // names are in priority order
+      final Task task = new Task(name, gen, names.size() - i);
+      final Task queued =
+          this.pending.compute(
+              name, (k, prev) -> isNull(prev) || prev.compareTo(task) > 0 ? task : prev);
+      if (queued == task) {
+        this.queue.add(task);
+      }
+      count++;
+    }
+  }
+
+  @Override
+  public void run() {
+    while (true) {
+      try {
+        final Task task = this.queue.take();
+        if (!this.pending.remove(task.name, task)) {
+          // superseded by a newer request
+          continue;
+        }
+        if (this.globalCache.containsMemberDescriptors(task.name)) {
+          this.skipped.incrementAndGet();
+          continue;
+        }
+        this.globalCache.prefetchMembers(task.name);
+        this.loaded.incrementAndGet();
+      } catch (InterruptedException e) {
+        return;
+      } catch (Throwable e) {
+        log.catching(e);
+        ErrorReporter.report(e);
+      }
+    }
+  }
+
+  long getLoadedCount() {
+    return this.loaded.get();
+  }
+
+  long getSkippedCount() {
+    return this.skipped.get();
+  }
+
+  private static class Task implements Comparable<Task> {
+
+    private final String name;
+    private final long generation;
+    private final double score;
+
+    Task(final String name, final long generation, final double score) {
+      this.name = name;
+      this.generation = generation;
+      this.score = score;
+    }
+
+    @Override
+    public int compareTo(final Task o) {
+      final int c = Long.compare(o.generation, this.generation);
+      if (c != 0) {
+        return c;
+      }
+      return Double.compare(o.score, this.score);
+    }
+  }
+}
@@ -0,0 +1,219 @@
+package meghanada.cache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.store.Serializer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Compressed tier between the member cache and the database. Entries are demoted from the removal
+ * listener without blocking it, they are compressed on a single background thread and copied into
+ * buffers of a {@link SlabAllocator}. Until then the pending list is served as is.
+ */
+class OffHeapMemberStore {
+
+  private static final Logger log = LogManager.getLogger(OffHeapMemberStore.class);
+  private static final int BUFFER_SIZE = 8192;
+
+  private final long maxBytes;
+  private final Map<String, ByteBuffer> entries = new LinkedHashMap<>(1024, 0.75f, true);
+  private final Map<String, List<MemberDescriptor>> pending = new HashMap<>(64);
+  private final SlabAllocator allocator;
+  private final ExecutorService demoter;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong drops = new AtomicLong();
+  private long bytes;
+
+  OffHeapMemberStore(final long maxBytes) {
+    this.maxBytes = maxBytes;
+    this.allocator = new SlabAllocator(maxBytes + SlabAllocator.SLAB_SIZE);
+    this.demoter =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("off-heap-demoter").setDaemon(true).build());
+  }
+
+  private static byte[] compress(final byte[] b) {
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(b);
+      deflater.finish();
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(b.length / 4 + 16);
+      final byte[] buf = new byte[BUFFER_SIZE];
+      while (!deflater.finished()) {
+        final int n = deflater.deflate(buf);
+        out.write(buf, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] decompress(final byte[] b) throws DataFormatException {
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(b);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(b.length * 4);
+      final byte[] buf = new byte[BUFFER_SIZE];
+      while (!inflater.finished()) {
+        final int n = inflater.inflate(buf);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new DataFormatException("truncated entry");
+        }
+        out.write(buf, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      inflater.end();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  Optional<List<MemberDescriptor>> get(final String fqcn) {
+    final byte[] b;
+    synchronized (this) {
+      final List<MemberDescriptor> members = this.pending.get(fqcn);
+      if (nonNull(members)) {
+        this.hits.incrementAndGet();
+        return Optional.of(members);
+      }
+      final ByteBuffer buffer = this.entries.get(fqcn);
+      if (isNull(buffer)) {
+        this.misses.incrementAndGet();
+        return Optional.empty();
+      }
+      // the buffer goes back to the allocator once it is evicted
+      b = new byte[buffer.remaining()];
+      buffer.duplicate().get(b);
+    }
+    try {
+      final List<MemberDescriptor> members = Serializer.asObject(decompress(b), List.class);
+      if (isNull(members)) {
+        this.misses.incrementAndGet();
+        return Optional.empty();
+      }
+      this.hits.incrementAndGet();
+      return Optional.of(members);
+    } catch (Exception e) {
+      log.warn("broken off-heap entry {} {}", fqcn, e.getMessage());
+      this.remove(fqcn);
+      this.misses.incrementAndGet();
+      return Optional.empty();
+    }
+  }
+
+  void demote(final String fqcn, final List<MemberDescriptor> members) {
+    if (this.maxBytes <= 0 || members.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      this.pending.put(fqcn, members);
+    }
+    this.demoter.execute(() -> this.store(fqcn, members));
+  }
+
+  private void store(final String fqcn, final List<MemberDescriptor> members) {
+    final byte[] b;
+    try {
+      b = compress(Serializer.asByte(members));
+    } catch (Exception e) {
+      log.warn("fail demote {} {}", fqcn, e.getMessage());
+      this.drops.incrementAndGet();
+      synchronized (this) {
+        this.pending.remove(fqcn, members);
+      }
+      return;
+    }
+    final int capacity = SlabAllocator.capacityOf(b.length);
+    synchronized (this) {
+      // removed or demoted again in the meantime
+      if (this.pending.get(fqcn) != members) {
+        return;
+      }
+      this.pending.remove(fqcn);
+      if (capacity > this.maxBytes) {
+        this.drops.incrementAndGet();
+        return;
+      }
+      this.release(this.entries.remove(fqcn));
+      // drop the least recently used entries until a buffer of the size class is free,
+      // the database still has them
+      final Iterator<ByteBuffer> it = this.entries.values().iterator();
+      ByteBuffer buffer = null;
+      while (true) {
+        if (this.bytes + capacity <= this.maxBytes) {
+          buffer = this.allocator.allocate(b.length);
+          if (nonNull(buffer)) {
+            break;
+          }
+        }
+        if (!it.hasNext()) {
+          break;
+        }
+        final ByteBuffer old = it.next();
+        it.remove();
+        this.release(old);
+        this.evictions.incrementAndGet();
+      }
+      if (isNull(buffer)) {
+        this.drops.incrementAndGet();
+        return;
+      }
+      buffer.put(b);
+      buffer.flip();
+      this.entries.put(fqcn, buffer);
+      this.bytes += buffer.capacity();
+    }
+  }
+
+  private void release(@Nullable final ByteBuffer buffer) {
+    if (nonNull(buffer)) {
+      this.bytes -= buffer.capacity();
+      this.allocator.release(buffer);
+    }
+  }
+
+  synchronized void remove(final String fqcn) {
+    this.pending.remove(fqcn);
+    this.release(this.entries.remove(fqcn));
+  }
+
+  synchronized void clear() {
+    this.pending.clear();
+    this.entries.values().forEach(this.allocator::release);
+    this.entries.clear();
+    this.bytes = 0;
+  }
+
+  synchronized TierStats getStats() {
+    return new TierStats(
+        "off-heap",
+        this.hits.get(),
+        this.misses.get(),
+        this.entries.size() + this.pending.size(),
+        this.bytes,
+        this.evictions.get(),
+        this.drops.get());
+  }
+}
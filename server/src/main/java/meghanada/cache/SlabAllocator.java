@@ -0,0 +1,109 @@
+package meghanada.cache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Hands out direct buffers in power of two size classes carved from large slabs. Released buffers
+ * go back to the free list of their class and are reused, a larger free buffer is split when the
+ * class has none. Direct memory is never returned and is capped at the limit.
+ */
+class SlabAllocator {
+
+  private static final int MIN_SHIFT = 8;
+  static final int SLAB_SIZE = 1024 * 1024;
+
+  private final long limit;
+  private final Map<Integer, Deque<ByteBuffer>> free = new HashMap<>(16);
+  private ByteBuffer slab;
+  private long allocated;
+
+  SlabAllocator(final long limit) {
+    this.limit = limit;
+  }
+
+  static int capacityOf(final int size) {
+    final int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(size - 1));
+    return 1 << shift;
+  }
+
+  /** Returns a cleared buffer of at least the size, or null when the limit is reached. */
+  @Nullable
+  synchronized ByteBuffer allocate(final int size) {
+    final int capacity = capacityOf(size);
+    final Deque<ByteBuffer> list = this.free.get(capacity);
+    if (nonNull(list) && !list.isEmpty()) {
+      final ByteBuffer buffer = list.pop();
+      buffer.clear();
+      return buffer;
+    }
+    final ByteBuffer split = this.split(capacity);
+    if (nonNull(split)) {
+      return split;
+    }
+    if (capacity >= SLAB_SIZE) {
+      if (this.allocated + capacity > this.limit) {
+        return null;
+      }
+      this.allocated += capacity;
+      return ByteBuffer.allocateDirect(capacity);
+    }
+    if (isNull(this.slab) || this.slab.remaining() < capacity) {
+      // the tail of the old slab is left unused
+      if (this.allocated + SLAB_SIZE > this.limit) {
+        return null;
+      }
+      this.allocated += SLAB_SIZE;
+      this.slab = ByteBuffer.allocateDirect(SLAB_SIZE);
+    }
+    final int position = this.slab.position();
+    this.slab.limit(position + capacity);
+    final ByteBuffer buffer = this.slab.slice();
+    this.slab.limit(SLAB_SIZE);
+    this.slab.position(position + capacity);
+    return buffer;
+  }
+
+  @Nullable
+  private ByteBuffer split(final int capacity) {
+    // halve the smallest larger free buffer, the unused halves go to the free lists
+    for (int c = capacity << 1; c > 0; c <<= 1) {
+      final Deque<ByteBuffer> list = this.free.get(c);
+      if (isNull(list) || list.isEmpty()) {
+        continue;
+      }
+      ByteBuffer buffer = list.pop();
+      int size = c;
+      while (size > capacity) {
+        size >>= 1;
+        this.free.computeIfAbsent(size, k -> new ArrayDeque<>(16)).push(slice(buffer, size, size));
+        buffer = slice(buffer, 0, size);
+      }
+      return buffer;
+    }
+    return null;
+  }
+
+  private static ByteBuffer slice(final ByteBuffer buffer, final int offset, final int length) {
+    final ByteBuffer b = buffer.duplicate();
+    b.clear();
+    b.position(offset);
+    b.limit(offset + length);
+    return b.slice();
+  }
+
+  synchronized void release(final ByteBuffer buffer) {
+    this.free.computeIfAbsent(buffer.capacity(), k -> new ArrayDeque<>(16)).push(buffer);
+  }
+
+  synchronized long getAllocated() {
+    return this.allocated;
+  }
+}
@@ -0,0 +1,144 @@
+package meghanada.cache;
+
+import static java.util.Objects.nonNull;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import meghanada.analyze.Source;
+
+class SourceCache {
+
+  // files seen once stay in probation, a second access promotes them to the working set
+  private static final double PROBATION_RATIO = 0.2;
+
+  private final JavaSourceLoader loader;
+  private final Cache<File, Source> probation;
+  private final Cache<File, Source> working;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  SourceCache(final JavaSourceLoader loader, final long budget) {
+    this.loader = loader;
+    final long probationBudget = Math.max(1, (long) (budget * PROBATION_RATIO));
+    this.probation =
+        CacheBuilder.newBuilder()
+            .maximumWeight(probationBudget)
+            .weigher(SourceCache::weigh)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .removalListener(this::onProbationRemoval)
+            .build();
+    this.working =
+        CacheBuilder.newBuilder()
+            .maximumWeight(Math.max(1, budget - probationBudget))
+            .weigher(SourceCache::weigh)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .removalListener(this::onWorkingRemoval)
+            .build();
+  }
+
+  private static int weigh(final File file, final Source source) {
+    return (int) Math.min(Integer.MAX_VALUE, source.estimateSize());
+  }
+
+  private static boolean isEvicted(final RemovalCause cause) {
+    return cause.equals(RemovalCause.SIZE) || cause.equals(RemovalCause.EXPIRED);
+  }
+
+  private void onProbationRemoval(final RemovalNotification<File, Source> notification) {
+    if (isEvicted(notification.getCause())) {
+      this.evictions.incrementAndGet();
+    }
+  }
+
+  private void onWorkingRemoval(final RemovalNotification<File, Source> notification) {
+    final RemovalCause cause = notification.getCause();
+    if (cause.equals(RemovalCause.SIZE)) {
+      // give it another chance before it leaves the cache
+      final File file = notification.getKey();
+      final Source source = notification.getValue();
+      if (nonNull(file) && nonNull(source)) {
+        this.probation.put(file, source);
+      }
+    } else if (cause.equals(RemovalCause.EXPIRED)) {
+      this.evictions.incrementAndGet();
+    }
+  }
+
+  Source get(final File file) throws ExecutionException {
+    final Source source = this.working.getIfPresent(file);
+    if (nonNull(source)) {
+      this.hits.incrementAndGet();
+      return source;
+    }
+    final Source seen = this.probation.asMap().remove(file);
+    if (nonNull(seen)) {
+      this.hits.incrementAndGet();
+      this.working.put(file, seen);
+      return seen;
+    }
+    return this.probation.get(
+        file,
+        () -> {
+          this.misses.incrementAndGet();
+          return this.loader.load(file);
+        });
+  }
+
+  void put(final File file, final Source source) {
+    this.probation.invalidate(file);
+    this.working.put(file, source);
+  }
+
+  void invalidate(final File file) {
+    final Source source = this.working.asMap().remove(file);
+    if (nonNull(source)) {
+      this.loader.invalidated(source);
+    }
+    final Source seen = this.probation.asMap().remove(file);
+    if (nonNull(seen)) {
+      this.loader.invalidated(seen);
+    }
+  }
+
+  List<File> getWorkingFiles() {
+    return new ArrayList<>(this.working.asMap().keySet());
+  }
+
+  private static long weight(final Cache<File, Source> cache) {
+    long weight = 0;
+    for (final Source source : cache.asMap().values()) {
+      weight += source.estimateSize();
+    }
+    return weight;
+  }
+
+  List<TierStats> getStats() {
+    final TierStats working =
+        new TierStats(
+            "working",
+            this.hits.get(),
+            this.misses.get(),
+            this.working.size(),
+            weight(this.working),
+            0);
+    final TierStats probation =
+        new TierStats(
+            "probation",
+            0,
+            0,
+            this.probation.size(),
+            weight(this.probation),
+            this.evictions.get());
+    return Arrays.asList(working, probation);
+  }
+}
@@ -0,0 +1,60 @@
+package meghanada.cache;
+
+public class TierStats {
+
+  public final String name;
+  public final long hitCount;
+  public final long missCount;
+  public final long size;
+  public final long bytes;
+  public final long evictionCount;
+  // entries the tier could not take
+  public final long dropCount;
+
+  TierStats(
+      final String name,
+      final long hitCount,
+      final long missCount,
+      final long size,
+      final long bytes,
+      final long evictionCount) {
+    this(name, hitCount, missCount, size, bytes, evictionCount, 0);
+  }
+
+  TierStats(
+      final String name,
+      final long hitCount,
+      final long missCount,
+      final long size,
+      final long bytes,
+      final long evictionCount,
+      final long dropCount) {
+    this.name = name;
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.size = size;
+    this.bytes = bytes;
+    this.evictionCount = evictionCount;
+    this.dropCount = dropCount;
+  }
+
+  public double hitRate() {
+    final long total = this.hitCount + this.missCount;
+    return total == 0 ? 1.0 : (double) this.hitCount / total;
+  }
+
+  @Override
+  public String toString() {
+    // bytes is -1 when the tier can not measure it
+    return String.format(
+        "%s hit:%d miss:%d rate:%.2f size:%d bytes:%s evicted:%d dropped:%d",
+        name,
+        hitCount,
+        missCount,
+        hitRate(),
+        size,
+        bytes < 0 ? "-" : Long.toString(bytes),
+        evictionCount,
+        dropCount);
+  }
+}
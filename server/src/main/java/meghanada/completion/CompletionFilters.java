@@ -45,8 +45,7 @@ public class CompletionFilters {
 
   static boolean publicMemberFilter(
       final MemberDescriptor descriptor, final CompletionMatcher matcher, final String prefix) {
-    boolean matched = matcher.match(descriptor);
-    if (!prefix.isEmpty() && !matched) {
+    if (!prefix.isEmpty() && !matcher.match(descriptor)) {
       return false;
     }
     if (descriptor.getMemberType().equals(MemberType.CONSTRUCTOR)) {
@@ -62,8 +61,7 @@ public class CompletionFilters {
       final CompletionMatcher matcher,
       final String prefix) {
 
-    final boolean matched = matcher.match(descriptor);
-    if (!prefix.isEmpty() && !matched) {
+    if (!prefix.isEmpty() && !matcher.match(descriptor)) {
       return false;
     }
 
@@ -86,8 +84,7 @@ public class CompletionFilters {
       final CompletionMatcher matcher,
       final String target) {
 
-    final boolean matched = matcher.match(descriptor);
-    if (!target.isEmpty() && !matched) {
+    if (!target.isEmpty() && !matcher.match(descriptor)) {
       return false;
     }
 
@@ -0,0 +1,16 @@
+package meghanada.completion;
+
+import java.util.Collection;
+import meghanada.reflect.CandidateUnit;
+
+/** Candidates of one completion request, partial when providers missed the deadline. */
+public class CompletionResult {
+  public final Collection<? extends CandidateUnit> candidates;
+  public final boolean partial;
+
+  public CompletionResult(
+      final Collection<? extends CandidateUnit> candidates, final boolean partial) {
+    this.candidates = candidates;
+    this.partial = partial;
+  }
+}
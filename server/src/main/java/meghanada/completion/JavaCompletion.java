@@ -5,7 +5,7 @@ import static java.util.Objects.nonNull;
 import static meghanada.reflect.asm.CachedASMReflector.cloneClassIndex;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.TreeBasedTable;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -14,17 +14,25 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.SortedMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import meghanada.analyze.AccessSymbol;
 import meghanada.analyze.Annotation;
 import meghanada.analyze.ClassScope;
@@ -50,6 +58,7 @@ import meghanada.reflect.FieldDescriptor;
 import meghanada.reflect.MemberDescriptor;
 import meghanada.reflect.MethodDescriptor;
 import meghanada.reflect.asm.CachedASMReflector;
+import meghanada.store.ProjectDatabaseHelper;
 import meghanada.system.Executor;
 import meghanada.telemetry.ErrorReporter;
 import meghanada.telemetry.TelemetryUtils;
@@ -62,14 +71,35 @@ import org.apache.logging.log4j.Logger;
 public class JavaCompletion {
 
   private static final Logger log = LogManager.getLogger(JavaCompletion.class);
-  private final TreeBasedTable<File, CandidateUnit, Integer> statisticsTable;
+  private static final long STATISTICS_SAVE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+  private static final int PROVIDER_THREADS = 4;
+  // late providers must not pile up, when the queue is full the request runs them in place
+  private static final ExecutorService PROVIDER_POOL =
+      new ThreadPoolExecutor(
+          PROVIDER_THREADS,
+          PROVIDER_THREADS,
+          0L,
+          TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<>(PROVIDER_THREADS * 4),
+          new ThreadFactoryBuilder()
+              .setNameFormat("completion-provider-%d")
+              .setDaemon(true)
+              .build(),
+          new ThreadPoolExecutor.CallerRunsPolicy());
 
   private final Supplier<Project> projectSupplier;
   private Collection<? extends CandidateUnit> hits;
+  private CompletionSession session;
+  private boolean partial;
+  private List<CompletableFuture<Collection<? extends CandidateUnit>>> late =
+      Collections.emptyList();
+  private UsageStatistics statistics;
+  private String statisticsRoot;
+  private boolean statisticsDirty;
+  private long statisticsSaved;
 
   public JavaCompletion(final Supplier<Project> supplier) {
     this.projectSupplier = supplier;
-    this.statisticsTable = createStatisticsTable();
   }
 
   @Nonnull
@@ -321,7 +351,7 @@ public class JavaCompletion {
   }
 
   @SuppressWarnings("try")
-  private static Collection<? extends CandidateUnit> completionSymbols(
+  private Collection<? extends CandidateUnit> completionSymbols(
       final Source source, final int line, final int column, final String prefix) {
 
     try (TelemetryUtils.ScopedSpan scope =
@@ -356,11 +386,15 @@ public class JavaCompletion {
 
       final CompletionMatcher matcher = getCompletionMatcher(prefix);
       final CompletionMatcher classMatcher = getClassCompletionMatcher(prefix);
+      // providers that may reflect classes or query the index
+      final List<Supplier<Collection<? extends CandidateUnit>>> providers = new ArrayList<>(4);
+
       // add this member
       completionThisMembers(typeScope, prefix, result, matcher);
 
       if (fqcn.contains(ClassNameUtils.INNER_MARK)) {
         // add parent
+        boolean hasParent = false;
         String parentClass = fqcn;
         while (true) {
           int i = parentClass.lastIndexOf('$');
@@ -371,9 +405,17 @@ public class JavaCompletion {
           ClassScope classScope = allClasses.get(parentClass);
           if (nonNull(classScope)) {
             completionThisMembers(classScope, prefix, result, matcher);
-            completionThisMembers(fqcn, result, matcher, prefix);
+            hasParent = true;
           }
         }
+        if (hasParent) {
+          providers.add(
+              () -> {
+                Set<CandidateUnit> members = new HashSet<>(32);
+                completionThisMembers(fqcn, members, matcher, prefix);
+                return members;
+              });
+        }
       }
 
       log.debug("self fqcn:{}", fqcn);
@@ -388,20 +430,84 @@ public class JavaCompletion {
       completionFromImport(source, result, classMatcher);
 
       // static import
-      completionFromStaticImport(source, result, matcher);
+      providers.add(
+          () -> {
+            Set<CandidateUnit> members = new HashSet<>(16);
+            completionFromStaticImport(source, members, matcher);
+            return members;
+          });
 
       // Add class
       if (Character.isUpperCase(prefix.charAt(0))) {
         // completion
-        completionClass(result, classMatcher);
+        providers.add(
+            () -> {
+              Set<CandidateUnit> classes = new HashSet<>(64);
+              completionClass(classes, classMatcher);
+              return classes;
+            });
       }
-      result.addAll(completionStaticMembers(result, prefix));
+      providers.add(() -> completionStaticMembers(Collections.emptySet(), prefix));
+
+      this.late = gatherCandidates(providers, result);
+      this.partial = !this.late.isEmpty();
       List<CandidateUnit> list = new ArrayList<>(result);
-      list.sort(comparing(source, prefix));
+      list.sort(comparing(source, prefix, this.getRanking(source)));
       return list;
     }
   }
 
+  private static List<CompletableFuture<Collection<? extends CandidateUnit>>> gatherCandidates(
+      final List<Supplier<Collection<? extends CandidateUnit>>> providers,
+      final Set<CandidateUnit> result) {
+
+    final List<CompletableFuture<Collection<? extends CandidateUnit>>> futures =
+        new ArrayList<>(providers.size());
+    for (final Supplier<Collection<? extends CandidateUnit>> provider : providers) {
+      futures.add(CompletableFuture.supplyAsync(provider, PROVIDER_POOL));
+    }
+    return awaitCandidates(futures, result);
+  }
+
+  /** Adds the results that arrive within the deadline and returns the futures still running. */
+  private static List<CompletableFuture<Collection<? extends CandidateUnit>>> awaitCandidates(
+      final List<CompletableFuture<Collection<? extends CandidateUnit>>> futures,
+      final Set<CandidateUnit> result) {
+
+    final long deadline = Config.load().getCompletionDeadline();
+    final CompletableFuture<Void> all =
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    try {
+      if (deadline > 0) {
+        all.get(deadline, TimeUnit.MILLISECONDS);
+      } else {
+        all.get();
+      }
+    } catch (TimeoutException e) {
+      // late providers keep running, the completion session collects their results
+      log.debug("completion deadline exceeded {}ms", deadline);
+    } catch (InterruptedException | ExecutionException e) {
+      log.catching(e);
+    }
+    final List<CompletableFuture<Collection<? extends CandidateUnit>>> pending =
+        new ArrayList<>(futures.size());
+    for (final CompletableFuture<Collection<? extends CandidateUnit>> f : futures) {
+      if (!f.isDone()) {
+        pending.add(f);
+      } else if (!f.isCompletedExceptionally()) {
+        result.addAll(f.join());
+      }
+    }
+    return pending;
+  }
+
+  private static void cancel(final List<CompletableFuture<Collection<? extends CandidateUnit>>> l) {
+    // providers that have not started yet are skipped
+    for (final CompletableFuture<Collection<? extends CandidateUnit>> f : l) {
+      boolean b = f.cancel(false);
+    }
+  }
+
   @SuppressWarnings("try")
   private static Optional<List<CandidateUnit>> completionAnnotationValue(
       Source source, int line, int column, String prefix) {
@@ -863,8 +969,21 @@ public class JavaCompletion {
     }
   }
 
+  private static int compareUsage(
+      final UsageStatistics.Ranking rank,
+      final CandidateUnit c1,
+      final CandidateUnit c2,
+      final String n1,
+      final String n2) {
+    final int i = rank.compare(c1, c2);
+    if (i != 0) {
+      return i;
+    }
+    return n1.compareTo(n2);
+  }
+
   private static Comparator<? super CandidateUnit> comparing(
-      final Source src, final String keyword) {
+      final Source src, final String keyword, final UsageStatistics.Ranking rank) {
 
     final Set<String> imps = new HashSet<>(src.getImportedClassMap().values());
 
@@ -876,7 +995,7 @@ public class JavaCompletion {
 
       if (n1.startsWith(keyword) && n2.startsWith(keyword)) {
         if (imps.contains(d1) && imps.contains(d2)) {
-          return n1.compareTo(n2);
+          return compareUsage(rank, c1, c2, n1, n2);
         }
 
         if (imps.contains(d1)) {
@@ -886,7 +1005,7 @@ public class JavaCompletion {
           return 1;
         }
 
-        return n1.compareTo(n2);
+        return compareUsage(rank, c1, c2, n1, n2);
       }
 
       if (n1.startsWith(keyword)) {
@@ -925,7 +1044,8 @@ public class JavaCompletion {
     };
   }
 
-  private static Comparator<? super CandidateUnit> methodComparing(final String keyword) {
+  private static Comparator<? super CandidateUnit> methodComparing(
+      final String keyword, final UsageStatistics.Ranking rank) {
     if (keyword.isEmpty()) {
       return defaultComparing();
     }
@@ -934,7 +1054,7 @@ public class JavaCompletion {
       final String o2 = c2.getName();
 
       if (o1.startsWith(keyword) && o2.startsWith(keyword)) {
-        return o1.compareTo(o2);
+        return compareUsage(rank, c1, c2, o1, o2);
       }
 
       if (o1.startsWith(keyword)) {
@@ -1044,7 +1164,7 @@ public class JavaCompletion {
   }
 
   private static Comparator<? super CandidateUnit> getComparatorWithType(
-      String keyword, String type) {
+      final String keyword, final String type, final UsageStatistics.Ranking rank) {
     return (c1, c2) -> {
       boolean b1 = false;
       boolean b2 = false;
@@ -1073,7 +1193,7 @@ public class JavaCompletion {
       String o2 = c2.getName();
 
       if (o1.startsWith(keyword) && o2.startsWith(keyword)) {
-        return o1.compareTo(o2);
+        return compareUsage(rank, c1, c2, o1, o2);
       }
 
       if (o1.startsWith(keyword)) {
@@ -1088,7 +1208,7 @@ public class JavaCompletion {
 
   @SuppressWarnings("try")
   private static Collection<? extends CandidateUnit> completionNewKeyword(
-      Source source, int line, int column, String searchWord) {
+      Source source, int line, int column, String searchWord, UsageStatistics.Ranking rank) {
 
     try (TelemetryUtils.ScopedSpan scope =
         TelemetryUtils.startScopedSpan("JavaCompletion.completionNewKeyword")) {
@@ -1106,7 +1226,7 @@ public class JavaCompletion {
           Optional<Symbol> assign = expr.get().getAssign();
           if (assign.isPresent()) {
             String assignType = assign.get().getFQCN();
-            cmp = getComparatorWithType(classPrefix, assignType);
+            cmp = getComparatorWithType(classPrefix, assignType, rank);
           }
         }
         return reflector
@@ -1118,21 +1238,11 @@ public class JavaCompletion {
       }
 
       return completionNewKeyword(source).stream()
-          .sorted(comparing(source, ""))
+          .sorted(comparing(source, "", rank))
           .collect(Collectors.toList());
     }
   }
 
-  private static TreeBasedTable<File, CandidateUnit, Integer> createStatisticsTable() {
-    return TreeBasedTable.create(
-        Comparator.naturalOrder(),
-        (o1, o2) -> {
-          String name1 = o1.getName();
-          String name2 = o2.getName();
-          return name1.compareTo(name2);
-        });
-  }
-
   @SuppressWarnings("try")
   private static Source getSource(final File file) throws IOException, ExecutionException {
 
@@ -1147,8 +1257,13 @@ public class JavaCompletion {
     }
   }
 
+  public Collection<? extends CandidateUnit> completionAt(
+      final File file, int line, int column, String prefix) {
+    return this.complete(file, line, column, prefix).candidates;
+  }
+
   @SuppressWarnings("try")
-  public synchronized Collection<? extends CandidateUnit> completionAt(
+  public synchronized CompletionResult complete(
       final File file, int line, int column, String prefix) {
 
     try (TelemetryUtils.ScopedSpan scope =
@@ -1162,13 +1277,185 @@ public class JavaCompletion {
               .put("prefix", prefix)
               .build("args"));
 
+      this.partial = false;
+      this.late = Collections.emptyList();
+      Optional<List<CandidateUnit>> narrowed = this.narrowCompletion(file, line, column, prefix);
+      if (narrowed.isPresent()) {
+        TelemetryUtils.ScopedSpan.addAnnotation("narrowed");
+        this.hits = narrowed.get();
+        return new CompletionResult(narrowed.get(), this.partial);
+      }
       Collection<? extends CandidateUnit> collection =
           this.completionAtInternal(file, line, column, prefix);
       if (nonNull(collection)) {
         this.hits = collection;
+        // the next request of the session collects the results of late providers
+        final CompletionSession next =
+            createSession(file, line, column, prefix, collection, this.late);
+        if (isNull(next)) {
+          cancel(this.late);
+        }
+        this.setSession(next);
+        return new CompletionResult(collection, this.partial);
+      }
+      cancel(this.late);
+      return new CompletionResult(Collections.emptyList(), false);
+    }
+  }
+
+  public synchronized void clearSession() {
+    this.setSession(null);
+  }
+
+  private void setSession(@Nullable final CompletionSession next) {
+    final CompletionSession current = this.session;
+    if (nonNull(current)) {
+      final List<CompletableFuture<Collection<? extends CandidateUnit>>> dropped =
+          new ArrayList<>(current.pending);
+      if (nonNull(next)) {
+        dropped.removeAll(next.pending);
+      }
+      cancel(dropped);
+    }
+    this.session = next;
+  }
+
+  private static boolean isNarrowable() {
+    // a longer fuzzy query can match names a shorter one rejected
+    final Config config = Config.load();
+    return config.completionMatcher() != Config.CompletionType.FUZZY
+        && config.classCompletionMatcher() != Config.CompletionType.FUZZY;
+  }
+
+  private static Optional<String[]> splitPrefix(final String prefix) {
+    if (prefix.isEmpty() || prefix.startsWith("@")) {
+      return Optional.empty();
+    }
+    if (!prefix.startsWith("*")) {
+      return Optional.of(new String[] {"", prefix});
+    }
+    if (prefix.startsWith("*import")) {
+      final int idx = prefix.lastIndexOf(':');
+      if (idx > 0) {
+        return Optional.of(new String[] {prefix.substring(0, idx + 1), prefix.substring(idx + 1)});
+      }
+      return Optional.empty();
+    }
+    if (prefix.startsWith("*new")
+        || prefix.startsWith("*method")
+        || prefix.startsWith("*package")) {
+      return Optional.empty();
+    }
+    final int idx = prefix.lastIndexOf('#');
+    if (idx > 0) {
+      return Optional.of(new String[] {prefix.substring(0, idx + 1), prefix.substring(idx + 1)});
+    }
+    return Optional.empty();
+  }
+
+  private static Function<String, Comparator<? super CandidateUnit>> getRanker(
+      final Source source, final int line, final String head, final UsageStatistics.Ranking rank) {
+    if (head.isEmpty()) {
+      return keyword -> comparing(source, keyword, rank);
+    }
+    if (head.startsWith("*import")) {
+      return keyword -> getClassCompletionMatcher(keyword).comparator();
+    }
+    final String var = head.substring(1, head.length() - 1);
+    final int idx = var.lastIndexOf('*');
+    if (idx > 0) {
+      final String typeOrMember = getMemberType(source, line, var.substring(idx + 1));
+      return keyword -> getComparatorWithType(keyword, typeOrMember, rank);
+    }
+    return keyword -> methodComparing(keyword, rank);
+  }
+
+  private static Predicate<CandidateUnit> getNarrowFilter(final String head, final String word) {
+    final CompletionMatcher classMatcher = getClassCompletionMatcher(word);
+    if (head.startsWith("*import")) {
+      return classMatcher::match;
+    }
+    final CompletionMatcher matcher = getCompletionMatcher(word);
+    return c -> c instanceof ClassIndex ? classMatcher.match(c) : matcher.match(c);
+  }
+
+  @Nullable
+  private CompletionSession createSession(
+      final File file,
+      final int line,
+      final int column,
+      final String prefix,
+      final Collection<? extends CandidateUnit> candidates,
+      final List<CompletableFuture<Collection<? extends CandidateUnit>>> pending) {
+    // an empty result may come from a failure, recompute it next time
+    if ((candidates.isEmpty() && pending.isEmpty()) || !file.exists() || !isNarrowable()) {
+      return null;
+    }
+    final Optional<String[]> split = splitPrefix(prefix);
+    if (!split.isPresent()) {
+      return null;
+    }
+    try {
+      final Source source = getSource(file);
+      final String head = split.get()[0];
+      final String word = split.get()[1];
+      return new CompletionSession(
+          file,
+          source,
+          line,
+          column,
+          head,
+          word,
+          getRanker(source, line, head, this.getRanking(source)),
+          new ArrayList<>(candidates),
+          pending);
+    } catch (IOException | ExecutionException e) {
+      log.catching(e);
+      return null;
+    }
+  }
+
+  private Optional<List<CandidateUnit>> narrowCompletion(
+      final File file, final int line, final int column, final String prefix) {
+    final CompletionSession current = this.session;
+    if (isNull(current)) {
+      return Optional.empty();
+    }
+    final Optional<String[]> split = splitPrefix(prefix);
+    if (!split.isPresent()) {
+      return Optional.empty();
+    }
+    final String head = split.get()[0];
+    final String word = split.get()[1];
+    try {
+      final Source source = getSource(file);
+      if (!current.canNarrow(file, source, line, column, head, word)) {
+        this.setSession(null);
+        return Optional.empty();
+      }
+    } catch (IOException | ExecutionException e) {
+      this.setSession(null);
+      return Optional.empty();
+    }
+    Collection<CandidateUnit> candidates = current.candidates;
+    List<CompletableFuture<Collection<? extends CandidateUnit>>> pending = current.pending;
+    if (!pending.isEmpty()) {
+      // the providers that missed the deadline of an earlier request
+      final Set<CandidateUnit> merged = new LinkedHashSet<>(candidates);
+      pending = awaitCandidates(pending, merged);
+      this.partial = !pending.isEmpty();
+      candidates = merged;
+    }
+    final Predicate<CandidateUnit> filter = getNarrowFilter(head, word);
+    final List<CandidateUnit> result = new ArrayList<>(candidates.size());
+    for (final CandidateUnit c : candidates) {
+      if (filter.test(c)) {
+        result.add(c);
       }
-      return collection;
     }
+    result.sort(current.ranker.apply(word));
+    this.setSession(current.narrow(column, word, result, pending));
+    return Optional.of(result);
   }
 
   @SuppressWarnings("try")
@@ -1202,7 +1489,7 @@ public class JavaCompletion {
           return annotationCompletion(source, line, column, prefix);
         }
         // search symbol
-        return completionSymbols(source, line, column, prefix);
+        return this.completionSymbols(source, line, column, prefix);
 
       } catch (Throwable t) {
         TelemetryUtils.setStatusINTERNAL(t.getMessage());
@@ -1233,10 +1520,10 @@ public class JavaCompletion {
         return completionImport(searchWord);
       } else if (searchWord.startsWith("*new")) {
         // class completion
-        return completionNewKeyword(source, line, column, searchWord);
+        return completionNewKeyword(source, line, column, searchWord, this.getRanking(source));
       } else if (searchWord.startsWith("*method")) {
         // normal completion
-        return completionMethods(source, line, column, searchWord);
+        return completionMethods(source, line, column, searchWord, this.getRanking(source));
       } else if (searchWord.startsWith("*package")) {
         // completion projects package
         return this.completionPackage(source.getFile());
@@ -1256,11 +1543,11 @@ public class JavaCompletion {
               completionFieldsOrMethods(source, line, var2, prefix);
           return rawResult.stream()
               // .filter(cu -> cu.getReturnType().endsWith(type))
-              .sorted(getComparatorWithType(prefix, typeOrMember))
+              .sorted(getComparatorWithType(prefix, typeOrMember, this.getRanking(source)))
               .collect(Collectors.toList());
         }
         return completionFieldsOrMethods(source, line, var, prefix).stream()
-            .sorted(methodComparing(prefix))
+            .sorted(methodComparing(prefix, this.getRanking(source)))
             .collect(Collectors.toList());
       }
 
@@ -1273,7 +1560,7 @@ public class JavaCompletion {
 
   @SuppressWarnings("try")
   private static Collection<? extends CandidateUnit> completionMethods(
-      Source source, int line, int column, String searchWord) {
+      Source source, int line, int column, String searchWord, UsageStatistics.Ranking rank) {
 
     try (TelemetryUtils.ScopedSpan scope =
         TelemetryUtils.startScopedSpan("JavaCompletion.completionMethods")) {
@@ -1301,12 +1588,12 @@ public class JavaCompletion {
           fqcn = StringUtils.replace(fqcn, ClassNameUtils.CAPTURE_OF, "");
           return reflectWithFQCN(fqcn, prefix).stream()
               // .filter(cu -> cu.getReturnType().endsWith(type))
-              .sorted(getComparatorWithType(prefix, typeOrMember))
+              .sorted(getComparatorWithType(prefix, typeOrMember, rank))
               .collect(Collectors.toList());
         } else {
           fqcn = StringUtils.replace(fqcn, ClassNameUtils.CAPTURE_OF, "");
           return reflectWithFQCN(fqcn, prefix).stream()
-              .sorted(methodComparing(prefix))
+              .sorted(methodComparing(prefix, rank))
               .collect(Collectors.toList());
         }
       }
@@ -1340,7 +1627,7 @@ public class JavaCompletion {
             if (as.match(line, startColumn) && nonNull(as.returnType)) {
               final String fqcn = StringUtils.replace(as.returnType, ClassNameUtils.CAPTURE_OF, "");
               return reflect(pkg, fqcn, prefix).stream()
-                  .sorted(methodComparing(prefix))
+                  .sorted(methodComparing(prefix, rank))
                   .collect(Collectors.toList());
             }
           }
@@ -1369,17 +1656,23 @@ public class JavaCompletion {
 
   public synchronized void resolve(File file, String type, String desc, String returnType) {
     if (nonNull(hits)) {
+      final UsageStatistics statistics = this.getStatistics();
+      String context = file.getPath();
+      try {
+        context = getSource(file).getFQCN();
+      } catch (IOException | ExecutionException e) {
+        log.warn(e.getMessage());
+      }
+      final String ctx = context;
       String declaration = returnType + " " + desc;
       hits.forEach(
           c -> {
             if (c.getType().equals(type) && c.getDisplayDeclaration().equals(declaration)) {
               // match
-              Integer count = this.statisticsTable.get(file, c);
-              if (isNull(count)) {
-                count = 0;
+              if (nonNull(statistics)) {
+                statistics.record(ctx, c);
+                this.statisticsDirty = true;
               }
-              count++;
-              this.statisticsTable.put(file, c, count);
               String key = c.getDisplayDeclaration();
               if (c instanceof MemberDescriptor) {
                 MemberDescriptor md = (MemberDescriptor) c;
@@ -1388,20 +1681,133 @@ public class JavaCompletion {
               TelemetryUtils.recordSelectedCompletion(key, 1L);
             }
           });
+      if (System.currentTimeMillis() - this.statisticsSaved > STATISTICS_SAVE_INTERVAL) {
+        this.saveStatistics();
+      }
     }
   }
 
-  public void dumpStatsTable() {
-    this.statisticsTable
-        .rowKeySet()
-        .forEach(
-            f -> {
-              SortedMap<CandidateUnit, Integer> map = this.statisticsTable.row(f);
-              map.forEach(
-                  (c, i) -> {
-                    log.debug("{} {} {}", f.getName(), c.getDisplayDeclaration(), i);
-                  });
-            });
+  @Nullable
+  private synchronized UsageStatistics getStatistics() {
+    final Project project = this.projectSupplier.get();
+    if (isNull(project)) {
+      return null;
+    }
+    final String root = project.getProjectRootPath();
+    if (isNull(this.statistics) || !root.equals(this.statisticsRoot)) {
+      this.saveStatistics();
+      this.statistics = ProjectDatabaseHelper.getCompletionStatistics(root);
+      this.statisticsRoot = root;
+    }
+    return this.statistics;
+  }
+
+  private UsageStatistics.Ranking getRanking(final Source source) {
+    final UsageStatistics statistics = this.getStatistics();
+    if (isNull(statistics)) {
+      return UsageStatistics.Ranking.none();
+    }
+    return statistics.ranking(source.getFQCN());
+  }
+
+  public synchronized void saveStatistics() {
+    this.saveStatistics(false);
+  }
+
+  /** Saves the statistics on the calling thread, for shutdown. */
+  public synchronized void flushStatistics() {
+    this.saveStatistics(true);
+  }
+
+  private void saveStatistics(final boolean sync) {
+    if (!this.statisticsDirty || isNull(this.statistics)) {
+      return;
+    }
+    final String root = this.statisticsRoot;
+    final UsageStatistics snapshot = this.statistics.copy();
+    this.statisticsDirty = false;
+    this.statisticsSaved = System.currentTimeMillis();
+    final Runnable save =
+        () -> {
+          if (!ProjectDatabaseHelper.saveCompletionStatistics(root, snapshot)) {
+            log.warn("failed to save completion statistics {}", root);
+          }
+        };
+    if (sync) {
+      save.run();
+    } else {
+      Executor.getInstance().execute(save);
+    }
+  }
+
+  private static class CompletionSession {
+    private final File file;
+    private final long lastModified;
+    private final Source source;
+    private final int line;
+    private final int column;
+    private final String head;
+    private final String word;
+    private final Function<String, Comparator<? super CandidateUnit>> ranker;
+    private final List<CandidateUnit> candidates;
+    private final List<CompletableFuture<Collection<? extends CandidateUnit>>> pending;
+
+    CompletionSession(
+        final File file,
+        final Source source,
+        final int line,
+        final int column,
+        final String head,
+        final String word,
+        final Function<String, Comparator<? super CandidateUnit>> ranker,
+        final List<CandidateUnit> candidates,
+        final List<CompletableFuture<Collection<? extends CandidateUnit>>> pending) {
+      this.file = file;
+      this.lastModified = file.lastModified();
+      this.source = source;
+      this.line = line;
+      this.column = column;
+      this.head = head;
+      this.word = word;
+      this.ranker = ranker;
+      this.candidates = candidates;
+      this.pending = pending;
+    }
+
+    boolean canNarrow(
+        final File file,
+        final Source source,
+        final int line,
+        final int column,
+        final String head,
+        final String word) {
+      // the same receiver at the same token, and nothing was reparsed or saved since
+      return this.source == source
+          && this.file.equals(file)
+          && this.lastModified == file.lastModified()
+          && this.line == line
+          && this.head.equals(head)
+          && word.startsWith(this.word)
+          && (column == this.column
+              || column - word.length() == this.column - this.word.length());
+    }
+
+    CompletionSession narrow(
+        final int column,
+        final String word,
+        final List<CandidateUnit> candidates,
+        final List<CompletableFuture<Collection<? extends CandidateUnit>>> pending) {
+      return new CompletionSession(
+          this.file,
+          this.source,
+          this.line,
+          column,
+          this.head,
+          word,
+          this.ranker,
+          candidates,
+          pending);
+    }
   }
 
   private static class MyCandidateUnit implements CandidateUnit {
@@ -10,6 +10,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -58,16 +60,23 @@ public class JavaImportCompletion {
               .put("name", name)
               .build("args"));
 
-      List<String> results =
-          IndexDatabase.getInstance()
-              .searchMembers(
-                  "", IndexDatabase.doubleQuote("public static"), "(\"METHOD\" OR \"FIELD\")", name)
-              .stream()
-              .filter(d -> d.getName().equals(name))
-              .map(d -> d.getDeclaringClass() + "#" + d.getName())
-              .distinct()
-              .collect(Collectors.toList());
-      if (isNull(results) || results.isEmpty()) {
+      final CachedASMReflector reflector = CachedASMReflector.getInstance();
+      final Set<String> owners = new TreeSet<>(reflector.getStaticMemberOwners(name));
+      if (!reflector.isStaticMemberScanDone()) {
+        // the jars not scanned yet are in the search index
+        IndexDatabase.getInstance()
+            .searchMembers(
+                "",
+                IndexDatabase.doubleQuote("public static"),
+                "(\"METHOD\" OR \"FIELD\")",
+                name)
+            .stream()
+            .filter(d -> d.getName().equals(name))
+            .forEach(d -> owners.add(d.getDeclaringClass()));
+      }
+      final List<String> results =
+          owners.stream().map(o -> o + "#" + name).collect(Collectors.toList());
+      if (results.isEmpty()) {
         return Optional.empty();
       }
 
@@ -98,20 +107,28 @@ public class JavaImportCompletion {
               mc -> {
                 String methodName = mc.name;
                 List<String> arguments = mc.getArguments();
-                return IndexDatabase.getInstance()
-                    .searchMembers(
-                        "",
-                        IndexDatabase.doubleQuote("public static"),
-                        IndexDatabase.doubleQuote("METHOD"),
-                        methodName)
-                    .stream()
-                    .filter(
-                        d ->
-                            d.getName().equals(methodName)
-                                && ClassNameUtils.compareArgumentType(
-                                    arguments, d.getParameters(), false))
-                    .map(d -> d.getDeclaringClass() + "#" + d.getName())
-                    .distinct()
+                CachedASMReflector reflector = CachedASMReflector.getInstance();
+                // the scanned parameters are matched without reflecting the owners
+                Set<String> owners =
+                    new TreeSet<>(reflector.getStaticMethodOwners(methodName, arguments));
+                if (!reflector.isStaticMemberScanDone()) {
+                  // the jars not scanned yet are in the search index
+                  IndexDatabase.getInstance()
+                      .searchMembers(
+                          "",
+                          IndexDatabase.doubleQuote("public static"),
+                          IndexDatabase.doubleQuote("METHOD"),
+                          methodName)
+                      .stream()
+                      .filter(
+                          d ->
+                              d.getName().equals(methodName)
+                                  && ClassNameUtils.compareArgumentType(
+                                      arguments, d.getParameters(), false))
+                      .forEach(d -> owners.add(d.getDeclaringClass()));
+                }
+                return owners.stream()
+                    .map(owner -> owner + "#" + methodName)
                     .collect(Collectors.toList());
               });
       if (optionalList.isPresent()) {
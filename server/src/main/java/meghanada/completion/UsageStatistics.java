@@ -0,0 +1,206 @@
+package meghanada.completion;
+
+import static java.util.Objects.isNull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.ClassIndex;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.MethodDescriptor;
+
+public class UsageStatistics implements Serializable {
+
+  private static final long serialVersionUID = 2912427830185472193L;
+  private static final double HALF_LIFE = TimeUnit.DAYS.toMillis(7);
+  // rescale before the weights lose precision
+  private static final double MAX_EXPONENT = 32.0;
+  private static final int DEFAULT_CAPACITY = 4096;
+
+  private final int capacity;
+  private long epoch;
+  private long[] keys;
+  private double[] scores;
+  private int size;
+
+  public UsageStatistics() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  UsageStatistics(final int capacity) {
+    this.capacity = capacity;
+    this.epoch = System.currentTimeMillis();
+    this.keys = new long[tableSize(capacity)];
+    this.scores = new double[this.keys.length];
+  }
+
+  private static int tableSize(final int capacity) {
+    // keep the load factor under 0.5
+    return Integer.highestOneBit(Math.max(capacity, 8) * 4 - 1);
+  }
+
+  private static int mix(final long key) {
+    final long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  static int signatureHash(final CandidateUnit c) {
+    int h = c.getType().hashCode();
+    if (c instanceof MemberDescriptor) {
+      final MemberDescriptor md = (MemberDescriptor) c;
+      h = 31 * h + hash(md.declaringClass);
+      h = 31 * h + hash(md.name);
+      h = 31 * h + hash(md.returnType);
+      if (md instanceof MethodDescriptor) {
+        final MethodDescriptor method = (MethodDescriptor) md;
+        h = 31 * h + (isNull(method.parameters) ? 0 : method.parameters.size());
+      }
+    } else if (c instanceof ClassIndex) {
+      h = 31 * h + hash(((ClassIndex) c).declaration);
+    } else {
+      h = 31 * h + hash(c.getName());
+    }
+    return h;
+  }
+
+  private static int hash(final String s) {
+    return isNull(s) ? 0 : s.hashCode();
+  }
+
+  static long key(final String context, final CandidateUnit c) {
+    return key(hash(context), c);
+  }
+
+  private static long key(final int context, final CandidateUnit c) {
+    final long key = ((long) context << 32) | (signatureHash(c) & 0xFFFFFFFFL);
+    // 0 marks an empty slot
+    return key == 0 ? 1 : key;
+  }
+
+  public synchronized void record(final String context, final CandidateUnit c) {
+    final long now = System.currentTimeMillis();
+    double exponent = (now - this.epoch) / HALF_LIFE;
+    if (exponent > MAX_EXPONENT) {
+      this.rescale(now);
+      exponent = 0;
+    }
+    if (this.size >= this.capacity) {
+      this.evict();
+    }
+    // newer uses weigh more, comparing raw scores is the same as comparing decayed scores
+    final double weight = Math.pow(2.0, Math.max(exponent, 0));
+    final long key = key(context, c);
+    final int i = this.slot(key);
+    if (this.keys[i] == key) {
+      this.scores[i] += weight;
+      return;
+    }
+    this.keys[i] = key;
+    this.scores[i] = weight;
+    this.size++;
+  }
+
+  private int slot(final long key) {
+    final int mask = this.keys.length - 1;
+    int i = mix(key) & mask;
+    while (this.keys[i] != 0 && this.keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  public synchronized double score(final long key) {
+    final int i = this.slot(key);
+    return this.keys[i] == key ? this.scores[i] : 0;
+  }
+
+  public synchronized int size() {
+    return this.size;
+  }
+
+  public synchronized UsageStatistics copy() {
+    final UsageStatistics copy = new UsageStatistics(this.capacity);
+    copy.epoch = this.epoch;
+    copy.keys = this.keys.clone();
+    copy.scores = this.scores.clone();
+    copy.size = this.size;
+    return copy;
+  }
+
+  public Ranking ranking(final String context) {
+    return new Ranking(this, context);
+  }
+
+  private void rescale(final long now) {
+    final double factor = Math.pow(2.0, -(now - this.epoch) / HALF_LIFE);
+    for (int i = 0; i < this.scores.length; i++) {
+      this.scores[i] *= factor;
+    }
+    this.epoch = now;
+  }
+
+  private void evict() {
+    // drop the colder half
+    final double[] live = new double[this.size];
+    int n = 0;
+    for (int i = 0; i < this.keys.length; i++) {
+      if (this.keys[i] != 0) {
+        live[n++] = this.scores[i];
+      }
+    }
+    Arrays.sort(live);
+    final double threshold = live[n / 2];
+    final int keep = n - n / 2;
+    final long[] oldKeys = this.keys;
+    final double[] oldScores = this.scores;
+    this.keys = new long[oldKeys.length];
+    this.scores = new double[oldScores.length];
+    this.size = 0;
+    // ties with the threshold fill up what is left
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < oldKeys.length && this.size < keep; i++) {
+        final boolean hot = pass == 0 ? oldScores[i] > threshold : oldScores[i] == threshold;
+        if (oldKeys[i] != 0 && hot) {
+          final int j = this.slot(oldKeys[i]);
+          this.keys[j] = oldKeys[i];
+          this.scores[j] = oldScores[i];
+          this.size++;
+        }
+      }
+    }
+  }
+
+  public static class Ranking {
+
+    private static final Ranking NONE = new Ranking(null, "");
+
+    private final UsageStatistics statistics;
+    private final int context;
+
+    Ranking(@Nullable final UsageStatistics statistics, final String context) {
+      this.statistics = statistics;
+      this.context = hash(context);
+    }
+
+    public static Ranking none() {
+      return NONE;
+    }
+
+    public double score(final CandidateUnit c) {
+      if (isNull(this.statistics)) {
+        return 0;
+      }
+      return this.statistics.score(key(this.context, c));
+    }
+
+    public int compare(final CandidateUnit c1, final CandidateUnit c2) {
+      if (isNull(this.statistics)) {
+        return 0;
+      }
+      // frequently used first
+      return Double.compare(this.score(c2), this.score(c1));
+    }
+  }
+}
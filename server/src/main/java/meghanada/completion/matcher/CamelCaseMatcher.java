@@ -13,14 +13,19 @@ public class CamelCaseMatcher implements CompletionMatcher {
 
   private final String query;
   private final CompletionMatcher baseMatcher;
+  private final long queryMask;
 
   public CamelCaseMatcher(String query) {
     this.query = query;
     this.baseMatcher = new PrefixMatcher(query, true);
+    this.queryMask = StringUtils.charMask(query);
   }
 
   @Override
   public boolean match(CandidateUnit c) {
+    if ((c.getNameMask() & this.queryMask) != this.queryMask) {
+      return false;
+    }
     String name = c.getName();
     return StringUtils.isMatchCamelCase(name, this.query);
   }
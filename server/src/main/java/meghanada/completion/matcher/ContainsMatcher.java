@@ -9,6 +9,7 @@ import java.util.function.Predicate;
 import meghanada.analyze.Source;
 import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.asm.CachedASMReflector;
+import meghanada.utils.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -18,6 +19,7 @@ public class ContainsMatcher implements CompletionMatcher {
   private final String query;
   private final boolean partial;
   private final Source source;
+  private final long queryMask;
 
   public ContainsMatcher(String query, boolean partial) {
     this(query, partial, null);
@@ -27,10 +29,14 @@ public class ContainsMatcher implements CompletionMatcher {
     this.query = query;
     this.partial = partial;
     this.source = source;
+    this.queryMask = StringUtils.charMask(query);
   }
 
   @Override
   public boolean match(CandidateUnit c) {
+    if (this.partial && (c.getNameMask() & this.queryMask) != this.queryMask) {
+      return false;
+    }
     return CachedASMReflector.containsKeyword(this.query, this.partial, c, true);
   }
 
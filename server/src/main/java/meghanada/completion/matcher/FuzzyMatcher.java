@@ -98,7 +98,12 @@ public class FuzzyMatcher implements CompletionMatcher {
   @Override
   public boolean match(CandidateUnit c) {
     String name = c.getName();
-    boolean first = true;
+    if (!this.advanced
+        && !this.query.isEmpty()
+        && (name.isEmpty() || name.charAt(0) != this.query.charAt(0))) {
+      // scores zero, skip the scoring
+      return false;
+    }
     if (c instanceof ClassIndex) {
       ClassIndex index = (ClassIndex) c;
       String indexPackage = index.getPackage();
@@ -124,9 +129,7 @@ public class FuzzyMatcher implements CompletionMatcher {
     return (o1, o2) -> {
       String name1 = o1.getName();
       String name2 = o2.getName();
-      Integer i1 = fuzzyScore(name1, k, true);
-      Integer i2 = fuzzyScore(name2, k, true);
-      return i1.compareTo(i2);
+      return Integer.compare(fuzzyScore(name1, k, true), fuzzyScore(name2, k, true));
     };
   }
 
@@ -148,9 +151,7 @@ public class FuzzyMatcher implements CompletionMatcher {
       if (imps.contains(d2)) {
         return 1;
       }
-      Integer i1 = fuzzyScore(n1, k, true);
-      Integer i2 = fuzzyScore(n2, k, true);
-      return i1.compareTo(i2);
+      return Integer.compare(fuzzyScore(n1, k, true), fuzzyScore(n2, k, true));
     };
   }
 }
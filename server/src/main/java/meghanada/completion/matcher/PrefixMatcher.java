@@ -9,6 +9,7 @@ import java.util.function.Predicate;
 import meghanada.analyze.Source;
 import meghanada.reflect.CandidateUnit;
 import meghanada.utils.ClassNameUtils;
+import meghanada.utils.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -19,6 +20,7 @@ public class PrefixMatcher implements CompletionMatcher {
   private final String query;
   private final boolean partial;
   private final Source source;
+  private final long queryMask;
 
   public PrefixMatcher(String query, boolean partial) {
     this(query, partial, null);
@@ -28,6 +30,7 @@ public class PrefixMatcher implements CompletionMatcher {
     this.query = query;
     this.partial = partial;
     this.source = source;
+    this.queryMask = StringUtils.charMask(query);
   }
 
   private static boolean containsKeyword(
@@ -47,6 +50,9 @@ public class PrefixMatcher implements CompletionMatcher {
 
   @Override
   public boolean match(CandidateUnit c) {
+    if (this.partial && (c.getNameMask() & this.queryMask) != this.queryMask) {
+      return false;
+    }
     return containsKeyword(this.query, this.partial, c);
   }
 
@@ -103,11 +109,8 @@ public class PrefixMatcher implements CompletionMatcher {
     return (c1, c2) -> {
       String o1 = c1.getName();
       String o2 = c2.getName();
-      Integer i1 = o1.length();
-      Integer i2 = o2.length();
-
       if (o1.startsWith(k) && o2.startsWith(k)) {
-        return i1.compareTo(i2);
+        return Integer.compare(o1.length(), o2.length());
       }
       if (o1.startsWith(k)) {
         return -1;
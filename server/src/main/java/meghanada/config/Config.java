@@ -371,8 +371,31 @@ public class Config {
     return c.getBoolean("skip-build-subprojects");
   }
 
-  public int getSourceCacheSize() {
-    return c.getInt("source-cache-size");
+  public long getCompletionDeadline() {
+    return c.getLong("completion-deadline");
+  }
+
+  public boolean isCompletionPartialMarker() {
+    return c.getBoolean("completion-partial-marker");
+  }
+
+  public long getSourceCacheBudget() {
+    // MB
+    return c.getLong("source-cache-budget") * 1024 * 1024;
+  }
+
+  public int getMemberCacheSize() {
+    return c.getInt("member-cache-size");
+  }
+
+  public double getStaticMemberScanCpuLimit() {
+    // share of all cores the static member scan may use before it pauses
+    return c.getDouble("static-member-scan-cpu-limit");
+  }
+
+  public long getMemberCacheOffHeapSize() {
+    // MB
+    return c.getLong("member-cache-offheap-size") * 1024 * 1024;
   }
 
   public int getDebuggerPort() {
@@ -483,6 +506,10 @@ public class Config {
     return c.getString("cache-root");
   }
 
+  public String getJarIndexRoot() {
+    return c.getString("jar-index-root");
+  }
+
   public boolean isCacheInProject() {
     return c.getBoolean("cache-in-project");
   }
@@ -491,6 +518,14 @@ public class Config {
     return c.getBoolean("full-text-search");
   }
 
+  public long getDatabaseSizeBudget() {
+    return c.getLong("database-size-budget") * 1024 * 1024;
+  }
+
+  public boolean useBlobCompression() {
+    return c.getBoolean("blob-compression");
+  }
+
   public boolean enableIdleCache() {
     return c.getBoolean("idle-cache");
   }
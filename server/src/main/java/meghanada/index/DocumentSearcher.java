@@ -104,6 +104,10 @@ public class DocumentSearcher implements AutoCloseable {
     indexWriter.addDocuments(docs);
   }
 
+  void forceMerge(final int maxSegments) throws IOException {
+    indexWriter.forceMerge(maxSegments);
+  }
+
   void deleteDocuments(final String fld, final String idValue) throws IOException {
     indexWriter.deleteDocuments(new Term(fld, idValue));
   }
@@ -5,40 +5,49 @@ import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
 import com.google.common.base.Joiner;
-import com.google.common.base.Stopwatch;
 import com.google.common.eventbus.Subscribe;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
-import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
-import jetbrains.exodus.env.ContextualEnvironment;
-import jetbrains.exodus.env.Environment;
-import jetbrains.exodus.env.Environments;
+import meghanada.Main;
+import meghanada.config.Config;
 import meghanada.reflect.MemberDescriptor;
 import meghanada.store.ProjectDatabase;
 import meghanada.store.Serializer;
 import meghanada.system.Executor;
-import meghanada.telemetry.ErrorReporter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.index.IndexNotFoundException;
 import org.apache.lucene.util.BytesRef;
 
 public class IndexDatabase {
 
   private static final Logger log = LogManager.getLogger(IndexDatabase.class);
   private static final String QUOTE = "\"";
+  private static final int SEARCH_THREADS = 4;
   private static IndexDatabase indexDatabase;
   public final int maxHits = Integer.MAX_VALUE;
-  private DocumentSearcher searcher;
-  private Environment environment = null;
-  private final File baseLocation = null;
+  private IndexShard projectShard;
+  private final Map<File, IndexShard> jarShards = new ConcurrentHashMap<>(64);
+  private File baseLocation = null;
+  private final ExecutorService searchPool =
+      Executors.newFixedThreadPool(
+          Math.min(SEARCH_THREADS, Runtime.getRuntime().availableProcessors()),
+          new ThreadFactoryBuilder().setNameFormat("index-search-%d").setDaemon(true).build());
 
   private IndexDatabase() {
     Executor.getInstance().getEventBus().register(this);
@@ -70,71 +79,131 @@ public class IndexDatabase {
     final File loc = ProjectDatabase.getInstance().getBaseLocation();
     if (nonNull(this.baseLocation) && !this.baseLocation.equals(loc)) {
       // change database
-      if (nonNull(this.searcher)) {
-        this.searcher.close();
-        this.searcher = null;
-      }
-      if (nonNull(this.environment)) {
-        this.environment.close();
-        this.environment = null;
+      if (nonNull(this.projectShard)) {
+        this.projectShard.close();
+        this.projectShard = null;
       }
+      this.detachJarShards();
+    }
+    if (isNull(this.projectShard)) {
+      final IndexShard shard = new IndexShard("project", new File(loc, "index"), false);
+      shard.open();
+      this.projectShard = shard;
+      this.baseLocation = loc;
     }
-    if (isNull(this.environment) || isNull(this.searcher)) {
-      File indexDir = new File(loc, "index");
-      ContextualEnvironment env = Environments.newContextualInstance(indexDir);
-      String location = env.getLocation();
-      log.debug("open index database {}", location);
+  }
+
+  private static File getJarShardLocation(final File jar) throws IOException {
+    final String root = Config.load().getJarIndexRoot();
+    final String key =
+        Joiner.on(':')
+            .join(jar.getCanonicalPath(), jar.length(), jar.lastModified(), Main.getVersion());
+    final String hash = Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
+    return new File(root, jar.getName() + '_' + hash.substring(0, 16));
+  }
+
+  public void compact() {
+    final IndexShard shard = this.projectShard;
+    if (nonNull(shard)) {
       try {
-        this.searcher = new DocumentSearcher(env);
-        this.environment = env;
-      } catch (IOException e) {
-        throw new UncheckedIOException(e);
+        shard.compact();
+      } catch (Exception e) {
+        log.warn("failed to compact index {}", e.getMessage());
+      }
+    }
+  }
+
+  public boolean attachJarShard(final File jar) {
+    if (this.jarShards.containsKey(jar)) {
+      return true;
+    }
+    try {
+      final IndexShard shard = new IndexShard(jar.getName(), getJarShardLocation(jar), true);
+      if (!shard.isComplete()) {
+        return false;
+      }
+      if (shard.isEmpty()) {
+        // nothing to search in this jar
+        return true;
       }
+      shard.open();
+      this.attach(jar, shard);
+      return true;
+    } catch (Exception e) {
+      // the shard may be locked by another server process
+      log.warn("failed to attach index shard {} {}", jar, e.getMessage());
+      return false;
+    }
+  }
+
+  public void markEmptyJarShard(final File jar) {
+    try {
+      final IndexShard shard = new IndexShard(jar.getName(), getJarShardLocation(jar), true);
+      shard.markComplete(true);
+    } catch (IOException e) {
+      log.warn("failed to mark index shard {} {}", jar, e.getMessage());
+    }
+  }
+
+  private void attach(final File jar, final IndexShard shard) {
+    final IndexShard old = this.jarShards.put(jar, shard);
+    if (nonNull(old) && old != shard) {
+      old.close();
+    }
+  }
+
+  private void detachJarShards() {
+    for (final IndexShard shard : this.jarShards.values()) {
+      shard.close();
     }
+    this.jarShards.clear();
   }
 
   synchronized void indexObject(final SearchIndexable s) {
     this.open();
-    this.searcher.executeInTransaction(
-        () -> {
-          try {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            String id = s.getIndexGroupId();
-            List<Document> docs = s.getDocumentIndices();
-            this.searcher.deleteDocuments(SearchIndexable.GROUP_ID, id);
-            this.searcher.addDocuments(docs);
-            log.debug("indexed :{} elapsed:{}", id, stopwatch.stop());
-          } catch (Throwable e) {
-            log.catching(e);
-            ErrorReporter.report(e);
-          }
-        });
+    this.projectShard.index(Collections.singletonList(s));
   }
 
   synchronized void indexObjects(final List<SearchIndexable> list) {
     this.open();
-    this.searcher.executeInTransaction(
-        () -> {
-          try {
-            for (final SearchIndexable s : list) {
-              if (nonNull(s) && nonNull(s.getIndexGroupId())) {
-                String id = s.getIndexGroupId();
-                List<Document> docs = s.getDocumentIndices();
-                this.searcher.deleteDocuments(SearchIndexable.GROUP_ID, id);
-                this.searcher.addDocuments(docs);
-                log.debug("indexed :{}", id);
-              }
-            }
-          } catch (Throwable e) {
-            log.catching(e);
-            ErrorReporter.report(e);
-          }
-        });
+    this.projectShard.index(list);
+  }
+
+  public Optional<List<String>> getJarShardMembers(final File jar) {
+    try {
+      final IndexShard shard = new IndexShard(jar.getName(), getJarShardLocation(jar), true);
+      if (shard.isEmpty()) {
+        return Optional.of(Collections.emptyList());
+      }
+      return shard.readMembers();
+    } catch (IOException e) {
+      log.warn("failed to read index shard members {} {}", jar, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  public void indexJarShard(
+      final File jar, final SearchIndexable s, final Collection<String> members) {
+    if (this.jarShards.containsKey(jar)) {
+      return;
+    }
+    try {
+      final IndexShard shard = new IndexShard(jar.getName(), getJarShardLocation(jar), true);
+      if (!shard.isComplete()) {
+        shard.index(Collections.singletonList(s));
+        shard.writeMembers(members);
+        shard.markComplete(false);
+      }
+      shard.open();
+      this.attach(jar, shard);
+    } catch (Exception e) {
+      log.warn("failed to build index shard {} {}", jar, e.getMessage());
+    }
   }
 
   @Subscribe
   public void on(final IndexEvent event) {
-    if (isNull(this.searcher)) {
+    if (isNull(this.projectShard)) {
       return;
     }
     if (nonNull(event.indexables)) {
@@ -162,105 +231,121 @@ public class IndexDatabase {
     Executor.getInstance().getEventBus().post(event);
   }
 
-  public synchronized Optional<SearchResults> search(final String query) {
+  private synchronized List<IndexShard> getShards() {
     this.open();
-    return this.searcher.searchInTransaction(
-        () -> {
-          try {
-            final SearchResults results = new SearchResults();
-            {
-              String codeField = IndexableWord.Field.CODE.getName();
-              final List<SearchResult> result =
-                  this.searcher.search(
-                      codeField,
-                      query,
-                      maxHits,
-                      d -> {
-                        final String filePath = d.get(SearchIndexable.GROUP_ID);
-                        final String line = d.get(SearchIndexable.LINE_NUMBER);
-                        final String contents = d.get(codeField);
-                        final String cat = d.get(SearchIndexable.CATEGORY);
-                        return Optional.of(new SearchResult(filePath, line, contents, cat));
-                      });
-
-              result.forEach(
-                  r -> {
-                    final String cat = r.category;
-                    if (cat.equals(IndexableWord.Field.CLASS_NAME.getName())) {
-                      results.classes.add(r);
-                    } else if (cat.equals(IndexableWord.Field.METHOD_NAME.getName())) {
-                      results.methods.add(r);
-                    } else if (cat.equals(IndexableWord.Field.PACKAGE_NAME.getName())) {
-                      results.classes.add(r);
-                    } else if (cat.equals(IndexableWord.Field.USAGE.getName())) {
-                      results.usages.add(r);
-                    } else if (cat.equals(IndexableWord.Field.SYMBOL_NAME.getName())) {
-                      results.symbols.add(r);
-                    } else {
-                      results.codes.add(r);
-                    }
-                  });
+    final List<IndexShard> shards = new ArrayList<>(this.jarShards.size() + 1);
+    shards.add(this.projectShard);
+    shards.addAll(this.jarShards.values());
+    return shards;
+  }
+
+  private <T> List<T> searchShards(
+      final List<IndexShard> shards,
+      final String field,
+      final String query,
+      final DocumentConverter<T> converter) {
+    if (shards.size() == 1) {
+      return shards.get(0).search(field, query, this.maxHits, converter);
+    }
+    // own pool, callers may already run on the shared executor
+    final List<CompletableFuture<List<T>>> futures = new ArrayList<>(shards.size());
+    for (final IndexShard shard : shards) {
+      futures.add(
+          CompletableFuture.supplyAsync(
+              () -> shard.search(field, query, this.maxHits, converter), this.searchPool));
+    }
+    final List<T> result = new ArrayList<>(64);
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        result.addAll(futures.get(i).join());
+      } catch (CompletionException e) {
+        log.warn("fail search shard {} {}", shards.get(i).getLocation(), e.getMessage());
+      }
+    }
+    return result;
+  }
+
+  public Optional<SearchResults> search(final String query) {
+    try {
+      final SearchResults results = new SearchResults();
+      final String codeField = IndexableWord.Field.CODE.getName();
+      final List<SearchResult> result =
+          searchShards(
+              this.getShards(),
+              codeField,
+              query,
+              d -> {
+                final String filePath = d.get(SearchIndexable.GROUP_ID);
+                final String line = d.get(SearchIndexable.LINE_NUMBER);
+                final String contents = d.get(codeField);
+                final String cat = d.get(SearchIndexable.CATEGORY);
+                return Optional.of(new SearchResult(filePath, line, contents, cat));
+              });
+
+      result.forEach(
+          r -> {
+            final String cat = r.category;
+            if (cat.equals(IndexableWord.Field.CLASS_NAME.getName())) {
+              results.classes.add(r);
+            } else if (cat.equals(IndexableWord.Field.METHOD_NAME.getName())) {
+              results.methods.add(r);
+            } else if (cat.equals(IndexableWord.Field.PACKAGE_NAME.getName())) {
+              results.classes.add(r);
+            } else if (cat.equals(IndexableWord.Field.USAGE.getName())) {
+              results.usages.add(r);
+            } else if (cat.equals(IndexableWord.Field.SYMBOL_NAME.getName())) {
+              results.symbols.add(r);
+            } else {
+              results.codes.add(r);
             }
-            return Optional.of(results);
-          } catch (Throwable e) {
-            log.warn(e);
-            return Optional.empty();
-          }
-        });
+          });
+      return Optional.of(results);
+    } catch (Throwable e) {
+      log.warn(e);
+      return Optional.empty();
+    }
   }
 
-  public synchronized List<MemberDescriptor> searchMembers(
+  public List<MemberDescriptor> searchMembers(
       final String classQuery,
       final String modifierQuery,
       final String memberTypeQuery,
       final String nameQuery) {
-    this.open();
+    final String codeField = IndexableWord.Field.CODE.getName();
+    final List<String> queryList = new ArrayList<>(4);
+    if (!isNullOrEmpty(classQuery)) {
+      queryList.add("cdc:" + classQuery);
+    }
+    if (!isNullOrEmpty(modifierQuery)) {
+      queryList.add("modifier:" + modifierQuery);
+    }
+    if (!isNullOrEmpty(memberTypeQuery)) {
+      queryList.add("memberType:" + memberTypeQuery);
+    }
+    if (!isNullOrEmpty(nameQuery)) {
+      queryList.add("completion:" + nameQuery);
+    }
+    final String query = Joiner.on(" AND ").join(queryList);
+    log.debug("query: {}", query);
     try {
-      return this.searcher.searchInTransaction(
-          () -> {
-            try {
-              String codeField = IndexableWord.Field.CODE.getName();
-              List<String> queryList = new ArrayList<>(4);
-              if (!isNullOrEmpty(classQuery)) {
-                queryList.add("cdc:" + classQuery);
-              }
-              if (!isNullOrEmpty(modifierQuery)) {
-                queryList.add("modifier:" + modifierQuery);
-              }
-              if (!isNullOrEmpty(memberTypeQuery)) {
-                queryList.add("memberType:" + memberTypeQuery);
-              }
-              if (!isNullOrEmpty(nameQuery)) {
-                queryList.add("completion:" + nameQuery);
-              }
-              final String query = Joiner.on(" AND ").join(queryList);
-              log.debug("query: {}", query);
-              return this.searcher.search(
-                  codeField,
-                  query,
-                  maxHits,
-                  d -> {
-                    BytesRef value = d.getBinaryValue("binary");
-                    if (isNull(value)) {
-                      return Optional.empty();
-                    }
-                    byte[] b = value.bytes;
-                    if (isNull(b)) {
-                      return Optional.empty();
-                    }
-                    return Optional.ofNullable(Serializer.asObject(b, MemberDescriptor.class));
-                  });
-            } catch (Throwable e) {
-              log.warn(e);
-              return Collections.emptyList();
+      return searchShards(
+          this.getShards(),
+          codeField,
+          query,
+          d -> {
+            BytesRef value = d.getBinaryValue("binary");
+            if (isNull(value)) {
+              return Optional.empty();
+            }
+            byte[] b = value.bytes;
+            if (isNull(b)) {
+              return Optional.empty();
             }
+            return Optional.ofNullable(Serializer.asObject(b, MemberDescriptor.class));
           });
-    } catch (UncheckedIOException e) {
-      IOException cause = e.getCause();
-      if (cause instanceof IndexNotFoundException) {
-        return Collections.emptyList();
-      }
-      throw e;
+    } catch (Throwable e) {
+      log.warn(e);
+      return Collections.emptyList();
     }
   }
 
@@ -0,0 +1,196 @@
+package meghanada.index;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.base.Stopwatch;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import jetbrains.exodus.env.ContextualEnvironment;
+import jetbrains.exodus.env.EnvironmentConfig;
+import jetbrains.exodus.env.Environments;
+import meghanada.telemetry.ErrorReporter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexNotFoundException;
+import org.apache.lucene.queryparser.classic.ParseException;
+
+class IndexShard implements AutoCloseable {
+
+  private static final Logger log = LogManager.getLogger(IndexShard.class);
+  private static final String COMPLETE_MARKER = "COMPLETE";
+  private static final String EMPTY = "empty";
+  // the parameters of methods were added in the second version, older lists are scanned again
+  private static final String MEMBERS = "MEMBERS.2";
+  private static final int MAX_SEGMENTS = 4;
+
+  private final String name;
+  private final File location;
+  private final boolean immutable;
+  private ContextualEnvironment environment;
+  private DocumentSearcher searcher;
+
+  IndexShard(final String name, final File location, final boolean immutable) {
+    this.name = name;
+    this.location = location;
+    this.immutable = immutable;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  File getLocation() {
+    return location;
+  }
+
+  boolean isComplete() {
+    return new File(this.location, COMPLETE_MARKER).exists();
+  }
+
+  synchronized void open() {
+    if (nonNull(this.environment) && nonNull(this.searcher)) {
+      return;
+    }
+    // immutable shards are written once, there is nothing for the log cleaner to do
+    final ContextualEnvironment env =
+        this.immutable
+            ? Environments.newContextualInstance(
+                this.location, new EnvironmentConfig().setGcEnabled(false))
+            : Environments.newContextualInstance(this.location);
+    log.debug("open index shard {} {}", this.name, env.getLocation());
+    try {
+      this.searcher = new DocumentSearcher(env);
+      this.environment = env;
+    } catch (IOException e) {
+      env.close();
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  synchronized void index(final List<SearchIndexable> list) {
+    this.open();
+    this.searcher.executeInTransaction(
+        () -> {
+          try {
+            for (final SearchIndexable s : list) {
+              if (nonNull(s) && nonNull(s.getIndexGroupId())) {
+                final Stopwatch stopwatch = Stopwatch.createStarted();
+                final String id = s.getIndexGroupId();
+                final List<Document> docs = s.getDocumentIndices();
+                this.searcher.deleteDocuments(SearchIndexable.GROUP_ID, id);
+                this.searcher.addDocuments(docs);
+                log.debug("indexed {}:{} elapsed:{}", this.name, id, stopwatch.stop());
+              }
+            }
+          } catch (Throwable e) {
+            log.catching(e);
+            ErrorReporter.report(e);
+          }
+        });
+  }
+
+  boolean isEmpty() throws IOException {
+    final File marker = new File(this.location, COMPLETE_MARKER);
+    return marker.exists()
+        && marker.length() > 0
+        && Files.readAllLines(marker.toPath()).contains(EMPTY);
+  }
+
+  /** Merges the segments left by incremental updates and collects the freed log files. */
+  synchronized void compact() {
+    if (this.immutable || isNull(this.environment) || isNull(this.searcher)) {
+      return;
+    }
+    final Stopwatch stopwatch = Stopwatch.createStarted();
+    this.searcher.executeInTransaction(
+        () -> {
+          try {
+            this.searcher.forceMerge(MAX_SEGMENTS);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+    this.environment.gc();
+    log.debug("compact index {} elapsed:{}", this.name, stopwatch.stop());
+  }
+
+  void markComplete(final boolean empty) throws IOException {
+    if (!this.location.exists() && !this.location.mkdirs()) {
+      throw new IOException("failed to create " + this.location);
+    }
+    final File marker = new File(this.location, COMPLETE_MARKER);
+    Files.write(marker.toPath(), (empty ? EMPTY : "").getBytes(StandardCharsets.UTF_8));
+  }
+
+  void writeMembers(final Collection<String> members) throws IOException {
+    if (!this.location.exists() && !this.location.mkdirs()) {
+      throw new IOException("failed to create " + this.location);
+    }
+    Files.write(new File(this.location, MEMBERS).toPath(), members, StandardCharsets.UTF_8);
+  }
+
+  Optional<List<String>> readMembers() throws IOException {
+    final File file = new File(this.location, MEMBERS);
+    if (!file.exists()) {
+      return Optional.empty();
+    }
+    return Optional.of(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+  }
+
+  <T> List<T> search(
+      final String field, final String query, final int cnt, final DocumentConverter<T> converter) {
+    final DocumentSearcher searcher = this.getSearcher();
+    if (isNull(searcher)) {
+      return Collections.emptyList();
+    }
+    try {
+      return searcher.searchInTransaction(
+          () -> {
+            try {
+              return searcher.search(field, query, cnt, converter);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            } catch (ParseException e) {
+              log.warn(e);
+              return Collections.emptyList();
+            }
+          });
+    } catch (UncheckedIOException e) {
+      final IOException cause = e.getCause();
+      if (cause instanceof IndexNotFoundException) {
+        return Collections.emptyList();
+      }
+      throw e;
+    }
+  }
+
+  private synchronized DocumentSearcher getSearcher() {
+    return this.searcher;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (nonNull(this.searcher)) {
+      this.searcher.close();
+      this.searcher = null;
+    }
+    if (nonNull(this.environment)) {
+      this.environment.close();
+      this.environment = null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "IndexShard{" + "name='" + name + '\'' + ", location=" + location + '}';
+  }
+}
@@ -17,6 +17,7 @@ import java.io.Serializable;
 import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -30,6 +31,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.tools.Diagnostic;
 import javax.tools.JavaFileObject;
 import jetbrains.exodus.entitystore.Entity;
@@ -39,6 +41,8 @@ import meghanada.analyze.JavaAnalyzer;
 import meghanada.analyze.Source;
 import meghanada.config.Config;
 import meghanada.formatter.JavaFormatter;
+import meghanada.store.BinaryInput;
+import meghanada.store.BinaryOutput;
 import meghanada.store.ProjectDatabaseHelper;
 import meghanada.store.Storable;
 import meghanada.telemetry.ErrorReporter;
@@ -121,6 +125,64 @@ public abstract class Project implements Serializable, Storable {
     this.initialize();
   }
 
+  /** Restores a project written by {@link #writeTo}, loadProject initializes it afterwards. */
+  protected Project(final BinaryInput in) throws IOException {
+    final File root = readFile(in);
+    if (isNull(root)) {
+      throw new IOException("broken project");
+    }
+    this.projectRoot = root;
+    this.projectRootPath = in.readString();
+    this.name = in.readString();
+    this.id = in.readString();
+    final int size = in.readVarint();
+    for (int i = 0; i < size; i++) {
+      boolean b = this.dependencies.add(new ProjectDependency(in));
+    }
+    this.sources = readFiles(in);
+    this.resources = readFiles(in);
+    this.output = readFile(in);
+    this.testSources = readFiles(in);
+    this.testResources = readFiles(in);
+    this.testOutput = readFile(in);
+    this.compileSource = in.readString();
+    this.compileTarget = in.readString();
+    this.isAndroidProject = in.readBoolean();
+    this.androidApiVersion = in.readVarint();
+    this.androidModelVersion = in.readString();
+    this.cachedClasspath = in.readString();
+    this.cachedAllClasspath = in.readString();
+    final List<String> tests = in.readStrings();
+    this.prevTest = isNull(tests) ? null : tests.toArray(new String[0]);
+    this.subProject = in.readBoolean();
+  }
+
+  protected static void writeFile(final BinaryOutput out, @Nullable final File file) {
+    out.writeString(isNull(file) ? null : file.getPath());
+  }
+
+  @Nullable
+  protected static File readFile(final BinaryInput in) throws IOException {
+    final String path = in.readString();
+    return isNull(path) ? null : new File(path);
+  }
+
+  private static void writeFiles(final BinaryOutput out, final Set<File> files) {
+    out.writeVarint(files.size());
+    for (final File file : files) {
+      writeFile(out, file);
+    }
+  }
+
+  private static Set<File> readFiles(final BinaryInput in) throws IOException {
+    final int size = in.readVarint();
+    final Set<File> files = new HashSet<>(Math.max(2, size));
+    for (int i = 0; i < size; i++) {
+      boolean b = files.add(readFile(in));
+    }
+    return files;
+  }
+
   @SuppressWarnings("try")
   private static CompileResult clearMemberCache(final CompileResult compileResult) {
     try (TelemetryUtils.ScopedSpan scope =
@@ -128,7 +190,7 @@ public abstract class Project implements Serializable, Storable {
 
       final Map<File, Source> sourceMap = compileResult.getSources();
       for (final Source source : sourceMap.values()) {
-        source.invalidateCache();
+        source.refreshCache();
       }
       return compileResult;
     }
@@ -939,6 +1001,33 @@ public abstract class Project implements Serializable, Storable {
     return new ArrayList<>(temp);
   }
 
+  /** The caller map is stored separately, see {@link #writeCaller()}. */
+  public void writeTo(final BinaryOutput out) {
+    writeFile(out, this.projectRoot);
+    out.writeString(this.projectRootPath);
+    out.writeString(this.name);
+    out.writeString(this.id);
+    out.writeVarint(this.dependencies.size());
+    for (final ProjectDependency dependency : this.dependencies) {
+      dependency.writeTo(out);
+    }
+    writeFiles(out, this.sources);
+    writeFiles(out, this.resources);
+    writeFile(out, this.output);
+    writeFiles(out, this.testSources);
+    writeFiles(out, this.testResources);
+    writeFile(out, this.testOutput);
+    out.writeString(this.compileSource);
+    out.writeString(this.compileTarget);
+    out.writeBoolean(Boolean.TRUE.equals(this.isAndroidProject));
+    out.writeVarint(this.androidApiVersion);
+    out.writeString(this.androidModelVersion);
+    out.writeString(this.cachedClasspath);
+    out.writeString(this.cachedAllClasspath);
+    out.writeStrings(isNull(this.prevTest) ? null : Arrays.asList(this.prevTest));
+    out.writeBoolean(this.subProject);
+  }
+
   public void resetCallerMap() {
     this.callerMap.clear();
   }
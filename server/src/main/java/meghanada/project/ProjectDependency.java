@@ -1,5 +1,6 @@
 package meghanada.project;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static meghanada.utils.FunctionUtils.wrapIO;
 
@@ -18,6 +19,8 @@ import meghanada.analyze.CompileResult;
 import meghanada.config.Config;
 import meghanada.reflect.asm.CachedASMReflector;
 import meghanada.session.Session;
+import meghanada.store.BinaryInput;
+import meghanada.store.BinaryOutput;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -44,6 +47,33 @@ public class ProjectDependency implements Serializable {
     this.type = type;
   }
 
+  ProjectDependency(final BinaryInput in) throws IOException {
+    final String id = in.readString();
+    final String scope = in.readString();
+    final String path = in.readString();
+    final String type = in.readString();
+    if (isNull(id) || isNull(scope) || isNull(path) || isNull(type)) {
+      throw new IOException("broken dependency");
+    }
+    this.id = id;
+    this.scope = scope;
+    this.version = in.readString();
+    this.file = new File(path);
+    try {
+      this.type = Type.valueOf(type);
+    } catch (IllegalArgumentException e) {
+      throw new IOException(e);
+    }
+  }
+
+  void writeTo(final BinaryOutput out) {
+    out.writeString(this.id);
+    out.writeString(this.scope);
+    out.writeString(this.file.getPath());
+    out.writeString(this.type.name());
+    out.writeString(this.version);
+  }
+
   public static Type getFileType(final File file) {
     return file.isFile() ? Type.JAR : Type.DIRECTORY;
   }
@@ -14,6 +14,8 @@ import javax.xml.stream.XMLStreamReader;
 import meghanada.project.Project;
 import meghanada.project.ProjectDependency;
 import meghanada.project.ProjectParseException;
+import meghanada.store.BinaryInput;
+import meghanada.store.BinaryOutput;
 import meghanada.telemetry.TelemetryUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -31,6 +33,19 @@ public class EclipseProject extends Project {
     this.classPathFile = new File(projectRoot, ".classpath");
   }
 
+  public EclipseProject(final BinaryInput in) throws IOException {
+    super(in);
+    this.projectFile = readFile(in);
+    this.classPathFile = readFile(in);
+  }
+
+  @Override
+  public void writeTo(final BinaryOutput out) {
+    super.writeTo(out);
+    writeFile(out, this.projectFile);
+    writeFile(out, this.classPathFile);
+  }
+
   @Override
   @SuppressWarnings("try")
   public Project parseProject(File projectRoot, File current) throws ProjectParseException {
@@ -37,6 +37,8 @@ import meghanada.config.Config;
 import meghanada.project.Project;
 import meghanada.project.ProjectDependency;
 import meghanada.project.ProjectParseException;
+import meghanada.store.BinaryInput;
+import meghanada.store.BinaryOutput;
 import meghanada.telemetry.ErrorReporter;
 import meghanada.telemetry.TelemetryUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -90,6 +92,19 @@ public class GradleProject extends Project {
     this.initialize();
   }
 
+  public GradleProject(final BinaryInput in) throws IOException {
+    super(in);
+    this.rootProject = readFile(in);
+    this.kts = in.readBoolean();
+  }
+
+  @Override
+  public void writeTo(final BinaryOutput out) {
+    super.writeTo(out);
+    writeFile(out, this.rootProject);
+    out.writeBoolean(this.kts);
+  }
+
   private static String getTmpDir() throws IOException {
     if (nonNull(tempPath)) {
       return tempPath;
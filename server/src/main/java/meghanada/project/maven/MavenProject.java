@@ -17,6 +17,8 @@ import meghanada.config.Config;
 import meghanada.project.Project;
 import meghanada.project.ProjectDependency;
 import meghanada.project.ProjectParseException;
+import meghanada.store.BinaryInput;
+import meghanada.store.BinaryOutput;
 import meghanada.telemetry.TelemetryUtils;
 import meghanada.utils.StringUtils;
 import org.apache.logging.log4j.LogManager;
@@ -41,6 +43,21 @@ public class MavenProject extends Project {
     this.pomFile = new File(projectRoot, Project.MVN_PROJECT_FILE);
   }
 
+  public MavenProject(final BinaryInput in) throws IOException {
+    super(in);
+    this.pomFile = readFile(in);
+    this.mavenCmd = in.readString();
+    this.depSources = in.readBoolean();
+  }
+
+  @Override
+  public void writeTo(final BinaryOutput out) {
+    super.writeTo(out);
+    writeFile(out, this.pomFile);
+    out.writeString(this.mavenCmd);
+    out.writeBoolean(this.depSources);
+  }
+
   private static String getVersion(final String path) {
     return new File(path).getName();
   }
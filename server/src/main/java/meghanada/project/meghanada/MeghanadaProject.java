@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Set;
 import meghanada.project.Project;
 import meghanada.project.ProjectParseException;
+import meghanada.store.BinaryInput;
 
 public class MeghanadaProject extends Project {
 
@@ -16,6 +17,10 @@ public class MeghanadaProject extends Project {
     super(projectRoot);
   }
 
+  public MeghanadaProject(BinaryInput in) throws IOException {
+    super(in);
+  }
+
   @Override
   public Project parseProject(File projectRoot, File current) throws ProjectParseException {
     return this;
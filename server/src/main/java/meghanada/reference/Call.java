@@ -0,0 +1,68 @@
+package meghanada.reference;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+
+/** A call hierarchy node: the calling or called method and the call site. */
+public class Call {
+
+  private final String signature;
+  private final String path;
+  private final long line;
+  private final long column;
+  private final String code;
+
+  public Call(String signature, String path, long line, long column, String code) {
+    this.signature = signature;
+    this.path = path;
+    this.line = line;
+    this.column = column;
+    this.code = code;
+  }
+
+  public String getSignature() {
+    return signature;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public long getLine() {
+    return line;
+  }
+
+  public long getColumn() {
+    return column;
+  }
+
+  public String getCode() {
+    return code;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("signature", signature)
+        .add("path", path)
+        .add("line", line)
+        .add("column", column)
+        .toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof Call)) return false;
+    Call call = (Call) o;
+    return line == call.line
+        && column == call.column
+        && Objects.equal(signature, call.signature)
+        && Objects.equal(path, call.path);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(signature, path, line, column);
+  }
+}
@@ -0,0 +1,224 @@
+package meghanada.reference;
+
+import static java.util.Objects.nonNull;
+import static meghanada.utils.FileUtils.getSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import meghanada.analyze.BlockScope;
+import meghanada.analyze.ClassScope;
+import meghanada.analyze.MethodCall;
+import meghanada.analyze.MethodScope;
+import meghanada.analyze.Range;
+import meghanada.analyze.Source;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.MethodDescriptor;
+import meghanada.reflect.asm.CachedASMReflector;
+import meghanada.store.CallGraph;
+import meghanada.telemetry.TelemetryUtils;
+import meghanada.utils.ClassNameUtils;
+import meghanada.utils.FileUtils;
+import meghanada.utils.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Answers one level of a call hierarchy at a time from the persisted {@link CallGraph}. Nodes are
+ * method signatures, {@code declaringClass#name(param,...)}, which the client passes back to
+ * expand the next level.
+ */
+public class CallHierarchySearcher {
+
+  private static final Logger log = LogManager.getLogger(CallHierarchySearcher.class);
+
+  private CallHierarchySearcher() {}
+
+  /** Returns the signature of the method declared or called at the position. */
+  @SuppressWarnings("try")
+  public static Optional<String> getSignature(File file, int line, int column, String symbol)
+      throws IOException, ExecutionException {
+    try (TelemetryUtils.ScopedSpan scope =
+        TelemetryUtils.startScopedSpan("CallHierarchySearcher.getSignature")) {
+      if (!file.exists()) {
+        return Optional.empty();
+      }
+      Optional<Source> source = getSource(file);
+      if (!source.isPresent()) {
+        return Optional.empty();
+      }
+      Source src = source.get();
+      for (ClassScope cs : src.getClassScopes()) {
+        Optional<String> signature = findDeclaration(cs, line, symbol);
+        if (signature.isPresent()) {
+          return signature;
+        }
+      }
+      return src.getMethodCall(line, column, true)
+          .filter(mc -> nonNull(mc.declaringClass))
+          .map(CallHierarchySearcher::resolve);
+    }
+  }
+
+  private static Optional<String> findDeclaration(ClassScope cs, int line, String symbol) {
+    for (BlockScope bs : cs.getScopes()) {
+      if (!(bs instanceof MethodScope)) {
+        continue;
+      }
+      MethodScope ms = (MethodScope) bs;
+      Range nameRange = ms.getNameRange();
+      if (nonNull(nameRange) && nameRange.begin.line == line && ms.getName().equals(symbol)) {
+        String name = ms.isConstructor() ? CallGraph.CONSTRUCTOR : ms.getName();
+        return Optional.of(CallGraph.signature(cs.getFQCN(), name, ms.getParameters(), ms.vararg));
+      }
+    }
+    for (ClassScope inner : cs.getClassScopes()) {
+      Optional<String> signature = findDeclaration(inner, line, symbol);
+      if (signature.isPresent()) {
+        return signature;
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static String resolve(MethodCall mc) {
+    String name = CallGraph.isConstructorCall(mc) ? CallGraph.CONSTRUCTOR : mc.name;
+    return resolve(CallGraph.calleeKey(mc.declaringClass, name), mc.getArguments());
+  }
+
+  private static String resolve(String calleeKey, List<String> arguments) {
+    int i = calleeKey.lastIndexOf('#');
+    String declaringClass = calleeKey.substring(0, i);
+    String name = calleeKey.substring(i + 1);
+    CachedASMReflector reflector = CachedASMReflector.getInstance();
+    boolean constructor = name.equals(CallGraph.CONSTRUCTOR);
+    // a.b.C.D is indexed as a.b.C$D
+    String className =
+        reflector.containsClassIndex(declaringClass).isPresent()
+            ? declaringClass
+            : ClassNameUtils.toInnerClassName(declaringClass).orElse(declaringClass);
+    Iterable<MemberDescriptor> members =
+        constructor
+            ? reflector.reflectConstructors(className)
+            : reflector.reflectMethods(className, name);
+    for (MemberDescriptor desc : members) {
+      MethodDescriptor md = (MethodDescriptor) desc;
+      if (ClassNameUtils.compareArgumentType(arguments, desc.getParameters(), md.hasVarargs)) {
+        String owner = constructor ? declaringClass : desc.getDeclaringClass();
+        return CallGraph.signature(owner, name, desc.getParameters(), md.hasVarargs);
+      }
+    }
+    // not reflected yet, the argument types stand in for the parameters
+    return CallGraph.signature(declaringClass, name, arguments, false);
+  }
+
+  /** Returns the call sites of the method and the methods containing them. */
+  @SuppressWarnings("try")
+  public static List<Call> getIncomingCalls(String signature) {
+    try (TelemetryUtils.ScopedSpan scope =
+        TelemetryUtils.startScopedSpan("CallHierarchySearcher.getIncomingCalls")) {
+      String key = CallGraph.getKey(signature);
+      int i = key.lastIndexOf('#');
+      if (i <= 0) {
+        return Collections.emptyList();
+      }
+      String declaringClass = key.substring(0, i);
+      String name = key.substring(i + 1);
+      List<String> parameters = CallGraph.getParameters(signature);
+      boolean varargs = CallGraph.isVarargs(signature);
+
+      // calls are recorded with the receiver type, which may be any subclass or a supertype
+      // declaring the method
+      List<String> keys = new ArrayList<>(4);
+      keys.add(key);
+      if (!name.equals(CallGraph.CONSTRUCTOR)) {
+        CachedASMReflector reflector = CachedASMReflector.getInstance();
+        for (String sub : reflector.getSubClasses(declaringClass, true)) {
+          keys.add(CallGraph.calleeKey(sub, name));
+        }
+        for (String sup : reflector.getSuperClass(declaringClass)) {
+          if (declares(reflector, sup, name, parameters)) {
+            keys.add(CallGraph.calleeKey(sup, name));
+          }
+        }
+      }
+      Map<String, List<String>> lines = new HashMap<>(8);
+      List<Call> result = new ArrayList<>(16);
+      for (CallGraph.Edge edge : CallGraph.getCallers(keys)) {
+        if (ClassNameUtils.compareArgumentType(edge.arguments, parameters, varargs)) {
+          result.add(toCall(edge.caller, edge, lines));
+        }
+      }
+      return sort(result);
+    }
+  }
+
+  private static boolean declares(
+      CachedASMReflector reflector, String className, String name, List<String> parameters) {
+    for (MemberDescriptor desc : reflector.reflectMethods(className, name)) {
+      MethodDescriptor md = (MethodDescriptor) desc;
+      if (ClassNameUtils.removeTypeParameter(desc.getDeclaringClass()).equals(className)
+          && desc.getParameters().size() == parameters.size()
+          && ClassNameUtils.compareArgumentType(parameters, desc.getParameters(), md.hasVarargs)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the methods called from the method and their call sites. */
+  @SuppressWarnings("try")
+  public static List<Call> getOutgoingCalls(String signature) {
+    try (TelemetryUtils.ScopedSpan scope =
+        TelemetryUtils.startScopedSpan("CallHierarchySearcher.getOutgoingCalls")) {
+      Map<String, String> resolved = new HashMap<>(16);
+      Map<String, List<String>> lines = new HashMap<>(2);
+      List<Call> result = new ArrayList<>(16);
+      for (CallGraph.Edge edge : CallGraph.getCallees(signature)) {
+        String callee =
+            resolved.computeIfAbsent(
+                edge.callee + edge.arguments, k -> resolve(edge.callee, edge.arguments));
+        result.add(toCall(callee, edge, lines));
+      }
+      return sort(result);
+    }
+  }
+
+  private static Call toCall(
+      String signature, CallGraph.Edge edge, Map<String, List<String>> lines) {
+    List<String> fileLines =
+        lines.computeIfAbsent(
+            edge.filePath,
+            path -> {
+              try {
+                return FileUtils.readLines(new File(path));
+              } catch (IOException e) {
+                log.warn("fail read {} {}", path, e.getMessage());
+                return Collections.emptyList();
+              }
+            });
+    String code = "";
+    if (edge.line > 0 && edge.line <= fileLines.size()) {
+      code = StringUtils.escapeJava(fileLines.get((int) edge.line - 1));
+    }
+    return new Call(signature, edge.filePath, edge.line, edge.column, code);
+  }
+
+  private static List<Call> sort(List<Call> calls) {
+    return calls.stream()
+        .distinct()
+        .sorted(
+            Comparator.comparing(Call::getPath)
+                .thenComparingLong(Call::getLine)
+                .thenComparingLong(Call::getColumn))
+        .collect(Collectors.toList());
+  }
+}
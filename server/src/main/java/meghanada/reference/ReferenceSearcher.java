@@ -5,16 +5,18 @@ import static java.util.Objects.nonNull;
 import static meghanada.utils.FileUtils.getSource;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import meghanada.analyze.BlockScope;
 import meghanada.analyze.ClassScope;
-import meghanada.analyze.FieldAccess;
 import meghanada.analyze.MethodCall;
 import meghanada.analyze.MethodScope;
 import meghanada.analyze.Position;
@@ -27,7 +29,7 @@ import meghanada.reflect.ClassIndex;
 import meghanada.reflect.MemberDescriptor;
 import meghanada.reflect.MethodDescriptor;
 import meghanada.reflect.asm.CachedASMReflector;
-import meghanada.store.ProjectDatabaseHelper;
+import meghanada.store.ReferenceIndex;
 import meghanada.utils.ClassNameUtils;
 import meghanada.utils.FileUtils;
 import meghanada.utils.StringUtils;
@@ -40,6 +42,9 @@ public class ReferenceSearcher {
   private static final Logger log = LogManager.getLogger(ReferenceSearcher.class);
   private final List<SearchFunction> functions;
   private final Supplier<Project> projectSupplier;
+  // ids of the streamed searches to cancel, kept a while for a cancel that arrives first
+  private final Cache<Long, Boolean> cancelled =
+      CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.MINUTES).build();
 
   public ReferenceSearcher(Supplier<Project> supplier) {
     this.projectSupplier = supplier;
@@ -254,103 +259,56 @@ public class ReferenceSearcher {
     return result;
   }
 
-  private static List<Reference> searchClassReferences(Source src, SearchCondition sc)
-      throws IOException {
-    List<String> lines = FileUtils.readLines(src.getFile());
-    int size = lines.size();
-    List<Reference> result = new ArrayList<>(size);
-
-    Collection<MethodCall> methodCalls = src.getMethodCalls();
-    for (MethodCall mc : methodCalls) {
-      String declaringClass = mc.declaringClass;
-      if (sc.declaringClass.equals(declaringClass) && mc.scope.contains(sc.name)) {
-        Range range = mc.nameRange;
-        long line = range.begin.line;
-        long column = range.begin.column;
-
-        String code = StringUtils.escapeJava(lines.get((int) line - 1));
-        Reference ref = new Reference(src.filePath, line, column, code);
-        result.add(ref);
-      }
-    }
-    Collection<FieldAccess> fieldAccesses = src.getFieldAccesses();
-    for (FieldAccess fa : fieldAccesses) {
-      String declaringClass = fa.declaringClass;
-      if (sc.declaringClass.equals(declaringClass) && fa.scope.contains(sc.name)) {
-        Range range = fa.range;
-        long line = range.begin.line;
-        long column = range.begin.column;
-        String code = StringUtils.escapeJava(lines.get((int) line - 1));
-        Reference ref = new Reference(src.filePath, line, column, code);
-        result.add(ref);
-      }
+  private static List<String> getSymbolKeys(SearchCondition sc) {
+    switch (sc.type) {
+      case CLASS:
+        return Collections.singletonList(ReferenceIndex.classKey(sc.declaringClass));
+      case FIELD:
+        return Collections.singletonList(ReferenceIndex.fieldKey(sc.declaringClass, sc.name));
+      case METHOD:
+      case CONSTRUCTOR:
+        // calls through the direct subclasses are declared in the subclass
+        CachedASMReflector reflector = CachedASMReflector.getInstance();
+        List<String> keys = new ArrayList<>(4);
+        keys.add(ReferenceIndex.methodKey(sc.declaringClass, sc.name));
+        for (String sub : reflector.getSubClasses(sc.declaringClass, false)) {
+          keys.add(ReferenceIndex.methodKey(sub, sc.name));
+        }
+        return keys;
+      default:
+        return Collections.emptyList();
     }
-
-    return result;
   }
 
-  private static List<Reference> searchMethodCallReferences(Source src, SearchCondition condition)
-      throws IOException {
-
-    if (!src.mightContainMethodCall(condition.declaringClass + "#" + condition.name)) {
-      return Collections.emptyList();
-    }
-
-    List<String> lines = FileUtils.readLines(src.getFile());
-    int size = lines.size();
-    List<Reference> result = new ArrayList<>(size);
-    Collection<MethodCall> methodCalls = src.getMethodCalls();
-    final Map<String, ClassIndex> globalClassIndex =
-        CachedASMReflector.getInstance().getGlobalClassIndex();
-    for (MethodCall mc : methodCalls) {
-      String methodName = mc.name;
-      if (!condition.name.equals(methodName) || isNull(condition.declaringClass)) {
-        continue;
-      }
-      String declaringClass = mc.declaringClass;
-      boolean compare =
-          ClassNameUtils.compareArgumentType(
-              mc.getArguments(), condition.arguments, condition.varargs);
-      ClassIndex classIndex = globalClassIndex.get(declaringClass);
-
-      boolean containsClass =
-          condition.declaringClass.equals(declaringClass)
-              || (nonNull(classIndex)
-                  && nonNull(classIndex.supers)
-                  && classIndex.supers.contains(condition.declaringClass));
-
-      if (compare && containsClass) {
-        Range range = mc.nameRange;
-        long line = range.begin.line;
-        long column = range.begin.column;
-        String code = StringUtils.escapeJava(lines.get((int) line - 1));
-        Reference ref = new Reference(src.filePath, line, column, code);
-        result.add(ref);
-      }
+  private static boolean matchPosting(ReferenceIndex.Posting p, SearchCondition sc) {
+    switch (sc.type) {
+      case CLASS:
+        return p.scope.contains(sc.name);
+      case METHOD:
+      case CONSTRUCTOR:
+        return ClassNameUtils.compareArgumentType(p.arguments, sc.arguments, sc.varargs);
+      default:
+        return true;
     }
-    return result;
   }
 
-  private static List<Reference> searchFieldReferences(Source src, SearchCondition sc)
-      throws IOException {
-    List<String> lines = FileUtils.readLines(src.getFile());
-    int size = lines.size();
-    List<Reference> result = new ArrayList<>(size);
-
-    Collection<FieldAccess> fieldAccesses = src.getFieldAccesses();
-    for (FieldAccess fa : fieldAccesses) {
-      String declaringClass = fa.declaringClass;
-      String methodName = fa.name;
-      if (sc.declaringClass.equals(declaringClass) && sc.name.equals(methodName)) {
-        Range range = fa.range;
-        long line = range.begin.line;
-        long column = range.begin.column;
-        String code = StringUtils.escapeJava(lines.get((int) line - 1));
-        Reference ref = new Reference(src.filePath, line, column, code);
-        result.add(ref);
+  private static List<Reference> toReferences(
+      String filePath, List<ReferenceIndex.Posting> postings) {
+    try {
+      List<String> lines = FileUtils.readLines(new File(filePath));
+      List<Reference> result = new ArrayList<>(postings.size());
+      for (ReferenceIndex.Posting p : postings) {
+        if (p.line < 1 || p.line > lines.size()) {
+          // stale postings of an edited file
+          continue;
+        }
+        String code = StringUtils.escapeJava(lines.get((int) p.line - 1));
+        result.add(new Reference(filePath, p.line, p.column, code));
       }
+      return result;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
-    return result;
   }
 
   private static Comparator<? super Reference> comparing() {
@@ -375,50 +333,43 @@ public class ReferenceSearcher {
     };
   }
 
-  private static List<Reference> searchReferenceFromSource(Source src, SearchCondition sc)
-      throws IOException {
-
-    if (sc.type.equals(SearchCondition.Type.VAR)) {
-      return ReferenceSearcher.searchVarReferences(src, sc);
-    }
-
-    if (sc.type.equals(SearchCondition.Type.CLASS)) {
-      return ReferenceSearcher.searchClassReferences(src, sc);
-    }
-
-    if (sc.type.equals(SearchCondition.Type.FIELD)) {
-      return ReferenceSearcher.searchFieldReferences(src, sc);
-    }
-
-    if (sc.type.equals(SearchCondition.Type.CONSTRUCTOR)) {
-      return ReferenceSearcher.searchMethodCallReferences(src, sc);
-    }
-
-    if (sc.type.equals(SearchCondition.Type.METHOD)) {
-      return ReferenceSearcher.searchMethodCallReferences(src, sc);
+  private static Map<String, List<ReferenceIndex.Posting>> findPostings(SearchCondition sc) {
+    Map<String, List<ReferenceIndex.Posting>> byFile = new HashMap<>(16);
+    for (ReferenceIndex.Posting p : ReferenceIndex.getPostings(getSymbolKeys(sc))) {
+      if (matchPosting(p, sc)) {
+        byFile.computeIfAbsent(p.filePath, k -> new ArrayList<>(8)).add(p);
+      }
     }
-
-    return Collections.emptyList();
+    return byFile;
   }
 
   private static List<Reference> searchReferences(SearchCondition sc) {
-    List<Source> sources = ProjectDatabaseHelper.getAllSources();
-    return sources
+    return findPostings(sc)
+        .entrySet()
         .parallelStream()
-        .map(
-            src -> {
-              try {
-                return searchReferenceFromSource(src, sc);
-              } catch (IOException e) {
-                throw new UncheckedIOException(e);
-              }
-            })
+        .filter(entry -> new File(entry.getKey()).exists())
+        .map(entry -> toReferences(entry.getKey(), entry.getValue()))
         .flatMap(Collection::stream)
         .distinct()
         .sorted(comparing())
         .collect(Collectors.toList());
   }
 
+  private static List<String> orderFiles(Collection<String> paths, String filePath) {
+    String dir = new File(filePath).getParent();
+    List<String> result = new ArrayList<>(paths);
+    result.sort(
+        Comparator.comparingInt(
+                (String path) -> {
+                  if (path.equals(filePath)) {
+                    return 0;
+                  }
+                  return Objects.equals(new File(path).getParent(), dir) ? 1 : 2;
+                })
+            .thenComparing(Comparator.naturalOrder()));
+    return result;
+  }
+
   private Optional<SearchCondition> getSearchCondition(
       Source src, int line, int column, String symbol) {
     for (SearchFunction f : this.functions) {
@@ -430,6 +381,66 @@ public class ReferenceSearcher {
     return Optional.empty();
   }
 
+  /**
+   * Passes the references to the consumer file by file, the current file and its package first.
+   * Returns false when the search was cancelled by {@link #cancel(long)} with the same id.
+   */
+  public boolean searchReference(
+      long id, File file, int line, int column, String symbol, ChunkConsumer consumer)
+      throws ExecutionException, IOException {
+    try {
+      return this.streamReferences(id, file, line, column, symbol, consumer);
+    } finally {
+      this.cancelled.invalidate(id);
+    }
+  }
+
+  private boolean streamReferences(
+      long id, File file, int line, int column, String symbol, ChunkConsumer consumer)
+      throws ExecutionException, IOException {
+
+    if (!file.exists()) {
+      return true;
+    }
+    Optional<Source> source = getSource(file);
+    Optional<SearchCondition> cond =
+        source.flatMap(src -> getSearchCondition(src, line, column, symbol));
+    if (!cond.isPresent()) {
+      return true;
+    }
+
+    SearchCondition sc = cond.get();
+    if (sc.type.equals(SearchCondition.Type.VAR)) {
+      List<Reference> references = ReferenceSearcher.searchVarReferences(source.get(), sc);
+      return references.isEmpty() || consumer.accept(references);
+    }
+    Map<String, List<ReferenceIndex.Posting>> byFile = findPostings(sc);
+    for (String path : orderFiles(byFile.keySet(), source.get().filePath)) {
+      if (nonNull(this.cancelled.getIfPresent(id))) {
+        log.info("cancelled reference search {}", sc);
+        return false;
+      }
+      if (!new File(path).exists()) {
+        continue;
+      }
+      List<Reference> references =
+          toReferences(path, byFile.get(path))
+              .stream()
+              .distinct()
+              .sorted(comparing())
+              .collect(Collectors.toList());
+      if (!references.isEmpty() && !consumer.accept(references)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Cancels the streamed search with the id. */
+  public void cancel(long id) {
+    this.cancelled.put(id, Boolean.TRUE);
+  }
+
   public List<Reference> searchReference(File file, int line, int column, String symbol)
       throws ExecutionException, IOException {
 
@@ -438,14 +449,18 @@ public class ReferenceSearcher {
     }
     log.trace("search symbol={}", symbol);
 
+    Optional<Source> source = getSource(file);
     Optional<SearchCondition> cond =
-        getSource(file).flatMap(src -> getSearchCondition(src, line, column, symbol));
+        source.flatMap(src -> getSearchCondition(src, line, column, symbol));
 
     if (!cond.isPresent()) {
       return Collections.emptyList();
     }
 
     SearchCondition sc = cond.get();
+    if (sc.type.equals(SearchCondition.Type.VAR)) {
+      return ReferenceSearcher.searchVarReferences(source.get(), sc);
+    }
     List<Reference> list = ReferenceSearcher.searchReferences(sc);
     if (nonNull(list)) {
       return list;
@@ -509,6 +524,12 @@ public class ReferenceSearcher {
         .collect(Collectors.toList());
   }
 
+  @FunctionalInterface
+  public interface ChunkConsumer {
+    /** Returns false to stop the search. */
+    boolean accept(List<Reference> references) throws IOException;
+  }
+
   @FunctionalInterface
   interface SearchFunction {
     Optional<SearchCondition> apply(Source javaSource, Integer line, Integer column, String symbol);
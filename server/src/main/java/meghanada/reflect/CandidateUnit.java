@@ -1,5 +1,7 @@
 package meghanada.reflect;
 
+import meghanada.utils.StringUtils;
+
 public interface CandidateUnit {
 
   String getName();
@@ -14,6 +16,10 @@ public interface CandidateUnit {
 
   String getExtra();
 
+  default long getNameMask() {
+    return StringUtils.charMask(this.getName());
+  }
+
   enum MemberType {
     FIELD,
     METHOD,
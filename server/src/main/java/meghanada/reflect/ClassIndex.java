@@ -26,7 +26,7 @@ public class ClassIndex implements CandidateUnit, Cloneable, Serializable, Stora
   public final String declaration;
   public final List<String> typeParameters;
   public final List<String> supers;
-  public transient boolean loaded;
+  public transient volatile boolean loaded;
   public transient boolean isAnonymous;
   public boolean isInterface;
   public boolean isAnnotation;
@@ -35,6 +35,7 @@ public class ClassIndex implements CandidateUnit, Cloneable, Serializable, Stora
   public String filePath;
   public MemberType memberType = MemberType.CLASS;
   public EntityId entityID;
+  private transient volatile NameMask nameMask;
 
   public ClassIndex(
       final String declaration, final List<String> typeParameters, final List<String> supers) {
@@ -57,6 +58,17 @@ public class ClassIndex implements CandidateUnit, Cloneable, Serializable, Stora
     return this.name;
   }
 
+  @Override
+  public long getNameMask() {
+    // name is a public field, recompute when it has been replaced
+    final NameMask current = this.nameMask;
+    final NameMask mask = NameMask.of(current, this.name);
+    if (mask != current) {
+      this.nameMask = mask;
+    }
+    return mask.getMask();
+  }
+
   public void setName(String name) {
     this.name = name;
   }
@@ -39,6 +39,7 @@ public abstract class MemberDescriptor
   public boolean hasDefault;
   public Set<String> typeParameters;
   public transient String extra = "";
+  private transient volatile NameMask nameMask;
 
   public abstract List<String> getParameters();
 
@@ -51,6 +52,17 @@ public abstract class MemberDescriptor
     return this.name;
   }
 
+  @Override
+  public long getNameMask() {
+    // name is a public field, recompute when it has been replaced
+    final NameMask current = this.nameMask;
+    final NameMask mask = NameMask.of(current, this.name);
+    if (mask != current) {
+      this.nameMask = mask;
+    }
+    return mask.getMask();
+  }
+
   @Override
   public String getType() {
     return this.memberType.name();
@@ -0,0 +1,31 @@
+package meghanada.reflect;
+
+import static java.util.Objects.isNull;
+
+import javax.annotation.Nullable;
+import meghanada.utils.StringUtils;
+
+/** A name and its char mask, published together so readers never see one without the other. */
+final class NameMask {
+
+  private final String name;
+  private final long mask;
+
+  private NameMask(String name) {
+    this.name = name;
+    this.mask = StringUtils.charMask(name);
+  }
+
+  /** Returns the holder for the name, a new one when the name has been replaced. */
+  @SuppressWarnings("ReferenceEquality")
+  static NameMask of(@Nullable NameMask current, String name) {
+    if (isNull(current) || current.name != name) {
+      return new NameMask(name);
+    }
+    return current;
+  }
+
+  long getMask() {
+    return this.mask;
+  }
+}
@@ -17,7 +17,6 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -500,10 +499,8 @@ public class ASMReflector {
                                           }
                                         });
 
-                                if (isSuper) {
-                                  replaceDescriptorsType(nameWithTP, members);
-                                }
-                                results.addAll(members);
+                                results.addAll(
+                                    isSuper ? withTypeArguments(nameWithTP, members) : members);
                                 classIterator.remove();
                                 break;
                               }
@@ -513,52 +510,33 @@ public class ASMReflector {
         return results;
 
       } else if (isJar(file)) {
-        try (JarFile jarFile = new JarFile(file)) {
-          Enumeration<JarEntry> entries = jarFile.entries();
-          while (entries.hasMoreElements()) {
-            if (targetClasses.isEmpty()) {
-              break;
-            }
-            JarEntry jarEntry = entries.nextElement();
-            String entryName = jarEntry.getName();
-            if (!entryName.endsWith(".class")) {
+        try (JarEntryIndex.Handle handle = JarEntryIndex.getInstance().open(file)) {
+          Iterator<String> classIterator = targetClasses.iterator();
+          while (classIterator.hasNext()) {
+            String nameWithTP = classIterator.next();
+            if (isNull(nameWithTP)) {
               continue;
             }
-            String className =
-                ClassNameUtils.replaceSlash(entryName.substring(0, entryName.length() - 6));
-            if (this.ignorePackage(className)) {
+            String nameWithoutTP = ClassNameUtils.removeTypeParameter(nameWithTP);
+            JarEntry jarEntry = handle.getEntry(nameWithoutTP);
+            if (isNull(jarEntry)
+                || this.ignorePackage(JarEntryIndex.Handle.getClassName(jarEntry))) {
               continue;
             }
-            Iterator<String> classIterator = targetClasses.iterator();
-
-            while (classIterator.hasNext()) {
-              String nameWithTP = classIterator.next();
-              if (nonNull(nameWithTP)) {
-                boolean isSuper = !topClass.equals(nameWithTP);
-                String nameWithoutTP = ClassNameUtils.removeTypeParameter(nameWithTP);
-                String innerClassName = ClassNameUtils.replaceInnerMark(className);
-                if (className.equals(nameWithoutTP) || innerClassName.equals(nameWithoutTP)) {
-                  List<MemberDescriptor> members =
-                      ASMReflector.cacheMember(
-                          nameWithTP,
-                          () -> {
-                            try (InputStream in = jarFile.getInputStream(jarEntry)) {
-                              ClassReader classReader = new ClassReader(in);
-                              return this.getMemberFromJar(
-                                  file, classReader, nameWithoutTP, nameWithTP);
-                            } catch (IOException e) {
-                              throw new UncheckedIOException(e);
-                            }
-                          });
-                  if (isSuper) {
-                    replaceDescriptorsType(nameWithTP, members);
-                  }
-                  results.addAll(members);
-                  classIterator.remove();
-                  break;
-                }
-              }
-            }
+            boolean isSuper = !topClass.equals(nameWithTP);
+            List<MemberDescriptor> members =
+                ASMReflector.cacheMember(
+                    nameWithTP,
+                    () -> {
+                      try (InputStream in = handle.getInputStream(jarEntry)) {
+                        ClassReader classReader = new ClassReader(in);
+                        return this.getMemberFromJar(file, classReader, nameWithoutTP, nameWithTP);
+                      } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                      }
+                    });
+            results.addAll(isSuper ? withTypeArguments(nameWithTP, members) : members);
+            classIterator.remove();
           }
           return results;
         }
@@ -570,61 +548,29 @@ public class ASMReflector {
           List<MemberDescriptor> members = getMembersFromClassFile(file, file, fqcn, false);
           if (nonNull(members)) {
             // 1 file
-            if (isSuper) {
-              replaceDescriptorsType(nameWithTP, members);
-            }
-            return members;
+            return isSuper ? withTypeArguments(nameWithTP, members) : members;
           }
         }
         return Collections.emptyList();
 
       } else if (file.isDirectory()) {
-        try (Stream<Path> pathStream = Files.walk(file.toPath());
-            Stream<File> stream =
-                pathStream.map(Path::toFile)
-                    .filter(f -> f.isFile() && f.getName().endsWith(".class"))
-                    .collect(Collectors.toList()).stream()) {
-
-          return stream
-              .map(
-                  wrapIO(
-                      f -> {
-                        String rootPath = file.getCanonicalPath();
-                        String path = f.getCanonicalPath();
-                        String className =
-                            ClassNameUtils.replaceSlash(
-                                path.substring(rootPath.length() + 1, path.length() - 6));
-
-                        Iterator<String> stringIterator = targetClasses.iterator();
-
-                        while (stringIterator.hasNext()) {
-                          String nameWithTP = stringIterator.next();
-                          boolean isSuper = !topClass.equals(nameWithTP);
-                          String fqcn = ClassNameUtils.removeTypeParameter(nameWithTP);
-
-                          if (!className.equals(fqcn)) {
-                            continue;
-                          }
-
-                          List<MemberDescriptor> members =
-                              getMembersFromClassFile(file, f, fqcn, false);
-                          if (nonNull(members)) {
-
-                            if (isSuper) {
-                              replaceDescriptorsType(nameWithTP, members);
-                            }
-                            // found
-                            stringIterator.remove();
-                            return members;
-                          }
-                        }
-                        return Collections.<MemberDescriptor>emptyList();
-                      }))
-              .filter(
-                  memberDescriptors -> nonNull(memberDescriptors) && memberDescriptors.size() > 0)
-              .flatMap(Collection::stream)
-              .collect(Collectors.toList());
+        Iterator<String> classIterator = targetClasses.iterator();
+        while (classIterator.hasNext()) {
+          String nameWithTP = classIterator.next();
+          boolean isSuper = !topClass.equals(nameWithTP);
+          String fqcn = ClassNameUtils.removeTypeParameter(nameWithTP);
+          Optional<File> classFile = findClassFile(file, fqcn);
+          if (!classFile.isPresent()) {
+            continue;
+          }
+          List<MemberDescriptor> members =
+              getMembersFromClassFile(file, classFile.get(), fqcn, false);
+          if (nonNull(members)) {
+            results.addAll(isSuper ? withTypeArguments(nameWithTP, members) : members);
+            classIterator.remove();
+          }
         }
+        return results;
       }
       return Collections.emptyList();
     }
@@ -643,36 +589,15 @@ public class ASMReflector {
 
       String nameWithoutTP = ClassNameUtils.removeTypeParameter(name);
       if (isJar(file)) {
-        try (JarFile jarFile = new JarFile(file);
-            Stream<JarEntry> jarStream = jarFile.stream();
-            Stream<JarEntry> stream =
-                jarStream.parallel().filter(jarEntry -> jarEntry.getName().endsWith(".class"))) {
-
-          return stream
-              .map(
-                  wrapIO(
-                      jarEntry -> {
-                        String entryName = jarEntry.getName();
-                        String className =
-                            ClassNameUtils.replaceSlash(
-                                entryName.substring(0, entryName.length() - 6));
-                        String innerName = ClassNameUtils.replaceInnerMark(className);
-                        if (this.ignorePackage(className)) {
-                          return new ArrayList<MemberDescriptor>(0);
-                        }
-
-                        if (className.equals(nameWithoutTP) || innerName.equals(nameWithoutTP)) {
-                          try (InputStream in = jarFile.getInputStream(jarEntry)) {
-                            ClassReader classReader = new ClassReader(in);
-                            return getMemberFromJar(file, classReader, nameWithoutTP, name);
-                          }
-                        }
-
-                        return new ArrayList<MemberDescriptor>(0);
-                      }))
-              .filter(list -> list.size() > 0)
-              .findFirst()
-              .orElse(Collections.emptyList());
+        try (JarEntryIndex.Handle handle = JarEntryIndex.getInstance().open(file)) {
+          JarEntry jarEntry = handle.getEntry(nameWithoutTP);
+          if (nonNull(jarEntry)
+              && !this.ignorePackage(JarEntryIndex.Handle.getClassName(jarEntry))) {
+            try (InputStream in = handle.getInputStream(jarEntry)) {
+              ClassReader classReader = new ClassReader(in);
+              return getMemberFromJar(file, classReader, nameWithoutTP, name);
+            }
+          }
         }
       } else if (isClass(file)) {
         List<MemberDescriptor> members = getMembersFromClassFile(file, file, nameWithoutTP);
@@ -680,20 +605,35 @@ public class ASMReflector {
           return members;
         }
       } else if (file.isDirectory()) {
-        try (Stream<Path> stream = Files.walk(file.toPath())) {
-          return stream
-              .map(Path::toFile)
-              .filter(f -> f.isFile() && f.getName().endsWith(".class"))
-              .map(wrapIO(f -> getMembersFromClassFile(file, f, nameWithoutTP)))
-              .filter(descriptors -> nonNull(descriptors) && descriptors.size() > 0)
-              .findFirst()
-              .orElse(Collections.emptyList());
+        Optional<File> classFile = findClassFile(file, nameWithoutTP);
+        if (classFile.isPresent()) {
+          List<MemberDescriptor> members =
+              getMembersFromClassFile(file, classFile.get(), nameWithoutTP);
+          if (nonNull(members)) {
+            return members;
+          }
         }
       }
       return Collections.emptyList();
     }
   }
 
+  private static Optional<File> findClassFile(File root, String fqcn) {
+    // try a.b.C, then a/b/C$D for a.b.C.D
+    String path = fqcn.replace('.', File.separatorChar);
+    while (true) {
+      File file = new File(root, path + ".class");
+      if (file.isFile()) {
+        return Optional.of(file);
+      }
+      int idx = path.lastIndexOf(File.separatorChar);
+      if (idx < 0) {
+        return Optional.empty();
+      }
+      path = path.substring(0, idx) + ClassNameUtils.INNER_MARK + path.substring(idx + 1);
+    }
+  }
+
   private List<MemberDescriptor> getMembersFromClassFile(File parent, File file, String fqcn)
       throws IOException {
     return getMembersFromClassFile(parent, file, fqcn, true);
@@ -738,12 +678,14 @@ public class ASMReflector {
         TelemetryUtils.startScopedSpan("ASMReflector.readSuperMembers")) {
 
       ClassIndex classIndex = cv.getClassIndex();
-      List<List<MemberDescriptor>> lists =
-          classIndex.getSupers().stream()
-              .parallel()
-              .map(wrapIO(s -> reflect(parent, s)))
-              .collect(Collectors.toList());
-      lists.forEach(units::addAll);
+      // direct lookups, a few classes per hierarchy
+      for (String s : classIndex.getSupers()) {
+        try {
+          units.addAll(reflect(parent, s));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
     }
   }
 
@@ -793,42 +735,21 @@ public class ASMReflector {
       TelemetryUtils.ScopedSpan.addAnnotation(
           TelemetryUtils.annotationBuilder().put("name", name).build("args"));
 
-      for (Map.Entry<String, ClassIndex> entry : index.entrySet()) {
-        ClassIndex classIndex = entry.getValue();
-        File file = new File(classIndex.getFilePath());
-
-        String searchName = ClassNameUtils.removeTypeParameter(name);
-        String target = classIndex.toString();
-        if (target.equals(searchName)) {
-          this.addInheritance(index, name, info, classIndex, file);
-          break;
-        }
-        //
-        Optional<String> opt = ClassNameUtils.toInnerClassName(name);
-        if (opt.isPresent()) {
-          String inner = opt.get();
-
-          if (target.equals(inner)) {
-
-            if (!info.classFileMap.containsKey(file)) {
-              info.classFileMap.put(file, new ArrayList<>(8));
-            }
-
-            info.inherit.add(name);
-            info.classFileMap.get(file).add(name);
-            List<String> supers = ASMReflector.replaceSuperClassTypeParameters(name, classIndex);
-
-            Collections.reverse(supers);
-
-            supers.forEach(
-                superClass -> {
-                  InheritanceInfo ignored = this.searchReflectInfo(index, superClass, info);
-                });
-
-            break;
-          }
+      if (info.inherit.contains(name)) {
+        // reached again through another interface
+        return info;
+      }
+      ClassIndex classIndex = index.get(ClassNameUtils.removeTypeParameter(name));
+      if (isNull(classIndex)) {
+        Optional<String> inner = ClassNameUtils.toInnerClassName(name);
+        if (inner.isPresent()) {
+          classIndex = index.get(inner.get());
         }
       }
+      if (nonNull(classIndex)) {
+        File file = new File(classIndex.getFilePath());
+        this.addInheritance(index, name, info, classIndex, file);
+      }
       return info;
     }
   }
@@ -966,10 +887,7 @@ public class ASMReflector {
         List<MemberDescriptor> members = innerCache.get(nameWithTP);
         if (nonNull(members)) {
           boolean isSuper = !mainClass.equals(nameWithTP);
-          if (isSuper) {
-            replaceDescriptorsType(nameWithTP, members);
-          }
-          results.addAll(members);
+          results.addAll(isSuper ? withTypeArguments(nameWithTP, members) : members);
           it.remove();
         }
       }
@@ -977,6 +895,22 @@ public class ASMReflector {
     }
   }
 
+  private static List<MemberDescriptor> withTypeArguments(
+      final String nameWithTP, final List<MemberDescriptor> members) {
+    // copy only the descriptors that get type arguments, the others stay shared
+    final List<MemberDescriptor> result = new ArrayList<>(members.size());
+    for (final MemberDescriptor md : members) {
+      if (md.hasTypeParameters()) {
+        final MemberDescriptor copy = md.clone();
+        replaceDescriptorsType(nameWithTP, Collections.singletonList(copy));
+        result.add(copy);
+      } else {
+        result.add(md);
+      }
+    }
+    return result;
+  }
+
   @SuppressWarnings("try")
   private static List<MemberDescriptor> cacheMember(
       String key, Supplier<List<MemberDescriptor>> supplier) {
@@ -989,7 +923,8 @@ public class ASMReflector {
 
       List<MemberDescriptor> list = innerCache.get(key);
       if (nonNull(list)) {
-        return list.stream().map(MemberDescriptor::clone).collect(Collectors.toList());
+        // shared, never modified
+        return list;
       }
       List<MemberDescriptor> newVal = supplier.get();
       innerCache.putIfAbsent(key, newVal);
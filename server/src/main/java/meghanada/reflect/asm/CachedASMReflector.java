@@ -1,9 +1,11 @@
 package meghanada.reflect.asm;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static meghanada.utils.FunctionUtils.wrapIOConsumer;
-import static org.apache.lucene.document.Field.Store.YES;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import java.io.File;
@@ -18,9 +20,10 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
@@ -28,8 +31,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import jetbrains.exodus.entitystore.EntityId;
 import meghanada.cache.GlobalCache;
-import meghanada.index.IndexDatabase;
-import meghanada.index.SearchIndexable;
+import meghanada.module.ModuleHelper;
 import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.ClassIndex;
 import meghanada.reflect.MemberDescriptor;
@@ -37,26 +39,28 @@ import meghanada.store.ProjectDatabaseHelper;
 import meghanada.telemetry.TelemetryUtils;
 import meghanada.utils.ClassName;
 import meghanada.utils.ClassNameUtils;
-import meghanada.utils.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.document.StringField;
-import org.objectweb.asm.ClassReader;
 
 public class CachedASMReflector {
 
   private static final int CACHE_SIZE = 1024 * 16;
+  private static final int SUBSTITUTION_CACHE_SIZE = 1024;
   private static final Logger log = LogManager.getLogger(CachedASMReflector.class);
 
   private static final Pattern PACKAGE_RE = Pattern.compile("\\.\\*");
   private static Map<String, CachedASMReflector> reflectors = new ConcurrentHashMap<>(4);
 
   private final Map<String, ClassIndex> globalClassIndex = new ConcurrentHashMap<>(CACHE_SIZE);
+  private final SimpleNameIndex nameIndex = new SimpleNameIndex();
+  private final InheritanceGraph inheritanceGraph = new InheritanceGraph();
+  private final Cache<String, Substitution> substitutions =
+      CacheBuilder.newBuilder().maximumSize(SUBSTITUTION_CACHE_SIZE).build();
 
   private final Set<File> jars = new HashSet<>(64);
   private final Set<File> directories = new HashSet<>(8);
   private Map<String, String> standardClasses;
+  private StaticMemberScanner staticMemberScanner;
 
   private CachedASMReflector() {
     GlobalCache globalCache = GlobalCache.getInstance();
@@ -99,30 +103,38 @@ public class CachedASMReflector {
       String className, String classWithTP, List<MemberDescriptor> members) {
 
     int idx = classWithTP.indexOf('<');
-    if (idx >= 0) {
-      List<String> types = ClassNameUtils.parseTypeParameter(classWithTP);
-      List<String> realTypes = ClassNameUtils.parseTypeParameter(className);
-
-      for (MemberDescriptor md : members) {
-        if (md.hasTypeParameters()) {
-          md.clearTypeParameterMap();
-          int realSize = realTypes.size();
-          for (int i = 0; i < types.size(); i++) {
-            String t = types.get(i);
-            if (realSize > i) {
-              String real = realTypes.get(i);
-              md.putTypeParameter(t, real);
-            }
+    if (idx < 0) {
+      return members;
+    }
+    List<String> types = ClassNameUtils.parseTypeParameter(classWithTP);
+    List<String> realTypes = ClassNameUtils.parseTypeParameter(className);
+    List<MemberDescriptor> result = new ArrayList<>(members.size());
+    for (MemberDescriptor md : members) {
+      String declaringClass = ClassNameUtils.removeTypeParameter(md.getDeclaringClass());
+      boolean own = className.startsWith(declaringClass);
+      if (!own && !md.hasTypeParameters()) {
+        // nothing to replace, share it
+        result.add(md);
+        continue;
+      }
+      MemberDescriptor copy = md.clone();
+      if (copy.hasTypeParameters()) {
+        copy.clearTypeParameterMap();
+        int realSize = realTypes.size();
+        for (int i = 0; i < types.size(); i++) {
+          String t = types.get(i);
+          if (realSize > i) {
+            String real = realTypes.get(i);
+            copy.putTypeParameter(t, real);
           }
         }
-
-        String declaringClass = ClassNameUtils.removeTypeParameter(md.getDeclaringClass());
-        if (className.startsWith(declaringClass)) {
-          md.setDeclaringClass(className);
-        }
       }
+      if (own) {
+        copy.setDeclaringClass(className);
+      }
+      result.add(copy);
     }
-    return members;
+    return result;
   }
 
   public static ClassIndex cloneClassIndex(ClassIndex c) {
@@ -161,6 +173,7 @@ public class CachedASMReflector {
   public void createClassIndexes() {
     try (TelemetryUtils.ScopedSpan scope =
         TelemetryUtils.startScopedSpan("CachedASMReflector.createClassIndexes")) {
+      Queue<String> newJars = new ConcurrentLinkedQueue<>();
       this.jars
           .parallelStream()
           .forEach(
@@ -170,14 +183,8 @@ public class CachedASMReflector {
                     if (name.endsWith(".jar")
                         && !name.endsWith("SNAPSHOT.jar")
                         && ProjectDatabaseHelper.getLoadJar(root.getPath())) {
-                      List<ClassIndex> indexes =
-                          ProjectDatabaseHelper.getClassIndexes(root.getPath());
-
-                      for (ClassIndex index : indexes) {
-                        index.loaded = true;
-                        String fqcn = index.getRawDeclaration();
-                        this.globalClassIndex.put(fqcn, index);
-                      }
+                      this.addLoadedClassIndexes(
+                          ProjectDatabaseHelper.getClassIndexes(root.getPath()));
                     } else {
                       ASMReflector reflector = ASMReflector.getInstance();
                       reflector
@@ -186,18 +193,29 @@ public class CachedASMReflector {
                           .parallelStream()
                           .forEach(entry -> addClassIndex(entry.getKey(), entry.getValue()));
                       if (name.endsWith(".jar") && !name.endsWith("SNAPSHOT.jar")) {
-                        ProjectDatabaseHelper.saveLoadJar(root.getPath());
+                        // marked as loaded after its indexes are stored
+                        newJars.add(root.getPath());
                       }
                     }
                   }));
 
       this.updateClassIndexFromDirectory();
-      this.saveAllClassIndexes();
+      this.saveAllClassIndexes(newJars);
       TelemetryUtils.recordClassIndexes(globalClassIndex.size());
     }
   }
 
-  private void saveAllClassIndexes() {
+  private void addLoadedClassIndexes(List<ClassIndex> indexes) {
+    for (ClassIndex index : indexes) {
+      index.loaded = true;
+      String fqcn = index.getRawDeclaration();
+      this.globalClassIndex.put(fqcn, index);
+      this.nameIndex.addClass(index);
+      this.inheritanceGraph.add(index);
+    }
+  }
+
+  private void saveAllClassIndexes(Collection<String> newJars) {
     List<ClassIndex> jarIndexes = new ArrayList<>(1024);
     List<ClassIndex> otherIndexes = new ArrayList<>(1024);
     globalClassIndex
@@ -208,12 +226,13 @@ public class CachedASMReflector {
                 otherIndexes.add(index);
               } else {
                 if (!index.loaded) {
+                  // marked as loaded by the save task once it has committed
                   jarIndexes.add(index);
                 }
               }
             });
 
-    ProjectDatabaseHelper.saveClassIndexes(jarIndexes, false);
+    ProjectDatabaseHelper.saveNewClassIndexes(jarIndexes, newJars);
     ProjectDatabaseHelper.saveClassIndexes(otherIndexes, true);
   }
 
@@ -242,6 +261,8 @@ public class CachedASMReflector {
     ASMReflector.setFilePath(newIndex, file);
 
     this.globalClassIndex.put(fqcn, newIndex);
+    this.nameIndex.addClass(newIndex);
+    this.inheritanceGraph.add(newIndex);
   }
 
   public void createClassIndexes(Collection<File> addJars) {
@@ -261,7 +282,7 @@ public class CachedASMReflector {
                       .forEach(entry -> addClassIndex(entry.getKey(), entry.getValue()));
                 }));
     this.jars.addAll(addJars);
-    this.saveAllClassIndexes();
+    this.saveAllClassIndexes(Collections.emptyList());
   }
 
   public void updateClassIndexFromDirectory() {
@@ -270,13 +291,27 @@ public class CachedASMReflector {
       stream.forEach(
           wrapIOConsumer(
               file -> {
-                // TODO is loaded ?
+                boolean jdk = ModuleHelper.isJrtFsFile(file);
+                if (jdk) {
+                  // the JDK never changes for a runtime image, read it from its snapshot
+                  Optional<List<ClassIndex>> snapshot =
+                      ProjectDatabaseHelper.getClassIndexSnapshot(file.getPath());
+                  if (snapshot.isPresent()) {
+                    this.addLoadedClassIndexes(snapshot.get());
+                    return;
+                  }
+                }
                 ASMReflector reflector = ASMReflector.getInstance();
-                reflector
-                    .getClasses(file)
+                Map<ClassIndex, File> classes = reflector.getClasses(file);
+                classes
                     .entrySet()
                     .parallelStream()
                     .forEach(entry -> addClassIndex(entry.getKey(), entry.getValue()));
+                if (jdk) {
+                  ProjectDatabaseHelper.saveNewClassIndexes(
+                      new ArrayList<>(classes.keySet()),
+                      Collections.singletonList(file.getPath()));
+                }
               }));
     }
     this.updateClassIndexes();
@@ -340,6 +375,9 @@ public class CachedASMReflector {
   }
 
   public List<ClassIndex> searchClasses(final String keyword, final boolean includeAnnotation) {
+    if (keyword.indexOf('.') < 0) {
+      return this.findClasses(keyword, includeAnnotation);
+    }
     return this.globalClassIndex
         .values()
         .parallelStream()
@@ -354,6 +392,41 @@ public class CachedASMReflector {
         .collect(Collectors.toList());
   }
 
+  public Map<String, List<ClassIndex>> searchClasses(
+      final Collection<String> keywords, final boolean includeAnnotation) {
+    final Map<String, List<ClassIndex>> result = new HashMap<>(keywords.size());
+    for (final String keyword : keywords) {
+      result.computeIfAbsent(keyword, k -> this.searchClasses(k, includeAnnotation));
+    }
+    return result;
+  }
+
+  private List<ClassIndex> findClasses(final String name, final boolean includeAnnotation) {
+    final Set<String> fqcns = this.nameIndex.getClasses(name);
+    final List<ClassIndex> result = new ArrayList<>(fqcns.size());
+    for (final String fqcn : fqcns) {
+      final ClassIndex c = this.globalClassIndex.get(fqcn);
+      if (nonNull(c) && (includeAnnotation || !c.isAnnotation())) {
+        result.add(cloneClassIndex(c));
+      }
+    }
+    return result;
+  }
+
+  public Set<String> getStaticMemberOwners(final String name) {
+    return this.nameIndex.getStaticMemberOwners(name);
+  }
+
+  public Set<String> getStaticMethodOwners(final String name, final List<String> arguments) {
+    return this.nameIndex.getStaticMethodOwners(name, arguments);
+  }
+
+  /** Returns true when every jar has been scanned, until then the owners may be partial. */
+  public synchronized boolean isStaticMemberScanDone() {
+    return nonNull(this.staticMemberScanner)
+        && this.staticMemberScanner.getProgress().state == StaticMemberScanner.State.DONE;
+  }
+
   public Stream<ClassIndex> allClassStream() {
     return this.globalClassIndex.values().parallelStream();
   }
@@ -364,18 +437,18 @@ public class CachedASMReflector {
     String classWithoutTP = cn.getName();
     GlobalCache globalCache = GlobalCache.getInstance();
     try {
-      List<MemberDescriptor> members = new ArrayList<>(16);
       List<MemberDescriptor> list = globalCache.getMemberDescriptors(classWithoutTP);
-      if (!list.isEmpty()) {
-        // TelemetryUtils.recordAutocompleteStat(classWithoutTP);
-      }
-      for (MemberDescriptor md : list) {
-        members.add(md.clone());
+      // descriptors are shared between requests, callers must not modify them
+      if (!cn.hasTypeParameter()) {
+        return new ArrayList<>(list);
       }
-      if (cn.hasTypeParameter()) {
-        return this.replaceMembers(classWithoutTP, className, members);
+      Substitution substitution = this.substitutions.getIfPresent(className);
+      if (isNull(substitution) || !substitution.isFor(list)) {
+        substitution =
+            new Substitution(list, this.replaceMembers(classWithoutTP, className, list));
+        this.substitutions.put(className, substitution);
       }
-      return members;
+      return new ArrayList<>(substitution.members);
     } catch (ExecutionException e) {
       throw new UncheckedExecutionException(e);
     }
@@ -439,27 +512,9 @@ public class CachedASMReflector {
 
       Set<String> result = new LinkedHashSet<>(4);
       String fqcn = ClassNameUtils.removeTypeParameter(className);
-      this.containsClassIndex(fqcn)
-          .ifPresent(
-              ci -> {
-                List<String> supers = ci.getSupers();
-                if (supers.isEmpty()) {
-                  return;
-                }
-
-                if (supers.size() == 1 && supers.get(0).equals(ClassNameUtils.OBJECT_CLASS)) {
-                  return;
-                }
-
-                for (String superClazz : supers) {
-                  if (!superClazz.equals(ClassNameUtils.OBJECT_CLASS)) {
-                    String clazz = ClassNameUtils.removeTypeMark(superClazz);
-                    result.add(clazz);
-                    result.addAll(getSuperClassInternal(superClazz));
-                  }
-                }
-              });
-
+      for (String superClazz : this.inheritanceGraph.getSupers(fqcn)) {
+        result.add(ClassNameUtils.removeTypeMark(superClazz));
+      }
       return result;
     }
   }
@@ -470,6 +525,19 @@ public class CachedASMReflector {
     return result;
   }
 
+  public List<String> getSubClasses(String className, boolean transitive) {
+    String fqcn = ClassNameUtils.removeTypeParameter(className);
+    List<String> result = this.inheritanceGraph.getSubtypes(fqcn, transitive);
+    if (result.isEmpty()) {
+      // a.b.C.D is indexed as a.b.C$D
+      Optional<String> inner = ClassNameUtils.toInnerClassName(fqcn);
+      if (inner.isPresent() && !inner.get().equals(fqcn)) {
+        return this.inheritanceGraph.getSubtypes(inner.get(), transitive);
+      }
+    }
+    return result;
+  }
+
   public Optional<ClassIndex> containsClassIndex(String className) {
     return Optional.ofNullable(this.globalClassIndex.get(className));
   }
@@ -490,76 +558,31 @@ public class CachedASMReflector {
   }
 
   public void scanAllStaticMembers() {
-    IndexDatabase database = IndexDatabase.getInstance();
-    try (Stream<File> stream = this.directories.stream().parallel()) {
-      stream.forEach(
-          file -> {
-            ConcurrentLinkedDeque<MemberDescriptor> deque = new ConcurrentLinkedDeque<>();
-            try {
-              scanMembers(file, deque);
-              MemberIndex mi = new MemberIndex(file.getCanonicalPath(), deque);
-              IndexDatabase.requestIndex(mi, event -> {});
-            } catch (IOException e) {
-              throw new UncheckedIOException(e);
-            }
-          });
-    }
-
-    this.jars
-        .parallelStream()
-        .forEach(
-            file -> {
-              try {
-                final String path = file.getCanonicalPath();
-                boolean b = ProjectDatabaseHelper.isIndexedFile(path);
-                if (b) {
-                  return;
-                }
-                ConcurrentLinkedDeque<MemberDescriptor> deque = new ConcurrentLinkedDeque<>();
-                scanMembers(file, deque);
-                final MemberIndex mi = new MemberIndex(file.getCanonicalPath(), deque);
-                IndexDatabase.requestIndex(
-                    mi,
-                    event -> {
-                      // store
-                      String fileName = file.getName();
-                      if (fileName.endsWith(".jar")
-                          && !ProjectDatabaseHelper.saveIndexedFile(path)) {
-                        log.warn("failed save index. {}", path);
-                      }
-                    });
-              } catch (IOException e) {
-                throw new UncheckedIOException(e);
-              }
-            });
+    this.scanStaticMembers(Collections.emptySet());
   }
 
-  private static void scanMembers(
-      final File root, final ConcurrentLinkedDeque<MemberDescriptor> deque) throws IOException {
-    final ASMReflector reflector = ASMReflector.getInstance();
-    reflector.scanClasses(
-        root,
-        (file, name, in) -> {
-          ClassReader read = new ClassReader(in);
-          String className = name;
-          if (root.isDirectory()) {
-            // path to package
-            Set<File> roots = Collections.singleton(root);
-            Optional<String> s = FileUtils.convertPathToClass(roots, file);
-            if (s.isPresent()) {
-              className = s.get();
-            }
-          }
-          ClassAnalyzeVisitor visitor = new ClassAnalyzeVisitor(className, name, false, false);
-          read.accept(visitor, 0);
-          List<MemberDescriptor> members =
-              visitor.getMembers().stream()
-                  .filter(m -> m.isPublic() && m.isStatic())
-                  .collect(Collectors.toList());
-          if (!members.isEmpty()) {
-            deque.addAll(members);
-          }
-        });
+  public synchronized void scanStaticMembers(final Collection<String> usingClasses) {
+    if (nonNull(this.staticMemberScanner)) {
+      this.staticMemberScanner.cancel();
+    }
+    final Map<String, Integer> usage = new HashMap<>(this.jars.size());
+    for (final String fqcn : usingClasses) {
+      final ClassIndex classIndex = this.globalClassIndex.get(fqcn);
+      if (nonNull(classIndex) && nonNull(classIndex.getFilePath())) {
+        usage.merge(classIndex.getFilePath(), 1, Integer::sum);
+      }
+    }
+    final StaticMemberScanner scanner =
+        new StaticMemberScanner(this.directories, this.jars, usage, this.nameIndex);
+    this.staticMemberScanner = scanner;
+    scanner.start();
+  }
+
+  public synchronized Optional<StaticMemberScanner.Progress> getStaticMemberScanProgress() {
+    if (isNull(this.staticMemberScanner)) {
+      return Optional.empty();
+    }
+    return Optional.of(this.staticMemberScanner.getProgress());
   }
 
   public static int scan(File root, Consumer<String> c) {
@@ -575,31 +598,19 @@ public class CachedASMReflector {
     return jars;
   }
 
-  private static class MemberIndex implements SearchIndexable {
-    private final String path;
-    private final Collection<MemberDescriptor> members;
+  private static class Substitution {
+    // the member cache list it was made from, a refreshed list makes it stale
+    private final List<MemberDescriptor> source;
+    private final List<MemberDescriptor> members;
 
-    MemberIndex(String path, Collection<MemberDescriptor> members) {
-      this.path = path;
+    Substitution(final List<MemberDescriptor> source, final List<MemberDescriptor> members) {
+      this.source = source;
       this.members = members;
     }
 
-    @Override
-    public String getIndexGroupId() {
-      return this.path;
-    }
-
-    @Override
-    public List<Document> getDocumentIndices() {
-      return this.members
-          .parallelStream()
-          .map(
-              desc -> {
-                Document doc = desc.toDocument();
-                doc.add(new StringField(SearchIndexable.GROUP_ID, this.path, YES));
-                return doc;
-              })
-          .collect(Collectors.toList());
+    @SuppressWarnings("ReferenceEquality")
+    boolean isFor(final List<MemberDescriptor> list) {
+      return this.source == list;
     }
   }
 }
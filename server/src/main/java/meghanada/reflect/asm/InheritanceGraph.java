@@ -0,0 +1,143 @@
+package meghanada.reflect.asm;
+
+import static java.util.Objects.isNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import meghanada.reflect.ClassIndex;
+import meghanada.utils.ClassNameUtils;
+
+class InheritanceGraph {
+
+  private static final int[] EMPTY = new int[0];
+  private static final String[] EMPTY_NAMES = new String[0];
+
+  private final Map<String, Integer> ids = new HashMap<>(1024 * 16);
+  private final List<Node> nodes = new ArrayList<>(1024 * 16);
+
+  private int idOf(final String fqcn) {
+    final Integer id = this.ids.get(fqcn);
+    if (isNull(id)) {
+      final int newId = this.nodes.size();
+      this.ids.put(fqcn, newId);
+      this.nodes.add(new Node(fqcn));
+      return newId;
+    }
+    return id;
+  }
+
+  synchronized void add(final ClassIndex index) {
+    final int id = this.idOf(index.getRawDeclaration());
+    final Node node = this.nodes.get(id);
+    // drop the edges of the previous version of the class
+    for (final int sup : node.supers) {
+      this.nodes.get(sup).removeSub(id);
+    }
+    final List<String> declared = index.getSupers();
+    final int[] supers = new int[declared.size()];
+    for (int i = 0; i < supers.length; i++) {
+      final String name = declared.get(i);
+      final String raw = ClassNameUtils.removeTypeParameter(name);
+      supers[i] = this.idOf(raw);
+      // every class is a subtype of Object, there's no point in keeping those edges
+      if (!raw.equals(ClassNameUtils.OBJECT_CLASS)) {
+        this.nodes.get(supers[i]).addSub(id);
+      }
+    }
+    node.supers = supers;
+    node.declared = declared.toArray(EMPTY_NAMES);
+  }
+
+  /** Returns the declared names of all supertypes except Object, depth first. */
+  synchronized List<String> getSupers(final String fqcn) {
+    final Integer id = this.ids.get(fqcn);
+    if (isNull(id)) {
+      return Collections.emptyList();
+    }
+    final List<String> result = new ArrayList<>(8);
+    final BitSet visited = new BitSet(this.nodes.size());
+    visited.set(id);
+    this.collectSupers(id, visited, result);
+    return result;
+  }
+
+  private void collectSupers(final int id, final BitSet visited, final List<String> result) {
+    final Node node = this.nodes.get(id);
+    for (int i = 0; i < node.supers.length; i++) {
+      final int sup = node.supers[i];
+      if (visited.get(sup)) {
+        continue;
+      }
+      visited.set(sup);
+      if (this.nodes.get(sup).name.equals(ClassNameUtils.OBJECT_CLASS)) {
+        continue;
+      }
+      result.add(node.declared[i]);
+      this.collectSupers(sup, visited, result);
+    }
+  }
+
+  /** Returns the subtypes of the class breadth first, Object has none. */
+  synchronized List<String> getSubtypes(final String fqcn, final boolean transitive) {
+    final Integer id = this.ids.get(fqcn);
+    if (isNull(id)) {
+      return Collections.emptyList();
+    }
+    final List<String> result = new ArrayList<>(8);
+    final BitSet visited = new BitSet(this.nodes.size());
+    visited.set(id);
+    final Deque<Integer> queue = new ArrayDeque<>(8);
+    queue.add(id);
+    while (!queue.isEmpty()) {
+      final Node node = this.nodes.get(queue.poll());
+      for (int i = 0; i < node.subSize; i++) {
+        final int sub = node.subs[i];
+        if (visited.get(sub)) {
+          continue;
+        }
+        visited.set(sub);
+        result.add(this.nodes.get(sub).name);
+        if (transitive) {
+          queue.add(sub);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static class Node {
+
+    private final String name;
+    private int[] supers = EMPTY;
+    private String[] declared = EMPTY_NAMES;
+    private int[] subs = EMPTY;
+    private int subSize;
+
+    Node(final String name) {
+      this.name = name;
+    }
+
+    void addSub(final int id) {
+      if (this.subSize == this.subs.length) {
+        this.subs = Arrays.copyOf(this.subs, Math.max(4, this.subSize * 2));
+      }
+      this.subs[this.subSize++] = id;
+    }
+
+    void removeSub(final int id) {
+      for (int i = 0; i < this.subSize; i++) {
+        if (this.subs[i] == id) {
+          this.subs[i] = this.subs[--this.subSize];
+          return;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package meghanada.reflect.asm;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import javax.annotation.Nullable;
+import meghanada.utils.ClassNameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+class JarEntryIndex {
+
+  private static final Logger log = LogManager.getLogger(JarEntryIndex.class);
+  private static final int MAX_OPEN_JARS = 64;
+  private static JarEntryIndex jarEntryIndex;
+
+  private final Cache<File, Handle> handles;
+
+  private JarEntryIndex() {
+    this(MAX_OPEN_JARS);
+  }
+
+  JarEntryIndex(final int maxOpenJars) {
+    this.handles =
+        CacheBuilder.newBuilder()
+            .maximumSize(maxOpenJars)
+            .removalListener(JarEntryIndex::onRemoval)
+            .build();
+  }
+
+  static synchronized JarEntryIndex getInstance() {
+    if (isNull(jarEntryIndex)) {
+      jarEntryIndex = new JarEntryIndex();
+    }
+    return jarEntryIndex;
+  }
+
+  private static void onRemoval(final RemovalNotification<File, Handle> notification) {
+    final Handle handle = notification.getValue();
+    if (nonNull(handle)) {
+      // the last reader closes the jar
+      handle.release();
+    }
+  }
+
+  Handle open(final File file) throws IOException {
+    while (true) {
+      final Handle handle;
+      try {
+        handle = this.handles.get(file, () -> new Handle(file));
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        throw new IOException(cause);
+      }
+      if (handle.isStale(file)) {
+        this.handles.asMap().remove(file, handle);
+        continue;
+      }
+      if (handle.acquire()) {
+        return handle;
+      }
+      // closed by an eviction in the meantime
+      this.handles.asMap().remove(file, handle);
+    }
+  }
+
+  static class Handle implements Closeable {
+
+    private final JarFile jarFile;
+    private final long lastModified;
+    private final long length;
+    // class name and the name with inner marks replaced to the entry
+    private final Map<String, JarEntry> entries;
+    private int refs = 1;
+
+    private Handle(final File file) throws IOException {
+      this.lastModified = file.lastModified();
+      this.length = file.length();
+      this.jarFile = new JarFile(file);
+      this.entries = new HashMap<>(1024);
+      final Enumeration<JarEntry> it = this.jarFile.entries();
+      while (it.hasMoreElements()) {
+        final JarEntry entry = it.nextElement();
+        if (!entry.getName().endsWith(".class")) {
+          continue;
+        }
+        final String className = getClassName(entry);
+        this.entries.putIfAbsent(className, entry);
+        this.entries.putIfAbsent(ClassNameUtils.replaceInnerMark(className), entry);
+      }
+    }
+
+    private boolean isStale(final File file) {
+      return file.lastModified() != this.lastModified || file.length() != this.length;
+    }
+
+    private synchronized boolean acquire() {
+      if (this.refs <= 0) {
+        return false;
+      }
+      this.refs++;
+      return true;
+    }
+
+    private synchronized void release() {
+      this.refs--;
+      if (this.refs == 0) {
+        try {
+          this.jarFile.close();
+        } catch (IOException e) {
+          log.warn(e.getMessage());
+        }
+      }
+    }
+
+    @Nullable
+    JarEntry getEntry(final String className) {
+      return this.entries.get(className);
+    }
+
+    static String getClassName(final JarEntry entry) {
+      final String entryName = entry.getName();
+      return ClassNameUtils.replaceSlash(entryName.substring(0, entryName.length() - 6));
+    }
+
+    InputStream getInputStream(final JarEntry entry) throws IOException {
+      return this.jarFile.getInputStream(entry);
+    }
+
+    @Override
+    public void close() {
+      this.release();
+    }
+  }
+}
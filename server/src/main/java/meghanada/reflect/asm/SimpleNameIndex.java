@@ -0,0 +1,81 @@
+package meghanada.reflect.asm;
+
+import com.google.common.base.Splitter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import meghanada.reflect.ClassIndex;
+import meghanada.utils.ClassNameUtils;
+
+class SimpleNameIndex {
+
+  private static final int CACHE_SIZE = 1024 * 16;
+  // type names never contain it
+  static final char PARAMETER_SEP = ';';
+
+  private final Map<String, Set<String>> classes = new ConcurrentHashMap<>(CACHE_SIZE);
+  // owner for a field, owner(param;...) for a method
+  private final Map<String, Set<String>> staticMembers = new ConcurrentHashMap<>(CACHE_SIZE);
+
+  private static void put(final Map<String, Set<String>> map, final String key, final String val) {
+    map.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet(2)).add(val);
+  }
+
+  void addClass(final ClassIndex index) {
+    final String name = index.getName();
+    if (ClassNameUtils.isAnonymousClass(name)) {
+      return;
+    }
+    final String fqcn = index.getRawDeclaration();
+    put(this.classes, name, fqcn);
+    // inner classes are found by every name after an inner mark too
+    int idx = name.indexOf(ClassNameUtils.INNER_MARK);
+    while (idx >= 0 && idx < name.length() - 1) {
+      put(this.classes, name.substring(idx + 1), fqcn);
+      idx = name.indexOf(ClassNameUtils.INNER_MARK, idx + 1);
+    }
+  }
+
+  void addStaticMember(final String owner, final String name) {
+    put(this.staticMembers, name, owner);
+  }
+
+  void addStaticMethod(final String owner, final String name, final String parameters) {
+    put(this.staticMembers, name, owner + '(' + parameters + ')');
+  }
+
+  Set<String> getClasses(final String name) {
+    return this.classes.getOrDefault(name, Collections.emptySet());
+  }
+
+  Set<String> getStaticMemberOwners(final String name) {
+    final Set<String> owners = new TreeSet<>();
+    for (final String member : this.staticMembers.getOrDefault(name, Collections.emptySet())) {
+      final int idx = member.indexOf('(');
+      owners.add(idx < 0 ? member : member.substring(0, idx));
+    }
+    return owners;
+  }
+
+  Set<String> getStaticMethodOwners(final String name, final List<String> arguments) {
+    final Set<String> owners = new TreeSet<>();
+    for (final String member : this.staticMembers.getOrDefault(name, Collections.emptySet())) {
+      final int idx = member.indexOf('(');
+      if (idx < 0) {
+        continue;
+      }
+      final String params = member.substring(idx + 1, member.length() - 1);
+      final List<String> parameters =
+          params.isEmpty()
+              ? Collections.emptyList()
+              : Splitter.on(PARAMETER_SEP).splitToList(params);
+      if (ClassNameUtils.compareArgumentType(arguments, parameters, false)) {
+        owners.add(member.substring(0, idx));
+      }
+    }
+    return owners;
+  }
+}
@@ -0,0 +1,341 @@
+package meghanada.reflect.asm;
+
+import static org.apache.lucene.document.Field.Store.YES;
+
+import com.google.common.base.Joiner;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import meghanada.config.Config;
+import meghanada.index.IndexDatabase;
+import meghanada.index.SearchIndexable;
+import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.system.CpuMonitor;
+import meghanada.telemetry.ErrorReporter;
+import meghanada.utils.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StringField;
+import org.objectweb.asm.ClassReader;
+
+public class StaticMemberScanner implements Runnable {
+
+  private static final Logger log = LogManager.getLogger(StaticMemberScanner.class);
+  private static final long THROTTLE_INTERVAL = 500;
+  private static final long MAX_THROTTLE = 30 * 1000;
+
+  private final List<File> directories;
+  private final List<File> jars;
+  private final SimpleNameIndex nameIndex;
+  private final CpuMonitor monitor = new CpuMonitor();
+  private final double cpuLimit;
+  private final AtomicInteger done = new AtomicInteger();
+  private final AtomicInteger indexed = new AtomicInteger();
+  private volatile State state = State.WAITING;
+  private volatile String current = "";
+  private volatile boolean cancelled;
+  private long startTime;
+  private long indexedTime;
+
+  StaticMemberScanner(
+      final Collection<File> directories,
+      final Collection<File> jars,
+      final Map<String, Integer> usage,
+      final SimpleNameIndex nameIndex) {
+    this.directories = new ArrayList<>(directories);
+    this.nameIndex = nameIndex;
+    this.cpuLimit = Config.load().getStaticMemberScanCpuLimit();
+    this.jars = new ArrayList<>(jars);
+    // scan the jars the project actually uses first
+    this.jars.sort(
+        Comparator.comparing((File f) -> usage.getOrDefault(toPath(f), 0)).reversed());
+  }
+
+  private static String getParameters(final MemberDescriptor md) {
+    return Joiner.on(SimpleNameIndex.PARAMETER_SEP).join(md.getParameters());
+  }
+
+  // owner#name for a field, owner#name(param;...) for a method
+  private static List<String> toMemberKeys(final Collection<MemberDescriptor> members) {
+    final List<String> keys = new ArrayList<>(members.size());
+    for (final MemberDescriptor md : members) {
+      final String key = md.getDeclaringClass() + '#' + md.getName();
+      if (md.getMemberType() == CandidateUnit.MemberType.METHOD) {
+        keys.add(key + '(' + getParameters(md) + ')');
+      } else {
+        keys.add(key);
+      }
+    }
+    return keys;
+  }
+
+  private void addStaticMemberKeys(final Collection<String> keys) {
+    for (final String key : keys) {
+      final int paren = key.indexOf('(');
+      final String member = paren < 0 ? key : key.substring(0, paren);
+      final int idx = member.lastIndexOf('#');
+      if (idx <= 0) {
+        continue;
+      }
+      final String owner = member.substring(0, idx);
+      final String name = member.substring(idx + 1);
+      if (paren < 0) {
+        this.nameIndex.addStaticMember(owner, name);
+      } else {
+        this.nameIndex.addStaticMethod(owner, name, key.substring(paren + 1, key.length() - 1));
+      }
+    }
+  }
+
+  private void addStaticMembers(final Collection<MemberDescriptor> members) {
+    for (final MemberDescriptor md : members) {
+      if (md.getMemberType() == CandidateUnit.MemberType.METHOD) {
+        this.nameIndex.addStaticMethod(md.getDeclaringClass(), md.getName(), getParameters(md));
+      } else {
+        this.nameIndex.addStaticMember(md.getDeclaringClass(), md.getName());
+      }
+    }
+  }
+
+  private static String toPath(final File file) {
+    try {
+      return file.getCanonicalPath();
+    } catch (IOException e) {
+      return file.getPath();
+    }
+  }
+
+  static void scanMembers(final File root, final ConcurrentLinkedDeque<MemberDescriptor> deque)
+      throws IOException {
+    final ASMReflector reflector = ASMReflector.getInstance();
+    reflector.scanClasses(
+        root,
+        (file, name, in) -> {
+          ClassReader read = new ClassReader(in);
+          String className = name;
+          if (root.isDirectory()) {
+            // path to package
+            Set<File> roots = Collections.singleton(root);
+            Optional<String> s = FileUtils.convertPathToClass(roots, file);
+            if (s.isPresent()) {
+              className = s.get();
+            }
+          }
+          ClassAnalyzeVisitor visitor = new ClassAnalyzeVisitor(className, name, false, false);
+          read.accept(visitor, 0);
+          List<MemberDescriptor> members =
+              visitor.getMembers().stream()
+                  .filter(m -> m.isPublic() && m.isStatic())
+                  .collect(Collectors.toList());
+          if (!members.isEmpty()) {
+            deque.addAll(members);
+          }
+        });
+  }
+
+  void start() {
+    final Thread thread = new Thread(this, "static-member-scanner");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+  }
+
+  public void cancel() {
+    this.cancelled = true;
+  }
+
+  @Override
+  public void run() {
+    this.startTime = System.nanoTime();
+    this.state = State.RUNNING;
+    try {
+      for (final File dir : this.directories) {
+        if (this.cancelled) {
+          break;
+        }
+        this.scanDirectory(dir);
+      }
+      for (final File jar : this.jars) {
+        if (this.cancelled) {
+          break;
+        }
+        this.throttle();
+        this.current = jar.getName();
+        if (jar.getName().endsWith(".jar")) {
+          this.scanJar(jar);
+        } else {
+          this.scanDirectory(jar);
+        }
+        this.done.incrementAndGet();
+      }
+      this.state = this.cancelled ? State.CANCELLED : State.DONE;
+      log.info(
+          "scanned static members {}/{} jars. indexed:{}",
+          this.done.get(),
+          this.jars.size(),
+          this.indexed.get());
+    } catch (InterruptedException e) {
+      this.state = State.CANCELLED;
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      this.state = State.FAILED;
+      log.catching(e);
+      ErrorReporter.report(e);
+    } finally {
+      this.current = "";
+    }
+  }
+
+  private void throttle() throws InterruptedException {
+    long waited = 0;
+    while (!this.cancelled
+        && waited < MAX_THROTTLE
+        && this.monitor.getCpuUsage() > this.cpuLimit) {
+      this.state = State.THROTTLED;
+      Thread.sleep(THROTTLE_INTERVAL);
+      waited += THROTTLE_INTERVAL;
+    }
+    this.state = State.RUNNING;
+  }
+
+  private void scanDirectory(final File dir) throws IOException {
+    final ConcurrentLinkedDeque<MemberDescriptor> deque = new ConcurrentLinkedDeque<>();
+    scanMembers(dir, deque);
+    this.addStaticMembers(deque);
+    final MemberIndex mi = new MemberIndex(dir.getCanonicalPath(), deque);
+    IndexDatabase.requestIndex(mi, event -> {});
+  }
+
+  private void scanJar(final File jar) throws IOException {
+    final IndexDatabase database = IndexDatabase.getInstance();
+    // a completed shard is the checkpoint, a restart resumes from the first missing jar
+    if (database.attachJarShard(jar)) {
+      final Optional<List<String>> members = database.getJarShardMembers(jar);
+      if (members.isPresent()) {
+        this.addStaticMemberKeys(members.get());
+      } else {
+        // a shard without the member list, only the names have to be scanned again
+        final ConcurrentLinkedDeque<MemberDescriptor> deque = new ConcurrentLinkedDeque<>();
+        scanMembers(jar, deque);
+        this.addStaticMembers(deque);
+      }
+      return;
+    }
+    final long start = System.nanoTime();
+    final ConcurrentLinkedDeque<MemberDescriptor> deque = new ConcurrentLinkedDeque<>();
+    scanMembers(jar, deque);
+    this.addStaticMembers(deque);
+    if (deque.isEmpty()) {
+      database.markEmptyJarShard(jar);
+    } else {
+      database.indexJarShard(
+          jar, new MemberIndex(jar.getCanonicalPath(), deque), toMemberKeys(deque));
+    }
+    synchronized (this) {
+      this.indexedTime += System.nanoTime() - start;
+    }
+    this.indexed.incrementAndGet();
+  }
+
+  public synchronized Progress getProgress() {
+    final int total = this.jars.size();
+    final int done = this.done.get();
+    final int indexed = this.indexed.get();
+    final long elapsed =
+        this.state == State.WAITING
+            ? 0
+            : TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - this.startTime);
+    long eta = -1;
+    if (this.state == State.DONE) {
+      eta = 0;
+    } else if (indexed > 0) {
+      final long avg = this.indexedTime / indexed;
+      eta = TimeUnit.NANOSECONDS.toSeconds(avg * (total - done));
+    }
+    return new Progress(this.state, total, done, indexed, this.current, elapsed, eta);
+  }
+
+  public enum State {
+    WAITING,
+    RUNNING,
+    THROTTLED,
+    DONE,
+    CANCELLED,
+    FAILED
+  }
+
+  public static class Progress {
+    public final State state;
+    public final int total;
+    public final int done;
+    public final int indexed;
+    public final String current;
+    public final long elapsed;
+    public final long eta;
+
+    Progress(
+        final State state,
+        final int total,
+        final int done,
+        final int indexed,
+        final String current,
+        final long elapsed,
+        final long eta) {
+      this.state = state;
+      this.total = total;
+      this.done = done;
+      this.indexed = indexed;
+      this.current = current;
+      this.elapsed = elapsed;
+      this.eta = eta;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%s %d/%d indexed:%d current:%s elapsed:%ds eta:%ds",
+          state, done, total, indexed, current, elapsed, eta);
+    }
+  }
+
+  private static class MemberIndex implements SearchIndexable {
+    private final String path;
+    private final Collection<MemberDescriptor> members;
+
+    MemberIndex(String path, Collection<MemberDescriptor> members) {
+      this.path = path;
+      this.members = members;
+    }
+
+    @Override
+    public String getIndexGroupId() {
+      return this.path;
+    }
+
+    @Override
+    public List<Document> getDocumentIndices() {
+      return this.members
+          .parallelStream()
+          .map(
+              desc -> {
+                Document doc = desc.toDocument();
+                doc.add(new StringField(SearchIndexable.GROUP_ID, this.path, YES));
+                return doc;
+              })
+          .collect(Collectors.toList());
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package meghanada.server;
 
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 import com.google.common.base.Joiner;
 import java.io.BufferedReader;
@@ -10,21 +11,25 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import javax.annotation.Nullable;
 import meghanada.analyze.CompileResult;
+import meghanada.completion.CompletionResult;
 import meghanada.completion.LocalVariable;
+import meghanada.config.Config;
 import meghanada.docs.declaration.Declaration;
 import meghanada.index.SearchResults;
 import meghanada.location.Location;
+import meghanada.reference.Call;
 import meghanada.reference.Reference;
-import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.asm.StaticMemberScanner;
 import meghanada.session.Session;
 import meghanada.telemetry.ErrorReporter;
 import meghanada.telemetry.TelemetryUtils;
+import meghanada.typeinfo.TypeHierarchy;
 import meghanada.typeinfo.TypeInfo;
 import meghanada.utils.ClassNameUtils;
 import org.apache.commons.lang3.time.StopWatch;
@@ -37,12 +42,23 @@ public class CommandHandler {
   private final Session session;
   private final BufferedWriter writer;
   private final OutputFormatter outputFormatter;
+  // written after each chunk of a streamed response, the client reads a chunk up to it
+  @Nullable private final String chunkTerminator;
 
   public CommandHandler(
       final Session session, final BufferedWriter writer, final OutputFormatter formatter) {
+    this(session, writer, formatter, null);
+  }
+
+  public CommandHandler(
+      final Session session,
+      final BufferedWriter writer,
+      final OutputFormatter formatter,
+      @Nullable final String chunkTerminator) {
     this.session = session;
     this.writer = writer;
     this.outputFormatter = formatter;
+    this.chunkTerminator = chunkTerminator;
   }
 
   private void writeError(long id, Throwable t) {
@@ -196,9 +212,9 @@ public class CommandHandler {
               .build("args"));
       int lineInt = Integer.parseInt(line);
       int columnInt = Integer.parseInt(column);
-      Collection<? extends CandidateUnit> units =
-          session.completionAt(path, lineInt, columnInt, prefix);
-      String out = outputFormatter.autocomplete(id, units);
+      CompletionResult result = session.completionAt(path, lineInt, columnInt, prefix);
+      boolean partial = result.partial && Config.load().isCompletionPartialMarker();
+      String out = outputFormatter.autocomplete(id, result.candidates, partial);
       writer.write(out);
       writer.newLine();
       span.setStatusOK();
@@ -690,6 +706,149 @@ public class CommandHandler {
     }
   }
 
+  @SuppressWarnings("try")
+  public void referenceStream(long id, String path, String line, String column, String symbol) {
+    long startTime = System.nanoTime();
+    String name = "Meghanada/referenceStream";
+    try (TelemetryUtils.ParentSpan span = TelemetryUtils.startExplicitParentSpan(name);
+        TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
+      TelemetryUtils.ScopedSpan.addAnnotation(
+          TelemetryUtils.annotationBuilder()
+              .put("path", path)
+              .put("line", line)
+              .put("column", column)
+              .put("symbol", symbol)
+              .build("args"));
+      int lineInt = Integer.parseInt(line);
+      int columnInt = Integer.parseInt(column);
+      int[] count = {0};
+      boolean completed =
+          session.reference(
+              id,
+              path,
+              lineInt,
+              columnInt,
+              symbol,
+              references -> {
+                // a closed connection fails the write and stops the search
+                writer.write(outputFormatter.referencesChunk(id, references));
+                writer.newLine();
+                if (nonNull(chunkTerminator)) {
+                  writer.write(chunkTerminator);
+                  writer.newLine();
+                }
+                writer.flush();
+                count[0] += references.size();
+                return true;
+              });
+      String out = outputFormatter.referencesComplete(id, count[0], !completed);
+      writer.write(out);
+      writer.newLine();
+      writer.flush();
+      span.setStatusOK();
+    } catch (Throwable t) {
+      TelemetryUtils.setStatusINTERNAL(t.getMessage());
+      writeError(id, t);
+    } finally {
+      TelemetryUtils.recordCommandLatency(name, TelemetryUtils.sinceInMilliseconds(startTime));
+    }
+  }
+
+  @SuppressWarnings("try")
+  public void cancelReference(long id, String searchId) {
+    long startTime = System.nanoTime();
+    String name = "Meghanada/cancelReference";
+    try (TelemetryUtils.ParentSpan span = TelemetryUtils.startExplicitParentSpan(name);
+        TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
+      TelemetryUtils.ScopedSpan.addAnnotation(
+          TelemetryUtils.annotationBuilder().put("searchId", searchId).build("args"));
+      session.cancelReference(Long.parseLong(searchId));
+      String out = outputFormatter.cancelReference(id);
+      writer.write(out);
+      writer.newLine();
+      writer.flush();
+      span.setStatusOK();
+    } catch (Throwable t) {
+      TelemetryUtils.setStatusINTERNAL(t.getMessage());
+      writeError(id, t);
+    } finally {
+      TelemetryUtils.recordCommandLatency(name, TelemetryUtils.sinceInMilliseconds(startTime));
+    }
+  }
+
+  @SuppressWarnings("try")
+  public void callHierarchy(
+      long id, String path, String line, String column, String symbol, String direction) {
+    long startTime = System.nanoTime();
+    String name = "Meghanada/callHierarchy";
+    try (TelemetryUtils.ParentSpan span = TelemetryUtils.startExplicitParentSpan(name);
+        TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
+      TelemetryUtils.ScopedSpan.addAnnotation(
+          TelemetryUtils.annotationBuilder()
+              .put("path", path)
+              .put("line", line)
+              .put("column", column)
+              .put("symbol", symbol)
+              .put("direction", direction)
+              .build("args"));
+      int lineInt = Integer.parseInt(line);
+      int columnInt = Integer.parseInt(column);
+      Optional<String> signature =
+          session.callHierarchySignature(path, lineInt, columnInt, symbol);
+      String out =
+          signature
+              .map(
+                  s ->
+                      outputFormatter.callHierarchy(
+                          id, s, session.callHierarchy(s, isIncoming(direction))))
+              .orElseGet(() -> outputFormatter.callHierarchy(id, "", Collections.emptyList()));
+      writer.write(out);
+      writer.newLine();
+      writer.flush();
+      span.setStatusOK();
+    } catch (Throwable t) {
+      TelemetryUtils.setStatusINTERNAL(t.getMessage());
+      writeError(id, t);
+    } finally {
+      TelemetryUtils.recordCommandLatency(name, TelemetryUtils.sinceInMilliseconds(startTime));
+    }
+  }
+
+  @SuppressWarnings("try")
+  public void expandCallHierarchy(long id, String signature, String direction) {
+    long startTime = System.nanoTime();
+    String name = "Meghanada/expandCallHierarchy";
+    try (TelemetryUtils.ParentSpan span = TelemetryUtils.startExplicitParentSpan(name);
+        TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
+      TelemetryUtils.ScopedSpan.addAnnotation(
+          TelemetryUtils.annotationBuilder()
+              .put("signature", signature)
+              .put("direction", direction)
+              .build("args"));
+      List<Call> calls = session.callHierarchy(signature, isIncoming(direction));
+      String out = outputFormatter.callHierarchy(id, signature, calls);
+      writer.write(out);
+      writer.newLine();
+      writer.flush();
+      span.setStatusOK();
+    } catch (Throwable t) {
+      TelemetryUtils.setStatusINTERNAL(t.getMessage());
+      writeError(id, t);
+    } finally {
+      TelemetryUtils.recordCommandLatency(name, TelemetryUtils.sinceInMilliseconds(startTime));
+    }
+  }
+
+  private static boolean isIncoming(String direction) {
+    if (direction.equals("incoming")) {
+      return true;
+    }
+    if (direction.equals("outgoing")) {
+      return false;
+    }
+    throw new IllegalArgumentException("unknown direction " + direction);
+  }
+
   @SuppressWarnings("try")
   public void typeInfo(long id, String path, String line, String column, String symbol) {
     long startTime = System.nanoTime();
@@ -725,6 +884,68 @@ public class CommandHandler {
     }
   }
 
+  @SuppressWarnings("try")
+  public void typeHierarchy(long id, String path, String line, String column, String symbol) {
+    long startTime = System.nanoTime();
+    String name = "Meghanada/typeHierarchy";
+    try (TelemetryUtils.ParentSpan span = TelemetryUtils.startExplicitParentSpan(name);
+        TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
+      TelemetryUtils.ScopedSpan.addAnnotation(
+          TelemetryUtils.annotationBuilder()
+              .put("path", path)
+              .put("line", line)
+              .put("column", column)
+              .put("symbol", symbol)
+              .build("args"));
+      int lineInt = Integer.parseInt(line);
+      int columnInt = Integer.parseInt(column);
+      Optional<TypeHierarchy> hierarchy =
+          session.typeHierarchy(path, lineInt, columnInt, symbol);
+      TypeHierarchy result =
+          hierarchy.orElse(
+              new TypeHierarchy("", Collections.emptyList(), Collections.emptyList()));
+      String out = outputFormatter.typeHierarchy(id, result);
+      writer.write(out);
+      writer.newLine();
+      writer.flush();
+      span.setStatusOK();
+    } catch (Throwable t) {
+      TelemetryUtils.setStatusINTERNAL(t.getMessage());
+      writeError(id, t);
+    } finally {
+      TelemetryUtils.recordCommandLatency(name, TelemetryUtils.sinceInMilliseconds(startTime));
+    }
+  }
+
+  @SuppressWarnings("try")
+  public void implementations(long id, String path, String line, String column, String symbol) {
+    long startTime = System.nanoTime();
+    String name = "Meghanada/implementations";
+    try (TelemetryUtils.ParentSpan span = TelemetryUtils.startExplicitParentSpan(name);
+        TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
+      TelemetryUtils.ScopedSpan.addAnnotation(
+          TelemetryUtils.annotationBuilder()
+              .put("path", path)
+              .put("line", line)
+              .put("column", column)
+              .put("symbol", symbol)
+              .build("args"));
+      int lineInt = Integer.parseInt(line);
+      int columnInt = Integer.parseInt(column);
+      List<String> classes = session.implementations(path, lineInt, columnInt, symbol);
+      String out = outputFormatter.implementations(id, classes);
+      writer.write(out);
+      writer.newLine();
+      writer.flush();
+      span.setStatusOK();
+    } catch (Throwable t) {
+      TelemetryUtils.setStatusINTERNAL(t.getMessage());
+      writeError(id, t);
+    } finally {
+      TelemetryUtils.recordCommandLatency(name, TelemetryUtils.sinceInMilliseconds(startTime));
+    }
+  }
+
   @SuppressWarnings("try")
   public void searchEverywhere(long id, String query) {
     long startTime = System.nanoTime();
@@ -795,6 +1016,47 @@ public class CommandHandler {
     }
   }
 
+  @SuppressWarnings("try")
+  public void staticMemberScanProgress(long id) {
+    long startTime = System.nanoTime();
+    String name = "Meghanada/staticMemberScanProgress";
+    try (TelemetryUtils.ParentSpan span = TelemetryUtils.startExplicitParentSpan(name);
+        TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
+      TelemetryUtils.ScopedSpan.addAnnotation(TelemetryUtils.annotationBuilder().build("args"));
+      Optional<StaticMemberScanner.Progress> progress = session.getStaticMemberScanProgress();
+      String out = outputFormatter.staticMemberScanProgress(id, progress.orElse(null));
+      writer.write(out);
+      writer.newLine();
+      writer.flush();
+      span.setStatusOK();
+    } catch (Throwable t) {
+      TelemetryUtils.setStatusINTERNAL(t.getMessage());
+      writeError(id, t);
+    } finally {
+      TelemetryUtils.recordCommandLatency(name, TelemetryUtils.sinceInMilliseconds(startTime));
+    }
+  }
+
+  @SuppressWarnings("try")
+  public void cacheStats(long id) {
+    long startTime = System.nanoTime();
+    String name = "Meghanada/cacheStats";
+    try (TelemetryUtils.ParentSpan span = TelemetryUtils.startExplicitParentSpan(name);
+        TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
+      TelemetryUtils.ScopedSpan.addAnnotation(TelemetryUtils.annotationBuilder().build("args"));
+      String out = outputFormatter.cacheStats(id, session.getCacheStats());
+      writer.write(out);
+      writer.newLine();
+      writer.flush();
+      span.setStatusOK();
+    } catch (Throwable t) {
+      TelemetryUtils.setStatusINTERNAL(t.getMessage());
+      writeError(id, t);
+    } finally {
+      TelemetryUtils.recordCommandLatency(name, TelemetryUtils.sinceInMilliseconds(startTime));
+    }
+  }
+
   @SuppressWarnings("try")
   public void autocompleteResolve(
       long id, String path, String line, String column, String type, String item, String desc) {
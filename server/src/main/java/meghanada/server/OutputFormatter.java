@@ -4,12 +4,16 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import meghanada.analyze.CompileResult;
+import meghanada.cache.TierStats;
 import meghanada.completion.LocalVariable;
 import meghanada.docs.declaration.Declaration;
 import meghanada.index.SearchResults;
 import meghanada.location.Location;
+import meghanada.reference.Call;
 import meghanada.reference.Reference;
 import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.asm.StaticMemberScanner;
+import meghanada.typeinfo.TypeHierarchy;
 import meghanada.typeinfo.TypeInfo;
 
 public interface OutputFormatter {
@@ -22,7 +26,7 @@ public interface OutputFormatter {
 
   String diagnostics(long id, CompileResult compileResult, String path);
 
-  String autocomplete(long id, Collection<? extends CandidateUnit> units);
+  String autocomplete(long id, Collection<? extends CandidateUnit> units, boolean partial);
 
   String parse(long id, boolean result);
 
@@ -52,14 +56,30 @@ public interface OutputFormatter {
 
   String references(long id, List<Reference> references);
 
+  String referencesChunk(long id, List<Reference> references);
+
+  String referencesComplete(long id, int count, boolean cancelled);
+
+  String cancelReference(long id);
+
+  String callHierarchy(long id, String signature, List<Call> calls);
+
   String typeInfo(long id, TypeInfo typeInfo);
 
+  String typeHierarchy(long id, TypeHierarchy typeHierarchy);
+
+  String implementations(long id, List<String> classes);
+
   String killRunningProcess(long id);
 
   String searchEverywhere(long id, SearchResults r);
 
   String showProject(long id, String s);
 
+  String staticMemberScanProgress(long id, StaticMemberScanner.Progress progress);
+
+  String cacheStats(long id, Map<String, List<TierStats>> stats);
+
   String completionResolve(long id, boolean b);
 
   String importAtPoint(long id, Map<String, List<String>> result);
@@ -262,6 +262,39 @@ public class EmacsServer implements Server {
                   handler.reference(id, args.get(0), args.get(1), args.get(2), args.get(3));
                   return true;
                 })
+            .when(headTail(eq("rs"), any()))
+            .get(
+                args -> {
+                  // rs : References streamed by file, then (:complete n) or (:cancelled n)
+                  // usage: rs <filepath> <line> <column> <symbol>
+                  handler.referenceStream(id, args.get(0), args.get(1), args.get(2), args.get(3));
+                  return true;
+                })
+            .when(headTail(eq("rc"), any()))
+            .get(
+                args -> {
+                  // rc : Cancel the rs search with the id, send from another connection
+                  // usage: rc <id>
+                  handler.cancelReference(id, args.get(0));
+                  return true;
+                })
+            .when(headTail(eq("ch"), any()))
+            .get(
+                args -> {
+                  // ch : Call hierarchy, the method at point and its first level
+                  // usage: ch <filepath> <line> <column> <symbol> <incoming|outgoing>
+                  handler.callHierarchy(
+                      id, args.get(0), args.get(1), args.get(2), args.get(3), args.get(4));
+                  return true;
+                })
+            .when(headTail(eq("chx"), any()))
+            .get(
+                args -> {
+                  // chx : Expand a call hierarchy node by its signature
+                  // usage: chx <signature> <incoming|outgoing>
+                  handler.expandCallHierarchy(id, args.get(0), args.get(1));
+                  return true;
+                })
             .when(headTail(eq("ti"), any()))
             .get(
                 args -> {
@@ -270,6 +303,22 @@ public class EmacsServer implements Server {
                   handler.typeInfo(id, args.get(0), args.get(1), args.get(2), args.get(3));
                   return true;
                 })
+            .when(headTail(eq("th"), any()))
+            .get(
+                args -> {
+                  // th : Type hierarchy
+                  // usage: th <filepath> <line> <column> <symbol>
+                  handler.typeHierarchy(id, args.get(0), args.get(1), args.get(2), args.get(3));
+                  return true;
+                })
+            .when(headTail(eq("fi"), any()))
+            .get(
+                args -> {
+                  // fi : Find implementations
+                  // usage: fi <filepath> <line> <column> <symbol>
+                  handler.implementations(id, args.get(0), args.get(1), args.get(2), args.get(3));
+                  return true;
+                })
             .when(headTail(eq("bj"), any()))
             .get(
                 args -> {
@@ -342,6 +391,22 @@ public class EmacsServer implements Server {
                   handler.showProject(id);
                   return true;
                 })
+            .when(headTail(eq("ss"), any()))
+            .get(
+                args -> {
+                  // ss : Show static member scan progress
+                  // usage: ss
+                  handler.staticMemberScanProgress(id);
+                  return true;
+                })
+            .when(headTail(eq("cs"), any()))
+            .get(
+                args -> {
+                  // cs : Show cache stats per tier
+                  // usage: cs
+                  handler.cacheStats(id);
+                  return true;
+                })
             .when(headNil(eq("q")))
             .get(
                 () -> {
@@ -419,7 +484,8 @@ public class EmacsServer implements Server {
                       new BufferedWriter(new OutputStreamWriter(conn.getOutputStream(), UTF_8))) {
 
                 final CommandHandler handler =
-                    new CommandHandler(session, writer, getOutputFormatter());
+                    new CommandHandler(
+                        session, writer, getOutputFormatter(), this.outputEOT ? EOT : null);
                 boolean start = true;
                 final SExprParser parser = new SExprParser();
                 while (start) {
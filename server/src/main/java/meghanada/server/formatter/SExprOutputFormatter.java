@@ -17,13 +17,17 @@ import javax.annotation.Nullable;
 import javax.tools.Diagnostic;
 import javax.tools.JavaFileObject;
 import meghanada.analyze.CompileResult;
+import meghanada.cache.TierStats;
 import meghanada.completion.LocalVariable;
 import meghanada.docs.declaration.Declaration;
 import meghanada.index.SearchResults;
 import meghanada.location.Location;
+import meghanada.reference.Call;
 import meghanada.reference.Reference;
 import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.asm.StaticMemberScanner;
 import meghanada.server.OutputFormatter;
+import meghanada.typeinfo.TypeHierarchy;
 import meghanada.typeinfo.TypeInfo;
 import meghanada.utils.ClassNameUtils;
 import org.apache.logging.log4j.LogManager;
@@ -157,7 +161,8 @@ public class SExprOutputFormatter implements OutputFormatter {
   }
 
   @Override
-  public String autocomplete(final long id, Collection<? extends CandidateUnit> units) {
+  public String autocomplete(
+      final long id, Collection<? extends CandidateUnit> units, final boolean partial) {
     final StringBuilder sb = new StringBuilder(LPAREN);
 
     final String s =
@@ -202,6 +207,11 @@ public class SExprOutputFormatter implements OutputFormatter {
             .collect(Collectors.joining(LIST_SEP));
     sb.append(s);
     sb.append(')');
+    if (partial) {
+      // some candidate providers missed the deadline, see completion-partial-marker
+      sb.append(LIST_SEP);
+      sb.append(":partial");
+    }
     return success(sb.toString());
   }
 
@@ -329,6 +339,10 @@ public class SExprOutputFormatter implements OutputFormatter {
 
   @Override
   public String references(long id, List<Reference> references) {
+    return success(formatReferences(references));
+  }
+
+  private static String formatReferences(List<Reference> references) {
     StringBuilder sb = new StringBuilder(1024);
     sb.append(LPAREN);
     references.forEach(
@@ -353,6 +367,49 @@ public class SExprOutputFormatter implements OutputFormatter {
           sb.append(LIST_SEP);
         });
     sb.append(RPAREN);
+    return sb.toString();
+  }
+
+  @Override
+  public String referencesChunk(long id, List<Reference> references) {
+    return success(":chunk" + LIST_SEP + formatReferences(references));
+  }
+
+  @Override
+  public String referencesComplete(long id, int count, boolean cancelled) {
+    String marker = cancelled ? ":cancelled" : ":complete";
+    return success(marker + LIST_SEP + count);
+  }
+
+  @Override
+  public String cancelReference(long id) {
+    return success(LPAREN + "success" + RPAREN);
+  }
+
+  @Override
+  public String callHierarchy(long id, String signature, List<Call> calls) {
+    StringBuilder sb = new StringBuilder(1024);
+    sb.append(LPAREN);
+    sb.append(doubleQuote(signature));
+    sb.append(LIST_SEP);
+    sb.append(LPAREN);
+    calls.forEach(
+        c -> {
+          sb.append(LPAREN);
+          sb.append(doubleQuote(c.getSignature()));
+          sb.append(LIST_SEP);
+          sb.append(doubleQuote(c.getPath()));
+          sb.append(LIST_SEP);
+          sb.append(c.getLine());
+          sb.append(LIST_SEP);
+          sb.append(c.getColumn());
+          sb.append(LIST_SEP);
+          sb.append(doubleQuote(c.getCode()));
+          sb.append(RPAREN);
+          sb.append(LIST_SEP);
+        });
+    sb.append(RPAREN);
+    sb.append(RPAREN);
     return success(sb.toString());
   }
 
@@ -407,6 +464,54 @@ public class SExprOutputFormatter implements OutputFormatter {
     return success(sb.toString());
   }
 
+  @Override
+  public String typeHierarchy(long id, TypeHierarchy typeHierarchy) {
+    StringBuilder sb = new StringBuilder(1024);
+    sb.append(LPAREN);
+
+    sb.append(doubleQuote(typeHierarchy.getFqcn()));
+
+    sb.append(LIST_SEP);
+
+    sb.append(LPAREN);
+    typeHierarchy
+        .getSupers()
+        .forEach(
+            c -> {
+              sb.append(doubleQuote(c));
+              sb.append(LIST_SEP);
+            });
+    sb.append(RPAREN);
+
+    sb.append(LIST_SEP);
+
+    sb.append(LPAREN);
+    typeHierarchy
+        .getSubtypes()
+        .forEach(
+            c -> {
+              sb.append(doubleQuote(c));
+              sb.append(LIST_SEP);
+            });
+    sb.append(RPAREN);
+
+    sb.append(RPAREN);
+    return success(sb.toString());
+  }
+
+  @Override
+  public String implementations(long id, List<String> classes) {
+    StringBuilder sb = new StringBuilder(1024);
+    sb.append(LPAREN);
+    classes.forEach(
+        c -> {
+          sb.append(doubleQuote(c));
+          sb.append(LIST_SEP);
+        });
+    sb.append(RPAREN);
+    return success(sb.toString());
+  }
+
   @Override
   public String killRunningProcess(long id) {
     return success(LPAREN + "success" + RPAREN);
@@ -487,6 +592,58 @@ public class SExprOutputFormatter implements OutputFormatter {
     return success(doubleQuote(s));
   }
 
+  @Override
+  public String staticMemberScanProgress(long id, StaticMemberScanner.Progress progress) {
+    if (isNull(progress)) {
+      return success(null);
+    }
+    final String result =
+        LPAREN
+            + String.join(
+                LIST_SEP,
+                doubleQuote(progress.state.name().toLowerCase()),
+                Integer.toString(progress.total),
+                Integer.toString(progress.done),
+                Integer.toString(progress.indexed),
+                doubleQuote(progress.current),
+                Long.toString(progress.elapsed),
+                Long.toString(progress.eta))
+            + RPAREN;
+    return success(result);
+  }
+
+  @Override
+  public String cacheStats(long id, Map<String, List<TierStats>> stats) {
+    final StringBuilder sb = new StringBuilder(512);
+    sb.append(LPAREN);
+    final String str =
+        stats.entrySet().stream()
+            .map(
+                entry -> {
+                  final String tiers =
+                      entry.getValue().stream()
+                          .map(
+                              tier ->
+                                  LPAREN
+                                      + String.join(
+                                          LIST_SEP,
+                                          doubleQuote(tier.name),
+                                          Long.toString(tier.hitCount),
+                                          Long.toString(tier.missCount),
+                                          Long.toString(tier.size),
+                                          Long.toString(tier.bytes),
+                                          Long.toString(tier.evictionCount),
+                                          Long.toString(tier.dropCount))
+                                      + RPAREN)
+                          .collect(Collectors.joining(LIST_SEP));
+                  return LPAREN + doubleQuote(entry.getKey()) + LIST_SEP + tiers + RPAREN;
+                })
+            .collect(Collectors.joining(LIST_SEP));
+    sb.append(str);
+    sb.append(RPAREN);
+    return success(sb.toString());
+  }
+
   @Override
   public String completionResolve(long id, boolean b) {
     return success(doubleQuote(Boolean.toString(b)));
@@ -22,6 +22,7 @@ import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -39,6 +40,8 @@ import meghanada.analyze.Source;
 import meghanada.analyze.subscribe.IndexSubscriber;
 import meghanada.analyze.subscribe.SourceCacheSubscriber;
 import meghanada.cache.GlobalCache;
+import meghanada.cache.TierStats;
+import meghanada.completion.CompletionResult;
 import meghanada.completion.JavaCompletion;
 import meghanada.completion.JavaImportCompletion;
 import meghanada.completion.JavaVariableCompletion;
@@ -57,13 +60,16 @@ import meghanada.project.eclipse.EclipseProject;
 import meghanada.project.gradle.GradleProject;
 import meghanada.project.maven.MavenProject;
 import meghanada.project.meghanada.MeghanadaProject;
+import meghanada.reference.Call;
+import meghanada.reference.CallHierarchySearcher;
 import meghanada.reference.Reference;
 import meghanada.reference.ReferenceSearcher;
-import meghanada.reflect.CandidateUnit;
 import meghanada.reflect.asm.CachedASMReflector;
+import meghanada.reflect.asm.StaticMemberScanner;
 import meghanada.system.Executor;
 import meghanada.telemetry.ErrorReporter;
 import meghanada.telemetry.TelemetryUtils;
+import meghanada.typeinfo.TypeHierarchy;
 import meghanada.typeinfo.TypeInfo;
 import meghanada.typeinfo.TypeInfoSearcher;
 import meghanada.utils.FileUtils;
@@ -315,6 +321,7 @@ public class Session {
   }
 
   public boolean clearCache() throws IOException {
+    this.getCompletion().clearSession();
     this.currentProject.clearCache();
     return true;
   }
@@ -425,6 +432,10 @@ public class Session {
 
   public void shutdown(int timeout) {
     log.debug("session shutdown ...");
+    if (nonNull(this.completion)) {
+      this.completion.flushStatistics();
+    }
+    GlobalCache.getInstance().saveSnapshot();
     this.sessionEventBus.shutdown(timeout);
     log.debug("session shutdown done");
   }
@@ -465,15 +476,15 @@ public class Session {
     return this.importCompletion;
   }
 
-  public synchronized Collection<? extends CandidateUnit> completionAt(
+  public synchronized CompletionResult completionAt(
       String path, int line, int column, String prefix) {
     // java file only
     File file = normalize(path);
     if (!FileUtils.isJavaFile(file)) {
-      return Collections.emptyList();
+      return new CompletionResult(Collections.emptyList(), false);
     }
     boolean b = this.changeProject(path);
-    return getCompletion().completionAt(file, line, column, prefix);
+    return getCompletion().complete(file, line, column, prefix);
   }
 
   @SuppressWarnings("try")
@@ -653,9 +664,11 @@ public class Session {
       return false;
     }
     boolean b = this.changeProject(path);
+    this.getCompletion().clearSession();
     final GlobalCache globalCache = GlobalCache.getInstance();
     globalCache.invalidateSource(file);
     Optional<Source> source = Session.parseJavaSource(file);
+    source.ifPresent(globalCache::prefetchMemberDescriptors);
     return source.isPresent();
   }
 
@@ -663,12 +676,14 @@ public class Session {
     // java file only
     final File file = normalize(path);
     boolean b = this.changeProject(path);
+    this.getCompletion().clearSession();
     return currentProject.compileFile(file, true, true);
   }
 
   public synchronized CompileResult compileProject(final String path, final boolean force)
       throws IOException {
 
+    this.getCompletion().clearSession();
     final Project project = currentProject;
     final CompileResult result = project.compileJava(force);
     if (result.hasDiagnostics()) {
@@ -914,6 +929,7 @@ public class Session {
 
   public CompileResult diagnosticString(String sourceFile, String sourceCode) throws IOException {
     boolean b = this.changeProject(sourceFile);
+    this.getCompletion().clearSession();
     CompileResult result = currentProject.compileString(sourceFile, sourceCode);
     return result;
   }
@@ -933,6 +949,37 @@ public class Session {
     return searcher.searchReference(new File(path), line, column, symbol);
   }
 
+  public boolean reference(
+      final long id,
+      final String path,
+      final int line,
+      final int column,
+      final String symbol,
+      final ReferenceSearcher.ChunkConsumer consumer)
+      throws IOException, ExecutionException {
+    boolean b = this.changeProject(path);
+    final ReferenceSearcher searcher = this.getReferenceSearcher();
+    return searcher.searchReference(id, new File(path), line, column, symbol, consumer);
+  }
+
+  public Optional<String> callHierarchySignature(
+      final String path, final int line, final int column, final String symbol)
+      throws IOException, ExecutionException {
+    boolean b = this.changeProject(path);
+    return CallHierarchySearcher.getSignature(new File(path), line, column, symbol);
+  }
+
+  public List<Call> callHierarchy(final String signature, final boolean incoming) {
+    if (incoming) {
+      return CallHierarchySearcher.getIncomingCalls(signature);
+    }
+    return CallHierarchySearcher.getOutgoingCalls(signature);
+  }
+
+  public void cancelReference(final long id) {
+    this.getReferenceSearcher().cancel(id);
+  }
+
   private TypeInfoSearcher getTypeInfoSearcher() {
     if (isNull(this.typeinfoSearcher)) {
       this.typeinfoSearcher = new TypeInfoSearcher(this::getCurrentProject);
@@ -948,6 +995,20 @@ public class Session {
     return TypeInfoSearcher.search(new File(path), line, column, symbol);
   }
 
+  public Optional<TypeHierarchy> typeHierarchy(
+      final String path, final int line, final int column, final String symbol)
+      throws IOException, ExecutionException {
+    boolean b = this.changeProject(path);
+    return TypeInfoSearcher.searchHierarchy(new File(path), line, column, symbol);
+  }
+
+  public List<String> implementations(
+      final String path, final int line, final int column, final String symbol)
+      throws IOException, ExecutionException {
+    boolean b = this.changeProject(path);
+    return TypeInfoSearcher.searchImplementations(new File(path), line, column, symbol);
+  }
+
   public void killRunningProcess() {
     currentProject.killRunningProcess();
   }
@@ -960,6 +1021,18 @@ public class Session {
     return currentProject.toString();
   }
 
+  public Optional<StaticMemberScanner.Progress> getStaticMemberScanProgress() {
+    return CachedASMReflector.getInstance().getStaticMemberScanProgress();
+  }
+
+  public Map<String, List<TierStats>> getCacheStats() {
+    final GlobalCache globalCache = GlobalCache.getInstance();
+    final Map<String, List<TierStats>> result = new LinkedHashMap<>(2);
+    result.put("member", globalCache.getMemberCacheTierStats());
+    result.put("source", globalCache.getSourceCacheStats());
+    return result;
+  }
+
   @Override
   public String toString() {
     return "";
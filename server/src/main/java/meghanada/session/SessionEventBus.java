@@ -2,7 +2,6 @@ package meghanada.session;
 
 import com.google.common.base.MoreObjects;
 import java.io.File;
-import java.util.Collection;
 import java.util.List;
 import meghanada.session.subscribe.CacheEventSubscriber;
 import meghanada.session.subscribe.FileWatchEventSubscriber;
@@ -175,18 +174,6 @@ public class SessionEventBus {
     }
   }
 
-  public static class IdleCacheEvent {
-    private final Collection<String> names;
-
-    public IdleCacheEvent(Collection<String> names) {
-      this.names = names;
-    }
-
-    public Collection<String> getNames() {
-      return this.names;
-    }
-  }
-
   public IdleTimer getIdleTimer() {
     return idleTimer;
   }
@@ -9,11 +9,13 @@ import java.util.Collection;
 import meghanada.analyze.CompileResult;
 import meghanada.cache.GlobalCache;
 import meghanada.config.Config;
+import meghanada.index.IndexDatabase;
 import meghanada.project.Project;
 import meghanada.project.ProjectDependency;
 import meghanada.reflect.asm.CachedASMReflector;
 import meghanada.session.Session;
 import meghanada.session.SessionEventBus;
+import meghanada.store.DatabaseMaintenance;
 import meghanada.store.ProjectDatabaseHelper;
 import meghanada.telemetry.ErrorReporter;
 import meghanada.telemetry.TelemetryUtils;
@@ -40,6 +42,14 @@ public class CacheEventSubscriber extends AbstractSubscriber {
     }
   }
 
+  @Subscribe
+  public void on(final SessionEventBus.IdleEvent event) {
+    GlobalCache.getInstance().saveSnapshotIfStale();
+    if (DatabaseMaintenance.getInstance().runIfDue()) {
+      IndexDatabase.getInstance().compact();
+    }
+  }
+
   private void analyze() {
     final Stopwatch stopwatch = Stopwatch.createStarted();
     final Session session = super.sessionEventBus.getSession();
@@ -92,7 +102,8 @@ public class CacheEventSubscriber extends AbstractSubscriber {
     // System.gc();
     Config.showMemory();
     log.info("Ready");
-    reflector.scanAllStaticMembers();
+    GlobalCache.getInstance().restoreSnapshot();
+    reflector.scanStaticMembers(project.getCallerMap().keySet());
 
     // String db = System.getProperty("new-project-database");
     // if (nonNull(db) && db.isEmpty()) {
@@ -1,22 +1,14 @@
 package meghanada.session.subscribe;
 
-import com.google.common.collect.Sets;
 import com.google.common.eventbus.Subscribe;
-import java.io.IOException;
 import java.time.Instant;
-import java.util.Iterator;
-import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import meghanada.cache.GlobalCache;
 import meghanada.session.Session;
 import meghanada.session.SessionEventBus;
+import meghanada.system.CpuMonitor;
 import meghanada.system.Executor;
 import meghanada.telemetry.TelemetryUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import oshi.SystemInfo;
-import oshi.hardware.CentralProcessor;
-import oshi.hardware.HardwareAbstractionLayer;
 
 public class IdleMonitorSubscriber extends AbstractSubscriber {
 
@@ -26,7 +18,6 @@ public class IdleMonitorSubscriber extends AbstractSubscriber {
   private static final long WARMUP_INTERVAL = 3000;
 
   private int idleTime = 1;
-  private Set<String> queue = Sets.newConcurrentHashSet();
   private final SessionEventBus.IdleTimer idleTimer;
   private boolean started;
   private final CpuMonitor monitor;
@@ -75,41 +66,4 @@ public class IdleMonitorSubscriber extends AbstractSubscriber {
   private boolean isIdle(long now) {
     return (now - this.idleTimer.lastRun) > this.idleTime && this.monitor.getCpuUsage() < CPU_LIMIT;
   }
-
-  @Subscribe
-  public synchronized void on(SessionEventBus.IdleEvent event) {
-    Iterator<String> it = this.queue.iterator();
-    int cnt = 20;
-    while (cnt-- > 0) {
-      try {
-        if (it.hasNext()) {
-          String name = it.next();
-          GlobalCache.getInstance().loadMemberDescriptors(name);
-        }
-      } catch (IOException | ExecutionException e) {
-        log.catching(e);
-      } finally {
-        try {
-          it.remove();
-        } catch (Throwable e) {
-          //
-        }
-      }
-    }
-  }
-
-  @Subscribe
-  public void on(SessionEventBus.IdleCacheEvent event) {
-    this.queue.addAll(event.getNames());
-  }
-
-  private static class CpuMonitor {
-    private final SystemInfo si = new SystemInfo();
-    private final HardwareAbstractionLayer hal = si.getHardware();
-    private final CentralProcessor processor = hal.getProcessor();
-
-    public synchronized double getCpuUsage() {
-      return processor.getSystemCpuLoad();
-    }
-  }
 }
@@ -0,0 +1,339 @@
+package meghanada.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import jetbrains.exodus.entitystore.EntityId;
+import jetbrains.exodus.entitystore.PersistentEntityId;
+import meghanada.analyze.Source;
+import meghanada.analyze.SourceCodec;
+import meghanada.project.Project;
+import meghanada.project.eclipse.EclipseProject;
+import meghanada.project.gradle.GradleProject;
+import meghanada.project.maven.MavenProject;
+import meghanada.project.meghanada.MeghanadaProject;
+import meghanada.reflect.ClassIndex;
+import meghanada.reflect.FieldDescriptor;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.MethodDescriptor;
+
+/**
+ * Versioned binary format for the hot store types. Blobs start with a magic and the schema
+ * version, strings are written once per blob and referenced by index afterwards.
+ *
+ * <p>Blobs without the magic are FST blobs written by older releases, they are still read through
+ * FST and rewritten in this format when saved again. A new field bumps SCHEMA_VERSION and is read
+ * only when the blob version is new enough, so older blobs keep decoding, see {@link
+ * #minVersion(int)} for blobs that cannot be migrated.
+ */
+final class BinaryCodec {
+
+  static final int SCHEMA_VERSION = 2;
+
+  private static final String PROJECT_GRADLE = "gradle";
+  private static final String PROJECT_MAVEN = "maven";
+  private static final String PROJECT_ECLIPSE = "eclipse";
+  private static final String PROJECT_MEGHANADA = "meghanada";
+
+  private static final byte[] MAGIC = {(byte) 0xF0, 'M', 'G', 'B'};
+
+  private static final int TYPE_CLASS_INDEX = 1;
+  private static final int TYPE_MEMBERS = 2;
+  private static final int TYPE_STRING_MAP = 3;
+  private static final int TYPE_STRING_SET_MAP = 4;
+  private static final int TYPE_SOURCE = 5;
+  private static final int TYPE_PROJECT = 6;
+
+  private BinaryCodec() {}
+
+  static boolean isEncoded(final byte[] b) {
+    if (b.length < MAGIC.length + 1) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (b[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns null when the object is not one of the types this codec handles. */
+  @Nullable
+  static byte[] encode(final Object obj) {
+    if (obj instanceof Source) {
+      final BinaryOutput out = newOutput(TYPE_SOURCE);
+      SourceCodec.write(out, (Source) obj);
+      return out.toByteArray();
+    }
+    if (obj instanceof Project && nonNull(projectTag((Project) obj))) {
+      final BinaryOutput out = newOutput(TYPE_PROJECT);
+      out.writeString(projectTag((Project) obj));
+      ((Project) obj).writeTo(out);
+      return out.toByteArray();
+    }
+    if (obj instanceof ClassIndex) {
+      final BinaryOutput out = newOutput(TYPE_CLASS_INDEX);
+      writeClassIndex(out, (ClassIndex) obj);
+      return out.toByteArray();
+    }
+    if (obj instanceof List && isMemberList((List<?>) obj)) {
+      final BinaryOutput out = newOutput(TYPE_MEMBERS);
+      final List<?> list = (List<?>) obj;
+      out.writeVarint(list.size());
+      for (final Object o : list) {
+        out.writeMember((MemberDescriptor) o);
+      }
+      return out.toByteArray();
+    }
+    if (obj instanceof ConcurrentHashMap) {
+      // the maps are updated while they are saved, write a consistent copy
+      final List<Map.Entry<?, ?>> entries = new ArrayList<>(((Map<?, ?>) obj).entrySet());
+      final int type = mapType(entries);
+      if (type == TYPE_STRING_MAP) {
+        final BinaryOutput out = newOutput(type);
+        out.writeVarint(entries.size());
+        for (final Map.Entry<?, ?> entry : entries) {
+          out.writeString((String) entry.getKey());
+          out.writeString((String) entry.getValue());
+        }
+        return out.toByteArray();
+      }
+      if (type == TYPE_STRING_SET_MAP) {
+        final BinaryOutput out = newOutput(type);
+        out.writeVarint(entries.size());
+        for (final Map.Entry<?, ?> entry : entries) {
+          out.writeString((String) entry.getKey());
+          final List<?> set = new ArrayList<>((Set<?>) entry.getValue());
+          out.writeVarint(set.size());
+          for (final Object s : set) {
+            out.writeString((String) s);
+          }
+        }
+        return out.toByteArray();
+      }
+    }
+    return null;
+  }
+
+  static Object decode(final byte[] b) throws IOException {
+    return decode(ByteBuffer.wrap(b));
+  }
+
+  /** Decodes from the buffer position to its limit, mapped buffers are read in place. */
+  static Object decode(final ByteBuffer b) throws IOException {
+    final int start = b.position();
+    if (b.remaining() < MAGIC.length + 1) {
+      throw new IOException("unexpected end of blob");
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (b.get(start + i) != MAGIC[i]) {
+        throw new IOException("not an encoded blob");
+      }
+    }
+    final BinaryInput in = new BinaryInput(b, start + MAGIC.length);
+    final int version = in.readVarint();
+    final int type = in.readVarint();
+    if (version < minVersion(type) || version > SCHEMA_VERSION) {
+      throw new IOException("unsupported schema version " + version + " of type " + type);
+    }
+    in.setVersion(version);
+    switch (type) {
+      case TYPE_CLASS_INDEX:
+        return readClassIndex(in);
+      case TYPE_SOURCE:
+        return SourceCodec.read(in);
+      case TYPE_PROJECT:
+        return readProject(in);
+      case TYPE_MEMBERS:
+        {
+          final int size = in.readVarint();
+          final List<MemberDescriptor> list = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            list.add(in.readMember());
+          }
+          return list;
+        }
+      case TYPE_STRING_MAP:
+        {
+          final int size = in.readVarint();
+          final Map<String, String> map = new ConcurrentHashMap<>(Math.max(32, size));
+          for (int i = 0; i < size; i++) {
+            final String key = in.readString();
+            final String value = in.readString();
+            if (nonNull(key) && nonNull(value)) {
+              map.put(key, value);
+            }
+          }
+          return map;
+        }
+      case TYPE_STRING_SET_MAP:
+        {
+          final int size = in.readVarint();
+          final Map<String, Set<String>> map = new ConcurrentHashMap<>(Math.max(32, size));
+          for (int i = 0; i < size; i++) {
+            final String key = in.readString();
+            final int n = in.readVarint();
+            final Set<String> set = new HashSet<>(Math.max(16, n));
+            for (int j = 0; j < n; j++) {
+              set.add(in.readString());
+            }
+            if (nonNull(key)) {
+              map.put(key, set);
+            }
+          }
+          return map;
+        }
+      default:
+        throw new IOException("unknown type " + type);
+    }
+  }
+
+  /**
+   * The oldest schema version a type can be read from. Readers branch on {@link
+   * BinaryInput#getVersion()} to migrate blobs between it and SCHEMA_VERSION. Anything outside that
+   * range fails to decode, the loaders then return null and the source or project is parsed again
+   * and stored in the current version.
+   */
+  private static int minVersion(final int type) {
+    switch (type) {
+      case TYPE_SOURCE:
+      case TYPE_PROJECT:
+        return 2;
+      default:
+        return 1;
+    }
+  }
+
+  @Nullable
+  private static String projectTag(final Project project) {
+    if (project instanceof GradleProject) {
+      return PROJECT_GRADLE;
+    }
+    if (project instanceof MavenProject) {
+      return PROJECT_MAVEN;
+    }
+    if (project instanceof EclipseProject) {
+      return PROJECT_ECLIPSE;
+    }
+    if (project instanceof MeghanadaProject) {
+      return PROJECT_MEGHANADA;
+    }
+    return null;
+  }
+
+  private static Project readProject(final BinaryInput in) throws IOException {
+    final String tag = in.readString();
+    if (PROJECT_GRADLE.equals(tag)) {
+      return new GradleProject(in);
+    }
+    if (PROJECT_MAVEN.equals(tag)) {
+      return new MavenProject(in);
+    }
+    if (PROJECT_ECLIPSE.equals(tag)) {
+      return new EclipseProject(in);
+    }
+    if (PROJECT_MEGHANADA.equals(tag)) {
+      return new MeghanadaProject(in);
+    }
+    throw new IOException("unknown project type " + tag);
+  }
+
+  private static BinaryOutput newOutput(final int type) {
+    final BinaryOutput out = new BinaryOutput();
+    for (final byte m : MAGIC) {
+      out.writeByte(m);
+    }
+    out.writeVarint(SCHEMA_VERSION);
+    out.writeVarint(type);
+    return out;
+  }
+
+  private static boolean isMemberList(final List<?> list) {
+    for (final Object o : list) {
+      if (!(o instanceof FieldDescriptor) && !(o instanceof MethodDescriptor)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int mapType(final List<Map.Entry<?, ?>> entries) {
+    boolean strings = true;
+    boolean sets = true;
+    for (final Map.Entry<?, ?> entry : entries) {
+      if (!(entry.getKey() instanceof String)) {
+        return 0;
+      }
+      final Object value = entry.getValue();
+      strings &= value instanceof String;
+      sets &= value instanceof Set && isStringSet((Set<?>) value);
+      if (!strings && !sets) {
+        return 0;
+      }
+    }
+    return strings ? TYPE_STRING_MAP : TYPE_STRING_SET_MAP;
+  }
+
+  private static boolean isStringSet(final Set<?> set) {
+    for (final Object o : set) {
+      if (!(o instanceof String)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeClassIndex(final BinaryOutput out, final ClassIndex index) {
+    out.writeString(index.declaration);
+    out.writeStrings(index.typeParameters);
+    out.writeStrings(index.supers);
+    out.writeBoolean(index.isInterface);
+    out.writeBoolean(index.isAnnotation);
+    out.writeBoolean(index.functional);
+    out.writeString(index.name);
+    out.writeString(index.filePath);
+    out.writeString(index.memberType.name());
+    final EntityId entityId = index.entityID;
+    out.writeBoolean(nonNull(entityId));
+    if (nonNull(entityId)) {
+      out.writeVarint(entityId.getTypeId());
+      out.writeVarlong(entityId.getLocalId());
+    }
+  }
+
+  private static ClassIndex readClassIndex(final BinaryInput in) throws IOException {
+    final String declaration = in.readString();
+    final List<String> typeParameters = in.readStrings();
+    final List<String> supers = in.readStrings();
+    if (isNull(declaration)) {
+      throw new IOException("broken class index");
+    }
+    final ClassIndex index =
+        new ClassIndex(
+            declaration,
+            isNull(typeParameters) ? new ArrayList<>(0) : typeParameters,
+            isNull(supers) ? new ArrayList<>(0) : supers);
+    index.isInterface = in.readBoolean();
+    index.isAnnotation = in.readBoolean();
+    index.functional = in.readBoolean();
+    index.name = in.readString();
+    index.filePath = in.readString();
+    index.memberType = in.readMemberType();
+    if (in.readBoolean()) {
+      final int typeId = in.readVarint();
+      final long localId = in.readVarlong();
+      index.entityID = new PersistentEntityId(typeId, localId);
+    }
+    return index;
+  }
+}
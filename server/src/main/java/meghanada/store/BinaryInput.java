@@ -0,0 +1,207 @@
+package meghanada.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static meghanada.store.BinaryOutput.KIND_FIELD;
+import static meghanada.store.BinaryOutput.KIND_METHOD;
+import static meghanada.store.BinaryOutput.NEW_STRING;
+import static meghanada.store.BinaryOutput.NULL_STRING;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.FieldDescriptor;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.MethodDescriptor;
+import meghanada.reflect.MethodParameter;
+
+/**
+ * Reader side of {@link BinaryCodec}. {@link #getVersion()} is the schema version the blob was
+ * written with, readers skip fields added in later versions when it is older.
+ */
+public final class BinaryInput {
+
+  private final List<String> strings = new ArrayList<>(64);
+  private final ByteBuffer buf;
+  private final int limit;
+  private int pos;
+  private int version;
+
+  BinaryInput(final ByteBuffer buf, final int pos) {
+    this.buf = buf;
+    this.limit = buf.limit();
+    this.pos = pos;
+  }
+
+  public int getVersion() {
+    return this.version;
+  }
+
+  void setVersion(final int version) {
+    this.version = version;
+  }
+
+  public int readByte() throws IOException {
+    if (this.pos >= this.limit) {
+      throw new IOException("unexpected end of blob");
+    }
+    return this.buf.get(this.pos++) & 0xFF;
+  }
+
+  public boolean readBoolean() throws IOException {
+    return this.readByte() != 0;
+  }
+
+  public int readVarint() throws IOException {
+    return (int) this.readVarlong();
+  }
+
+  public long readVarlong() throws IOException {
+    long v = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final int b = this.readByte();
+      v |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return v;
+      }
+    }
+    throw new IOException("malformed varint");
+  }
+
+  public byte[] readBytes() throws IOException {
+    final int len = this.checkLength();
+    final byte[] bytes = new byte[len];
+    final ByteBuffer src = this.buf.duplicate();
+    src.position(this.pos);
+    src.get(bytes);
+    this.pos += len;
+    return bytes;
+  }
+
+  private int checkLength() throws IOException {
+    final int len = this.readVarint();
+    if (len < 0 || this.pos + len > this.limit) {
+      throw new IOException("unexpected end of blob");
+    }
+    return len;
+  }
+
+  @Nullable
+  public String readString() throws IOException {
+    final int ref = this.readVarint();
+    if (ref == NULL_STRING) {
+      return null;
+    }
+    if (ref == NEW_STRING) {
+      final String s;
+      if (this.buf.hasArray()) {
+        final int len = this.checkLength();
+        s = new String(this.buf.array(), this.buf.arrayOffset() + this.pos, len, UTF_8);
+        this.pos += len;
+      } else {
+        s = new String(this.readBytes(), UTF_8);
+      }
+      this.strings.add(s);
+      return s;
+    }
+    final int idx = ref - 2;
+    if (idx < 0 || idx >= this.strings.size()) {
+      throw new IOException("bad string reference " + ref);
+    }
+    return this.strings.get(idx);
+  }
+
+  @Nullable
+  public List<String> readStrings() throws IOException {
+    final int size = this.readVarint();
+    if (size == 0) {
+      return null;
+    }
+    final List<String> list = new ArrayList<>(size - 1);
+    for (int i = 0; i < size - 1; i++) {
+      list.add(this.readString());
+    }
+    return list;
+  }
+
+  @Nullable
+  public Map<String, String> readStringMap() throws IOException {
+    final int size = this.readVarint();
+    if (size == 0) {
+      return null;
+    }
+    final Map<String, String> map = new HashMap<>(Math.max(2, size - 1));
+    for (int i = 0; i < size - 1; i++) {
+      map.put(this.readString(), this.readString());
+    }
+    return map;
+  }
+
+  public MemberDescriptor readMember() throws IOException {
+    final int kind = this.readVarint();
+    final String declaringClass = this.readString();
+    final String name = this.readString();
+    final String modifier = this.readString();
+    final String returnType = this.readString();
+    final CandidateUnit.MemberType memberType = this.readMemberType();
+    final boolean hasDefault = this.readBoolean();
+    final Map<String, String> typeParameterMap = this.readStringMap();
+    final List<String> typeParameters = this.readStrings();
+    if (isNull(declaringClass) || isNull(name)) {
+      throw new IOException("broken member");
+    }
+
+    final MemberDescriptor md;
+    if (kind == KIND_METHOD) {
+      final int size = this.readVarint();
+      final List<MethodParameter> parameters = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        final String type = this.readString();
+        final String paramName = this.readString();
+        final boolean varargs = this.readBoolean();
+        parameters.add(new MethodParameter(type, paramName, varargs));
+      }
+      final List<String> exceptions = this.readStrings();
+      final MethodDescriptor m =
+          new MethodDescriptor(
+              declaringClass,
+              name,
+              modifier,
+              parameters,
+              isNull(exceptions) ? null : exceptions.toArray(new String[0]),
+              returnType,
+              hasDefault,
+              memberType);
+      m.formalType = this.readString();
+      m.hasVarargs = this.readBoolean();
+      md = m;
+    } else if (kind == KIND_FIELD) {
+      md = new FieldDescriptor(declaringClass, name, modifier, returnType);
+      md.memberType = memberType;
+      md.hasDefault = hasDefault;
+    } else {
+      throw new IOException("unknown member kind " + kind);
+    }
+    md.typeParameterMap = typeParameterMap;
+    md.typeParameters = isNull(typeParameters) ? null : new HashSet<>(typeParameters);
+    return md;
+  }
+
+  CandidateUnit.MemberType readMemberType() throws IOException {
+    final String name = this.readString();
+    if (isNull(name)) {
+      throw new IOException("broken member type");
+    }
+    try {
+      return CandidateUnit.MemberType.valueOf(name);
+    } catch (IllegalArgumentException e) {
+      throw new IOException(e);
+    }
+  }
+}
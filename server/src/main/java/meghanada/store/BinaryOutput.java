@@ -0,0 +1,134 @@
+package meghanada.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.MethodDescriptor;
+import meghanada.reflect.MethodParameter;
+
+/** Writer side of {@link BinaryCodec}, strings are written once per blob. */
+public final class BinaryOutput {
+
+  static final int NULL_STRING = 0;
+  static final int NEW_STRING = 1;
+  static final int KIND_FIELD = 1;
+  static final int KIND_METHOD = 2;
+
+  private final Map<String, Integer> strings = new HashMap<>(64);
+  private byte[] buf = new byte[256];
+  private int pos;
+
+  BinaryOutput() {}
+
+  private void ensure(final int n) {
+    if (this.pos + n > this.buf.length) {
+      this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length * 2, this.pos + n));
+    }
+  }
+
+  public void writeByte(final int b) {
+    this.ensure(1);
+    this.buf[this.pos++] = (byte) b;
+  }
+
+  public void writeBoolean(final boolean b) {
+    this.writeByte(b ? 1 : 0);
+  }
+
+  public void writeVarint(final int v) {
+    this.writeVarlong(v & 0xFFFFFFFFL);
+  }
+
+  public void writeVarlong(long v) {
+    this.ensure(10);
+    while ((v & ~0x7FL) != 0) {
+      this.buf[this.pos++] = (byte) ((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    this.buf[this.pos++] = (byte) v;
+  }
+
+  public void writeBytes(final byte[] b) {
+    this.writeVarint(b.length);
+    this.ensure(b.length);
+    System.arraycopy(b, 0, this.buf, this.pos, b.length);
+    this.pos += b.length;
+  }
+
+  public void writeString(@Nullable final String s) {
+    if (isNull(s)) {
+      this.writeVarint(NULL_STRING);
+      return;
+    }
+    final Integer ref = this.strings.get(s);
+    if (nonNull(ref)) {
+      this.writeVarint(ref + 2);
+      return;
+    }
+    this.strings.put(s, this.strings.size());
+    this.writeVarint(NEW_STRING);
+    this.writeBytes(s.getBytes(UTF_8));
+  }
+
+  public void writeStrings(@Nullable final Iterable<String> list) {
+    if (isNull(list)) {
+      this.writeVarint(0);
+      return;
+    }
+    int size = 0;
+    for (final String ignored : list) {
+      size++;
+    }
+    this.writeVarint(size + 1);
+    for (final String s : list) {
+      this.writeString(s);
+    }
+  }
+
+  public void writeStringMap(@Nullable final Map<String, String> map) {
+    if (isNull(map)) {
+      this.writeVarint(0);
+      return;
+    }
+    this.writeVarint(map.size() + 1);
+    for (final Map.Entry<String, String> entry : map.entrySet()) {
+      this.writeString(entry.getKey());
+      this.writeString(entry.getValue());
+    }
+  }
+
+  public void writeMember(final MemberDescriptor md) {
+    final boolean method = md instanceof MethodDescriptor;
+    this.writeVarint(method ? KIND_METHOD : KIND_FIELD);
+    this.writeString(md.declaringClass);
+    this.writeString(md.name);
+    this.writeString(md.modifier);
+    this.writeString(md.returnType);
+    this.writeString(md.memberType.name());
+    this.writeBoolean(md.hasDefault);
+    this.writeStringMap(md.typeParameterMap);
+    this.writeStrings(md.typeParameters);
+    if (method) {
+      final MethodDescriptor m = (MethodDescriptor) md;
+      this.writeVarint(m.parameters.size());
+      for (final MethodParameter p : m.parameters) {
+        this.writeString(p.type);
+        this.writeString(p.name);
+        this.writeBoolean(p.varargs);
+      }
+      this.writeStrings(isNull(m.exceptions) ? null : Arrays.asList(m.exceptions));
+      this.writeString(m.formalType);
+      this.writeBoolean(m.hasVarargs);
+    }
+  }
+
+  byte[] toByteArray() {
+    return Arrays.copyOf(this.buf, this.pos);
+  }
+}
@@ -0,0 +1,326 @@
+package meghanada.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+import meghanada.telemetry.ErrorReporter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Deflates blobs with a preset dictionary per blob kind (entity type and property). The first
+ * blobs of a kind are sampled to build its dictionary, which is written to a file before any blob
+ * uses it.
+ */
+class BlobCompressor {
+
+  private static final Logger log = LogManager.getLogger(BlobCompressor.class);
+
+  private static final byte[] MAGIC = {(byte) 0xF1, 'Z', 'B'};
+  private static final int HEADER_SIZE = MAGIC.length + 8;
+  private static final int NO_DICTIONARY = 0;
+  // deflate only looks back 32KB
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+  private static final int TRAINING_SAMPLES = 32;
+  private static final int MIN_BLOB_SIZE = 128;
+  private static final int BUFFER_SIZE = 8192;
+  private static final String DICTIONARY_SUFFIX = ".dict";
+  private static final String STATS_FILE = "stats.properties";
+
+  private final File dir;
+  private final boolean enabled;
+  private final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>(16);
+  private final Map<String, Integer> current = new ConcurrentHashMap<>(16);
+  private final Map<String, List<byte[]>> samples = new ConcurrentHashMap<>(16);
+  private final Map<String, Stats> stats = new ConcurrentHashMap<>(16);
+  private final AtomicInteger lastId = new AtomicInteger(NO_DICTIONARY);
+  private final AtomicLong decodes = new AtomicLong();
+  private final AtomicLong decodeNanos = new AtomicLong();
+
+  BlobCompressor(final File dir, final boolean enabled) {
+    this.dir = dir;
+    this.enabled = enabled;
+    this.load();
+  }
+
+  static boolean isCompressed(final byte[] b) {
+    if (b.length < HEADER_SIZE) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (b[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String encodeKind(final String kind) {
+    return kind.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  private void load() {
+    final File[] files = this.dir.listFiles();
+    if (isNull(files)) {
+      return;
+    }
+    for (final File file : files) {
+      final String name = file.getName();
+      if (!name.endsWith(DICTIONARY_SUFFIX)) {
+        continue;
+      }
+      // <id>_<kind>.dict
+      final int sep = name.indexOf('_');
+      if (sep <= 0) {
+        continue;
+      }
+      try {
+        final int id = Integer.parseInt(name.substring(0, sep));
+        final String kind = name.substring(sep + 1, name.length() - DICTIONARY_SUFFIX.length());
+        this.dictionaries.put(id, Files.readAllBytes(file.toPath()));
+        this.current.merge(kind, id, Math::max);
+        this.lastId.accumulateAndGet(id, Math::max);
+      } catch (NumberFormatException | IOException e) {
+        log.warn("broken dictionary {} {}", file, e.getMessage());
+      }
+    }
+    this.loadStats();
+  }
+
+  byte[] compress(final String kind, final byte[] raw) {
+    if (!this.enabled || raw.length < MIN_BLOB_SIZE) {
+      return raw;
+    }
+    final String key = encodeKind(kind);
+    Integer id = this.current.get(key);
+    if (isNull(id)) {
+      id = this.train(key, raw);
+    }
+    final byte[] dictionary = id == NO_DICTIONARY ? null : this.dictionaries.get(id);
+    final byte[] b = deflate(raw, dictionary, id);
+    final Stats s = this.stats.computeIfAbsent(key, k -> new Stats());
+    s.blobs.incrementAndGet();
+    s.rawBytes.addAndGet(raw.length);
+    if (b.length >= raw.length) {
+      s.storedBytes.addAndGet(raw.length);
+      return raw;
+    }
+    s.storedBytes.addAndGet(b.length);
+    return b;
+  }
+
+  private int train(final String kind, final byte[] raw) {
+    final List<byte[]> list = this.samples.computeIfAbsent(kind, k -> new ArrayList<>(8));
+    final List<byte[]> trainingSet;
+    synchronized (list) {
+      if (this.current.containsKey(kind)) {
+        return this.current.get(kind);
+      }
+      list.add(raw);
+      if (list.size() < TRAINING_SAMPLES) {
+        return NO_DICTIONARY;
+      }
+      trainingSet = new ArrayList<>(list);
+      list.clear();
+    }
+    // an even share of every sample, the headers and type names repeat across blobs
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(DICTIONARY_SIZE);
+    final int share = DICTIONARY_SIZE / trainingSet.size();
+    for (final byte[] sample : trainingSet) {
+      out.write(sample, 0, Math.min(share, sample.length));
+    }
+    final byte[] dictionary = out.toByteArray();
+    final int id = this.lastId.incrementAndGet();
+    try {
+      this.saveDictionary(id, kind, dictionary);
+    } catch (IOException e) {
+      log.catching(e);
+      ErrorReporter.report(e);
+      this.samples.remove(kind);
+      return NO_DICTIONARY;
+    }
+    this.dictionaries.put(id, dictionary);
+    this.current.put(kind, id);
+    this.samples.remove(kind);
+    log.debug("trained dictionary {} for {} from {} blobs", id, kind, trainingSet.size());
+    return id;
+  }
+
+  private void saveDictionary(final int id, final String kind, final byte[] dictionary)
+      throws IOException {
+    if (!this.dir.exists() && !this.dir.mkdirs()) {
+      throw new IOException("mkdirs fail " + this.dir);
+    }
+    final File file = new File(this.dir, id + "_" + kind + DICTIONARY_SUFFIX);
+    final File tmp = new File(this.dir, file.getName() + ".tmp");
+    try (OutputStream out = new FileOutputStream(tmp)) {
+      out.write(dictionary);
+    }
+    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static byte[] deflate(
+      final byte[] raw, @Nullable final byte[] dictionary, final int dictionaryId) {
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      if (nonNull(dictionary)) {
+        deflater.setDictionary(dictionary);
+      }
+      deflater.setInput(raw);
+      deflater.finish();
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + HEADER_SIZE);
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.put(MAGIC).putInt(dictionaryId).putInt(raw.length);
+      out.write(header.array(), 0, HEADER_SIZE);
+      final byte[] buf = new byte[BUFFER_SIZE];
+      while (!deflater.finished()) {
+        final int n = deflater.deflate(buf);
+        out.write(buf, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  byte[] decompress(final byte[] b) throws IOException {
+    final long start = System.nanoTime();
+    final ByteBuffer header = ByteBuffer.wrap(b, MAGIC.length, 8);
+    final int id = header.getInt();
+    final int length = header.getInt();
+    final byte[] dictionary = id == NO_DICTIONARY ? null : this.dictionaries.get(id);
+    if (id != NO_DICTIONARY && isNull(dictionary)) {
+      throw new IOException("missing dictionary " + id);
+    }
+    final byte[] raw = new byte[length];
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(b, HEADER_SIZE, b.length - HEADER_SIZE);
+      int pos = 0;
+      while (pos < length) {
+        final int n = inflater.inflate(raw, pos, length - pos);
+        if (n == 0) {
+          if (inflater.needsDictionary() && nonNull(dictionary)) {
+            inflater.setDictionary(dictionary);
+            continue;
+          }
+          if (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()) {
+            throw new IOException("truncated blob");
+          }
+        }
+        pos += n;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    } finally {
+      inflater.end();
+    }
+    this.decodes.incrementAndGet();
+    this.decodeNanos.addAndGet(System.nanoTime() - start);
+    return raw;
+  }
+
+  private void loadStats() {
+    final File file = new File(this.dir, STATS_FILE);
+    if (!file.exists()) {
+      return;
+    }
+    final Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(file)) {
+      properties.load(in);
+    } catch (IOException e) {
+      log.warn("broken stats {}", e.getMessage());
+      return;
+    }
+    for (final String name : properties.stringPropertyNames()) {
+      // <kind>.blobs etc.
+      final int sep = name.lastIndexOf('.');
+      if (sep <= 0) {
+        continue;
+      }
+      final Stats s = this.stats.computeIfAbsent(name.substring(0, sep), k -> new Stats());
+      try {
+        s.set(name.substring(sep + 1), Long.parseLong(properties.getProperty(name)));
+      } catch (NumberFormatException e) {
+        log.warn("broken stats {}", name);
+      }
+    }
+  }
+
+  /** Writes the cumulative statistics next to the dictionaries. */
+  void saveStats() {
+    final long n = this.decodes.get();
+    if (n > 0) {
+      log.info("blob compression decoded:{} avg:{}us", n, this.decodeNanos.get() / n / 1000);
+    }
+    if (this.stats.isEmpty() || (!this.dir.exists() && !this.dir.mkdirs())) {
+      return;
+    }
+    final Properties properties = new Properties();
+    this.stats.forEach(
+        (kind, s) -> {
+          properties.setProperty(kind + ".blobs", Long.toString(s.blobs.get()));
+          properties.setProperty(kind + ".rawBytes", Long.toString(s.rawBytes.get()));
+          properties.setProperty(kind + ".storedBytes", Long.toString(s.storedBytes.get()));
+          log.info("blob compression {} {}", kind, s);
+        });
+    try (OutputStream out = new FileOutputStream(new File(this.dir, STATS_FILE))) {
+      properties.store(out, "blob compression");
+    } catch (IOException e) {
+      log.warn("fail save stats {}", e.getMessage());
+    }
+  }
+
+  private static class Stats {
+
+    private final AtomicLong blobs = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    void set(final String name, final long value) {
+      switch (name) {
+        case "blobs":
+          this.blobs.set(value);
+          break;
+        case "rawBytes":
+          this.rawBytes.set(value);
+          break;
+        case "storedBytes":
+          this.storedBytes.set(value);
+          break;
+        default:
+          break;
+      }
+    }
+
+    @Override
+    public String toString() {
+      final long raw = this.rawBytes.get();
+      final double ratio = raw == 0 ? 1.0 : (double) this.storedBytes.get() / raw;
+      return String.format(
+          "blobs:%d raw:%d stored:%d ratio:%.2f",
+          this.blobs.get(), raw, this.storedBytes.get(), ratio);
+    }
+  }
+}
@@ -0,0 +1,312 @@
+package meghanada.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jetbrains.exodus.entitystore.Entity;
+import jetbrains.exodus.entitystore.EntityId;
+import jetbrains.exodus.entitystore.EntityIterable;
+import jetbrains.exodus.entitystore.StoreTransaction;
+import meghanada.analyze.BlockScope;
+import meghanada.analyze.ClassScope;
+import meghanada.analyze.MethodCall;
+import meghanada.analyze.MethodScope;
+import meghanada.analyze.Range;
+import meghanada.analyze.Source;
+import meghanada.telemetry.ErrorReporter;
+import meghanada.utils.ClassNameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Persisted method call graph. The call sites of a source file are grouped by the calling method
+ * signature and the called method (declaring class and name), only these two keys are indexed and
+ * the positions and argument types of the group are kept in one blob. Both directions of a call
+ * hierarchy level are a single property index lookup. The groups are linked from the source entity
+ * and rewritten in the same transaction that stores the source.
+ */
+public class CallGraph {
+
+  public static final String ENTITY_TYPE = "CallSites";
+  public static final String CONSTRUCTOR = "<init>";
+
+  private static final Logger log = LogManager.getLogger(CallGraph.class);
+
+  private static final String PROP_CALLER = "caller";
+  private static final String PROP_CALLEE = "callee";
+  // renamed with the format, sites of older versions are skipped until they are collected again
+  private static final String BLOB_PROP_SITES = "sites2";
+  private static final String LINK_CALL_SITES = "callSites";
+  // set on the source entity, sources without the current version are collected in the background
+  private static final String PROP_INDEXED = "callGraphIndexed";
+  private static final int VERSION = 2;
+  private static final int TRANSACTION_SIZE = 256;
+  private static final String VARARGS = "...";
+
+  private CallGraph() {}
+
+  /** Returns the key of the called method, {@code declaringClass#name}. */
+  public static String calleeKey(String declaringClass, String name) {
+    String clazz = ClassNameUtils.removeTypeParameter(declaringClass);
+    return ClassNameUtils.replaceInnerMark(clazz) + '#' + name;
+  }
+
+  /** Returns the signature of a method, {@code declaringClass#name(param,...)}. */
+  public static String signature(
+      String declaringClass, String name, List<String> parameters, boolean varargs) {
+    List<String> params = new ArrayList<>(parameters.size());
+    for (String p : parameters) {
+      params.add(ClassNameUtils.removeTypeParameter(p));
+    }
+    String s = calleeKey(declaringClass, name) + '(' + Joiner.on(',').join(params);
+    return varargs && !params.isEmpty() ? s + VARARGS + ')' : s + ')';
+  }
+
+  public static String getKey(String signature) {
+    int i = signature.indexOf('(');
+    return i < 0 ? signature : signature.substring(0, i);
+  }
+
+  public static List<String> getParameters(String signature) {
+    int start = signature.indexOf('(');
+    int end = signature.lastIndexOf(')');
+    if (start < 0 || end <= start + 1) {
+      return Collections.emptyList();
+    }
+    String params = signature.substring(start + 1, end);
+    if (params.endsWith(VARARGS)) {
+      params = params.substring(0, params.length() - VARARGS.length());
+    }
+    return Splitter.on(',').splitToList(params);
+  }
+
+  public static boolean isVarargs(String signature) {
+    return signature.endsWith(VARARGS + ')');
+  }
+
+  public static boolean isConstructorCall(MethodCall mc) {
+    // this(...) and super(...) are recorded with the keyword
+    return mc.constructor || "super".equals(mc.scope) || "this".equals(mc.name);
+  }
+
+  private static void collectEdges(String filePath, ClassScope cs, List<Edge> edges) {
+    for (BlockScope bs : cs.getScopes()) {
+      if (!(bs instanceof MethodScope)) {
+        continue;
+      }
+      MethodScope ms = (MethodScope) bs;
+      String name = ms.isConstructor() ? CONSTRUCTOR : ms.getName();
+      String caller = signature(cs.getFQCN(), name, ms.getParameters(), ms.vararg);
+      for (MethodCall mc : ms.getMethodCalls()) {
+        if (isNull(mc.declaringClass)) {
+          continue;
+        }
+        String calleeName = isConstructorCall(mc) ? CONSTRUCTOR : mc.name;
+        Range range = mc.nameRange;
+        edges.add(
+            new Edge(
+                caller,
+                calleeKey(mc.declaringClass, calleeName),
+                mc.getArguments(),
+                filePath,
+                range.begin.line,
+                range.begin.column));
+      }
+    }
+    for (ClassScope inner : cs.getClassScopes()) {
+      collectEdges(filePath, inner, edges);
+    }
+  }
+
+  static List<Edge> collect(Source source) {
+    List<Edge> edges = new ArrayList<>(64);
+    for (ClassScope cs : source.getClassScopes()) {
+      collectEdges(source.filePath, cs, edges);
+    }
+    return edges;
+  }
+
+  /** Replaces the call sites of the source. Called in the transaction that stores the source. */
+  public static void update(StoreTransaction txn, Entity sourceEntity, Source source) {
+    deleteLinked(sourceEntity);
+    Map<String, List<Edge>> groups = new LinkedHashMap<>(64);
+    for (Edge edge : collect(source)) {
+      groups.computeIfAbsent(edge.caller + '\n' + edge.callee, k -> new ArrayList<>(4)).add(edge);
+    }
+    for (List<Edge> group : groups.values()) {
+      Edge first = group.get(0);
+      Entity entity = txn.newEntity(ENTITY_TYPE);
+      entity.setProperty(PROP_CALLER, first.caller);
+      entity.setProperty(PROP_CALLEE, first.callee);
+      entity.setBlob(BLOB_PROP_SITES, new ByteArrayInputStream(encode(source.filePath, group)));
+      boolean b = sourceEntity.addLink(LINK_CALL_SITES, entity);
+    }
+    sourceEntity.setProperty(PROP_INDEXED, VERSION);
+  }
+
+  private static void deleteLinked(Entity sourceEntity) {
+    for (Entity entity : sourceEntity.getLinks(LINK_CALL_SITES)) {
+      boolean b = entity.delete();
+    }
+    sourceEntity.deleteLinks(LINK_CALL_SITES);
+  }
+
+  static void deleteEdges(StoreTransaction txn, String filePath) {
+    for (Entity entity : txn.find(Source.ENTITY_TYPE, ProjectDatabase.ID, filePath)) {
+      deleteLinked(entity);
+    }
+  }
+
+  /** Collects the call sites of the sources that were stored before the call graph existed. */
+  static void indexMissingSources(ProjectDatabase database) {
+    List<EntityId> missing =
+        database.computeInReadonly(
+            txn -> {
+              EntityIterable indexed = txn.find(Source.ENTITY_TYPE, PROP_INDEXED, VERSION);
+              List<EntityId> list = new ArrayList<>(8);
+              for (Entity entity : txn.getAll(Source.ENTITY_TYPE).minus(indexed)) {
+                list.add(entity.getId());
+              }
+              return list;
+            });
+    if (missing.isEmpty()) {
+      return;
+    }
+    log.info("collect call sites of {} sources", missing.size());
+    for (int i = 0; i < missing.size(); i += TRANSACTION_SIZE) {
+      List<EntityId> chunk = missing.subList(i, Math.min(missing.size(), i + TRANSACTION_SIZE));
+      boolean b =
+          database.execute(
+              txn -> {
+                for (EntityId entityId : chunk) {
+                  Entity entity = txn.getEntity(entityId);
+                  try (InputStream in = entity.getBlob(ProjectDatabase.SERIALIZE_KEY)) {
+                    Source source = Serializer.readObject(in, Source.class);
+                    if (nonNull(source)) {
+                      update(txn, entity, source);
+                    }
+                  } catch (Exception e) {
+                    log.catching(e);
+                    ErrorReporter.report(e);
+                  }
+                }
+                return true;
+              });
+    }
+  }
+
+  /** Returns the call sites of the methods, keys are {@link #calleeKey(String, String)}. */
+  public static List<Edge> getCallers(Collection<String> calleeKeys) {
+    ProjectDatabase database = ProjectDatabase.getInstance();
+    return database.computeInReadonly(
+        txn -> {
+          List<Edge> result = new ArrayList<>(16);
+          for (String key : calleeKeys) {
+            for (Entity entity : txn.find(ENTITY_TYPE, PROP_CALLEE, key)) {
+              readEdges(entity, result);
+            }
+          }
+          return result;
+        });
+  }
+
+  /** Returns the call sites in the method. */
+  public static List<Edge> getCallees(String callerSignature) {
+    ProjectDatabase database = ProjectDatabase.getInstance();
+    return database.computeInReadonly(
+        txn -> {
+          List<Edge> result = new ArrayList<>(16);
+          for (Entity entity : txn.find(ENTITY_TYPE, PROP_CALLER, callerSignature)) {
+            readEdges(entity, result);
+          }
+          return result;
+        });
+  }
+
+  private static void readEdges(Entity entity, List<Edge> result) {
+    String caller = (String) entity.getProperty(PROP_CALLER);
+    String callee = (String) entity.getProperty(PROP_CALLEE);
+    try (InputStream in = entity.getBlob(BLOB_PROP_SITES)) {
+      if (nonNull(in)) {
+        decode(caller, callee, in, result);
+      }
+    } catch (IOException e) {
+      log.warn("broken call sites {} {}", caller, e.getMessage());
+    }
+  }
+
+  private static byte[] encode(String filePath, List<Edge> edges) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(edges.size() * 32);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      ReferenceIndex.writeString(out, filePath);
+      out.writeInt(edges.size());
+      for (Edge edge : edges) {
+        out.writeInt((int) edge.line);
+        out.writeInt((int) edge.column);
+        out.writeInt(edge.arguments.size());
+        for (String argument : edge.arguments) {
+          ReferenceIndex.writeString(out, nonNull(argument) ? argument : "");
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void decode(String caller, String callee, InputStream input, List<Edge> result)
+      throws IOException {
+    DataInputStream in = new DataInputStream(input);
+    String filePath = ReferenceIndex.readString(in);
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      int line = in.readInt();
+      int column = in.readInt();
+      int n = in.readInt();
+      List<String> arguments = n == 0 ? Collections.emptyList() : new ArrayList<>(n);
+      for (int j = 0; j < n; j++) {
+        arguments.add(ReferenceIndex.readString(in));
+      }
+      result.add(new Edge(caller, callee, arguments, filePath, line, column));
+    }
+  }
+
+  public static class Edge {
+
+    public final String caller;
+    public final String callee;
+    public final List<String> arguments;
+    public final String filePath;
+    public final long line;
+    public final long column;
+
+    Edge(
+        String caller,
+        String callee,
+        List<String> arguments,
+        String filePath,
+        long line,
+        long column) {
+      this.caller = caller;
+      this.callee = callee;
+      this.arguments = arguments;
+      this.filePath = filePath;
+      this.line = line;
+      this.column = column;
+    }
+  }
+}
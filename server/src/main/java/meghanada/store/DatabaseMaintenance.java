@@ -0,0 +1,196 @@
+package meghanada.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.base.Stopwatch;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jetbrains.exodus.entitystore.Entity;
+import jetbrains.exodus.entitystore.EntityId;
+import meghanada.config.Config;
+import meghanada.reflect.ClassIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs the project database maintenance in idle windows: prunes the jar snapshots of removed or
+ * changed jars, keeps the database under the size budget by dropping the least recently used
+ * member blobs, runs the Xodus GC and logs the size of each entity type, estimated from a sample
+ * of its entities.
+ */
+public class DatabaseMaintenance {
+
+  private static final Logger log = LogManager.getLogger(DatabaseMaintenance.class);
+
+  private static final long INTERVAL = TimeUnit.MINUTES.toMillis(30);
+  private static final int TRANSACTION_SIZE = 1024;
+  private static final int STATS_SAMPLE_SIZE = 64;
+  // evict a bit more than the overrun so the next run has some room
+  private static final double HEADROOM = 0.1;
+
+  private static DatabaseMaintenance maintenance;
+
+  private final Map<String, Long> memberAccess = new ConcurrentHashMap<>(1024);
+  private final AtomicBoolean running = new AtomicBoolean(false);
+  private long lastRun = System.currentTimeMillis();
+
+  private DatabaseMaintenance() {}
+
+  public static synchronized DatabaseMaintenance getInstance() {
+    if (isNull(maintenance)) {
+      maintenance = new DatabaseMaintenance();
+    }
+    return maintenance;
+  }
+
+  void touchMembers(String fqcn) {
+    Long prev = this.memberAccess.put(fqcn, System.currentTimeMillis());
+  }
+
+  /** Returns true when the maintenance was due and has run. */
+  public boolean runIfDue() {
+    long now = System.currentTimeMillis();
+    if (now - this.lastRun < INTERVAL || !this.running.compareAndSet(false, true)) {
+      return false;
+    }
+    try {
+      this.lastRun = now;
+      this.run();
+      return true;
+    } catch (Exception e) {
+      log.warn("failed database maintenance {}", e.getMessage());
+      return false;
+    } finally {
+      this.running.set(false);
+    }
+  }
+
+  private void run() {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    ProjectDatabase database = ProjectDatabase.getInstance();
+    long budget = Config.load().getDatabaseSizeBudget();
+    long snapshots = database.getSnapshotStore().prune();
+    long size = getDiskSize(database) + snapshots;
+    if (budget > 0 && size > budget) {
+      long target = (long) ((size - budget) + budget * HEADROOM);
+      long freed = this.evictMembers(database, target);
+      log.info("database size:{} budget:{} evicted members:{}", size, budget, freed);
+    }
+    // read before the GC so no snapshot is held while it cleans files
+    this.logEntityStats(database);
+    database.runGC();
+    log.info(
+        "database maintenance size:{} snapshots:{} elapsed:{}",
+        getDiskSize(database),
+        snapshots,
+        stopwatch.stop());
+  }
+
+  private static long getDiskSize(ProjectDatabase database) {
+    File[] files = new File(database.getBaseLocation(), "project").listFiles();
+    long size = 0;
+    if (nonNull(files)) {
+      for (File file : files) {
+        size += file.length();
+      }
+    }
+    return size;
+  }
+
+  private long evictMembers(ProjectDatabase database, long target) {
+    List<MemberBlob> blobs =
+        database.computeInReadonly(
+            txn -> {
+              List<MemberBlob> list = new ArrayList<>(1024);
+              String blobName = ProjectDatabaseHelper.BLOB_PROP_MEMBERS;
+              for (Entity entity : txn.findWithBlob(ClassIndex.ENTITY_TYPE, blobName)) {
+                Comparable<?> id = entity.getProperty(ProjectDatabase.ID);
+                if (isNull(id)) {
+                  continue;
+                }
+                // accessed in this session, or else saved
+                long lastAccess = 0;
+                Long access = this.memberAccess.get(id.toString());
+                Comparable<?> saved = entity.getProperty(ProjectDatabaseHelper.PROP_MEMBERS_SAVED);
+                if (nonNull(access)) {
+                  lastAccess = access;
+                } else if (saved instanceof Long) {
+                  lastAccess = (Long) saved;
+                }
+                long size = entity.getBlobSize(blobName);
+                list.add(new MemberBlob(entity.getId(), lastAccess, size));
+              }
+              return list;
+            });
+    blobs.sort(Comparator.comparingLong(b -> b.lastAccess));
+
+    List<EntityId> evict = new ArrayList<>(1024);
+    long freed = 0;
+    for (MemberBlob blob : blobs) {
+      if (freed >= target) {
+        break;
+      }
+      evict.add(blob.entityId);
+      freed += blob.size;
+    }
+    for (int i = 0; i < evict.size(); i += TRANSACTION_SIZE) {
+      List<EntityId> chunk = evict.subList(i, Math.min(evict.size(), i + TRANSACTION_SIZE));
+      boolean b =
+          database.execute(
+              txn -> {
+                for (EntityId entityId : chunk) {
+                  Entity entity = txn.getEntity(entityId);
+                  boolean deleted = entity.deleteBlob(ProjectDatabaseHelper.BLOB_PROP_MEMBERS);
+                }
+                return true;
+              });
+    }
+    return freed;
+  }
+
+  private void logEntityStats(ProjectDatabase database) {
+    Map<String, long[]> stats =
+        database.computeInReadonly(
+            txn -> {
+              Map<String, long[]> map = new TreeMap<>();
+              for (String type : txn.getEntityTypes()) {
+                long count = txn.getAll(type).size();
+                // the blob bytes are estimated from the first entities
+                long sampled = 0;
+                long bytes = 0;
+                for (Entity entity : txn.getAll(type).take(STATS_SAMPLE_SIZE)) {
+                  sampled++;
+                  for (String blob : entity.getBlobNames()) {
+                    bytes += entity.getBlobSize(blob);
+                  }
+                }
+                long blobs = sampled == 0 ? 0 : bytes * count / sampled;
+                map.put(type, new long[] {count, blobs});
+              }
+              return map;
+            });
+    stats.forEach(
+        (type, stat) -> log.info("entity {} count:{} blobs:~{}", type, stat[0], stat[1]));
+  }
+
+  private static class MemberBlob {
+
+    private final EntityId entityId;
+    private final long lastAccess;
+    private final long size;
+
+    MemberBlob(EntityId entityId, long lastAccess, long size) {
+      this.entityId = entityId;
+      this.lastAccess = lastAccess;
+      this.size = size;
+    }
+  }
+}
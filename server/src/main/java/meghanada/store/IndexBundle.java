@@ -0,0 +1,468 @@
+package meghanada.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static meghanada.store.ProjectDatabase.ID;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.hash.HashingOutputStream;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nullable;
+import jetbrains.exodus.entitystore.Entity;
+import jetbrains.exodus.entitystore.EntityId;
+import meghanada.Main;
+import meghanada.config.Config;
+import meghanada.reflect.ClassIndex;
+import meghanada.reflect.MemberDescriptor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Exports the class indexes and member descriptors of a project database into a portable zip
+ * bundle and imports them into another checkout.
+ *
+ * <p>Paths under the project root and the user home are written with a placeholder and relocated
+ * on import. Each entry is checked against the SHA-256 in the manifest before anything is stored.
+ * The size and SHA-256 of every jar are recorded too, indexes of jars that are missing locally or
+ * differ from the exported ones are skipped. Source analyses and the search index
+ * are not exported, they are rebuilt by the incremental analysis after the import.
+ */
+public final class IndexBundle {
+
+  private static final Logger log = LogManager.getLogger(IndexBundle.class);
+
+  private static final int FORMAT = 2;
+  private static final String MANIFEST = "manifest.properties";
+  private static final String CLASS_INDEXES = "class-indexes";
+  private static final String MEMBERS = "members";
+  private static final String JARS = "jars";
+  private static final String[] ENTRIES = {CLASS_INDEXES, MEMBERS, JARS};
+  private static final String PROJECT_ROOT = "${project.root}";
+  private static final String USER_HOME = "${user.home}";
+  private static final int TRANSACTION_SIZE = 4096;
+
+  private final String projectRoot;
+  private final String userHome;
+
+  private IndexBundle() {
+    this.projectRoot = Config.getProjectRoot();
+    this.userHome = System.getProperty("user.home");
+  }
+
+  private static String toPortable(String path, String prefix, String token) {
+    if (path.equals(prefix)) {
+      return token;
+    }
+    if (path.startsWith(prefix + File.separator)) {
+      return token + path.substring(prefix.length());
+    }
+    return path;
+  }
+
+  private String toPortable(String path) {
+    // the project root may live in the user home, try it first
+    String p = toPortable(path, this.projectRoot, PROJECT_ROOT);
+    if (p.equals(path)) {
+      p = toPortable(path, this.userHome, USER_HOME);
+    }
+    return p;
+  }
+
+  private String toLocal(String path) {
+    if (path.startsWith(PROJECT_ROOT)) {
+      return this.projectRoot + path.substring(PROJECT_ROOT.length());
+    }
+    if (path.startsWith(USER_HOME)) {
+      return this.userHome + path.substring(USER_HOME.length());
+    }
+    return path;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static int exportBundle(File bundle) throws IOException {
+    IndexBundle self = new IndexBundle();
+    ProjectDatabase database = ProjectDatabase.getInstance();
+    List<byte[]> indexes = new ArrayList<>(1024 * 16);
+    Map<String, byte[]> members = new HashMap<>(1024);
+    // jar path and whether it is marked as loaded
+    Map<String, Boolean> jars = new TreeMap<>();
+
+    database.findAll(
+        ClassIndex.ENTITY_TYPE,
+        entity -> {
+          try {
+            ClassIndex index = readBlob(entity, ProjectDatabase.SERIALIZE_KEY, ClassIndex.class);
+            if (isNull(index)) {
+              return;
+            }
+            index.setEntityID(null);
+            if (nonNull(index.filePath)) {
+              if (index.filePath.endsWith(".jar")) {
+                Boolean marked = jars.putIfAbsent(index.filePath, false);
+              }
+              index.filePath = self.toPortable(index.filePath);
+            }
+            indexes.add(Serializer.asByte(index));
+            List<MemberDescriptor> list =
+                readBlob(entity, ProjectDatabaseHelper.BLOB_PROP_MEMBERS, List.class);
+            if (nonNull(list)) {
+              members.put(index.getRawDeclaration(), Serializer.asByte(list));
+            }
+          } catch (IOException e) {
+            log.warn("skip {} {}", entity.getProperty(ID), e.getMessage());
+          }
+        });
+    database.findAll(
+        ClassIndex.FILE_ENTITY_TYPE,
+        entity -> {
+          Comparable<?> path = entity.getProperty("filePath");
+          if (nonNull(path)) {
+            Boolean marked = jars.put(path.toString(), true);
+          }
+        });
+    List<Jar> jarEntries = new ArrayList<>(jars.size());
+    for (Map.Entry<String, Boolean> entry : jars.entrySet()) {
+      File file = new File(entry.getKey());
+      if (!file.isFile()) {
+        log.warn("skip missing jar {}", file);
+        continue;
+      }
+      jarEntries.add(
+          new Jar(
+              self.toPortable(entry.getKey()), file.length(), hashFile(file), entry.getValue()));
+    }
+
+    Properties manifest = new Properties();
+    manifest.setProperty("format", Integer.toString(FORMAT));
+    manifest.setProperty("version", Main.getVersion());
+    File tmp = new File(bundle.getAbsoluteFile().getParentFile(), bundle.getName() + ".tmp");
+    try (ZipOutputStream out =
+        new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+      manifest.setProperty(
+          CLASS_INDEXES,
+          writeEntry(
+                  out,
+                  CLASS_INDEXES,
+                  data -> {
+                    data.writeInt(indexes.size());
+                    for (byte[] b : indexes) {
+                      data.writeInt(b.length);
+                      data.write(b);
+                    }
+                  })
+              .toString());
+      manifest.setProperty(
+          MEMBERS,
+          writeEntry(
+                  out,
+                  MEMBERS,
+                  data -> {
+                    data.writeInt(members.size());
+                    for (Map.Entry<String, byte[]> entry : members.entrySet()) {
+                      data.writeUTF(entry.getKey());
+                      data.writeInt(entry.getValue().length);
+                      data.write(entry.getValue());
+                    }
+                  })
+              .toString());
+      manifest.setProperty(
+          JARS,
+          writeEntry(
+                  out,
+                  JARS,
+                  data -> {
+                    data.writeInt(jarEntries.size());
+                    for (Jar jar : jarEntries) {
+                      data.writeUTF(jar.path);
+                      data.writeLong(jar.size);
+                      data.writeUTF(jar.hash);
+                      data.writeBoolean(jar.marked);
+                    }
+                  })
+              .toString());
+      out.putNextEntry(new ZipEntry(MANIFEST));
+      manifest.store(out, "meghanada index bundle");
+      out.closeEntry();
+    }
+    Files.move(tmp.toPath(), bundle.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    log.info(
+        "exported {} class indexes, {} members, {} jars to {}",
+        indexes.size(),
+        members.size(),
+        jarEntries.size(),
+        bundle);
+    return indexes.size();
+  }
+
+  private static String hashFile(File file) throws IOException {
+    try (HashingInputStream in =
+        new HashingInputStream(
+            Hashing.sha256(), new BufferedInputStream(new FileInputStream(file)))) {
+      long size = ByteStreams.exhaust(in);
+      return in.hash().toString();
+    }
+  }
+
+  private static boolean matches(Jar jar) {
+    File file = new File(jar.path);
+    if (!file.isFile() || file.length() != jar.size) {
+      return false;
+    }
+    try {
+      return hashFile(file).equals(jar.hash);
+    } catch (IOException e) {
+      log.warn("fail read jar {} {}", file, e.getMessage());
+      return false;
+    }
+  }
+
+  @Nullable
+  private static <T> T readBlob(Entity entity, String name, Class<T> clazz) throws IOException {
+    try (InputStream in = entity.getBlob(name)) {
+      if (isNull(in)) {
+        return null;
+      }
+      return Serializer.readObject(in, clazz);
+    } catch (IOException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static HashCode writeEntry(ZipOutputStream out, String name, EntryWriter writer)
+      throws IOException {
+    out.putNextEntry(new ZipEntry(name));
+    // passes the bytes through to the zip, it's not closed so the zip stays open
+    HashingOutputStream hashing = new HashingOutputStream(Hashing.sha256(), out);
+    DataOutputStream data = new DataOutputStream(hashing);
+    writer.write(data);
+    data.flush();
+    out.closeEntry();
+    return hashing.hash();
+  }
+
+  public static int importBundle(File bundle) throws IOException {
+    IndexBundle self = new IndexBundle();
+    List<ClassIndex> indexes = new ArrayList<>(1024 * 16);
+    Map<String, List<MemberDescriptor>> members = new HashMap<>(1024);
+    List<Jar> jars = new ArrayList<>(256);
+
+    try (ZipFile zip = new ZipFile(bundle)) {
+      ZipEntry manifestEntry = zip.getEntry(MANIFEST);
+      if (isNull(manifestEntry)) {
+        throw new IOException("missing manifest");
+      }
+      Properties manifest = new Properties();
+      try (InputStream in = zip.getInputStream(manifestEntry)) {
+        manifest.load(in);
+      }
+      if (!Integer.toString(FORMAT).equals(manifest.getProperty("format"))) {
+        throw new IOException("unsupported bundle format " + manifest.getProperty("format"));
+      }
+      for (String name : ENTRIES) {
+        if (isNull(zip.getEntry(name)) || isNull(manifest.getProperty(name))) {
+          throw new IOException("missing entry " + name);
+        }
+      }
+
+      // everything is read and verified before the database is touched
+      readEntry(
+          zip,
+          manifest,
+          CLASS_INDEXES,
+          data -> {
+            int size = data.readInt();
+            for (int i = 0; i < size; i++) {
+              ClassIndex index = (ClassIndex) BinaryCodec.decode(readBytes(data));
+              if (nonNull(index.filePath)) {
+                index.filePath = self.toLocal(index.filePath);
+              }
+              indexes.add(index);
+            }
+          });
+      readEntry(
+          zip,
+          manifest,
+          MEMBERS,
+          data -> {
+            int size = data.readInt();
+            for (int i = 0; i < size; i++) {
+              String fqcn = data.readUTF();
+              @SuppressWarnings("unchecked")
+              List<MemberDescriptor> list =
+                  (List<MemberDescriptor>) BinaryCodec.decode(readBytes(data));
+              members.put(fqcn, list);
+            }
+          });
+      readEntry(
+          zip,
+          manifest,
+          JARS,
+          data -> {
+            int size = data.readInt();
+            for (int i = 0; i < size; i++) {
+              String path = self.toLocal(data.readUTF());
+              long length = data.readLong();
+              String hash = data.readUTF();
+              jars.add(new Jar(path, length, hash, data.readBoolean()));
+            }
+          });
+    } catch (ClassCastException e) {
+      throw new IOException("broken bundle", e);
+    }
+
+    // indexes of jars that are missing or differ here are of no use
+    Set<String> verified = new HashSet<>(jars.size());
+    List<String> availableJars = new ArrayList<>(jars.size());
+    for (Jar jar : jars) {
+      if (!matches(jar)) {
+        log.info("skip jar {}, it differs from the exported one", jar.path);
+        continue;
+      }
+      boolean b = verified.add(jar.path);
+      if (jar.marked) {
+        availableJars.add(jar.path);
+      }
+    }
+    List<ClassIndex> available = new ArrayList<>(indexes.size());
+    for (ClassIndex index : indexes) {
+      String path = index.filePath;
+      if (isNull(path) || !path.endsWith(".jar") || verified.contains(path)) {
+        available.add(index);
+      }
+    }
+
+    ProjectDatabase database = ProjectDatabase.getInstance();
+    int stored = database.bulkStoreObjects(available);
+    storeMembers(database, available, members);
+    boolean b =
+        database.execute(
+            txn -> {
+              for (String jar : availableJars) {
+                if (isNull(txn.find(ClassIndex.FILE_ENTITY_TYPE, "filePath", jar).getFirst())) {
+                  Entity entity = txn.newEntity(ClassIndex.FILE_ENTITY_TYPE);
+                  entity.setProperty("filePath", jar);
+                }
+              }
+              return true;
+            });
+    log.info(
+        "imported {}/{} class indexes, {} jars from {}",
+        stored,
+        indexes.size(),
+        availableJars.size(),
+        bundle);
+    return stored;
+  }
+
+  private static void storeMembers(
+      ProjectDatabase database,
+      List<ClassIndex> indexes,
+      Map<String, List<MemberDescriptor>> members) {
+    List<ClassIndex> targets = new ArrayList<>(members.size());
+    for (ClassIndex index : indexes) {
+      if (members.containsKey(index.getRawDeclaration())) {
+        targets.add(index);
+      }
+    }
+    for (int i = 0; i < targets.size(); i += TRANSACTION_SIZE) {
+      List<ClassIndex> chunk = targets.subList(i, Math.min(targets.size(), i + TRANSACTION_SIZE));
+      boolean b =
+          database.execute(
+              txn -> {
+                for (ClassIndex index : chunk) {
+                  String fqcn = index.getRawDeclaration();
+                  EntityId entityId = index.getEntityId();
+                  Entity entity =
+                      nonNull(entityId)
+                          ? txn.getEntity(entityId)
+                          : txn.find(ClassIndex.ENTITY_TYPE, ID, fqcn).getFirst();
+                  if (nonNull(entity)) {
+                    try {
+                      ProjectDatabase.setSerializeBlobData(
+                          entity, ProjectDatabaseHelper.BLOB_PROP_MEMBERS, members.get(fqcn));
+                    } catch (IOException e) {
+                      log.warn("skip members {} {}", fqcn, e.getMessage());
+                    }
+                  }
+                }
+                return true;
+              });
+    }
+  }
+
+  private static byte[] readBytes(DataInputStream data) throws IOException {
+    int len = data.readInt();
+    if (len < 0) {
+      throw new IOException("broken bundle");
+    }
+    byte[] b = new byte[len];
+    data.readFully(b);
+    return b;
+  }
+
+  private static void readEntry(
+      ZipFile zip, Properties manifest, String name, EntryReader reader) throws IOException {
+    try (HashingInputStream hashing =
+        new HashingInputStream(
+            Hashing.sha256(), new BufferedInputStream(zip.getInputStream(zip.getEntry(name))))) {
+      DataInputStream data = new DataInputStream(hashing);
+      reader.read(data);
+      long rest = ByteStreams.exhaust(hashing);
+      String expected = manifest.getProperty(name);
+      if (rest != 0 || !hashing.hash().toString().equals(expected)) {
+        throw new IOException("checksum mismatch " + name);
+      }
+    }
+  }
+
+  private static class Jar {
+
+    private final String path;
+    private final long size;
+    private final String hash;
+    private final boolean marked;
+
+    Jar(String path, long size, String hash, boolean marked) {
+      this.path = path;
+      this.size = size;
+      this.hash = hash;
+      this.marked = marked;
+    }
+  }
+
+  @FunctionalInterface
+  private interface EntryWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface EntryReader {
+    void read(DataInputStream in) throws IOException;
+  }
+}
@@ -14,22 +14,25 @@ import java.io.Serializable;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import javax.annotation.Nullable;
 import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.entitystore.Entity;
 import jetbrains.exodus.entitystore.EntityId;
@@ -44,6 +47,7 @@ import jetbrains.exodus.env.EnvironmentImpl;
 import jetbrains.exodus.env.Environments;
 import meghanada.Main;
 import meghanada.config.Config;
+import meghanada.system.Executor;
 import meghanada.telemetry.ErrorReporter;
 import meghanada.telemetry.TelemetryUtils;
 import org.apache.logging.log4j.LogManager;
@@ -57,23 +61,25 @@ public class ProjectDatabase {
   private static final String STORE_NAME = "meghanadaStore";
   private static final Logger log = LogManager.getLogger(ProjectDatabase.class);
 
-  private static final int MERGE_SIZE = 16;
-  private static final int BURST_LIMIT = 16;
+  private static final int MIN_BATCH_SIZE = 16;
+  private static final int MAX_BATCH_SIZE = 512;
+  private static final int BULK_TRANSACTION_SIZE = 4096;
+  private static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toNanos(10);
 
   private static ProjectDatabase projectDatabase;
   private static final AtomicLong seq = new AtomicLong(1);
   private static final int MAX_WORKER = 4;
-  private static final long WORKER_DURATION = 2;
 
-  private final BlockingQueue<StoreRequest> blockingQueue = new LinkedBlockingDeque<>();
+  private Partition[] partitions = new Partition[0];
   private ExecutorService executorService = null;
   private Environment environment = null;
   private PersistentEntityStore entityStore = null;
   private String projectRoot;
-  private boolean isTerminated;
-  private final AtomicInteger extraWorkers = new AtomicInteger(0);
-  private Instant lastAddWorker = Instant.now();
+  private volatile boolean isTerminated;
+  private final AtomicLong lastFlush = new AtomicLong(System.nanoTime());
   private File baseLocation;
+  private BlobCompressor compressor;
+  private SnapshotStore snapshotStore;
 
   private ProjectDatabase() {
     open();
@@ -170,28 +176,31 @@ public class ProjectDatabase {
         s.onSuccess(entity);
         return entity.getId().getLocalId();
       }
+      return writeObject(s, entity, txn);
+    }
+  }
 
-      if (isNull(entity)) {
-        entity = txn.newEntity(entityType);
-        entity.setProperty(ID, id);
-      }
+  private static long writeObject(Storable s, @Nullable Entity entity, StoreTransaction txn) {
+    if (isNull(entity)) {
+      entity = txn.newEntity(s.getEntityType());
+      entity.setProperty(ID, s.getStoreId());
+    }
 
-      s.store(txn, entity);
+    s.store(txn, entity);
 
-      if (s instanceof Serializable) {
-        try {
-          setSerializeBlobData(entity, SERIALIZE_KEY, s);
-        } catch (IOException e) {
-          log.catching(e);
-          ErrorReporter.report(e);
-          txn.abort();
-          return -1;
-        }
+    if (s instanceof Serializable) {
+      try {
+        setSerializeBlobData(entity, SERIALIZE_KEY, s);
+      } catch (IOException e) {
+        log.catching(e);
+        ErrorReporter.report(e);
+        txn.abort();
+        return -1;
       }
-      // txn.saveEntity(entity);
-      s.onSuccess(entity);
-      return entity.getId().getLocalId();
     }
+    // txn.saveEntity(entity);
+    s.onSuccess(entity);
+    return entity.getId().getLocalId();
   }
 
   @SuppressWarnings("try")
@@ -210,6 +219,10 @@ public class ProjectDatabase {
 
       byte[] bytes = Serializer.asByte(obj);
       requireNonNull(bytes);
+      BlobCompressor compressor = projectDatabase.compressor;
+      if (nonNull(compressor)) {
+        bytes = compressor.compress(entity.getType() + '.' + prop, bytes);
+      }
 
       try (InputStream in = new ByteArrayInputStream(bytes)) {
         requireNonNull(in);
@@ -218,94 +231,78 @@ public class ProjectDatabase {
     }
   }
 
-  private void runGC() {
+  void runGC() {
     if (nonNull(this.environment)) {
       this.environment.gc();
     }
   }
 
-  @SuppressWarnings("try")
   private void initWorker() {
 
     if (isNull(this.executorService) || this.executorService.isTerminated()) {
 
-      this.executorService = Executors.newCachedThreadPool();
+      int size = Math.max(1, Math.min(MAX_WORKER, Runtime.getRuntime().availableProcessors()));
+      this.executorService = Executors.newFixedThreadPool(size);
       this.isTerminated = false;
 
-      this.executorService.execute(
-          () -> {
-            Instant start = Instant.now();
-            while (!this.isTerminated) {
-              try {
-                StoreRequest req = blockingQueue.poll(10, TimeUnit.SECONDS);
-                if (nonNull(req) && !req.isShutdown()) {
-                  mergeAndStore(req);
-                }
-                if (blockingQueue.isEmpty()) {
-                  try (TelemetryUtils.ScopedSpan ss =
-                      TelemetryUtils.startScopedSpan("ProjectDatabase.flushAndSync")) {
-
-                    Instant now = Instant.now();
-                    Duration duration = Duration.between(start, now);
-                    long delta = duration.getSeconds();
-                    if (delta > 10) {
-                      EnvironmentImpl environment =
-                          (EnvironmentImpl) this.entityStore.getEnvironment();
-                      environment.flushAndSync();
-                      start = now;
-                    }
-                  }
-                }
-              } catch (Exception e) {
-                log.catching(e);
-                ErrorReporter.report(e);
-              }
-            }
-          });
+      Partition[] partitions = new Partition[size];
+      for (int i = 0; i < size; i++) {
+        partitions[i] = new Partition(i);
+        this.executorService.execute(partitions[i]);
+      }
+      this.partitions = partitions;
     }
   }
 
-  @SuppressWarnings("try")
-  private void mergeAndStore(StoreRequest req) {
-    try (TelemetryUtils.ScopedSpan ss =
-        TelemetryUtils.startScopedSpan("ProjectDatabase.mergeAndStore")) {
-
-      if (req.isMergable()) {
-        Set<Storable> buf = new HashSet<>(5);
-        buf.add(req.getStorable());
+  private static int batchSize(int depth) {
+    // grow the transactions while the queue is backing up
+    return Math.min(MAX_BATCH_SIZE, Math.max(MIN_BATCH_SIZE, depth / 2));
+  }
 
-        for (int i = 0; i < MERGE_SIZE - 1; i++) {
-          StoreRequest nextReq = this.blockingQueue.poll();
-          if (isNull(nextReq) || nextReq.isShutdown()) {
-            break;
-          }
+  private static String storeKey(Storable s) {
+    return s.getEntityType() + ':' + s.getStoreId();
+  }
 
-          if (nextReq.isMergable()) {
-            buf.add(nextReq.getStorable());
-          } else {
-            this.mergeAndStore(nextReq);
-          }
-        }
+  @SuppressWarnings("try")
+  private void flushIfIdle() {
+    long last = this.lastFlush.get();
+    long now = System.nanoTime();
+    if (now - last > FLUSH_INTERVAL && this.lastFlush.compareAndSet(last, now)) {
+      try (TelemetryUtils.ScopedSpan ss =
+          TelemetryUtils.startScopedSpan("ProjectDatabase.flushAndSync")) {
+        EnvironmentImpl environment = (EnvironmentImpl) this.entityStore.getEnvironment();
+        environment.flushAndSync();
+      }
+    }
+  }
 
-        if (!buf.isEmpty()) {
-          int i = storeObjects(buf, true);
-        }
-      } else {
+  public long getQueueDepth() {
+    long depth = 0;
+    for (Partition partition : this.partitions) {
+      depth += partition.queue.size();
+    }
+    return depth;
+  }
 
-        Storable storable = req.getStorable();
-        if (nonNull(storable)) {
-          long i = storeObject(storable, req.isAllowUpdate());
-        }
-        Collection<? extends Storable> storables = req.getStorables();
-        if (nonNull(storables)) {
-          int i = storeObjects(storables, req.isAllowUpdate());
-        }
+  /** Returns the age of the oldest write that is still queued. */
+  public Duration getQueueLag() {
+    long now = System.nanoTime();
+    long lag = 0;
+    for (Partition partition : this.partitions) {
+      StoreRequest head = partition.queue.peek();
+      if (nonNull(head)) {
+        lag = Math.max(lag, now - head.created);
       }
     }
+    return Duration.ofNanos(lag);
   }
 
   private synchronized void close() {
 
+    if (nonNull(this.compressor)) {
+      this.compressor.saveStats();
+    }
+
     if (nonNull(this.entityStore)) {
       try {
         EnvironmentImpl environment = (EnvironmentImpl) this.entityStore.getEnvironment();
@@ -375,6 +372,7 @@ public class ProjectDatabase {
         if (nonNull(files)) {
           for (File file : files) {
             if (file.isDirectory() && file.getName().startsWith(name) && !file.equals(base)) {
+              log.info("delete old database {}", file);
               org.apache.commons.io.FileUtils.deleteDirectory(file);
             }
           }
@@ -401,12 +399,31 @@ public class ProjectDatabase {
         String location = this.environment.getLocation();
         this.projectRoot = Config.getProjectRoot();
         this.baseLocation = base;
+        this.compressor =
+            new BlobCompressor(new File(base, "dictionaries"), config.useBlobCompression());
+        this.snapshotStore = new SnapshotStore(new File(base, "snapshots"));
+        this.indexMissingSources();
       }
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
   }
 
+  private void indexMissingSources() {
+    // sources stored before the reference index and the call graph existed, once per open
+    Executor.getInstance()
+        .execute(
+            () -> {
+              try {
+                ReferenceIndex.indexMissingSources(this);
+                CallGraph.indexMissingSources(this);
+              } catch (Exception e) {
+                log.catching(e);
+                ErrorReporter.report(e);
+              }
+            });
+  }
+
   public <R> boolean execute(Function<StoreTransaction, Boolean> fn) {
     return this.entityStore.computeInTransaction(fn::apply);
   }
@@ -427,6 +444,60 @@ public class ProjectDatabase {
     }
   }
 
+  /**
+   * Inserts new objects without looking up each one. Keys already in the store are skipped with
+   * one scan per entity type, the rest are written in key order in large transactions.
+   */
+  @SuppressWarnings("try")
+  public int bulkStoreObjects(Collection<? extends Storable> storables) {
+    try (TelemetryUtils.ScopedSpan ss =
+        TelemetryUtils.startScopedSpan("ProjectDatabase.bulkStoreObjects")) {
+
+      Map<String, Set<String>> keys = new HashMap<>(4);
+      List<Storable> sorted = new ArrayList<>(storables.size());
+      for (Storable s : storables) {
+        Set<String> existing = keys.computeIfAbsent(s.getEntityType(), this::loadStoreIds);
+        if (existing.add(s.getStoreId())) {
+          sorted.add(s);
+        }
+      }
+      sorted.sort(Comparator.comparing(Storable::getStoreId));
+
+      int success = 0;
+      for (int i = 0; i < sorted.size(); i += BULK_TRANSACTION_SIZE) {
+        int end = Math.min(sorted.size(), i + BULK_TRANSACTION_SIZE);
+        List<Storable> chunk = sorted.subList(i, end);
+        success +=
+            this.entityStore.computeInTransaction(
+                txn -> {
+                  int n = 0;
+                  for (Storable s : chunk) {
+                    if (writeObject(s, null, txn) != -1) {
+                      n++;
+                    }
+                  }
+                  return n;
+                });
+      }
+      log.debug("bulk stored {}/{}", success, storables.size());
+      return success;
+    }
+  }
+
+  private Set<String> loadStoreIds(String entityType) {
+    return this.entityStore.computeInReadonlyTransaction(
+        txn -> {
+          Set<String> ids = new HashSet<>(1024);
+          for (Entity entity : txn.getAll(entityType)) {
+            Comparable<?> id = entity.getProperty(ID);
+            if (nonNull(id)) {
+              ids.add(id.toString());
+            }
+          }
+          return ids;
+        });
+  }
+
   public void asyncStoreObject(Storable s, boolean allowUpdate) {
     StoreRequest req = new StoreRequest();
     req.setAllowUpdate(allowUpdate);
@@ -442,59 +513,43 @@ public class ProjectDatabase {
   }
 
   private void requestAsyncStore(StoreRequest req) {
-    if (isNull(req.getStorable()) && isNull(req.getStorables())) {
+    Storable storable = req.getStorable();
+    Collection<? extends Storable> storables = req.getStorables();
+    if (isNull(storable) && isNull(storables)) {
       throw new IllegalArgumentException("require obj or objects");
     }
 
+    Partition[] partitions = this.partitions;
     try {
-      this.blockingQueue.put(req);
-      this.runWorker();
+      if (nonNull(storable)) {
+        partitions[partitionOf(storable, partitions.length)].queue.put(req);
+        return;
+      }
+      // split the objects so that writes to the same key always go through one partition
+      List<List<Storable>> split = new ArrayList<>(partitions.length);
+      for (int i = 0; i < partitions.length; i++) {
+        split.add(new ArrayList<>(storables.size() / partitions.length + 1));
+      }
+      for (Storable s : storables) {
+        split.get(partitionOf(s, partitions.length)).add(s);
+      }
+      for (int i = 0; i < partitions.length; i++) {
+        List<Storable> list = split.get(i);
+        if (!list.isEmpty()) {
+          StoreRequest r = new StoreRequest();
+          r.setAllowUpdate(req.isAllowUpdate());
+          r.setStorables(list);
+          partitions[i].queue.put(r);
+        }
+      }
     } catch (InterruptedException e) {
       log.catching(e);
       ErrorReporter.report(e);
     }
   }
 
-  private boolean addableWorker() {
-    Instant now = Instant.now();
-    Duration duration = Duration.between(this.lastAddWorker, now);
-    long delta = duration.getSeconds();
-    return this.blockingQueue.size() > BURST_LIMIT
-        && extraWorkers.get() <= MAX_WORKER
-        && delta > WORKER_DURATION;
-  }
-
-  @SuppressWarnings("try")
-  private void runWorker() {
-    if (this.addableWorker()) {
-      lastAddWorker = Instant.now();
-      this.executorService.execute(
-          () -> {
-            extraWorkers.incrementAndGet();
-            boolean start = true;
-            while (!this.isTerminated && start) {
-              try {
-                StoreRequest req = blockingQueue.poll(3, TimeUnit.SECONDS);
-
-                try (TelemetryUtils.ParentSpan span =
-                        TelemetryUtils.startExplicitParentSpan("ProjectDatabase/runWokrker");
-                    TelemetryUtils.ScopedSpan scope = TelemetryUtils.withSpan(span.getSpan())) {
-
-                  if (nonNull(req) && !req.isShutdown()) {
-                    mergeAndStore(req);
-                  } else {
-                    start = false;
-                  }
-                  span.setStatusOK();
-                }
-              } catch (Exception e) {
-                log.catching(e);
-                ErrorReporter.report(e);
-              }
-            }
-            extraWorkers.decrementAndGet();
-          });
-    }
+  private static int partitionOf(Storable s, int size) {
+    return Math.floorMod(storeKey(s).hashCode(), size);
   }
 
   public int storeObjects(Collection<? extends Storable> storables, boolean allowUpdate) {
@@ -651,12 +706,15 @@ public class ProjectDatabase {
 
     this.isTerminated = true;
 
-    StoreRequest req = new StoreRequest();
-    req.setShutdown(true);
-    try {
-      this.blockingQueue.put(req);
-    } catch (InterruptedException e) {
-      log.catching(e);
+    // the marker goes behind the queued writes, every partition drains before it stops
+    for (Partition partition : this.partitions) {
+      StoreRequest req = new StoreRequest();
+      req.setShutdown(true);
+      try {
+        partition.queue.put(req);
+      } catch (InterruptedException e) {
+        log.catching(e);
+      }
     }
 
     this.executorService.shutdown();
@@ -665,6 +723,13 @@ public class ProjectDatabase {
     } catch (InterruptedException e) {
       log.catching(e);
     }
+    for (Partition partition : this.partitions) {
+      log.info(
+          "store partition:{} stored:{} coalesced:{}",
+          partition.index,
+          partition.stored.get(),
+          partition.coalesced.get());
+    }
     this.close();
   }
 
@@ -672,6 +737,17 @@ public class ProjectDatabase {
     return executorService;
   }
 
+  static byte[] decompress(byte[] b) throws IOException {
+    if (isNull(projectDatabase) || isNull(projectDatabase.compressor)) {
+      throw new IOException("project database is not open");
+    }
+    return projectDatabase.compressor.decompress(b);
+  }
+
+  SnapshotStore getSnapshotStore() {
+    return this.snapshotStore;
+  }
+
   public File getBaseLocation() {
     return this.baseLocation;
   }
@@ -679,6 +755,7 @@ public class ProjectDatabase {
   static class StoreRequest {
 
     private final long id;
+    private final long created = System.nanoTime();
     private boolean shutdown;
     private boolean allowUpdate;
     private Storable storable;
@@ -720,10 +797,6 @@ public class ProjectDatabase {
       this.storables = storables;
     }
 
-    public boolean isMergable() {
-      return nonNull(storable) && allowUpdate;
-    }
-
     @Override
     public String toString() {
       return MoreObjects.toStringHelper(this)
@@ -735,4 +808,102 @@ public class ProjectDatabase {
           .toString();
     }
   }
+
+  private class Partition implements Runnable {
+
+    private final int index;
+    private final BlockingQueue<StoreRequest> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    Partition(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public void run() {
+      List<StoreRequest> batch = new ArrayList<>(MIN_BATCH_SIZE);
+      boolean running = true;
+      while (running) {
+        try {
+          StoreRequest req = this.queue.poll(10, TimeUnit.SECONDS);
+          if (isNull(req)) {
+            running = !isTerminated;
+            if (running) {
+              flushIfIdle();
+            }
+            continue;
+          }
+          batch.add(req);
+          int i = this.queue.drainTo(batch, batchSize(this.queue.size()) - 1);
+          TelemetryUtils.recordStoreQueue(getQueueDepth(), getQueueLag().toMillis());
+          running = this.store(batch);
+          batch.clear();
+          if (this.queue.isEmpty()) {
+            flushIfIdle();
+          }
+        } catch (Exception e) {
+          batch.clear();
+          log.catching(e);
+          ErrorReporter.report(e);
+        }
+      }
+    }
+
+    @SuppressWarnings("try")
+    private boolean store(List<StoreRequest> batch) {
+      try (TelemetryUtils.ScopedSpan ss =
+          TelemetryUtils.startScopedSpan("ProjectDatabase.mergeAndStore")) {
+
+        Map<String, Storable> merged = new LinkedHashMap<>(batch.size());
+        for (StoreRequest req : batch) {
+          if (req.isShutdown()) {
+            this.flush(merged);
+            return false;
+          }
+          Storable storable = req.getStorable();
+          Collection<? extends Storable> storables = req.getStorables();
+          if (req.isAllowUpdate()) {
+            if (nonNull(storable)) {
+              this.merge(merged, storable);
+            }
+            if (nonNull(storables)) {
+              for (Storable s : storables) {
+                this.merge(merged, s);
+              }
+            }
+            continue;
+          }
+          // insert only writes must not overtake the updates queued before them
+          this.flush(merged);
+          if (nonNull(storable)) {
+            long l = storeObject(storable, false);
+            this.stored.incrementAndGet();
+          }
+          if (nonNull(storables)) {
+            int i = storeObjects(storables, false);
+            this.stored.addAndGet(storables.size());
+          }
+        }
+        this.flush(merged);
+        return true;
+      }
+    }
+
+    private void merge(Map<String, Storable> merged, Storable s) {
+      // the latest write to a key wins
+      if (nonNull(merged.put(storeKey(s), s))) {
+        this.coalesced.incrementAndGet();
+      }
+    }
+
+    private void flush(Map<String, Storable> merged) {
+      if (merged.isEmpty()) {
+        return;
+      }
+      int i = storeObjects(merged.values(), true);
+      this.stored.addAndGet(merged.size());
+      merged.clear();
+    }
+  }
 }
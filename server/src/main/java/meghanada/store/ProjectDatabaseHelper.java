@@ -4,19 +4,22 @@ import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static meghanada.store.ProjectDatabase.ID;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import javax.annotation.Nonnull;
 import jetbrains.exodus.entitystore.Entity;
@@ -24,6 +27,8 @@ import jetbrains.exodus.entitystore.EntityId;
 import jetbrains.exodus.entitystore.EntityIterable;
 import meghanada.analyze.CompileResult;
 import meghanada.analyze.Source;
+import meghanada.cache.CacheSnapshot;
+import meghanada.completion.UsageStatistics;
 import meghanada.project.Project;
 import meghanada.reflect.ClassIndex;
 import meghanada.reflect.MemberDescriptor;
@@ -38,12 +43,17 @@ public class ProjectDatabaseHelper {
 
   private static final String PROP_DECLARATION = "declaration";
   private static final String PROP_FILE_PATH = "filePath";
-  private static final String BLOB_PROP_MEMBERS = "members";
+  static final String BLOB_PROP_MEMBERS = "members";
+  static final String PROP_MEMBERS_SAVED = "membersSaved";
   private static final String BLOB_PROP_CHECKSUM = "checksum";
   private static final String BLOB_PROP_CALLER = "caller";
   private static final String BLOB_PROP_SOURCEMAP = "sourceMap";
+  private static final String BLOB_PROP_STATISTICS = "completionStatistics";
+  private static final String BLOB_PROP_CACHE_SNAPSHOT = "cacheSnapshot";
   private static final Logger log = LogManager.getLogger(ProjectDatabaseHelper.class);
-  private static int indexTTL = 60 * 60;
+  private static final ExecutorService CLASS_INDEX_LOADER =
+      Executors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setNameFormat("class-index-loader").setDaemon(true).build());
 
   public static void saveClassIndexes(Collection<ClassIndex> indexes, boolean allowUpdate) {
     ProjectDatabase projectDatabase = ProjectDatabase.getInstance();
@@ -52,6 +62,52 @@ public class ProjectDatabaseHelper {
     }
   }
 
+  /**
+   * Bulk loads the indexes of newly parsed jars in the background, writes a snapshot per jar and
+   * marks the jars as loaded once both are stored. Loads run one at a time, so indexes submitted
+   * again while an earlier load is running are skipped instead of being stored twice.
+   */
+  public static void saveNewClassIndexes(
+      Collection<ClassIndex> indexes, Collection<String> jarPaths) {
+    if (indexes.isEmpty() && jarPaths.isEmpty()) {
+      return;
+    }
+    ProjectDatabase projectDatabase = ProjectDatabase.getInstance();
+    CLASS_INDEX_LOADER.execute(
+        () -> {
+          try {
+            List<ClassIndex> unloaded = new ArrayList<>(indexes.size());
+            for (ClassIndex index : indexes) {
+              if (!index.loaded) {
+                unloaded.add(index);
+              }
+            }
+            int i = projectDatabase.bulkStoreObjects(unloaded);
+            for (ClassIndex index : unloaded) {
+              index.loaded = true;
+            }
+            Map<String, List<ClassIndex>> byJar = new HashMap<>(jarPaths.size());
+            for (String jarPath : jarPaths) {
+              byJar.put(jarPath, new ArrayList<>(64));
+            }
+            for (ClassIndex index : indexes) {
+              List<ClassIndex> list = byJar.get(index.getFilePath());
+              if (nonNull(list)) {
+                list.add(index);
+              }
+            }
+            SnapshotStore snapshotStore = projectDatabase.getSnapshotStore();
+            for (String jarPath : jarPaths) {
+              boolean b = snapshotStore.saveClassIndexes(new File(jarPath), byJar.get(jarPath));
+              saveLoadJar(jarPath);
+            }
+          } catch (Exception e) {
+            log.catching(e);
+            ErrorReporter.report(e);
+          }
+        });
+  }
+
   public static boolean getLoadJar(String filePath) {
     ProjectDatabase database = ProjectDatabase.getInstance();
     return database.computeInReadonly(
@@ -86,21 +142,40 @@ public class ProjectDatabaseHelper {
           TelemetryUtils.annotationBuilder().put("filePath", filePath).build("args"));
 
       ProjectDatabase database = ProjectDatabase.getInstance();
-      return database.find(
-          ClassIndex.ENTITY_TYPE,
-          "filePath",
-          filePath,
-          entity -> {
-            try (InputStream in = entity.getBlob(ProjectDatabase.SERIALIZE_KEY)) {
-              return Serializer.readObject(in, ClassIndex.class);
-            } catch (Exception e) {
-              log.warn(e.getMessage());
-              return null;
-            }
-          });
+      Optional<List<ClassIndex>> snapshot = getClassIndexSnapshot(filePath);
+      if (snapshot.isPresent()) {
+        return snapshot.get();
+      }
+      List<ClassIndex> result =
+          database.find(
+              ClassIndex.ENTITY_TYPE,
+              "filePath",
+              filePath,
+              entity -> {
+                try (InputStream in = entity.getBlob(ProjectDatabase.SERIALIZE_KEY)) {
+                  return Serializer.readObject(in, ClassIndex.class);
+                } catch (Exception e) {
+                  log.warn(e.getMessage());
+                  return null;
+                }
+              });
+      if (!result.isEmpty() && !result.contains(null)) {
+        // loaded before snapshots were written, or the snapshot was pruned
+        CLASS_INDEX_LOADER.execute(
+            () -> {
+              boolean b = database.getSnapshotStore().saveClassIndexes(new File(filePath), result);
+            });
+      }
+      return result;
     }
   }
 
+  /** The class indexes of a jar or the JDK from its snapshot, without a database transaction. */
+  public static Optional<List<ClassIndex>> getClassIndexSnapshot(String filePath) {
+    ProjectDatabase database = ProjectDatabase.getInstance();
+    return database.getSnapshotStore().loadClassIndexes(new File(filePath));
+  }
+
   public static File getClassFile(String fqcn) {
     ProjectDatabase database = ProjectDatabase.getInstance();
     Optional<String> res =
@@ -154,6 +229,7 @@ public class ProjectDatabaseHelper {
 
           try {
             ProjectDatabase.setSerializeBlobData(entity, BLOB_PROP_MEMBERS, members);
+            entity.setProperty(PROP_MEMBERS_SAVED, System.currentTimeMillis());
           } catch (IOException e) {
             log.catching(e);
             ErrorReporter.report(e);
@@ -179,6 +255,7 @@ public class ProjectDatabaseHelper {
           if (isNull(entity)) {
             return Optional.empty();
           }
+          DatabaseMaintenance.getInstance().touchMembers(fqcn);
 
           try (InputStream in = entity.getBlob(BLOB_PROP_MEMBERS)) {
             @SuppressWarnings("unchecked")
@@ -263,7 +340,16 @@ public class ProjectDatabaseHelper {
 
   public static boolean deleteSource(String filePath) throws Exception {
     ProjectDatabase database = ProjectDatabase.getInstance();
-    return database.deleteObject(Source.ENTITY_TYPE, filePath);
+    return database.execute(
+        txn -> {
+          ReferenceIndex.deletePostings(txn, filePath);
+          CallGraph.deleteEdges(txn, filePath);
+          Entity entity = txn.find(Source.ENTITY_TYPE, ID, filePath).getFirst();
+          if (isNull(entity)) {
+            return false;
+          }
+          return entity.delete();
+        });
   }
 
   @Nonnull
@@ -420,6 +506,99 @@ public class ProjectDatabaseHelper {
             });
   }
 
+  public static UsageStatistics getCompletionStatistics(String projectRoot) {
+    Optional<UsageStatistics> result =
+        ProjectDatabase.getInstance()
+            .computeInReadonly(
+                txn -> {
+                  EntityIterable entities =
+                      txn.find(Project.ENTITY_TYPE, ID, projectRoot)
+                          .intersect(txn.findWithBlob(Project.ENTITY_TYPE, BLOB_PROP_STATISTICS));
+                  Entity entity = entities.getFirst();
+                  if (isNull(entity)) {
+                    return Optional.empty();
+                  }
+                  try (InputStream in = entity.getBlob(BLOB_PROP_STATISTICS)) {
+                    return Optional.ofNullable(Serializer.readObject(in, UsageStatistics.class));
+                  } catch (Exception e) {
+                    log.warn(e.getMessage());
+                    return Optional.empty();
+                  }
+                });
+    return result.orElse(new UsageStatistics());
+  }
+
+  @SuppressWarnings("try")
+  public static boolean saveCompletionStatistics(String projectRoot, UsageStatistics statistics) {
+    try (TelemetryUtils.ScopedSpan scope =
+        TelemetryUtils.startScopedSpan("ProjectDatabaseHelper.saveCompletionStatistics")) {
+      return ProjectDatabase.getInstance()
+          .execute(
+              txn -> {
+                EntityIterable entities = txn.find(Project.ENTITY_TYPE, ID, projectRoot);
+                Entity entity = entities.getFirst();
+                if (isNull(entity)) {
+                  return false;
+                }
+                try {
+                  ProjectDatabase.setSerializeBlobData(entity, BLOB_PROP_STATISTICS, statistics);
+                } catch (IOException e) {
+                  log.catching(e);
+                  ErrorReporter.report(e);
+                  txn.abort();
+                  return false;
+                }
+                return true;
+              });
+    }
+  }
+
+  public static Optional<CacheSnapshot> getCacheSnapshot(String projectRoot) {
+    return ProjectDatabase.getInstance()
+        .computeInReadonly(
+            txn -> {
+              EntityIterable entities =
+                  txn.find(Project.ENTITY_TYPE, ID, projectRoot)
+                      .intersect(txn.findWithBlob(Project.ENTITY_TYPE, BLOB_PROP_CACHE_SNAPSHOT));
+              Entity entity = entities.getFirst();
+              if (isNull(entity)) {
+                return Optional.empty();
+              }
+              try (InputStream in = entity.getBlob(BLOB_PROP_CACHE_SNAPSHOT)) {
+                return Optional.ofNullable(Serializer.readObject(in, CacheSnapshot.class));
+              } catch (Exception e) {
+                log.warn(e.getMessage());
+                return Optional.empty();
+              }
+            });
+  }
+
+  @SuppressWarnings("try")
+  public static boolean saveCacheSnapshot(String projectRoot, CacheSnapshot snapshot) {
+    try (TelemetryUtils.ScopedSpan scope =
+        TelemetryUtils.startScopedSpan("ProjectDatabaseHelper.saveCacheSnapshot")) {
+      return ProjectDatabase.getInstance()
+          .execute(
+              txn -> {
+                EntityIterable entities = txn.find(Project.ENTITY_TYPE, ID, projectRoot);
+                Entity entity = entities.getFirst();
+                if (isNull(entity)) {
+                  return false;
+                }
+                try {
+                  ProjectDatabase.setSerializeBlobData(
+                      entity, BLOB_PROP_CACHE_SNAPSHOT, snapshot);
+                } catch (IOException e) {
+                  log.catching(e);
+                  ErrorReporter.report(e);
+                  txn.abort();
+                  return false;
+                }
+                return true;
+              });
+    }
+  }
+
   public static void saveCompileResult(CompileResult result) {
     ProjectDatabase database = ProjectDatabase.getInstance();
     database.asyncStoreObject(result, false);
@@ -435,6 +614,8 @@ public class ProjectDatabaseHelper {
 
             String path = (String) entity.getProperty("filePath");
             if (!Files.exists(Paths.get(path))) {
+              ReferenceIndex.deletePostings(txn, path);
+              CallGraph.deleteEdges(txn, path);
               entity.delete();
               try {
                 FileUtils.getClassFile(path, p.getSources(), p.getOutput()).ifPresent(File::delete);
@@ -452,44 +633,6 @@ public class ProjectDatabaseHelper {
         });
   }
 
-  public static boolean saveIndexedFile(String path) {
-    ProjectDatabase database = ProjectDatabase.getInstance();
-    return database.execute(
-        txn -> {
-          Entity entity = txn.newEntity("IndexedFile");
-          entity.setProperty(ID, path);
-          Long timestamp = Instant.now().getEpochSecond();
-          entity.setProperty("path", path);
-          entity.setProperty("lastUpdate", timestamp);
-          return true;
-        });
-  }
-
-  public static boolean isIndexedFile(String path) {
-    ProjectDatabase database = ProjectDatabase.getInstance();
-
-    return database.computeInReadonly(
-        txn -> {
-          EntityIterable entities = txn.find("IndexedFile", ID, path);
-          Entity entity = entities.getFirst();
-          if (isNull(entity)) {
-            return false;
-          }
-
-          Long old = (Long) entity.getProperty("lastUpdate");
-          Long now = Instant.now().getEpochSecond();
-          return (now - old) <= indexTTL;
-        });
-  }
-
-  private static int getIndexTTL() {
-    return indexTTL;
-  }
-
-  public static void setIndexTTL(int ttl) {
-    indexTTL = ttl;
-  }
-
   public static void reset() {
     ProjectDatabase.reset();
   }
@@ -0,0 +1,260 @@
+package meghanada.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jetbrains.exodus.entitystore.Entity;
+import jetbrains.exodus.entitystore.EntityId;
+import jetbrains.exodus.entitystore.EntityIterable;
+import jetbrains.exodus.entitystore.StoreTransaction;
+import meghanada.analyze.FieldAccess;
+import meghanada.analyze.MethodCall;
+import meghanada.analyze.Range;
+import meghanada.analyze.Source;
+import meghanada.telemetry.ErrorReporter;
+import meghanada.telemetry.TelemetryUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Persistent inverted index from a symbol (class, method or field) to the positions that
+ * reference it. One entity holds the postings of one symbol in one source file and is rewritten in
+ * the same transaction that stores the source.
+ */
+public class ReferenceIndex {
+
+  public static final String ENTITY_TYPE = "SymbolReference";
+
+  private static final Logger log = LogManager.getLogger(ReferenceIndex.class);
+
+  private static final String PROP_SYMBOL = "symbol";
+  private static final String PROP_FILE_PATH = "filePath";
+  // renamed with the format, postings of older versions are skipped until they are indexed again
+  private static final String BLOB_PROP_POSTINGS = "postings2";
+  // set on the source entity, sources without the current version are indexed in the background
+  private static final String PROP_INDEXED = "referenceIndexed";
+  private static final int VERSION = 2;
+  private static final int TRANSACTION_SIZE = 256;
+
+  private ReferenceIndex() {}
+
+  public static String classKey(String declaringClass) {
+    return "C:" + declaringClass;
+  }
+
+  public static String methodKey(String declaringClass, String name) {
+    return "M:" + declaringClass + '#' + name;
+  }
+
+  public static String fieldKey(String declaringClass, String name) {
+    return "F:" + declaringClass + '#' + name;
+  }
+
+  private static String getInnermostName(String declaringClass) {
+    int i = Math.max(declaringClass.lastIndexOf('.'), declaringClass.lastIndexOf('$'));
+    return declaringClass.substring(i + 1);
+  }
+
+  private static Map<String, List<Posting>> collectPostings(Source source) {
+    Map<String, List<Posting>> postings = new LinkedHashMap<>(64);
+    String path = source.filePath;
+    for (MethodCall mc : source.getMethodCalls()) {
+      String declaringClass = mc.declaringClass;
+      if (isNull(declaringClass)) {
+        continue;
+      }
+      Range range = mc.nameRange;
+      Posting p =
+          new Posting(path, range.begin.line, range.begin.column, mc.scope, mc.getArguments());
+      postings.computeIfAbsent(methodKey(declaringClass, mc.name), k -> new ArrayList<>(4)).add(p);
+      // a class is referenced by the calls through its name
+      if (mc.scope.contains(getInnermostName(declaringClass))) {
+        postings.computeIfAbsent(classKey(declaringClass), k -> new ArrayList<>(4)).add(p);
+      }
+    }
+    for (FieldAccess fa : source.getFieldAccesses()) {
+      String declaringClass = fa.declaringClass;
+      if (isNull(declaringClass)) {
+        continue;
+      }
+      Range range = fa.range;
+      Posting p =
+          new Posting(
+              path, range.begin.line, range.begin.column, fa.scope, Collections.emptyList());
+      postings.computeIfAbsent(fieldKey(declaringClass, fa.name), k -> new ArrayList<>(4)).add(p);
+      if (fa.scope.contains(getInnermostName(declaringClass))) {
+        postings.computeIfAbsent(classKey(declaringClass), k -> new ArrayList<>(4)).add(p);
+      }
+    }
+    return postings;
+  }
+
+  /** Replaces the postings of the source. Called in the transaction that stores the source. */
+  public static void update(StoreTransaction txn, Entity sourceEntity, Source source) {
+    deletePostings(txn, source.filePath);
+    for (Map.Entry<String, List<Posting>> entry : collectPostings(source).entrySet()) {
+      Entity entity = txn.newEntity(ENTITY_TYPE);
+      entity.setProperty(PROP_SYMBOL, entry.getKey());
+      entity.setProperty(PROP_FILE_PATH, source.filePath);
+      entity.setBlob(BLOB_PROP_POSTINGS, new ByteArrayInputStream(encode(entry.getValue())));
+    }
+    sourceEntity.setProperty(PROP_INDEXED, VERSION);
+  }
+
+  static void deletePostings(StoreTransaction txn, String filePath) {
+    for (Entity entity : txn.find(ENTITY_TYPE, PROP_FILE_PATH, filePath)) {
+      boolean b = entity.delete();
+    }
+  }
+
+  /** Returns the postings of the symbols, only the entities of these symbols are read. */
+  @SuppressWarnings("try")
+  public static List<Posting> getPostings(Collection<String> symbols) {
+    try (TelemetryUtils.ScopedSpan scope =
+        TelemetryUtils.startScopedSpan("ReferenceIndex.getPostings")) {
+      ProjectDatabase database = ProjectDatabase.getInstance();
+      return database.computeInReadonly(
+          txn -> {
+            List<Posting> result = new ArrayList<>(32);
+            for (String symbol : symbols) {
+              for (Entity entity : txn.find(ENTITY_TYPE, PROP_SYMBOL, symbol)) {
+                try (InputStream in = entity.getBlob(BLOB_PROP_POSTINGS)) {
+                  if (nonNull(in)) {
+                    result.addAll(decode(in));
+                  }
+                } catch (IOException e) {
+                  log.warn("broken postings {} {}", symbol, e.getMessage());
+                }
+              }
+            }
+            return result;
+          });
+    }
+  }
+
+  /** Indexes the sources that were stored before the index existed. */
+  static void indexMissingSources(ProjectDatabase database) {
+    List<EntityId> missing =
+        database.computeInReadonly(
+            txn -> {
+              EntityIterable indexed = txn.find(Source.ENTITY_TYPE, PROP_INDEXED, VERSION);
+              List<EntityId> list = new ArrayList<>(8);
+              for (Entity entity : txn.getAll(Source.ENTITY_TYPE).minus(indexed)) {
+                list.add(entity.getId());
+              }
+              return list;
+            });
+    if (missing.isEmpty()) {
+      return;
+    }
+    log.info("index references of {} sources", missing.size());
+    for (int i = 0; i < missing.size(); i += TRANSACTION_SIZE) {
+      List<EntityId> chunk = missing.subList(i, Math.min(missing.size(), i + TRANSACTION_SIZE));
+      boolean b =
+          database.execute(
+              txn -> {
+                for (EntityId entityId : chunk) {
+                  Entity entity = txn.getEntity(entityId);
+                  try (InputStream in = entity.getBlob(ProjectDatabase.SERIALIZE_KEY)) {
+                    Source source = Serializer.readObject(in, Source.class);
+                    if (nonNull(source)) {
+                      update(txn, entity, source);
+                    }
+                  } catch (Exception e) {
+                    log.catching(e);
+                    ErrorReporter.report(e);
+                  }
+                }
+                return true;
+              });
+    }
+  }
+
+  private static byte[] encode(List<Posting> postings) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(postings.size() * 32);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(postings.size());
+      for (Posting p : postings) {
+        writeString(out, p.filePath);
+        out.writeLong(p.line);
+        out.writeLong(p.column);
+        writeString(out, p.scope);
+        out.writeInt(p.arguments.size());
+        for (String argument : p.arguments) {
+          writeString(out, nonNull(argument) ? argument : "");
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static List<Posting> decode(InputStream input) throws IOException {
+    DataInputStream in = new DataInputStream(input);
+    int size = in.readInt();
+    List<Posting> postings = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      String filePath = readString(in);
+      long line = in.readLong();
+      long column = in.readLong();
+      String scope = readString(in);
+      int n = in.readInt();
+      List<String> arguments = new ArrayList<>(n);
+      for (int j = 0; j < n; j++) {
+        arguments.add(readString(in));
+      }
+      postings.add(new Posting(filePath, line, column, scope, arguments));
+    }
+    return postings;
+  }
+
+  /** Length-prefixed UTF-8, writeUTF fails on strings longer than 64KB. */
+  static void writeString(DataOutput out, String s) throws IOException {
+    byte[] b = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(b.length);
+    out.write(b);
+  }
+
+  static String readString(DataInput in) throws IOException {
+    int len = in.readInt();
+    if (len < 0) {
+      throw new IOException("broken string length " + len);
+    }
+    byte[] b = new byte[len];
+    in.readFully(b);
+    return new String(b, StandardCharsets.UTF_8);
+  }
+
+  public static class Posting {
+
+    public final String filePath;
+    public final long line;
+    public final long column;
+    public final String scope;
+    public final List<String> arguments;
+
+    Posting(String filePath, long line, long column, String scope, List<String> arguments) {
+      this.filePath = filePath;
+      this.line = line;
+      this.column = column;
+      this.scope = scope;
+      this.arguments = arguments;
+    }
+  }
+}
@@ -1,13 +1,15 @@
 package meghanada.store;
 
-import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
+import com.google.common.io.ByteStreams;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import javax.annotation.Nullable;
 import meghanada.analyze.LineRange;
 import meghanada.analyze.Position;
@@ -29,7 +31,6 @@ import meghanada.telemetry.ErrorReporter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nustaq.serialization.FSTConfiguration;
-import org.nustaq.serialization.FSTObjectInput;
 import org.nustaq.serialization.FSTObjectOutput;
 
 public class Serializer {
@@ -66,16 +67,22 @@ public class Serializer {
   }
 
   public static <T> T readObject(InputStream input, Class<T> clazz) throws Exception {
-    FSTObjectInput in = getFST().getObjectInput(input);
-    Object obj = in.readObject(clazz);
-    input.close();
-    if (isNull(obj)) {
-      return null;
+    byte[] b;
+    try {
+      b = ByteStreams.toByteArray(input);
+    } finally {
+      input.close();
     }
-    return clazz.cast(obj);
+    return clazz.cast(decode(b));
   }
 
   public static void writeObject(OutputStream output, Object obj) throws IOException {
+    byte[] b = BinaryCodec.encode(obj);
+    if (nonNull(b)) {
+      output.write(b);
+      output.flush();
+      return;
+    }
     FSTObjectOutput out = getFST().getObjectOutput(output);
     out.writeObject(obj);
     out.flush();
@@ -122,17 +129,33 @@ public class Serializer {
   }
 
   public static byte[] asByte(Object obj) {
+    byte[] b = BinaryCodec.encode(obj);
+    if (nonNull(b)) {
+      return b;
+    }
     FSTConfiguration fst = getFST();
     return fst.asByteArray(obj);
   }
 
   @Nullable
   public static <T> T asObject(byte[] b, Class<T> clazz) {
-    FSTConfiguration fst = getFST();
-    Object obj = fst.asObject(b);
-    if (isNull(obj)) {
-      return null;
+    try {
+      return clazz.cast(decode(b));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
-    return clazz.cast(obj);
+  }
+
+  @Nullable
+  private static Object decode(byte[] b) throws IOException {
+    if (BlobCompressor.isCompressed(b)) {
+      b = ProjectDatabase.decompress(b);
+    }
+    if (BinaryCodec.isEncoded(b)) {
+      return BinaryCodec.decode(b);
+    }
+    // written by FST before the binary codec
+    FSTConfiguration fst = getFST();
+    return fst.asObject(b);
   }
 }
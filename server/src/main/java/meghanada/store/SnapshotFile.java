@@ -0,0 +1,162 @@
+package meghanada.store;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.primitives.UnsignedBytes;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable sorted key/value file read through a memory mapping.
+ *
+ * <p>Layout: a 16 byte header (magic, version, entry count), a fixed size index entry per key
+ * (key offset, key length, value offset, value length) in unsigned byte order of the keys, then
+ * the keys and the values. Values are handed out as slices of the mapping without copying.
+ */
+final class SnapshotFile {
+
+  private static final int MAGIC = 0x4D47534E;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int ENTRY_SIZE = 16;
+  private static final Comparator<byte[]> KEY_ORDER = UnsignedBytes.lexicographicalComparator();
+
+  private final ByteBuffer buf;
+  private final int size;
+
+  private SnapshotFile(final ByteBuffer buf) throws IOException {
+    if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+      throw new IOException("not a snapshot");
+    }
+    if (buf.getInt(4) != VERSION) {
+      throw new IOException("unsupported snapshot version " + buf.getInt(4));
+    }
+    this.buf = buf;
+    this.size = buf.getInt(8);
+    if (HEADER_SIZE + (long) this.size * ENTRY_SIZE > buf.limit()) {
+      throw new IOException("broken snapshot");
+    }
+  }
+
+  static SnapshotFile open(final File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      // the mapping stays valid after the channel is closed
+      return new SnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  static void write(final File file, final Map<String, byte[]> entries) throws IOException {
+    final List<byte[]> keys = new ArrayList<>(entries.size());
+    for (final String key : entries.keySet()) {
+      keys.add(key.getBytes(UTF_8));
+    }
+    keys.sort(KEY_ORDER);
+
+    long keyOffset = HEADER_SIZE + (long) keys.size() * ENTRY_SIZE;
+    long valueOffset = keyOffset;
+    for (final byte[] key : keys) {
+      valueOffset += key.length;
+    }
+    if (valueOffset > Integer.MAX_VALUE) {
+      throw new IOException("snapshot too large");
+    }
+
+    final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(keys.size());
+      out.writeInt(0);
+      final List<byte[]> values = new ArrayList<>(keys.size());
+      for (final byte[] key : keys) {
+        final byte[] value = entries.get(new String(key, UTF_8));
+        if (valueOffset + value.length > Integer.MAX_VALUE) {
+          throw new IOException("snapshot too large");
+        }
+        out.writeInt((int) keyOffset);
+        out.writeInt(key.length);
+        out.writeInt((int) valueOffset);
+        out.writeInt(value.length);
+        keyOffset += key.length;
+        valueOffset += value.length;
+        values.add(value);
+      }
+      for (final byte[] key : keys) {
+        out.write(key);
+      }
+      for (final byte[] value : values) {
+        out.write(value);
+      }
+    }
+    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  String getKey(final int i) {
+    final int entry = HEADER_SIZE + i * ENTRY_SIZE;
+    final byte[] key = new byte[this.buf.getInt(entry + 4)];
+    final ByteBuffer src = this.buf.duplicate();
+    src.position(this.buf.getInt(entry));
+    src.get(key);
+    return new String(key, UTF_8);
+  }
+
+  ByteBuffer getValue(final int i) {
+    final int entry = HEADER_SIZE + i * ENTRY_SIZE;
+    final int offset = this.buf.getInt(entry + 8);
+    final ByteBuffer value = this.buf.duplicate();
+    value.position(offset);
+    value.limit(offset + this.buf.getInt(entry + 12));
+    return value.slice();
+  }
+
+  @Nullable
+  ByteBuffer get(final String key) {
+    final byte[] target = key.getBytes(UTF_8);
+    int low = 0;
+    int high = this.size - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int c = this.compareKey(mid, target);
+      if (c < 0) {
+        low = mid + 1;
+      } else if (c > 0) {
+        high = mid - 1;
+      } else {
+        return this.getValue(mid);
+      }
+    }
+    return null;
+  }
+
+  private int compareKey(final int i, final byte[] target) {
+    final int entry = HEADER_SIZE + i * ENTRY_SIZE;
+    final int offset = this.buf.getInt(entry);
+    final int length = this.buf.getInt(entry + 4);
+    final int n = Math.min(length, target.length);
+    for (int j = 0; j < n; j++) {
+      final int c = UnsignedBytes.compare(this.buf.get(offset + j), target[j]);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return length - target.length;
+  }
+}
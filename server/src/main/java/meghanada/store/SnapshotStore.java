@@ -0,0 +1,147 @@
+package meghanada.store;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import meghanada.module.ModuleHelper;
+import meghanada.reflect.ClassIndex;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps the data of jars, which never changes for a given jar file, in one immutable {@link
+ * SnapshotFile} per jar. The file name is derived from the jar path, size and modification time,
+ * so a changed jar simply misses and falls back to the project database. The JDK classes read
+ * through jrt-fs are keyed by the runtime image of java.home the same way.
+ *
+ * <p>Only class indexes are kept. Parameter names are resources of the server jar and member
+ * descriptors are evicted and reloaded per class, so neither is immutable per jar.
+ */
+class SnapshotStore {
+
+  private static final Logger log = LogManager.getLogger(SnapshotStore.class);
+
+  private static final String CLASS_INDEX_PREFIX = "class:";
+  // the jar a snapshot was written for, used to prune snapshots of removed or changed jars
+  private static final String SOURCE_KEY = "source";
+  private static final String SUFFIX = ".snap";
+
+  private final File dir;
+
+  SnapshotStore(final File dir) {
+    this.dir = dir;
+  }
+
+  /** The file the snapshot of the jar depends on, the runtime image for the JDK. */
+  private static File getSourceFile(final File jar) {
+    if (ModuleHelper.isJrtFsFile(jar)) {
+      return new File(System.getProperty("java.home"), "lib" + File.separator + "modules");
+    }
+    return jar;
+  }
+
+  private File getSnapshotFile(final File jar) {
+    final String hash =
+        Hashing.sha256()
+            .newHasher()
+            .putString(jar.getPath(), StandardCharsets.UTF_8)
+            .putLong(jar.length())
+            .putLong(jar.lastModified())
+            .hash()
+            .toString();
+    return new File(this.dir, hash.substring(0, 32) + SUFFIX);
+  }
+
+  boolean saveClassIndexes(final File jar, final Collection<ClassIndex> indexes) {
+    final File source = getSourceFile(jar);
+    if (!source.isFile() || (!this.dir.exists() && !this.dir.mkdirs())) {
+      return false;
+    }
+    final Map<String, byte[]> entries = new HashMap<>(indexes.size() + 1);
+    entries.put(SOURCE_KEY, jar.getPath().getBytes(StandardCharsets.UTF_8));
+    for (final ClassIndex index : indexes) {
+      final byte[] b = BinaryCodec.encode(index);
+      if (nonNull(b)) {
+        entries.put(CLASS_INDEX_PREFIX + index.getRawDeclaration(), b);
+      }
+    }
+    try {
+      SnapshotFile.write(this.getSnapshotFile(source), entries);
+      return true;
+    } catch (IOException e) {
+      log.warn("fail write snapshot {} {}", jar, e.getMessage());
+      return false;
+    }
+  }
+
+  Optional<List<ClassIndex>> loadClassIndexes(final File jar) {
+    final File file = this.getSnapshotFile(getSourceFile(jar));
+    if (!file.exists()) {
+      return Optional.empty();
+    }
+    try {
+      final SnapshotFile snapshot = SnapshotFile.open(file);
+      final List<ClassIndex> result = new ArrayList<>(snapshot.size());
+      for (int i = 0; i < snapshot.size(); i++) {
+        if (snapshot.getKey(i).startsWith(CLASS_INDEX_PREFIX)) {
+          final ByteBuffer value = snapshot.getValue(i);
+          result.add((ClassIndex) BinaryCodec.decode(value));
+        }
+      }
+      return Optional.of(result);
+    } catch (IOException | ClassCastException e) {
+      log.warn("broken snapshot {} {}", file, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Deletes the snapshots whose jar is gone or has changed since, and the ones written before the
+   * jar was recorded. Returns the size of the snapshots that are kept.
+   */
+  long prune() {
+    final File[] files = this.dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+    long size = 0;
+    if (isNull(files)) {
+      return size;
+    }
+    for (final File file : files) {
+      if (this.isStale(file)) {
+        if (!file.delete()) {
+          log.warn("fail delete snapshot {}", file);
+        }
+        continue;
+      }
+      size += file.length();
+    }
+    return size;
+  }
+
+  private boolean isStale(final File file) {
+    try {
+      final ByteBuffer value = SnapshotFile.open(file).get(SOURCE_KEY);
+      if (isNull(value)) {
+        return true;
+      }
+      final byte[] b = new byte[value.remaining()];
+      value.get(b);
+      final File jar = new File(new String(b, StandardCharsets.UTF_8));
+      final File source = getSourceFile(jar);
+      return !source.isFile() || !file.equals(this.getSnapshotFile(source));
+    } catch (IOException e) {
+      log.warn("broken snapshot {} {}", file, e.getMessage());
+      return true;
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package meghanada.system;
+
+import oshi.SystemInfo;
+import oshi.hardware.CentralProcessor;
+import oshi.hardware.HardwareAbstractionLayer;
+
+public class CpuMonitor {
+
+  private final SystemInfo si = new SystemInfo();
+  private final HardwareAbstractionLayer hal = si.getHardware();
+  private final CentralProcessor processor = hal.getProcessor();
+
+  public synchronized double getCpuUsage() {
+    return processor.getSystemCpuLoad();
+  }
+}
@@ -76,6 +76,10 @@ public class TelemetryUtils {
       Measure.MeasureDouble.create("member_cache_miss_rate", "The member cache miss rate", "1.0");
   private static final Measure.MeasureDouble M_MEMORY =
       Measure.MeasureDouble.create("memory", "The used memory", "M");
+  private static final Measure.MeasureLong M_STORE_QUEUE_DEPTH =
+      Measure.MeasureLong.create("store_queue_depth", "The number of queued writes", "1");
+  private static final Measure.MeasureLong M_STORE_QUEUE_LAG_MS =
+      Measure.MeasureLong.create("store_queue_lag", "The age of the oldest queued write", "ms");
 
   private static final TagKey KEY_COMMAND = TagKey.create("command");
   private static final TagKey KEY_DESCRIPTION = TagKey.create("description");
@@ -252,6 +256,18 @@ public class TelemetryUtils {
               M_MEMORY,
               Aggregation.LastValue.create(),
               Collections.unmodifiableList(Collections.singletonList(KEY_UID))),
+          View.create(
+              View.Name.create("meghanada/store_queue_depth"),
+              "The number of queued writes",
+              M_STORE_QUEUE_DEPTH,
+              Aggregation.LastValue.create(),
+              Collections.unmodifiableList(Collections.singletonList(KEY_UID))),
+          View.create(
+              View.Name.create("meghanada/store_queue_lag"),
+              "The age of the oldest queued write",
+              M_STORE_QUEUE_LAG_MS,
+              Aggregation.LastValue.create(),
+              Collections.unmodifiableList(Collections.singletonList(KEY_UID))),
         };
 
     ViewManager vmgr = Stats.getViewManager();
@@ -345,6 +361,13 @@ public class TelemetryUtils {
         TelemetryUtils.KEY_UID, getUID(), TelemetryUtils.M_MEMORY, usedMemory);
   }
 
+  public static void recordStoreQueue(long depth, long lag) {
+    TelemetryUtils.recordTaggedStat(
+        TelemetryUtils.KEY_UID, getUID(), TelemetryUtils.M_STORE_QUEUE_DEPTH, depth);
+    TelemetryUtils.recordTaggedStat(
+        TelemetryUtils.KEY_UID, getUID(), TelemetryUtils.M_STORE_QUEUE_LAG_MS, lag);
+  }
+
   public static void recordSelectedCompletion(String desc, long val) {
     TelemetryUtils.recordTaggedStat(
         new TagKey[] {TelemetryUtils.KEY_UID, TelemetryUtils.KEY_DESCRIPTION},
@@ -0,0 +1,38 @@
+package meghanada.typeinfo;
+
+import com.google.common.base.MoreObjects;
+import java.util.List;
+
+public class TypeHierarchy {
+
+  private final String fqcn;
+  private final List<String> supers;
+  private final List<String> subtypes;
+
+  public TypeHierarchy(String fqcn, List<String> supers, List<String> subtypes) {
+    this.fqcn = fqcn;
+    this.supers = supers;
+    this.subtypes = subtypes;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("fqcn", fqcn)
+        .add("supers", supers)
+        .add("subtypes", subtypes)
+        .toString();
+  }
+
+  public String getFqcn() {
+    return fqcn;
+  }
+
+  public List<String> getSupers() {
+    return supers;
+  }
+
+  public List<String> getSubtypes() {
+    return subtypes;
+  }
+}
@@ -165,6 +165,16 @@ public class TypeInfoSearcher {
     }
   }
 
+  private static Optional<String> searchClassName(Source source, int line) {
+    for (ClassScope scope : source.getClassScopes()) {
+      Optional<ClassScope> cs = searchClass(scope, line);
+      if (cs.isPresent()) {
+        return Optional.of(cs.get().getFQCN());
+      }
+    }
+    return Optional.ofNullable(source.getFQCN());
+  }
+
   private static Optional<ClassScope> searchClass(ClassScope parent, int line) {
     searchClass:
     while (true) {
@@ -266,4 +276,74 @@ public class TypeInfoSearcher {
               });
     }
   }
+
+  private static Optional<String> searchFQCN(File file, int line, int column, String symbol)
+      throws ExecutionException, IOException {
+    return getSource(file)
+        .flatMap(
+            src -> {
+              Optional<String> cond = searchClassCondition(src, line, column, symbol);
+              return cond.isPresent() ? cond : searchClassName(src, line);
+            });
+  }
+
+  @SuppressWarnings("try")
+  public static Optional<TypeHierarchy> searchHierarchy(
+      File file, int line, int column, String symbol) throws ExecutionException, IOException {
+
+    try (TelemetryUtils.ScopedSpan ss =
+        TelemetryUtils.startScopedSpan("TypeInfoSearcher.searchHierarchy")) {
+
+      TelemetryUtils.ScopedSpan.addAnnotation(
+          TelemetryUtils.annotationBuilder()
+              .put("file", file.getPath())
+              .put("line", line)
+              .put("column", column)
+              .build("args"));
+
+      CachedASMReflector reflector = CachedASMReflector.getInstance();
+      return searchFQCN(file, line, column, symbol)
+          .map(
+              fqcn -> {
+                List<String> supers = new ArrayList<>(reflector.getSuperClass(fqcn));
+                List<String> subtypes = new ArrayList<>(8);
+                for (String sub : reflector.getSubClasses(fqcn, false)) {
+                  subtypes.add(ClassNameUtils.replaceInnerMark(sub));
+                }
+                return new TypeHierarchy(fqcn, supers, subtypes);
+              });
+    }
+  }
+
+  @SuppressWarnings("try")
+  public static List<String> searchImplementations(File file, int line, int column, String symbol)
+      throws ExecutionException, IOException {
+
+    try (TelemetryUtils.ScopedSpan ss =
+        TelemetryUtils.startScopedSpan("TypeInfoSearcher.searchImplementations")) {
+
+      TelemetryUtils.ScopedSpan.addAnnotation(
+          TelemetryUtils.annotationBuilder()
+              .put("file", file.getPath())
+              .put("line", line)
+              .put("column", column)
+              .build("args"));
+
+      CachedASMReflector reflector = CachedASMReflector.getInstance();
+      Optional<String> fqcn = searchFQCN(file, line, column, symbol);
+      if (!fqcn.isPresent()) {
+        return Collections.emptyList();
+      }
+      List<String> result = new ArrayList<>(16);
+      for (String sub : reflector.getSubClasses(fqcn.get(), true)) {
+        // interfaces extending it don't implement anything
+        boolean impl =
+            reflector.containsClassIndex(sub).map(index -> !index.isInterface()).orElse(true);
+        if (impl) {
+          result.add(ClassNameUtils.replaceInnerMark(sub));
+        }
+      }
+      return result;
+    }
+  }
 }
@@ -1,8 +1,5 @@
 package meghanada.utils;
 
-import static java.util.Objects.isNull;
-
-import com.google.common.base.Splitter;
 import com.google.common.escape.Escaper;
 import com.google.common.escape.Escapers;
 import java.io.ByteArrayInputStream;
@@ -12,18 +9,9 @@ import java.nio.charset.StandardCharsets;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class StringUtils {
 
-  private static final String PatternForLowerCaseWord = "[^A-Z]*";
-  private static final String PatternForAnything = ".*";
-  private static final String PatternForSplitByUpper = "(?=\\p{Upper})";
-  private static final Map<String, Pattern> cachedPatterns = new HashMap<>(500);
   private static final String ALGORITHM_SHA_256 = "SHA-256";
   private static final Escaper javaEscaper;
 
@@ -60,64 +48,87 @@ public class StringUtils {
   }
 
   public static boolean contains(final String name, final String target) {
-    return name.toLowerCase().contains(target.toLowerCase());
-  }
-
-  public static boolean isMatchCamelCase(final String name, final String target) {
-    boolean matched;
-    if (org.apache.commons.lang3.StringUtils.isEmpty(target)) {
-      matched = true;
-    } else {
-      if (hasUpperCase(target)) {
-        Pattern pattern = fromCacheOrCompile(target);
-        if (isNull(pattern)) {
-          matched = name.contains(target);
-        } else {
-          matched = matchAndUpdateCache(pattern, name);
-        }
-      } else {
-        matched = matchWhenAllLowerCaseLetters(name, target);
+    final int len = target.length();
+    final int max = name.length() - len;
+    for (int i = 0; i <= max; i++) {
+      if (name.regionMatches(true, i, target, 0, len)) {
+        return true;
       }
     }
-    return matched;
+    return false;
   }
 
-  private static Boolean matchAndUpdateCache(Pattern p, String name) {
-    Matcher m = p.matcher(name);
-    return m.matches();
-  }
-
-  private static boolean hasUpperCase(String target) {
-    return !target.equals(target.toLowerCase());
+  public static long charMask(final CharSequence s) {
+    long mask = 0L;
+    for (int i = 0, len = s.length(); i < len; i++) {
+      mask |= charBit(s.charAt(i));
+    }
+    return mask;
   }
 
-  private static boolean matchWhenAllLowerCaseLetters(String name, String target) {
-    return name.startsWith(target);
+  private static long charBit(final char c) {
+    // case folded, a name can only contain the query if it has every bit of the query
+    if (c >= 'a' && c <= 'z') {
+      return 1L << (c - 'a');
+    }
+    if (c >= 'A' && c <= 'Z') {
+      return 1L << (c - 'A');
+    }
+    if (c >= '0' && c <= '9') {
+      return 1L << (26 + c - '0');
+    }
+    if (c == '_') {
+      return 1L << 36;
+    }
+    if (c == '$') {
+      return 1L << 37;
+    }
+    return 1L << 38;
   }
 
-  private static Pattern compilePattern(List<String> input) {
-    Pattern p = null;
-    if (input.size() > 0) {
-      StringBuilder sb = new StringBuilder(64);
-      for (String s : input) {
-        sb.append(s).append(PatternForLowerCaseWord);
+  public static boolean isMatchCamelCase(final String name, final String target) {
+    final int tlen = target.length();
+    if (tlen == 0) {
+      return true;
+    }
+    if (!hasUpperCase(target)) {
+      return name.startsWith(target);
+    }
+    // each hump of the target starts at the next upper case letter of the name
+    final int nlen = name.length();
+    int pos = 0;
+    int start = 0;
+    while (start < tlen) {
+      int end = start + 1;
+      while (end < tlen && !isUpper(target.charAt(end))) {
+        end++;
       }
-      sb.append(PatternForAnything);
-      p = Pattern.compile(sb.toString());
+      if (start > 0) {
+        while (pos < nlen && !isUpper(name.charAt(pos))) {
+          pos++;
+        }
+      }
+      final int len = end - start;
+      if (!name.regionMatches(pos, target, start, len)) {
+        return false;
+      }
+      pos += len;
+      start = end;
     }
-    return p;
+    return true;
+  }
+
+  private static boolean isUpper(final char c) {
+    return c >= 'A' && c <= 'Z';
   }
 
-  private static Pattern fromCacheOrCompile(String target) {
-    Pattern pattern = cachedPatterns.get(target);
-    if (isNull(pattern)) {
-      List<String> r = Splitter.onPattern(PatternForSplitByUpper).splitToList(target);
-      pattern = compilePattern(r);
-      if (!isNull(pattern)) {
-        cachedPatterns.put(target, pattern);
+  private static boolean hasUpperCase(final String target) {
+    for (int i = 0, len = target.length(); i < len; i++) {
+      if (isUpper(target.charAt(i))) {
+        return true;
       }
     }
-    return pattern;
+    return false;
   }
 
   public static String getChecksum(final String s) throws IOException {
@@ -6,6 +6,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.stream.Collectors;
 import meghanada.GradleTestBase;
 import meghanada.analyze.CompileResult;
 import meghanada.config.Config;
@@ -29,6 +30,8 @@ public class JavaCompletionTest extends GradleTestBase {
     CompileResult compileResult2 = project.compileTestJava();
     Config config = Config.load();
     config.update("camel-case-completion", false);
+    // wait for all candidate providers
+    config.update("completion-deadline", 0);
     Thread.sleep(1000 * 3);
   }
 
@@ -376,6 +379,25 @@ public class JavaCompletionTest extends GradleTestBase {
     assertEquals("analyze", unit1.getName());
   }
 
+  @Test
+  public void testNarrowCompletion() throws Exception {
+    JavaCompletion completion = getCompletion();
+    File file =
+        new File(
+                project.getProjectRootPath(),
+                "./src/main/java/meghanada/analyze/ExpressionScope.java")
+            .getCanonicalFile();
+    assertTrue(file.exists());
+    timeIt(() -> completion.completionAt(file, 18, 4, "*log#"));
+    final Collection<? extends CandidateUnit> narrowed =
+        timeIt(() -> completion.completionAt(file, 18, 5, "*log#i"));
+    final Collection<? extends CandidateUnit> units =
+        getCompletion().completionAt(file, 18, 5, "*log#i");
+    assertEquals(
+        units.stream().map(CandidateUnit::getDisplayDeclaration).collect(Collectors.toList()),
+        narrowed.stream().map(CandidateUnit::getDisplayDeclaration).collect(Collectors.toList()));
+  }
+
   private JavaCompletion getCompletion() throws Exception {
     return new JavaCompletion(GradleTestBase::getProject);
   }
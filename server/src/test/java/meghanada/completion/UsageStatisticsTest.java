@@ -0,0 +1,46 @@
+package meghanada.completion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import meghanada.reflect.FieldDescriptor;
+import meghanada.reflect.MemberDescriptor;
+import org.junit.Test;
+
+public class UsageStatisticsTest {
+
+  private static MemberDescriptor field(final String name) {
+    return new FieldDescriptor("com.example.Foo", name, "public", "java.lang.String");
+  }
+
+  @Test
+  public void testRanking() {
+    final UsageStatistics statistics = new UsageStatistics();
+    final MemberDescriptor often = field("often");
+    final MemberDescriptor rarely = field("rarely");
+    statistics.record("com.example.Bar", often);
+    statistics.record("com.example.Bar", often);
+    statistics.record("com.example.Bar", rarely);
+
+    final UsageStatistics.Ranking ranking = statistics.ranking("com.example.Bar");
+    assertTrue(ranking.compare(often, rarely) < 0);
+    assertTrue(ranking.compare(rarely, often) > 0);
+    // another context has no history
+    assertEquals(0, statistics.ranking("com.example.Baz").compare(often, rarely));
+    assertEquals(0, UsageStatistics.Ranking.none().compare(often, rarely));
+  }
+
+  @Test
+  public void testBounded() {
+    final UsageStatistics statistics = new UsageStatistics(16);
+    final MemberDescriptor hot = field("hot");
+    for (int i = 0; i < 8; i++) {
+      statistics.record("com.example.Bar", hot);
+    }
+    for (int i = 0; i < 100; i++) {
+      statistics.record("com.example.Bar", field("cold" + i));
+    }
+    assertTrue(statistics.size() <= 16);
+    assertTrue(statistics.ranking("com.example.Bar").score(hot) > 0);
+  }
+}
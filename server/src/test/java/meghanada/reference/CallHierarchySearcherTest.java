@@ -0,0 +1,111 @@
+package meghanada.reference;
+
+import static meghanada.config.Config.timeIt;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import meghanada.GradleTestBase;
+import meghanada.analyze.CompileResult;
+import meghanada.store.CallGraph;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CallHierarchySearcherTest extends GradleTestBase {
+
+  private static final String FORMAT_JAVA_FILE =
+      "meghanada.utils.FileUtils#formatJavaFile(java.lang.String)";
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    GradleTestBase.setupReflector(true);
+    CompileResult compileResult1 = project.compileJava();
+    CompileResult compileResult2 = project.compileTestJava();
+    Thread.sleep(1000 * 5);
+  }
+
+  @AfterClass
+  public static void shutdown() throws Exception {
+    GradleTestBase.shutdown();
+  }
+
+  private static File getFile(String path) throws Exception {
+    File f = new File(project.getProjectRootPath(), path).getCanonicalFile();
+    assertTrue(f.exists());
+    return f;
+  }
+
+  private static int lineOf(File f, String code) throws Exception {
+    List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+    for (int i = 0; i < lines.size(); i++) {
+      if (lines.get(i).contains(code)) {
+        return i + 1;
+      }
+    }
+    throw new AssertionError(code);
+  }
+
+  @Test
+  public void testSignature01() throws Exception {
+    File f = getFile("./src/main/java/meghanada/utils/FileUtils.java");
+    int line = lineOf(f, "public static void formatJavaFile(final String path)");
+    Optional<String> signature = CallHierarchySearcher.getSignature(f, line, 22, "formatJavaFile");
+    assertTrue(signature.isPresent());
+    assertEquals(FORMAT_JAVA_FILE, signature.get());
+  }
+
+  @Test
+  public void testCallGraph01() throws Exception {
+    File session = getFile("./src/main/java/meghanada/session/Session.java");
+    // both overloads are grouped under the same callee
+    List<CallGraph.Edge> callers =
+        CallGraph.getCallers(
+            Collections.singletonList(
+                CallGraph.calleeKey("meghanada.utils.FileUtils", "formatJavaFile")));
+    assertEquals(2, callers.size());
+    for (CallGraph.Edge edge : callers) {
+      assertEquals(session.getPath(), edge.filePath);
+      assertEquals("meghanada.session.Session#formatCode(java.lang.String)", edge.caller);
+    }
+
+    List<String> callees =
+        CallGraph.getCallees(FORMAT_JAVA_FILE).stream()
+            .map(edge -> edge.callee)
+            .collect(Collectors.toList());
+    assertTrue(callees.contains("meghanada.utils.FileUtils#readFile"));
+    assertTrue(callees.contains("meghanada.formatter.JavaFormatter#formatGoogleStyle"));
+  }
+
+  @Test
+  public void testIncomingCalls01() throws Exception {
+    File session = getFile("./src/main/java/meghanada/session/Session.java");
+    List<Call> result = timeIt(() -> CallHierarchySearcher.getIncomingCalls(FORMAT_JAVA_FILE));
+    // the overload with the format properties is not a caller
+    assertEquals(1, result.size());
+    Call call = result.get(0);
+    assertEquals("meghanada.session.Session#formatCode(java.lang.String)", call.getSignature());
+    assertEquals(session.getPath(), call.getPath());
+    assertEquals(lineOf(session, "FileUtils.formatJavaFile(path);"), call.getLine());
+  }
+
+  @Test
+  public void testOutgoingCalls01() throws Exception {
+    File f = getFile("./src/main/java/meghanada/utils/FileUtils.java");
+    List<Call> result = timeIt(() -> CallHierarchySearcher.getOutgoingCalls(FORMAT_JAVA_FILE));
+    List<String> signatures = result.stream().map(Call::getSignature).collect(Collectors.toList());
+    assertTrue(signatures.contains("meghanada.utils.FileUtils#readFile(java.lang.String)"));
+    assertTrue(
+        signatures.contains(
+            "meghanada.formatter.JavaFormatter#formatGoogleStyle(java.lang.String)"));
+    for (Call call : result) {
+      assertEquals(f.getPath(), call.getPath());
+    }
+  }
+}
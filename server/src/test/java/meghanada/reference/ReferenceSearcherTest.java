@@ -2,13 +2,17 @@ package meghanada.reference;
 
 import static meghanada.config.Config.timeIt;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import meghanada.GradleTestBase;
 import meghanada.analyze.CompileResult;
+import meghanada.store.ReferenceIndex;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -105,6 +109,17 @@ public class ReferenceSearcherTest extends GradleTestBase {
     assertEquals(838, reference.getLine());
   }
 
+  @Test
+  public void testIndexedMethod01() throws Exception {
+    // the postings stored with the sources are what the search reads
+    List<ReferenceIndex.Posting> postings =
+        ReferenceIndex.getPostings(
+            Collections.singletonList(
+                ReferenceIndex.methodKey("meghanada.utils.FileUtils", "formatJavaFile")));
+    assertEquals(1, postings.size());
+    assertEquals(838, postings.get(0).line);
+  }
+
   @Test
   public void testSearchMethod02() throws Exception {
     File f =
@@ -167,6 +182,28 @@ public class ReferenceSearcherTest extends GradleTestBase {
     //    }
   }
 
+  @Test
+  public void testStreamClass01() throws Exception {
+    File f =
+        new File(project.getProjectRootPath(), "./src/main/java/meghanada/utils/FileUtils.java")
+            .getCanonicalFile();
+    assertTrue(f.exists());
+
+    final ReferenceSearcher searcher = getSearcher();
+    final List<Reference> result = new ArrayList<>(64);
+    boolean completed =
+        searcher.searchReference(
+            1L, f, 45, 20, "FileUtils", references -> result.addAll(references));
+    assertTrue(completed);
+    assertEquals(67, result.size());
+    // the current file first
+    assertEquals(f.getPath(), result.get(0).getPath());
+
+    // a cancel that arrives before the search starts is kept
+    searcher.cancel(2L);
+    assertFalse(searcher.searchReference(2L, f, 45, 20, "FileUtils", references -> true));
+  }
+
   @Test
   public void testManyMethod() throws Exception {
     File f =
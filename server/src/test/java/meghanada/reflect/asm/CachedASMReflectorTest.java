@@ -3,9 +3,11 @@ package meghanada.reflect.asm;
 import static meghanada.config.Config.debugIt;
 import static meghanada.config.Config.timeIt;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.base.Stopwatch;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -14,6 +16,7 @@ import meghanada.analyze.CompileResult;
 import meghanada.cache.GlobalCache;
 import meghanada.config.Config;
 import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.ClassIndex;
 import meghanada.reflect.MemberDescriptor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -62,6 +65,18 @@ public class CachedASMReflectorTest extends GradleTestBase {
     assertEquals(1, candidateUnits.size());
   }
 
+  @Test
+  public void testSearchClasses02() throws Exception {
+    final CachedASMReflector cachedASMReflector = CachedASMReflector.getInstance();
+    final Map<String, List<ClassIndex>> result =
+        cachedASMReflector.searchClasses(Arrays.asList("Map", "Entry", "NoSuchClassName"), true);
+    assertEquals(1, result.get("Map").size());
+    assertTrue(
+        result.get("Entry").stream()
+            .anyMatch(c -> c.getRawDeclaration().equals("java.util.Map$Entry")));
+    assertTrue(result.get("NoSuchClassName").isEmpty());
+  }
+
   @Test
   public void testGetPackageClasses1() throws Exception {
     CachedASMReflector cachedASMReflector = CachedASMReflector.getInstance();
@@ -166,6 +181,35 @@ public class CachedASMReflectorTest extends GradleTestBase {
     }
   }
 
+  @Test
+  public void testReflectTypeParamShared() throws Exception {
+    CachedASMReflector cachedASMReflector = CachedASMReflector.getInstance();
+
+    String fqcn = "java.util.Map<String, Long>";
+    List<MemberDescriptor> first = cachedASMReflector.reflect(fqcn);
+    List<MemberDescriptor> second = cachedASMReflector.reflect(fqcn);
+    assertEquals(first.size(), second.size());
+    for (int i = 0; i < first.size(); i++) {
+      assertSame(first.get(i), second.get(i));
+    }
+    // the raw members are not touched by the substitution
+    for (MemberDescriptor md : cachedASMReflector.reflect("java.util.Map")) {
+      assertTrue(md.typeParameterMap.isEmpty());
+    }
+  }
+
+  @Test
+  public void testGetSubClasses() throws Exception {
+    CachedASMReflector cachedASMReflector = CachedASMReflector.getInstance();
+
+    List<String> direct = cachedASMReflector.getSubClasses("java.util.AbstractList<E>", false);
+    assertTrue(direct.contains("java.util.ArrayList"));
+    List<String> all = cachedASMReflector.getSubClasses("java.util.Collection", true);
+    assertTrue(all.contains("java.util.ArrayList"));
+    Collection<String> supers = cachedASMReflector.getSuperClass("java.util.ArrayList");
+    assertTrue(supers.contains("java.util.List<E>"));
+  }
+
   @Test
   public void testReflectTypeParam2() throws Exception {
     CachedASMReflector cachedASMReflector = CachedASMReflector.getInstance();
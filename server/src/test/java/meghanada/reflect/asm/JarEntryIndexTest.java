@@ -0,0 +1,120 @@
+package meghanada.reflect.asm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JarEntryIndexTest {
+
+  private File tempDir;
+
+  @Before
+  public void setup() {
+    this.tempDir = Files.createTempDir();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    org.apache.commons.io.FileUtils.deleteDirectory(this.tempDir);
+  }
+
+  private File createJar(String name, String... entries) throws IOException {
+    File jar = new File(this.tempDir, name);
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+      for (String entry : entries) {
+        out.putNextEntry(new JarEntry(entry));
+        out.write(entry.getBytes("UTF-8"));
+        out.closeEntry();
+      }
+    }
+    return jar;
+  }
+
+  private static String read(JarEntryIndex.Handle handle, String className) throws IOException {
+    JarEntry entry = handle.getEntry(className);
+    assertNotNull(className, entry);
+    try (InputStream in = handle.getInputStream(entry)) {
+      return new String(ByteStreams.toByteArray(in), "UTF-8");
+    }
+  }
+
+  private static boolean isClosed(JarEntryIndex.Handle handle, String className) {
+    try (InputStream in = handle.getInputStream(handle.getEntry(className))) {
+      return false;
+    } catch (IllegalStateException | IOException e) {
+      return true;
+    }
+  }
+
+  @Test
+  public void testInnerClass() throws Exception {
+    File jar = createJar("a.jar", "a/Outer.class", "a/Outer$Inner.class", "a/b.txt");
+    JarEntryIndex index = new JarEntryIndex(4);
+    try (JarEntryIndex.Handle handle = index.open(jar)) {
+      assertEquals("a/Outer$Inner.class", read(handle, "a.Outer$Inner"));
+      assertEquals("a/Outer$Inner.class", read(handle, "a.Outer.Inner"));
+      assertEquals("a/Outer.class", read(handle, "a.Outer"));
+      assertNull(handle.getEntry("a.b"));
+    }
+  }
+
+  @Test
+  public void testReopenChangedJar() throws Exception {
+    File jar = createJar("a.jar", "a/A.class");
+    JarEntryIndex index = new JarEntryIndex(4);
+    JarEntryIndex.Handle first = index.open(jar);
+    first.close();
+    JarEntryIndex.Handle second = index.open(jar);
+    second.close();
+    assertSame(first, second);
+
+    // other size
+    createJar("a.jar", "a/A.class", "a/B.class");
+    JarEntryIndex.Handle third = index.open(jar);
+    assertNotSame(second, third);
+    assertEquals("a/B.class", read(third, "a.B"));
+    third.close();
+
+    // same size, other mtime
+    assertTrue(jar.setLastModified(jar.lastModified() - 10000));
+    try (JarEntryIndex.Handle fourth = index.open(jar)) {
+      assertNotSame(third, fourth);
+      assertEquals("a/A.class", read(fourth, "a.A"));
+    }
+  }
+
+  @Test
+  public void testEvictHeldHandle() throws Exception {
+    File a = createJar("a.jar", "a/A.class");
+    File b = createJar("b.jar", "b/B.class");
+    JarEntryIndex index = new JarEntryIndex(1);
+    JarEntryIndex.Handle held = index.open(a);
+    // evicts a.jar
+    try (JarEntryIndex.Handle other = index.open(b)) {
+      assertEquals("b/B.class", read(other, "b.B"));
+    }
+    assertEquals("a/A.class", read(held, "a.A"));
+    held.close();
+    assertTrue(isClosed(held, "a.A"));
+
+    try (JarEntryIndex.Handle reopened = index.open(a)) {
+      assertNotSame(held, reopened);
+      assertEquals("a/A.class", read(reopened, "a.A"));
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package meghanada.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import meghanada.analyze.ClassScope;
+import meghanada.analyze.ExpressionScope;
+import meghanada.analyze.MethodCall;
+import meghanada.analyze.MethodScope;
+import meghanada.analyze.Position;
+import meghanada.analyze.Range;
+import meghanada.analyze.Source;
+import meghanada.reflect.CandidateUnit;
+import meghanada.reflect.ClassIndex;
+import meghanada.reflect.FieldDescriptor;
+import meghanada.reflect.MemberDescriptor;
+import meghanada.reflect.MethodDescriptor;
+import meghanada.reflect.MethodParameter;
+import org.junit.Test;
+
+public class BinaryCodecTest {
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testMembers() throws Exception {
+    List<MemberDescriptor> members = new ArrayList<>(2);
+    members.add(new FieldDescriptor("a.B", "count", "private", "int"));
+    List<MethodParameter> parameters = new ArrayList<>(1);
+    parameters.add(new MethodParameter("java.lang.String", "s", false));
+    MethodDescriptor md =
+        new MethodDescriptor(
+            "a.B",
+            "parse",
+            "public static",
+            parameters,
+            null,
+            "java.util.List<T>",
+            false,
+            CandidateUnit.MemberType.METHOD);
+    md.typeParameters = new HashSet<>(Collections.singletonList("T"));
+    members.add(md);
+
+    byte[] b = Serializer.asByte(members);
+    assertTrue(BinaryCodec.isEncoded(b));
+    List<MemberDescriptor> result = Serializer.asObject(b, List.class);
+    assertEquals(members, result);
+    MethodDescriptor parsed = (MethodDescriptor) result.get(1);
+    assertEquals("java.lang.String s", parsed.parameters.get(0).getParameter(false));
+    assertEquals(md.typeParameters, parsed.typeParameters);
+    assertNull(parsed.exceptions);
+  }
+
+  @Test
+  public void testClassIndex() throws Exception {
+    List<String> supers = new ArrayList<>(1);
+    supers.add("java.util.AbstractList<E>");
+    ClassIndex index = new ClassIndex("a.MyList", Collections.singletonList("E"), supers);
+    index.filePath = "/tmp/classes";
+
+    ClassIndex result = Serializer.asObject(Serializer.asByte(index), ClassIndex.class);
+    assertEquals(index.getDisplayDeclaration(), result.getDisplayDeclaration());
+    assertEquals(index.supers, result.supers);
+    assertEquals(index.filePath, result.filePath);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCallerMap() throws Exception {
+    Map<String, Set<String>> map = new ConcurrentHashMap<>(4);
+    map.put("a.B", new HashSet<>(Collections.singletonList("a.C")));
+    map.put("a.C", new HashSet<>(0));
+
+    Map<String, Set<String>> result =
+        Serializer.asObject(Serializer.asByte(map), ConcurrentHashMap.class);
+    assertEquals(map, result);
+  }
+
+  @Test
+  public void testSource() throws Exception {
+    Range range = new Range(new Position(1, 1), new Position(10, 1));
+    Range callRange = new Range(new Position(3, 5), new Position(3, 20));
+    Source source = new Source("/tmp/a/A.java");
+    source.setPackageName("a");
+    source.importClasses.add("java.util.List");
+    ClassScope cs = new ClassScope("a.A", range, 0, range);
+    MethodScope ms = new MethodScope("a.A", "run", range, 10, range, false);
+    ms.returnType = "void";
+    ms.parent = cs;
+    cs.scopes.add(ms);
+    ExpressionScope expr = new ExpressionScope(20, callRange);
+    MethodCall mc = new MethodCall("size", 22, callRange, callRange);
+    mc.returnType = "int";
+    expr.methodCalls.add(mc);
+    expr.expressionReturn = mc;
+    expr.parent = ms;
+    ms.expressions.add(expr);
+    source.classScopes.add(cs);
+
+    byte[] b = Serializer.asByte(source);
+    assertTrue(BinaryCodec.isEncoded(b));
+    Source result = Serializer.asObject(b, Source.class);
+    assertEquals(source.filePath, result.filePath);
+    assertEquals("a", result.getPackageName());
+    assertEquals(source.importClasses, result.importClasses);
+    ClassScope rcs = result.classScopes.get(0);
+    assertEquals("a.A", rcs.getFQCN());
+    MethodScope rms = (MethodScope) rcs.scopes.get(0);
+    assertEquals("run", rms.name);
+    assertSame(rcs, rms.parent);
+    ExpressionScope rexpr = rms.expressions.get(0);
+    assertSame(rms, rexpr.parent);
+    assertSame(rexpr.methodCalls.get(0), rexpr.expressionReturn);
+    assertEquals("int", rexpr.expressionReturn.returnType);
+  }
+
+  @Test(expected = IOException.class)
+  public void testNewerSchemaVersion() throws Exception {
+    byte[] b = Serializer.asByte(new ClassIndex("a.B", new ArrayList<>(0), new ArrayList<>(0)));
+    // the version follows the four byte magic
+    b[4] = (byte) (BinaryCodec.SCHEMA_VERSION + 1);
+    Object o = BinaryCodec.decode(b);
+  }
+}
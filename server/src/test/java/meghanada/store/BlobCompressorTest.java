@@ -0,0 +1,48 @@
+package meghanada.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class BlobCompressorTest {
+
+  private static byte[] createBlob(int i) {
+    StringBuilder sb = new StringBuilder(1024);
+    for (int j = 0; j < 16; j++) {
+      sb.append("meghanada.reflect.MethodDescriptor java.util.List<java.lang.String> method")
+          .append(i * j)
+          .append(';');
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    File dir = Files.createTempDirectory("meghanada-dict").toFile();
+    BlobCompressor compressor = new BlobCompressor(dir, true);
+    List<byte[]> blobs = new ArrayList<>(64);
+    List<byte[]> compressed = new ArrayList<>(64);
+    for (int i = 0; i < 64; i++) {
+      byte[] raw = createBlob(i);
+      byte[] b = compressor.compress("Source.members", raw);
+      assertTrue(BlobCompressor.isCompressed(b));
+      assertTrue(b.length < raw.length);
+      blobs.add(raw);
+      compressed.add(b);
+    }
+    compressor.saveStats();
+
+    // dictionaries are read back from the directory
+    BlobCompressor reopened = new BlobCompressor(dir, false);
+    for (int i = 0; i < blobs.size(); i++) {
+      assertArrayEquals(blobs.get(i), reopened.decompress(compressed.get(i)));
+    }
+    org.apache.commons.io.FileUtils.deleteDirectory(dir);
+  }
+}
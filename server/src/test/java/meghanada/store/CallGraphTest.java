@@ -0,0 +1,147 @@
+package meghanada.store;
+
+import static java.util.Objects.nonNull;
+import static meghanada.GradleTestBase.TEMP_PROJECT_SETTING_DIR;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import jetbrains.exodus.entitystore.Entity;
+import meghanada.analyze.BlockScope;
+import meghanada.analyze.ClassScope;
+import meghanada.analyze.MethodCall;
+import meghanada.analyze.MethodScope;
+import meghanada.analyze.Position;
+import meghanada.analyze.Range;
+import meghanada.analyze.Source;
+import meghanada.config.Config;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CallGraphTest {
+
+  private File tempDir;
+  private String projectRoot;
+
+  @Before
+  public void setup() throws Exception {
+    System.setProperty("meghanada.source.cache", "false");
+    this.tempDir = Files.createTempDir();
+    File settingDir = new File(this.tempDir, "setting");
+    System.setProperty(TEMP_PROJECT_SETTING_DIR, settingDir.getCanonicalPath());
+    this.projectRoot = Config.getProjectRoot();
+    Config.setProjectRoot(this.tempDir.getCanonicalPath());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    ProjectDatabase.getInstance().shutdown();
+    if (nonNull(this.projectRoot)) {
+      Config.setProjectRoot(this.projectRoot);
+    }
+    org.apache.commons.io.FileUtils.deleteDirectory(this.tempDir);
+  }
+
+  private static Range range(int line, int begin, int end) {
+    return new Range(new Position(line, begin), new Position(line, end));
+  }
+
+  private static List<CallGraph.Edge> getCallers(String declaringClass, String name) {
+    return CallGraph.getCallers(
+        Collections.singletonList(CallGraph.calleeKey(declaringClass, name)));
+  }
+
+  private Source createSource() throws IOException {
+    String path = new File(this.tempDir, "A.java").getCanonicalPath();
+    Source source = new Source(path);
+    ClassScope cs = new ClassScope("a.A", null, 0, range(1, 1, 20));
+    MethodScope ms = new MethodScope("a.A", "run", range(2, 15, 18), 0, range(2, 3, 6), false);
+    cs.startBlock(ms);
+    MethodCall mc = new MethodCall("bar", 0, range(3, 9, 12), range(3, 5, 14));
+    mc.declaringClass = "b.Foo";
+    mc.setArguments(Collections.singletonList("java.lang.String"));
+    ms.addMethodCall(mc);
+    Optional<BlockScope> ended = cs.endBlock();
+    source.addClassScope(cs);
+    return source;
+  }
+
+  @Test
+  public void testSignature() throws Exception {
+    String signature =
+        CallGraph.signature(
+            "a.b.Outer$Inner<T>",
+            "put",
+            Arrays.asList("java.util.List<java.lang.String>", "java.lang.Object[]"),
+            true);
+    assertEquals("a.b.Outer.Inner#put(java.util.List,java.lang.Object[]...)", signature);
+    assertEquals("a.b.Outer.Inner#put", CallGraph.getKey(signature));
+    assertEquals(
+        Arrays.asList("java.util.List", "java.lang.Object[]"), CallGraph.getParameters(signature));
+    assertTrue(CallGraph.isVarargs(signature));
+  }
+
+  @Test
+  public void testNoParameters() throws Exception {
+    String signature =
+        CallGraph.signature("a.B", CallGraph.CONSTRUCTOR, Collections.emptyList(), true);
+    assertEquals("a.B#<init>()", signature);
+    assertEquals(Collections.emptyList(), CallGraph.getParameters(signature));
+    assertFalse(CallGraph.isVarargs(signature));
+  }
+
+  @Test
+  public void testUpdate() throws Exception {
+    Source source = createSource();
+    long id = ProjectDatabase.getInstance().storeObject(source);
+
+    List<CallGraph.Edge> callers = getCallers("b.Foo", "bar");
+    assertEquals(1, callers.size());
+    CallGraph.Edge edge = callers.get(0);
+    assertEquals("a.A#run()", edge.caller);
+    assertEquals(source.filePath, edge.filePath);
+    assertEquals(3, edge.line);
+    assertEquals(9, edge.column);
+    assertEquals(Collections.singletonList("java.lang.String"), edge.arguments);
+
+    List<CallGraph.Edge> callees = CallGraph.getCallees("a.A#run()");
+    assertEquals(1, callees.size());
+    assertEquals("b.Foo#bar", callees.get(0).callee);
+
+    assertTrue(ProjectDatabaseHelper.deleteSource(source.filePath));
+    assertTrue(getCallers("b.Foo", "bar").isEmpty());
+  }
+
+  @Test
+  public void testIndexMissingSources() throws Exception {
+    Source source = createSource();
+    ProjectDatabase database = ProjectDatabase.getInstance();
+    long id = database.storeObject(source);
+
+    // as stored before the call graph existed
+    boolean b =
+        database.execute(
+            txn -> {
+              CallGraph.deleteEdges(txn, source.filePath);
+              String path = source.filePath;
+              for (Entity entity : txn.find(Source.ENTITY_TYPE, ProjectDatabase.ID, path)) {
+                boolean deleted = entity.deleteProperty("callGraphIndexed");
+              }
+              return true;
+            });
+    assertTrue(getCallers("b.Foo", "bar").isEmpty());
+
+    CallGraph.indexMissingSources(database);
+    List<CallGraph.Edge> callers = getCallers("b.Foo", "bar");
+    assertEquals(1, callers.size());
+    assertEquals("a.A#run()", callers.get(0).caller);
+  }
+}
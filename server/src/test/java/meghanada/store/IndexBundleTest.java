@@ -0,0 +1,92 @@
+package meghanada.store;
+
+import static java.util.Objects.nonNull;
+import static meghanada.GradleTestBase.TEMP_PROJECT_SETTING_DIR;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import meghanada.config.Config;
+import meghanada.reflect.ClassIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IndexBundleTest {
+
+  private File tempDir;
+  private String projectRoot;
+
+  @Before
+  public void setup() throws Exception {
+    System.setProperty("meghanada.source.cache", "false");
+    this.tempDir = Files.createTempDir();
+    File settingDir = new File(this.tempDir, "setting");
+    System.setProperty(TEMP_PROJECT_SETTING_DIR, settingDir.getCanonicalPath());
+    this.projectRoot = Config.getProjectRoot();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    ProjectDatabase.getInstance().shutdown();
+    if (nonNull(this.projectRoot)) {
+      Config.setProjectRoot(this.projectRoot);
+    }
+    org.apache.commons.io.FileUtils.deleteDirectory(this.tempDir);
+  }
+
+  private File createProject(String name, String jarContent) throws IOException {
+    File root = new File(this.tempDir, name).getCanonicalFile();
+    File jar = new File(root, "lib/dep.jar");
+    Files.createParentDirs(jar);
+    Files.asCharSink(jar, StandardCharsets.UTF_8).write(jarContent);
+    return root;
+  }
+
+  private static String jarPath(File root) {
+    return new File(root, "lib/dep.jar").getPath();
+  }
+
+  private File exportBundle() throws Exception {
+    File root = createProject("a", "jar-1");
+    Config.setProjectRoot(root.getPath());
+    ProjectDatabase database = ProjectDatabase.getInstance();
+    ClassIndex index = new ClassIndex("dep.Foo", Collections.emptyList(), Collections.emptyList());
+    index.setFilePath(jarPath(root));
+    long id = database.storeObject(index);
+    ProjectDatabaseHelper.saveLoadJar(jarPath(root));
+
+    File bundle = new File(this.tempDir, "index.zip");
+    assertEquals(1, IndexBundle.exportBundle(bundle));
+    return bundle;
+  }
+
+  @Test
+  public void testRelocate() throws Exception {
+    File bundle = exportBundle();
+    File root = createProject("b", "jar-1");
+    Config.setProjectRoot(root.getPath());
+
+    assertEquals(1, IndexBundle.importBundle(bundle));
+    ProjectDatabase database = ProjectDatabase.getInstance();
+    ClassIndex index = database.loadObject(ClassIndex.ENTITY_TYPE, "dep.Foo", ClassIndex.class);
+    assertEquals(jarPath(root), index.getFilePath());
+    assertTrue(ProjectDatabaseHelper.getLoadJar(jarPath(root)));
+  }
+
+  @Test
+  public void testRejectChangedJar() throws Exception {
+    File bundle = exportBundle();
+    // same size, other bytes
+    File root = createProject("c", "jar-2");
+    Config.setProjectRoot(root.getPath());
+
+    assertEquals(0, IndexBundle.importBundle(bundle));
+    assertFalse(ProjectDatabaseHelper.getLoadJar(jarPath(root)));
+  }
+}
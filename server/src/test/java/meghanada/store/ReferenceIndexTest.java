@@ -0,0 +1,110 @@
+package meghanada.store;
+
+import static java.util.Objects.nonNull;
+import static meghanada.GradleTestBase.TEMP_PROJECT_SETTING_DIR;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import meghanada.analyze.ClassScope;
+import meghanada.analyze.FieldAccess;
+import meghanada.analyze.MethodCall;
+import meghanada.analyze.Position;
+import meghanada.analyze.Range;
+import meghanada.analyze.Source;
+import meghanada.config.Config;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReferenceIndexTest {
+
+  private File tempDir;
+  private String projectRoot;
+
+  @Before
+  public void setup() throws Exception {
+    System.setProperty("meghanada.source.cache", "false");
+    this.tempDir = Files.createTempDir();
+    File settingDir = new File(this.tempDir, "setting");
+    System.setProperty(TEMP_PROJECT_SETTING_DIR, settingDir.getCanonicalPath());
+    this.projectRoot = Config.getProjectRoot();
+    Config.setProjectRoot(this.tempDir.getCanonicalPath());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    ProjectDatabase.getInstance().shutdown();
+    if (nonNull(this.projectRoot)) {
+      Config.setProjectRoot(this.projectRoot);
+    }
+    org.apache.commons.io.FileUtils.deleteDirectory(this.tempDir);
+  }
+
+  private static Range range(int line, int begin, int end) {
+    return new Range(new Position(line, begin), new Position(line, end));
+  }
+
+  private static List<ReferenceIndex.Posting> getPostings(String symbol) {
+    return ReferenceIndex.getPostings(Collections.singletonList(symbol));
+  }
+
+  @Test
+  public void testStoreAndDelete() throws Exception {
+    String path = new File(this.tempDir, "A.java").getCanonicalPath();
+    Source source = new Source(path);
+    ClassScope cs = new ClassScope("a.A", null, 0, range(1, 1, 20));
+    MethodCall mc = new MethodCall("Foo", "bar", 0, range(3, 9, 12), range(3, 5, 14));
+    mc.declaringClass = "b.Foo";
+    cs.addMethodCall(mc);
+    FieldAccess fa = new FieldAccess("baz", 0, range(4, 9, 12));
+    fa.declaringClass = "b.Foo";
+    fa.scope = "foo";
+    cs.addFieldAccess(fa);
+    source.addClassScope(cs);
+    long id = ProjectDatabase.getInstance().storeObject(source);
+
+    // only the call is made through the class name
+    List<ReferenceIndex.Posting> classPostings = getPostings(ReferenceIndex.classKey("b.Foo"));
+    assertEquals(1, classPostings.size());
+    assertEquals(3, classPostings.get(0).line);
+    List<ReferenceIndex.Posting> methodPostings =
+        getPostings(ReferenceIndex.methodKey("b.Foo", "bar"));
+    assertEquals(1, methodPostings.size());
+    assertEquals(path, methodPostings.get(0).filePath);
+    assertEquals(9, methodPostings.get(0).column);
+    List<ReferenceIndex.Posting> fieldPostings =
+        getPostings(ReferenceIndex.fieldKey("b.Foo", "baz"));
+    assertEquals(1, fieldPostings.size());
+    assertEquals(4, fieldPostings.get(0).line);
+
+    assertTrue(ProjectDatabaseHelper.deleteSource(path));
+    assertTrue(getPostings(ReferenceIndex.classKey("b.Foo")).isEmpty());
+    assertTrue(getPostings(ReferenceIndex.methodKey("b.Foo", "bar")).isEmpty());
+    assertTrue(getPostings(ReferenceIndex.fieldKey("b.Foo", "baz")).isEmpty());
+  }
+
+  @Test
+  public void testLongArgument() throws Exception {
+    String path = new File(this.tempDir, "B.java").getCanonicalPath();
+    Source source = new Source(path);
+    ClassScope cs = new ClassScope("a.B", null, 0, range(1, 1, 20));
+    MethodCall mc = new MethodCall("bar", 0, range(3, 9, 12), range(3, 5, 14));
+    mc.declaringClass = "b.Foo";
+    // a long string literal argument, more than writeUTF can encode
+    String argument = Strings.repeat("x", 70 * 1024);
+    mc.setArguments(Collections.singletonList(argument));
+    cs.addMethodCall(mc);
+    source.addClassScope(cs);
+    long id = ProjectDatabase.getInstance().storeObject(source);
+
+    List<ReferenceIndex.Posting> postings = getPostings(ReferenceIndex.methodKey("b.Foo", "bar"));
+    assertEquals(1, postings.size());
+    assertEquals(argument, postings.get(0).arguments.get(0));
+  }
+}
@@ -0,0 +1,62 @@
+package meghanada.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import meghanada.reflect.ClassIndex;
+import org.junit.Test;
+
+public class SnapshotFileTest {
+
+  @Test
+  public void testReadMapped() throws Exception {
+    Map<String, byte[]> entries = new HashMap<>(64);
+    for (int i = 0; i < 64; i++) {
+      List<String> supers = new ArrayList<>(1);
+      supers.add("java.lang.Number");
+      ClassIndex index = new ClassIndex("a.Num" + i, Collections.emptyList(), supers);
+      index.filePath = "/tmp/num.jar";
+      entries.put("class:" + index.getRawDeclaration(), BinaryCodec.encode(index));
+    }
+    File file = File.createTempFile("meghanada", ".snap");
+    file.deleteOnExit();
+    SnapshotFile.write(file, entries);
+
+    SnapshotFile snapshot = SnapshotFile.open(file);
+    assertEquals(64, snapshot.size());
+    ByteBuffer value = snapshot.get("class:a.Num42");
+    ClassIndex index = (ClassIndex) BinaryCodec.decode(value);
+    assertEquals("a.Num42", index.getRawDeclaration());
+    assertEquals("/tmp/num.jar", index.filePath);
+    assertNull(snapshot.get("class:a.Num64"));
+  }
+
+  @Test
+  public void testPruneRemovedJar() throws Exception {
+    File dir = Files.createTempDirectory("meghanada-snapshots").toFile();
+    dir.deleteOnExit();
+    File kept = File.createTempFile("kept", ".jar");
+    kept.deleteOnExit();
+    File removed = File.createTempFile("removed", ".jar");
+    SnapshotStore store = new SnapshotStore(dir);
+    ClassIndex index = new ClassIndex("a.Kept", Collections.emptyList(), Collections.emptyList());
+    assertTrue(store.saveClassIndexes(kept, Collections.singletonList(index)));
+    assertTrue(store.saveClassIndexes(removed, Collections.emptyList()));
+    assertTrue(removed.delete());
+
+    assertTrue(store.prune() > 0);
+    assertTrue(store.loadClassIndexes(kept).isPresent());
+    assertEquals(1, dir.listFiles().length);
+    assertFalse(store.loadClassIndexes(removed).isPresent());
+  }
+}
@@ -51,6 +51,15 @@ public class StringUtilsTest {
     assertTrue(StringUtils.contains("AbstractConsumerConnection", "SU"));
   }
 
+  @Test
+  public void testCharMask() {
+    final long mask = StringUtils.charMask("getName");
+    assertEquals(mask, StringUtils.charMask("GETNAME"));
+    assertEquals(mask & StringUtils.charMask("gN"), StringUtils.charMask("gN"));
+    assertNotEquals(StringUtils.charMask("gX"), mask & StringUtils.charMask("gX"));
+    assertEquals(0L, StringUtils.charMask(""));
+  }
+
   @Test
   public void testGetChecksum() throws IOException {
     assertEquals(